@@ -0,0 +1,48 @@
+package edu.zzttc.backend.bench;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 基准测试用的桩对象：按方法名返回预置结果，其余方法调用直接报错，
+ * 用来替代 MyBatis Mapper，避免基准测到数据库。
+ */
+public final class Stubs {
+
+    private Stubs() {}
+
+    @SuppressWarnings("unchecked")
+    public static <T> T of(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> type.getSimpleName() + "Stub";
+                };
+            }
+            Function<Object[], Object> answer = answers.get(method.getName());
+            if (answer == null) {
+                throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+            }
+            return answer.apply(args);
+        });
+    }
+
+    /**
+     * 注册实体的表信息，使 Wrappers.lambdaQuery() 的 select/eq 等能在没有 Spring 容器时解析列名
+     */
+    public static void initTableInfo(Class<?>... entities) {
+        MapperBuilderAssistant assistant = new MapperBuilderAssistant(new MybatisConfiguration(), "");
+        for (Class<?> entity : entities) {
+            if (TableInfoHelper.getTableInfo(entity) == null) {
+                TableInfoHelper.initTableInfo(assistant, entity);
+            }
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package edu.zzttc.backend.bench;
+
+import edu.zzttc.backend.domain.entity.Plan;
+import edu.zzttc.backend.domain.entity.ScheduleItemDetail;
+import edu.zzttc.backend.domain.entity.TermConfig;
+import edu.zzttc.backend.domain.vo.schedule.DailyCourseVO;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsed;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsedCourse;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsedItem;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 基准测试用的可复现合成课表：同样的 size + seed 总是生成同样的数据。
+ * size 表示排课条数（一个课表方块 × 一组周次/教室 = 一条）。
+ */
+public final class SyntheticTimetables {
+
+    public static final long DEFAULT_SEED = 20250901L;
+
+    public static final LocalDate TERM_START = LocalDate.of(2025, 9, 1);
+
+    private static final String[] COURSES = {
+            "网络安全攻防技术", "专业写作基础", "企业合作课程", "马克思主义基本原理",
+            "习近平新时代中国特色社会主义思想概论", "毛泽东思想和中国特色社会主义理论体系概论",
+            "形势与政策", "会计学", "交通规划原理", "数据结构与算法", "操作系统", "计算机网络",
+            "编译原理", "软件工程", "数据库系统", "大学英语", "体育", "概率论与数理统计"
+    };
+
+    private static final String[] TEACHERS = {
+            "赵洋", "罗绪成", "张培培", "郭英蕊", "梁宇", "黎吉秀", "商继政", "鲜文铎", "代壮", "熊耀华", "聂旭云"
+    };
+
+    private static final String[] BUILDINGS = {"第二教学楼", "信软楼西", "科技实验大楼", "立人楼B"};
+
+    private static final String[] CN_NUM = {"", "一", "二", "三", "四", "五", "六", "七", "八", "九", "十", "十一", "十二"};
+
+    private static final String[] CN_DAY = {"", "一", "二", "三", "四", "五", "六", "日"};
+
+    private SyntheticTimetables() {}
+
+    public static TermConfig term() {
+        TermConfig term = new TermConfig();
+        term.setId(1);
+        term.setUserId(1);
+        term.setTermName("2025-2026-1");
+        term.setStartDate(TERM_START);
+        term.setTotalWeeks(20);
+        return term;
+    }
+
+    /**
+     * 已联表带出课程信息的排课记录（对应 ScheduleItemMapper.selectTermDetails 的返回）
+     */
+    public static List<ScheduleItemDetail> items(int size, long seed) {
+        Random r = new Random(seed);
+        List<ScheduleItemDetail> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int course = r.nextInt(COURSES.length);
+            ScheduleItemDetail it = new ScheduleItemDetail();
+            it.setId(i + 1);
+            it.setUserId(1);
+            it.setTermId(1);
+            it.setCourseId(course + 1);
+            it.setCourseName(COURSES[course]);
+            it.setCourseCode(courseCode(course));
+            it.setTeacherName(TEACHERS[course % TEACHERS.length]);
+            it.setDayOfWeek(1 + r.nextInt(7));
+            it.setSectionStart(1 + 2 * r.nextInt(6));
+            it.setSectionCount(2);
+            int start = 1 + r.nextInt(10);
+            it.setWeekStart(start);
+            it.setWeekEnd(Math.min(20, start + r.nextInt(12)));
+            it.setWeekOddEven(r.nextInt(5) == 0 ? 1 + r.nextInt(2) : 0);
+            it.setClassroom(classroom(r));
+            list.add(it);
+        }
+        return list;
+    }
+
+    /**
+     * 大模型输出的“规范课表文本”：星期X：第X、Y节 课程 教师 代码 周次 教室；...
+     */
+    public static String normalizedText(int size, long seed) {
+        Random r = new Random(seed);
+        List<List<String>> days = new ArrayList<>();
+        for (int d = 0; d <= 7; d++) {
+            days.add(new ArrayList<>());
+        }
+        for (int i = 0; i < size; i++) {
+            int course = r.nextInt(COURSES.length);
+            int day = 1 + r.nextInt(7);
+            int section = 1 + 2 * r.nextInt(6);
+            int start = 1 + r.nextInt(10);
+            int end = Math.min(20, start + r.nextInt(12));
+            String weeks = start == end ? start + "周" : start + "-" + end + "周";
+            String room = r.nextInt(4) == 0 ? classroom(r) + "、" + classroom(r) : classroom(r);
+            days.get(day).add("第" + CN_NUM[section] + "、" + CN_NUM[section + 1] + "节 " + COURSES[course] + " "
+                    + TEACHERS[course % TEACHERS.length] + " " + courseCode(course) + " " + weeks + " " + room);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int d = 1; d <= 7; d++) {
+            if (days.get(d).isEmpty()) {
+                continue;
+            }
+            sb.append("星期").append(CN_DAY[d]).append("：");
+            for (String line : days.get(d)) {
+                sb.append(line).append("；\n        ");
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 大模型解析结果（未规范化），包含可被合并的相邻节次
+     */
+    public static ScheduleParsed parsed(int size, long seed) {
+        Random r = new Random(seed);
+        Map<String, ScheduleParsedCourse> courses = new LinkedHashMap<>();
+        List<ScheduleParsedItem> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int course = r.nextInt(COURSES.length);
+            ScheduleParsedItem it = new ScheduleParsedItem();
+            it.setCourseName(COURSES[course]);
+            it.setTeacherName(TEACHERS[course % TEACHERS.length]);
+            it.setDayOfWeek(1 + r.nextInt(7));
+            it.setSectionStart(1 + r.nextInt(11));
+            it.setSectionCount(1 + r.nextInt(2));
+            int start = 1 + r.nextInt(10);
+            it.setWeekStart(start);
+            it.setWeekEnd(Math.min(20, start + r.nextInt(12)));
+            it.setWeekOddEven(r.nextInt(5) == 0 ? 1 + r.nextInt(2) : 0);
+            it.setClassroom(classroom(r));
+            items.add(it);
+            courses.computeIfAbsent(it.getCourseName(), k -> {
+                ScheduleParsedCourse c = new ScheduleParsedCourse();
+                c.setCourseName(k);
+                c.setCourseCode(courseCode(course));
+                c.setTeacherName(it.getTeacherName());
+                return c;
+            });
+        }
+        ScheduleParsed parsed = new ScheduleParsed();
+        parsed.setCourses(new ArrayList<>(courses.values()));
+        parsed.setItems(items);
+        return parsed;
+    }
+
+    /**
+     * 深拷贝解析结果（normalizeAndValidate 会原地修改条目）
+     */
+    public static ScheduleParsed copy(ScheduleParsed src) {
+        ScheduleParsed dst = new ScheduleParsed();
+        dst.setCourses(new ArrayList<>(src.getCourses()));
+        List<ScheduleParsedItem> items = new ArrayList<>(src.getItems().size());
+        for (ScheduleParsedItem s : src.getItems()) {
+            ScheduleParsedItem d = new ScheduleParsedItem();
+            d.setCourseName(s.getCourseName());
+            d.setTeacherName(s.getTeacherName());
+            d.setDayOfWeek(s.getDayOfWeek());
+            d.setSectionStart(s.getSectionStart());
+            d.setSectionCount(s.getSectionCount());
+            d.setWeekStart(s.getWeekStart());
+            d.setWeekEnd(s.getWeekEnd());
+            d.setWeekOddEven(s.getWeekOddEven());
+            d.setWeekMask(s.getWeekMask());
+            d.setClassroom(s.getClassroom());
+            items.add(d);
+        }
+        dst.setItems(items);
+        return dst;
+    }
+
+    /**
+     * 某一天的课程展示列表
+     */
+    public static List<DailyCourseVO> dailyCourses(int size, long seed) {
+        Random r = new Random(seed);
+        List<DailyCourseVO> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int course = r.nextInt(COURSES.length);
+            DailyCourseVO vo = new DailyCourseVO();
+            vo.setCourseName(COURSES[course]);
+            vo.setCourseCode(courseCode(course));
+            vo.setTeacherName(TEACHERS[course % TEACHERS.length]);
+            vo.setDayOfWeek(1);
+            vo.setWeek(1);
+            vo.setSectionStart(1 + 2 * (i % 6));
+            vo.setSectionCount(2);
+            vo.setClassroom(classroom(r));
+            list.add(vo);
+        }
+        return list;
+    }
+
+    /**
+     * 检索用的课表事实文本（一条排课一句），以及与之对应的自然语言问题
+     */
+    public static List<String> facts(int size, long seed) {
+        List<String> list = new ArrayList<>(size);
+        for (ScheduleItemDetail it : items(size, seed)) {
+            list.add(String.format("课程=%s; 代码=%s; 教师=%s; 星期%s 第%d-%d节; %d-%d周; 教室=%s",
+                    it.getCourseName(), it.getCourseCode(), it.getTeacherName(), CN_DAY[it.getDayOfWeek()],
+                    it.getSectionStart(), it.getSectionStart() + it.getSectionCount() - 1,
+                    it.getWeekStart(), it.getWeekEnd(), it.getClassroom()));
+        }
+        return list;
+    }
+
+    public static List<String> questions(int size, long seed) {
+        Random r = new Random(seed);
+        String[] templates = {"我的%s在哪个教室", "%s是哪个老师上", "下一节%s是什么时候", "星期%s有什么课", "%s老师的课在哪"};
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int t = r.nextInt(templates.length);
+            String arg = switch (t) {
+                case 3 -> CN_DAY[1 + r.nextInt(7)];
+                case 4 -> TEACHERS[r.nextInt(TEACHERS.length)];
+                default -> COURSES[r.nextInt(COURSES.length)];
+            };
+            list.add(String.format(templates[t], arg));
+        }
+        return list;
+    }
+
+    /**
+     * 空格分隔的关键词查询（子串计数检索只认这种形式）
+     */
+    public static List<String> keywordQueries(int size, long seed) {
+        Random r = new Random(seed);
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String course = COURSES[r.nextInt(COURSES.length)];
+            list.add(switch (r.nextInt(3)) {
+                case 0 -> course;
+                case 1 -> course + " " + TEACHERS[r.nextInt(TEACHERS.length)];
+                default -> course + " 星期" + CN_DAY[1 + r.nextInt(7)] + " " + BUILDINGS[r.nextInt(BUILDINGS.length)];
+            });
+        }
+        return list;
+    }
+
+    public static List<Plan> plans(int size, LocalDate date) {
+        List<Plan> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Plan p = new Plan();
+            p.setId(i + 1);
+            p.setUserId(1);
+            p.setTitle("复习<" + COURSES[i % COURSES.length] + ">");
+            p.setStartTime(LocalDateTime.of(date, java.time.LocalTime.of(8 + i % 12, 0)));
+            p.setEndTime(p.getStartTime().plusMinutes(90));
+            p.setLocation("图书馆 & 自习室");
+            p.setPriority(i % 3 == 0 ? "HIGH" : "NORMAL");
+            list.add(p);
+        }
+        return list;
+    }
+
+    private static String courseCode(int course) {
+        return String.format("R09%02d840.%02d", course, 1 + course % 5);
+    }
+
+    private static String classroom(Random r) {
+        return BUILDINGS[r.nextInt(BUILDINGS.length)] + (101 + r.nextInt(500));
+    }
+}
@@ -0,0 +1,48 @@
+package edu.zzttc.backend.service.ai.impl;
+
+import edu.zzttc.backend.bench.SyntheticTimetables;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsed;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大模型“规范课表文本”的本地解析，size 为文本中的课程片段数：
+ * 旧的正则实现（每个片段现场编译正则）vs 手写扫描器
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseNormalizedScheduleBenchmark {
+
+    @Param({"20", "50", "200"})
+    private int size;
+
+    private String text;
+    private ScheduleAiServiceImpl aiService;
+    private LegacyNormalizedScheduleParser legacy;
+
+    @Setup
+    public void setup() {
+        text = SyntheticTimetables.normalizedText(size, SyntheticTimetables.DEFAULT_SEED);
+        aiService = new ScheduleAiServiceImpl();
+        legacy = new LegacyNormalizedScheduleParser();
+        // 两种实现的解析结果必须一致
+        if (!legacy.parseNormalizedSchedule(text).equals(aiService.parseNormalizedSchedule(text))) {
+            throw new IllegalStateException("新旧解析结果不一致, size=" + size);
+        }
+    }
+
+    @Benchmark
+    public ScheduleParsed legacyRegex() {
+        return legacy.parseNormalizedSchedule(text);
+    }
+
+    @Benchmark
+    public ScheduleParsed parseNormalizedSchedule() {
+        return aiService.parseNormalizedSchedule(text);
+    }
+}
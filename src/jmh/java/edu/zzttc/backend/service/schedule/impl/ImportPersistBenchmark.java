@@ -0,0 +1,213 @@
+package edu.zzttc.backend.service.schedule.impl;
+
+import edu.zzttc.backend.bench.Stubs;
+import edu.zzttc.backend.bench.SyntheticTimetables;
+import edu.zzttc.backend.domain.entity.Course;
+import edu.zzttc.backend.domain.entity.ScheduleItem;
+import edu.zzttc.backend.domain.entity.TermConfig;
+import edu.zzttc.backend.mapper.CourseMapper;
+import edu.zzttc.backend.mapper.ScheduleItemMapper;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsed;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 导入落库阶段（课程 upsert + 排课插入）的耗时：逐条往返的旧实现 vs 多行 upsert + 批量插入。
+ * 没有真实数据库，Mapper 以内存表桩替代，每次往返按 rttMicros 自旋等待来模拟网络与服务端开销；
+ * 批量插入按每 batchSize 行一次往返计（rewriteBatchedStatements 下一批合并为一条多行 INSERT）。
+ * rttMicros=0 只反映本地组装开销，同机 MySQL 的往返一般在 100~300 微秒。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImportPersistBenchmark {
+
+    /** 排课条数 */
+    @Param({"50", "200", "1000"})
+    private int size;
+
+    /** 模拟的单次数据库往返耗时（微秒） */
+    @Param({"0", "200"})
+    private long rttMicros;
+
+    private TermConfig term;
+    private ScheduleParsed parsed;
+    private FakeDb db;
+    private ScheduleImportServiceImpl importService;
+    private LegacyCourseItemPersister legacy;
+
+    @Setup
+    public void setup() {
+        Stubs.initTableInfo(Course.class, ScheduleItem.class);
+        term = SyntheticTimetables.term();
+        term.setId(1);
+        parsed = SyntheticTimetables.parsed(size, SyntheticTimetables.DEFAULT_SEED);
+        db = new FakeDb(TimeUnit.MICROSECONDS.toNanos(rttMicros));
+
+        importService = new ScheduleImportServiceImpl();
+        ReflectionTestUtils.setField(importService, "courseMapper", db.courseMapper);
+        ReflectionTestUtils.setField(importService, "scheduleItemMapper", db.itemMapper);
+        legacy = new LegacyCourseItemPersister(db.courseMapper, db.itemMapper);
+
+        // 两种实现写入的课程与排课必须一致
+        db.reset();
+        int legacyNew = legacy.upsertCoursesAndItems(7, term, parsed);
+        List<String> legacyRows = db.snapshot();
+        db.reset();
+        int batchedNew = importService.upsertCoursesAndItems(7, term, parsed);
+        List<String> batchedRows = db.snapshot();
+        if (legacyNew != batchedNew || !legacyRows.equals(batchedRows)) {
+            throw new IllegalStateException("新旧落库结果不一致: " + legacyNew + " vs " + batchedNew);
+        }
+        System.out.printf("%n[size=%d] 往返次数 legacy=%d batched=%d%n", size,
+                countTrips(() -> legacy.upsertCoursesAndItems(7, term, parsed)),
+                countTrips(() -> importService.upsertCoursesAndItems(7, term, parsed)));
+    }
+
+    private long countTrips(Runnable r) {
+        db.reset();
+        long before = db.trips;
+        r.run();
+        return db.trips - before;
+    }
+
+    @Benchmark
+    public int legacyPerRow() {
+        db.reset();
+        return legacy.upsertCoursesAndItems(7, term, parsed);
+    }
+
+    @Benchmark
+    public int batched() {
+        db.reset();
+        return importService.upsertCoursesAndItems(7, term, parsed);
+    }
+
+    /**
+     * 内存里的 db_course / db_schedule_item，只实现两种落库路径用到的方法。
+     * 查询条件由 Wrapper 表达，桩无法求值；两条路径都在同一 (用户, 学期) 下操作，直接返回全表
+     */
+    private static final class FakeDb {
+        final long rttNanos;
+        final Map<String, Course> courses = new LinkedHashMap<>();
+        final List<ScheduleItem> items = new ArrayList<>();
+        int nextCourseId;
+        int nextItemId;
+        long trips;
+
+        final CourseMapper courseMapper;
+        final ScheduleItemMapper itemMapper;
+
+        FakeDb(long rttNanos) {
+            this.rttNanos = rttNanos;
+            this.courseMapper = Stubs.of(CourseMapper.class, Map.of(
+                    // 旧实现按 (课程名, 教师) 逐条查询；落库前已全量清理，总是查不到
+                    "selectOne", args -> roundTrip(null),
+                    "insert", args -> {
+                        Course c = (Course) args[0];
+                        c.setId(++nextCourseId);
+                        courses.put(key(c), c);
+                        return roundTrip(1);
+                    },
+                    "updateById", args -> roundTrip(1),
+                    "selectList", args -> roundTrip(new ArrayList<>(courses.values())),
+                    "upsertBatch", args -> {
+                        @SuppressWarnings("unchecked")
+                        List<Course> rows = (List<Course>) args[0];
+                        for (Course c : rows) {
+                            Course existing = courses.get(key(c));
+                            if (existing == null) {
+                                Course stored = copy(c);
+                                stored.setId(++nextCourseId);
+                                courses.put(key(c), stored);
+                            } else {
+                                existing.setCourseCode(c.getCourseCode());
+                                existing.setCredit(c.getCredit());
+                                existing.setColorTag(c.getColorTag());
+                            }
+                        }
+                        return roundTrip(rows.size());
+                    }));
+            this.itemMapper = Stubs.of(ScheduleItemMapper.class, Map.of(
+                    "insert", args -> {
+                        if (args[0] instanceof Collection<?> batch) {
+                            int batchSize = args.length > 1 ? (Integer) args[1] : 1000;
+                            for (Object o : batch) {
+                                ScheduleItem it = (ScheduleItem) o;
+                                it.setId(++nextItemId);
+                                items.add(it);
+                            }
+                            long batches = (batch.size() + batchSize - 1) / batchSize;
+                            for (long i = 1; i < batches; i++) {
+                                roundTrip(null);
+                            }
+                            return roundTrip(List.of());
+                        }
+                        ScheduleItem it = (ScheduleItem) args[0];
+                        it.setId(++nextItemId);
+                        items.add(it);
+                        return roundTrip(1);
+                    }));
+        }
+
+        void reset() {
+            courses.clear();
+            items.clear();
+            nextCourseId = 0;
+            nextItemId = 0;
+        }
+
+        /** 课程与排课的可比较快照：排课以课程名而非 id 关联 */
+        List<String> snapshot() {
+            Map<Integer, String> names = new LinkedHashMap<>();
+            List<String> rows = new ArrayList<>();
+            for (Course c : courses.values()) {
+                names.put(c.getId(), c.getCourseName());
+                rows.add("C " + key(c) + " " + c.getCourseCode());
+            }
+            for (ScheduleItem it : items) {
+                rows.add("I " + names.get(it.getCourseId()) + " " + it.getDayOfWeek() + " " + it.getSectionStart()
+                        + "+" + it.getSectionCount() + " " + it.getWeekMask() + " " + it.getClassroom()
+                        + " " + it.getRawTimeExpr());
+            }
+            return rows;
+        }
+
+        private <T> T roundTrip(T result) {
+            trips++;
+            if (rttNanos > 0) {
+                long until = System.nanoTime() + rttNanos;
+                while (System.nanoTime() < until) {
+                    Thread.onSpinWait();
+                }
+            }
+            return result;
+        }
+
+        private static String key(Course c) {
+            return c.getCourseName() + "@@" + (c.getTeacherName() == null ? "" : c.getTeacherName());
+        }
+
+        private static Course copy(Course c) {
+            Course d = new Course();
+            d.setUserId(c.getUserId());
+            d.setTermId(c.getTermId());
+            d.setCourseName(c.getCourseName());
+            d.setCourseCode(c.getCourseCode());
+            d.setTeacherName(c.getTeacherName());
+            d.setCredit(c.getCredit());
+            d.setColorTag(c.getColorTag());
+            return d;
+        }
+    }
+}
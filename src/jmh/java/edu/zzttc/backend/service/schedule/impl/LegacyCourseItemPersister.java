@@ -0,0 +1,148 @@
+package edu.zzttc.backend.service.schedule.impl;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import edu.zzttc.backend.domain.entity.Course;
+import edu.zzttc.backend.domain.entity.ScheduleItem;
+import edu.zzttc.backend.domain.entity.TermConfig;
+import edu.zzttc.backend.mapper.CourseMapper;
+import edu.zzttc.backend.mapper.ScheduleItemMapper;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsed;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsedCourse;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsedItem;
+import edu.zzttc.backend.utils.WeekMaskUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * 改为多行 upsert + 批量插入之前的 upsertCoursesAndItems 原样拷贝（逐条 selectOne/insert），仅用于基准对照
+ */
+@Slf4j
+final class LegacyCourseItemPersister {
+
+    private final CourseMapper courseMapper;
+    private final ScheduleItemMapper scheduleItemMapper;
+
+    LegacyCourseItemPersister(CourseMapper courseMapper, ScheduleItemMapper scheduleItemMapper) {
+        this.courseMapper = courseMapper;
+        this.scheduleItemMapper = scheduleItemMapper;
+    }
+
+    private String buildRawTimeExpr(ScheduleParsedItem pi) {
+        // 周次部分
+        String weekPart;
+        if (pi.getWeekStart() != null && pi.getWeekEnd() != null) {
+            if (Objects.equals(pi.getWeekStart(), pi.getWeekEnd())) {
+                weekPart = pi.getWeekStart() + "周";
+            } else {
+                weekPart = pi.getWeekStart() + "-" + pi.getWeekEnd() + "周";
+            }
+        } else {
+            weekPart = "周次未知";
+        }
+
+        // 节次部分（注意：我们会在前面先把 sectionCount 纠正成 2）
+        String sectionPart;
+        Integer start = pi.getSectionStart();
+        Integer count = pi.getSectionCount();
+        if (start != null && count != null) {
+            int endSec = start + count - 1;
+            if (count == 1) {
+                // 单节（极少情况），就保持单节
+                sectionPart = "第" + start + "节";
+            } else if (count == 2) {
+                // 电子科大学校课表：一个方块通常连上两节
+                sectionPart = "第" + start + "、" + (start + 1) + "节";
+            } else {
+                // 兼容将来可能出现的 3、4 节连续课
+                sectionPart = "第" + start + "-" + endSec + "节";
+            }
+        } else {
+            sectionPart = "节次未知";
+        }
+
+        // 教室
+        String classroom = Optional.ofNullable(pi.getClassroom()).orElse("教室未知");
+
+        return weekPart + "," + sectionPart + "," + classroom;
+    }
+
+    private void normalizeSectionCount(ScheduleParsedItem pi) {
+        Integer c = pi.getSectionCount();
+        if (c == null || c <= 0) {
+            pi.setSectionCount(1);
+        }
+    }
+
+    int upsertCoursesAndItems(Integer userId, TermConfig term, ScheduleParsed parsed) {
+        Map<String, Integer> courseIdMap = new HashMap<>();
+        int newCourseCount = 0;
+
+        // 1. 处理课程
+        for (ScheduleParsedCourse pc : parsed.getCourses()) {
+            Course course = courseMapper.selectOne(
+                    Wrappers.<Course>lambdaQuery()
+                            .eq(Course::getUserId, userId)
+                            .eq(Course::getTermId, term.getId())
+                            .eq(Course::getCourseName, pc.getCourseName())
+                            .eq(Course::getTeacherName, pc.getTeacherName()));
+            if (course == null) {
+                course = new Course();
+                course.setUserId(userId);
+                course.setTermId(term.getId());
+                course.setCourseName(pc.getCourseName());
+                course.setCourseCode(pc.getCourseCode());
+                course.setTeacherName(java.util.Optional.ofNullable(pc.getTeacherName()).orElse(""));
+                course.setCredit(pc.getCredit());
+                course.setColorTag(pc.getColorTag());
+                courseMapper.insert(course);
+                newCourseCount++;
+            } else {
+                course.setCourseCode(pc.getCourseCode());
+                course.setTeacherName(java.util.Optional.ofNullable(pc.getTeacherName()).orElse(""));
+                course.setCredit(pc.getCredit());
+                course.setColorTag(pc.getColorTag());
+                courseMapper.updateById(course);
+            }
+            String key = pc.getCourseName() + "@@" + java.util.Optional.ofNullable(pc.getTeacherName()).orElse("");
+            courseIdMap.put(key, course.getId());
+        }
+
+        // 2. 处理排课明细（支持幂等：当前已做全量清理后再插入）
+        for (ScheduleParsedItem pi : parsed.getItems()) {
+
+            normalizeSectionCount(pi);
+
+            String ckey = pi.getCourseName() + "@@" + java.util.Optional.ofNullable(pi.getTeacherName()).orElse("");
+            Integer courseId = courseIdMap.get(ckey);
+            if (courseId == null) {
+                log.warn("找不到课程 [{}] 的ID，跳过该条排课", pi.getCourseName());
+                continue;
+            }
+
+            ScheduleItem item = new ScheduleItem();
+            item.setUserId(userId);
+            item.setTermId(term.getId());
+            item.setCourseId(courseId);
+            item.setDayOfWeek(pi.getDayOfWeek());
+            item.setSectionStart(pi.getSectionStart());
+            item.setSectionCount(pi.getSectionCount());
+            item.setWeekStart(pi.getWeekStart());
+            item.setWeekEnd(pi.getWeekEnd());
+            item.setWeekOddEven(pi.getWeekOddEven());
+            item.setWeekMask(pi.getWeekMask() != null && pi.getWeekMask() != 0L
+                    ? pi.getWeekMask()
+                    : WeekMaskUtils.of(pi.getWeekStart(), pi.getWeekEnd(), pi.getWeekOddEven()));
+            item.setClassroom(pi.getClassroom());
+            item.setCampus(pi.getCampus());
+            item.setRemark(pi.getRemark());
+            item.setRawTimeExpr(buildRawTimeExpr(pi));
+            scheduleItemMapper.insert(item);
+        }
+
+        return newCourseCount;
+    }
+}
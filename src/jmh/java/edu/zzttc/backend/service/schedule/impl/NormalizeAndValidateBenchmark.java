@@ -0,0 +1,42 @@
+package edu.zzttc.backend.service.schedule.impl;
+
+import edu.zzttc.backend.bench.SyntheticTimetables;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsed;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 识别结果规范化（合并相邻节次、校验周次）。
+ * normalizeAndValidate 会原地修改条目，每次调用前深拷贝一份，copyOnly 为拷贝本身的基线。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NormalizeAndValidateBenchmark {
+
+    @Param({"50", "200", "1000"})
+    private int size;
+
+    private ScheduleParsed source;
+    private ScheduleRecognitionServiceImpl recognitionService;
+
+    @Setup
+    public void setup() {
+        source = SyntheticTimetables.parsed(size, SyntheticTimetables.DEFAULT_SEED);
+        recognitionService = new ScheduleRecognitionServiceImpl();
+    }
+
+    @Benchmark
+    public ScheduleParsed copyOnly() {
+        return SyntheticTimetables.copy(source);
+    }
+
+    @Benchmark
+    public ScheduleParsed normalizeAndValidate() {
+        return recognitionService.normalizeAndValidate(SyntheticTimetables.copy(source));
+    }
+}
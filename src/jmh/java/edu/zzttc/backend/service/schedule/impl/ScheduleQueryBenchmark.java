@@ -0,0 +1,85 @@
+package edu.zzttc.backend.service.schedule.impl;
+
+import edu.zzttc.backend.bench.Stubs;
+import edu.zzttc.backend.bench.SyntheticTimetables;
+import edu.zzttc.backend.domain.entity.ScheduleItemDetail;
+import edu.zzttc.backend.domain.entity.TermConfig;
+import edu.zzttc.backend.domain.vo.schedule.DailyCourseVO;
+import edu.zzttc.backend.domain.vo.schedule.DateCoursesVO;
+import edu.zzttc.backend.mapper.ScheduleItemMapper;
+import edu.zzttc.backend.mapper.TermConfigMapper;
+import edu.zzttc.backend.service.schedule.model.CompiledTimetable;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 课表查询热路径：编译课表、命中缓存后的按日/按周/按区间查询。
+ * Mapper 以桩对象替代，结果只反映内存中的组装开销。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScheduleQueryBenchmark {
+
+    /** 学期内的排课条数 */
+    @Param({"50", "200", "1000"})
+    private int size;
+
+    private TermConfig term;
+    private List<ScheduleItemDetail> items;
+    private ScheduleQueryServiceImpl queryService;
+    private LocalDate date;
+
+    @Setup
+    public void setup() {
+        term = SyntheticTimetables.term();
+        items = SyntheticTimetables.items(size, SyntheticTimetables.DEFAULT_SEED);
+
+        TermConfigMapper termConfigMapper = Stubs.of(TermConfigMapper.class,
+                Map.of("selectList", args -> List.of(term)));
+        ScheduleItemMapper scheduleItemMapper = Stubs.of(ScheduleItemMapper.class,
+                Map.of("selectTermDetails", args -> items));
+
+        TermResolverImpl termResolver = new TermResolverImpl(16, 60, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(termResolver, "termConfigMapper", termConfigMapper);
+        TimetableCacheServiceImpl timetableCache = new TimetableCacheServiceImpl(16, 60);
+        ReflectionTestUtils.setField(timetableCache, "scheduleItemMapper", scheduleItemMapper);
+
+        queryService = new ScheduleQueryServiceImpl();
+        ReflectionTestUtils.setField(queryService, "termResolver", termResolver);
+        ReflectionTestUtils.setField(queryService, "timetableCacheService", timetableCache);
+
+        // 第 5 周周三
+        date = SyntheticTimetables.TERM_START.plusWeeks(4).plusDays(2);
+        queryService.queryByDate(1, date);
+    }
+
+    @Benchmark
+    public CompiledTimetable compile() {
+        return CompiledTimetable.compile(term, items);
+    }
+
+    @Benchmark
+    public List<DailyCourseVO> queryByDateCached() {
+        return queryService.queryByDate(1, date);
+    }
+
+    @Benchmark
+    public List<DailyCourseVO> queryByWeekCached() {
+        return queryService.queryByWeek(1, date, 5);
+    }
+
+    @Benchmark
+    public List<DateCoursesVO> queryByRange30Days() {
+        return queryService.queryByRange(1, date, date.plusDays(29));
+    }
+}
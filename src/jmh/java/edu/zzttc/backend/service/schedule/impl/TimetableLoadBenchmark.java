@@ -0,0 +1,165 @@
+package edu.zzttc.backend.service.schedule.impl;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import edu.zzttc.backend.bench.Stubs;
+import edu.zzttc.backend.bench.SyntheticTimetables;
+import edu.zzttc.backend.domain.entity.Course;
+import edu.zzttc.backend.domain.entity.ScheduleItem;
+import edu.zzttc.backend.domain.entity.ScheduleItemDetail;
+import edu.zzttc.backend.domain.entity.TermConfig;
+import edu.zzttc.backend.mapper.CourseMapper;
+import edu.zzttc.backend.mapper.ScheduleItemMapper;
+import edu.zzttc.backend.service.schedule.model.CompiledTimetable;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 课表缓存未命中时的加载耗时：先查排课再 selectBatchIds 查课程的旧实现（两次往返）
+ * vs 一条联表 SQL（一次往返），两者之后都编译同一份课表。
+ * 没有真实数据库，Mapper 以桩替代，每次往返按 rttMicros 自旋等待；
+ * 索引本身（扫描行数、是否需要 filesort）无法在桩上体现，只能在 MySQL 上用 EXPLAIN 确认。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimetableLoadBenchmark {
+
+    /** 学期内的排课条数 */
+    @Param({"50", "200", "1000"})
+    private int size;
+
+    /** 模拟的单次数据库往返耗时（微秒） */
+    @Param({"0", "200"})
+    private long rttMicros;
+
+    private TermConfig term;
+    private long rttNanos;
+    private ScheduleItemMapper itemMapper;
+    private CourseMapper courseMapper;
+    private TimetableCacheServiceImpl timetableCache;
+
+    @Setup
+    public void setup() {
+        Stubs.initTableInfo(ScheduleItem.class);
+        term = SyntheticTimetables.term();
+        rttNanos = TimeUnit.MICROSECONDS.toNanos(rttMicros);
+
+        List<ScheduleItemDetail> details = SyntheticTimetables.items(size, SyntheticTimetables.DEFAULT_SEED);
+        List<ScheduleItem> rows = new ArrayList<>(details.size());
+        Map<Integer, Course> courses = new LinkedHashMap<>();
+        for (ScheduleItemDetail d : details) {
+            ScheduleItem it = new ScheduleItem();
+            it.setId(d.getId());
+            it.setUserId(d.getUserId());
+            it.setTermId(d.getTermId());
+            it.setCourseId(d.getCourseId());
+            it.setDayOfWeek(d.getDayOfWeek());
+            it.setSectionStart(d.getSectionStart());
+            it.setSectionCount(d.getSectionCount());
+            it.setWeekStart(d.getWeekStart());
+            it.setWeekEnd(d.getWeekEnd());
+            it.setWeekOddEven(d.getWeekOddEven());
+            it.setClassroom(d.getClassroom());
+            rows.add(it);
+            courses.computeIfAbsent(d.getCourseId(), id -> {
+                Course c = new Course();
+                c.setId(id);
+                c.setCourseName(d.getCourseName());
+                c.setCourseCode(d.getCourseCode());
+                c.setTeacherName(d.getTeacherName());
+                return c;
+            });
+        }
+
+        Function<Object[], Object> selectByIds = args -> {
+            Collection<?> ids = (Collection<?>) args[0];
+            return roundTrip(ids.stream().map(courses::get).filter(Objects::nonNull).toList());
+        };
+        itemMapper = Stubs.of(ScheduleItemMapper.class, Map.of(
+                "selectList", args -> roundTrip(rows),
+                "selectTermDetails", args -> roundTrip(details)));
+        courseMapper = Stubs.of(CourseMapper.class, Map.of(
+                "selectBatchIds", selectByIds,
+                "selectByIds", selectByIds));
+
+        timetableCache = new TimetableCacheServiceImpl(16, 60);
+        ReflectionTestUtils.setField(timetableCache, "scheduleItemMapper", itemMapper);
+
+        // 两种加载方式编译出的课表必须一致
+        CompiledTimetable a = legacyTwoQueries();
+        CompiledTimetable b = joinedQuery();
+        for (int w = 1; w <= term.getTotalWeeks(); w++) {
+            if (!a.week(w).equals(b.week(w))) {
+                throw new IllegalStateException("第 " + w + " 周新旧加载结果不一致");
+            }
+        }
+    }
+
+    @Benchmark
+    public CompiledTimetable legacyTwoQueries() {
+        List<ScheduleItem> items = itemMapper.selectList(Wrappers.<ScheduleItem>lambdaQuery()
+                .eq(ScheduleItem::getUserId, term.getUserId())
+                .eq(ScheduleItem::getTermId, term.getId()));
+        Set<Integer> courseIds = items.stream()
+                .map(ScheduleItem::getCourseId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Integer, Course> courseMap = courseMapper.selectBatchIds(courseIds).stream()
+                .collect(Collectors.toMap(Course::getId, c -> c));
+
+        List<ScheduleItemDetail> joined = new ArrayList<>(items.size());
+        for (ScheduleItem it : items) {
+            Course c = courseMap.get(it.getCourseId());
+            if (c == null) {
+                continue;
+            }
+            ScheduleItemDetail d = new ScheduleItemDetail();
+            d.setId(it.getId());
+            d.setCourseId(it.getCourseId());
+            d.setDayOfWeek(it.getDayOfWeek());
+            d.setSectionStart(it.getSectionStart());
+            d.setSectionCount(it.getSectionCount());
+            d.setWeekStart(it.getWeekStart());
+            d.setWeekEnd(it.getWeekEnd());
+            d.setWeekOddEven(it.getWeekOddEven());
+            d.setWeekMask(it.getWeekMask());
+            d.setClassroom(it.getClassroom());
+            d.setRemark(it.getRemark());
+            d.setCourseName(c.getCourseName());
+            d.setCourseCode(c.getCourseCode());
+            d.setTeacherName(c.getTeacherName());
+            joined.add(d);
+        }
+        return CompiledTimetable.compile(term, joined);
+    }
+
+    @Benchmark
+    public CompiledTimetable joinedQuery() {
+        timetableCache.evict(term.getUserId());
+        return timetableCache.get(term.getUserId(), term);
+    }
+
+    private <T> T roundTrip(T result) {
+        if (rttNanos > 0) {
+            long until = System.nanoTime() + rttNanos;
+            while (System.nanoTime() < until) {
+                Thread.onSpinWait();
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,103 @@
+package edu.zzttc.backend.service.schedule.model;
+
+import edu.zzttc.backend.domain.entity.ScheduleItem;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 当日排课去重：原 String 拼接键 + Optional 实现 vs 打包 long 键 + 驻留教室ID 实现。
+ * 分配率对比请加 -prof gc，关注 gc.alloc.rate.norm（每次调用分配字节数）：
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="DedupBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DedupBenchmark {
+
+    /** 当天候选排课条数（含单双周重复的条目） */
+    @Param({"4", "8", "16"})
+    private int itemsPerDay;
+
+    private List<ScheduleItem> items;
+
+    private int[] slot;
+    private long[] keys;
+    private int[] oddEven;
+    private long[] scratchKeys;
+    private int[] out;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        items = new ArrayList<>(itemsPerDay);
+        for (int i = 0; i < itemsPerDay; i++) {
+            ScheduleItem it = new ScheduleItem();
+            it.setId(i + 1);
+            // 每两条共享同一时段/课程/教室，一条全部周、一条单双周，触发替换逻辑
+            int group = i / 2;
+            it.setSectionStart(1 + (group % 6) * 2);
+            it.setSectionCount(2);
+            it.setCourseId(100 + group);
+            it.setClassroom("第二教学楼" + (100 + random.nextInt(300)));
+            it.setWeekOddEven(i % 2 == 0 ? 0 : 1 + random.nextInt(2));
+            items.add(it);
+        }
+
+        slot = new int[itemsPerDay];
+        keys = new long[itemsPerDay];
+        oddEven = new int[itemsPerDay];
+        scratchKeys = new long[itemsPerDay];
+        out = new int[itemsPerDay];
+        Map<String, Integer> classroomIds = new HashMap<>();
+        for (int i = 0; i < itemsPerDay; i++) {
+            ScheduleItem it = items.get(i);
+            slot[i] = i;
+            int classroomId = classroomIds.computeIfAbsent(it.getClassroom(), k -> classroomIds.size());
+            keys[i] = CompiledTimetable.dedupKey(it.getSectionStart(), it.getSectionCount(), it.getCourseId(),
+                    classroomId);
+            oddEven[i] = it.getWeekOddEven();
+        }
+    }
+
+    @Benchmark
+    public void legacyStringKey(Blackhole bh) {
+        bh.consume(legacyDedup(items, true));
+    }
+
+    @Benchmark
+    public void packedLongKey(Blackhole bh) {
+        bh.consume(CompiledTimetable.dedup(slot, itemsPerDay, keys, oddEven, true, scratchKeys, out));
+    }
+
+    /**
+     * 原 ScheduleQueryServiceImpl.queryByDate 中的去重实现，保留作基线
+     */
+    private static List<ScheduleItem> legacyDedup(List<ScheduleItem> rawItems, boolean isOdd) {
+        Map<String, ScheduleItem> pick = new LinkedHashMap<>();
+        for (ScheduleItem it : rawItems) {
+            String key = it.getSectionStart() + ":" + it.getSectionCount() + ":" + it.getCourseId() + ":" +
+                    Optional.ofNullable(it.getClassroom()).orElse("");
+            ScheduleItem old = pick.get(key);
+            if (old == null) {
+                pick.put(key, it);
+            } else {
+                int oldOE = Optional.ofNullable(old.getWeekOddEven()).orElse(0);
+                int newOE = Optional.ofNullable(it.getWeekOddEven()).orElse(0);
+                boolean oldMatch = (oldOE == 1 && isOdd) || (oldOE == 2 && !isOdd);
+                boolean newMatch = (newOE == 1 && isOdd) || (newOE == 2 && !isOdd);
+                if (newMatch && !oldMatch) {
+                    pick.put(key, it);
+                } else if (oldOE == 0 && newOE != 0) {
+                    pick.put(key, it);
+                }
+            }
+        }
+        return new ArrayList<>(pick.values());
+    }
+}
@@ -0,0 +1,55 @@
+package edu.zzttc.backend.service.search.impl;
+
+import edu.zzttc.backend.service.search.VectorStore;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 重写前的 InMemoryVectorStore 原样拷贝（整表排序、比较器内重复打分），仅用于基准对照
+ */
+class LegacyInMemoryVectorStore implements VectorStore {
+    private final Map<String, Map<String, String>> db = new HashMap<>();
+
+    @Override
+    public void upsert(String namespace, String id, String text) {
+        db.computeIfAbsent(namespace, k -> new HashMap<>()).put(id, text == null ? "" : text);
+    }
+
+    @Override
+    public String[] search(String namespace, String query, int topK) {
+        Map<String, String> m = db.getOrDefault(namespace, Collections.emptyMap());
+        if (m.isEmpty()) return new String[0];
+        String[] qs = tokenize(query);
+        List<Map.Entry<String, String>> list = new ArrayList<>(m.entrySet());
+        list.sort((a, b) -> score(b.getValue(), qs) - score(a.getValue(), qs));
+        return list.stream().limit(topK).map(Map.Entry::getValue).toArray(String[]::new);
+    }
+
+    @Override
+    public void delete(String namespace, String id) {
+        db.getOrDefault(namespace, new HashMap<>()).remove(id);
+    }
+
+    @Override
+    public void clear(String namespace) {
+        db.remove(namespace);
+    }
+
+    @Override
+    public Set<String> ids(String namespace) {
+        return new HashSet<>(db.getOrDefault(namespace, Collections.emptyMap()).keySet());
+    }
+
+    private int score(String text, String[] qs) {
+        int s = 0;
+        for (String q : qs) if (text.contains(q)) s++;
+        return s;
+    }
+
+    private String[] tokenize(String x) {
+        if (x == null) return new String[0];
+        return x.replaceAll("\\s+", " ").trim().split(" ");
+    }
+}
+
@@ -0,0 +1,149 @@
+package edu.zzttc.backend.service.search.impl;
+
+import edu.zzttc.backend.bench.SyntheticTimetables;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 检索延迟：HNSW 近似检索 vs 同一向量上的精确暴力检索 vs 子串计数检索（倒排 + 堆 / 重写前的整表排序）。
+ * 启动时以暴力检索为真值计算 HNSW 的 recall@10 并打印。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VectorStoreBenchmark {
+
+    private static final String NS = "user:1";
+    private static final int TOP_K = 10;
+
+    @Param({"1000", "10000"})
+    private int size;
+
+    /** HNSW 查询宽度，对应 vector-store.hnsw.ef-search */
+    @Param({"64", "128"})
+    private int efSearch;
+
+    private HashingEmbeddingFunction embedding;
+    private HnswVectorStore hnsw;
+    private InMemoryVectorStore memory;
+    private LegacyInMemoryVectorStore legacy;
+    private float[][] docVectors;
+    private List<String> questions;
+    private List<String> keywords;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        embedding = new HashingEmbeddingFunction(256);
+        hnsw = new HnswVectorStore(embedding, 16, 100, efSearch, 0.3);
+        memory = new InMemoryVectorStore();
+        legacy = new LegacyInMemoryVectorStore();
+        List<String> facts = SyntheticTimetables.facts(size, SyntheticTimetables.DEFAULT_SEED);
+        docVectors = new float[facts.size()][];
+        for (int i = 0; i < facts.size(); i++) {
+            String id = "item:" + i;
+            hnsw.upsert(NS, id, facts.get(i));
+            memory.upsert(NS, id, facts.get(i));
+            legacy.upsert(NS, id, facts.get(i));
+            docVectors[i] = embedding.embed(facts.get(i));
+        }
+        questions = SyntheticTimetables.questions(256, SyntheticTimetables.DEFAULT_SEED);
+        keywords = SyntheticTimetables.keywordQueries(256, SyntheticTimetables.DEFAULT_SEED);
+
+        // 子串计数检索：新旧实现返回的分数序列必须一致（同分文档的先后允许不同）
+        for (String q : keywords) {
+            int[] now = Arrays.stream(memory.search(NS, q, TOP_K)).mapToInt(t -> substringScore(t, q)).toArray();
+            int[] old = Arrays.stream(legacy.search(NS, q, TOP_K)).mapToInt(t -> substringScore(t, q))
+                    .filter(s -> s > 0).toArray();
+            if (!Arrays.equals(now, old)) {
+                throw new IllegalStateException("检索结果不一致: " + q);
+            }
+        }
+
+        // recall@10：HNSW 返回的文本中有多少落在精确 top10 的分数阈值之内
+        double hit = 0;
+        for (String q : questions) {
+            float[] qv = embedding.embed(q);
+            float[] exact = exactScores(qv);
+            float threshold = exact[Math.min(TOP_K, exact.length) - 1];
+            for (String text : hnsw.search(NS, q, TOP_K)) {
+                if (dot(qv, embedding.embed(text)) >= threshold - 1e-6f) {
+                    hit++;
+                }
+            }
+        }
+        System.out.printf("%n[recall] size=%d efSearch=%d recall@%d=%.4f%n", size, efSearch, TOP_K, hit / (questions.size() * TOP_K));
+    }
+
+    private String nextQuestion() {
+        cursor = (cursor + 1) & (questions.size() - 1);
+        return questions.get(cursor);
+    }
+
+    private String nextKeywords() {
+        cursor = (cursor + 1) & (keywords.size() - 1);
+        return keywords.get(cursor);
+    }
+
+    private static int substringScore(String text, String query) {
+        int s = 0;
+        for (String q : query.split(" ")) {
+            if (text.contains(q)) {
+                s++;
+            }
+        }
+        return s;
+    }
+
+    @Benchmark
+    public String[] hnswSearch() {
+        return hnsw.search(NS, nextQuestion(), TOP_K);
+    }
+
+    @Benchmark
+    public float[] exactSearch() {
+        return exactScores(embedding.embed(nextQuestion()));
+    }
+
+    @Benchmark
+    public String[] memorySearch() {
+        return memory.search(NS, nextKeywords(), TOP_K);
+    }
+
+    @Benchmark
+    public String[] legacySearch() {
+        return legacy.search(NS, nextKeywords(), TOP_K);
+    }
+
+    /** 全量打分后取前 TOP_K 个分数（降序） */
+    private float[] exactScores(float[] qv) {
+        float[] top = new float[TOP_K];
+        Arrays.fill(top, Float.NEGATIVE_INFINITY);
+        for (float[] dv : docVectors) {
+            float s = dot(qv, dv);
+            if (s > top[TOP_K - 1]) {
+                int i = TOP_K - 1;
+                while (i > 0 && top[i - 1] < s) {
+                    top[i] = top[i - 1];
+                    i--;
+                }
+                top[i] = s;
+            }
+        }
+        return top;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float s = 0f;
+        for (int i = 0; i < a.length; i++) {
+            s += a[i] * b[i];
+        }
+        return s;
+    }
+}
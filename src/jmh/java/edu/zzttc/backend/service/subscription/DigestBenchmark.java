@@ -0,0 +1,45 @@
+package edu.zzttc.backend.service.subscription;
+
+import edu.zzttc.backend.bench.SyntheticTimetables;
+import edu.zzttc.backend.domain.entity.Plan;
+import edu.zzttc.backend.domain.vo.schedule.DailyCourseVO;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每日摘要邮件的正文构建（纯文本 + 课程/计划 HTML 片段），size 为当天的课程与计划数
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DigestBenchmark {
+
+    @Param({"4", "10"})
+    private int size;
+
+    private final LocalDate date = LocalDate.of(2025, 10, 15);
+    private List<DailyCourseVO> courses;
+    private List<Plan> plans;
+    private NotificationPlanner planner;
+
+    @Setup
+    public void setup() {
+        courses = SyntheticTimetables.dailyCourses(size, SyntheticTimetables.DEFAULT_SEED);
+        plans = SyntheticTimetables.plans(size, date);
+        planner = new NotificationPlanner();
+    }
+
+    @Benchmark
+    public void buildDigest(Blackhole bh) {
+        bh.consume(planner.buildDigestAll(date, courses, plans));
+        bh.consume(planner.buildDigestHtml(courses));
+        bh.consume(planner.buildPlansHtml(plans));
+    }
+}
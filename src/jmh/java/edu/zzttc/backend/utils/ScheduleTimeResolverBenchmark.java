@@ -0,0 +1,62 @@
+package edu.zzttc.backend.utils;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 问答入口的模糊时间解析，每次调用解析一组典型问题；legacy 为重写前的正则/contains 实现。
+ * 启动时先校验两者在日期与时段上的结果一致。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScheduleTimeResolverBenchmark {
+
+    static final String[] QUESTIONS = {
+            "我今天有什么课？",
+            "明天上午有课吗",
+            "这周五下午有什么课？",
+            "下周一晚上要上课吗",
+            "下下周三的课",
+            "上周日有课吗？",
+            "后天早上第一节是什么",
+            "星期四中午之后还有课吗",
+            "请问一下我这学期周二都上什么课，老师是谁，在哪个教室",
+            "昨天晚上那节课叫什么名字",
+            "下星期二和礼拜四上午都有课吗",
+            "前天 明天 后天 今天 哪天课最多"
+    };
+
+    private final LocalDate baseDate = LocalDate.of(2025, 10, 15);
+
+    @Setup
+    public void verify() {
+        for (String q : QUESTIONS) {
+            ScheduleTimeResolver.ResolvedTime now = ScheduleTimeResolver.resolve(q, baseDate);
+            LegacyScheduleTimeResolver.ResolvedTime old = LegacyScheduleTimeResolver.resolve(q, baseDate);
+            if (!now.getDate().equals(old.getDate()) || !now.getPeriod().name().equals(old.getPeriod().name())) {
+                throw new IllegalStateException("解析结果不一致: " + q + " -> " + now + " / " + old);
+            }
+        }
+    }
+
+    @Benchmark
+    public void resolve(Blackhole bh) {
+        for (String q : QUESTIONS) {
+            bh.consume(ScheduleTimeResolver.resolve(q, baseDate));
+        }
+    }
+
+    @Benchmark
+    public void legacy(Blackhole bh) {
+        for (String q : QUESTIONS) {
+            bh.consume(LegacyScheduleTimeResolver.resolve(q, baseDate));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package edu.zzttc.backend.config;
+
+import edu.zzttc.backend.utils.DashScopeCallPolicy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * 调用 DashScope 的共享 HTTP 客户端：一个 JDK HttpClient（连接复用，可协商 HTTP/2）同时承载
+ * 课表识别的 RestTemplate 与 Spring AI 的 RestClient/WebClient，统一连接与读取超时，
+ * 并挂上 {@link DashScopeCallPolicy} 的重试、熔断与指标。
+ * Spring AI 自带的重试需在配置中关闭（spring.ai.retry.max-attempts=1），避免两层重试叠加。
+ */
+@Configuration
+public class DashScopeHttpConfiguration {
+
+    @Value("${schedule.ai.http.read-timeout-ms:120000}")
+    private long readTimeoutMs;
+
+    @Bean
+    public HttpClient dashScopeHttpClient(@Value("${schedule.ai.http.connect-timeout-ms:5000}") long connectTimeoutMs) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @Bean
+    public RestTemplate dashScopeRestTemplate(HttpClient dashScopeHttpClient) {
+        return new RestTemplate(requestFactory(dashScopeHttpClient));
+    }
+
+    @Bean
+    public RestClientCustomizer dashScopeRestClientCustomizer(HttpClient dashScopeHttpClient,
+            DashScopeCallPolicy callPolicy) {
+        return builder -> builder
+                .requestFactory(requestFactory(dashScopeHttpClient))
+                .requestInterceptor(callPolicy.interceptor("chat"));
+    }
+
+    @Bean
+    public WebClientCustomizer dashScopeWebClientCustomizer(HttpClient dashScopeHttpClient,
+            DashScopeCallPolicy callPolicy) {
+        JdkClientHttpConnector connector = new JdkClientHttpConnector(dashScopeHttpClient);
+        connector.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return builder -> builder
+                .clientConnector(connector)
+                .filter(callPolicy.filter("chat-stream"));
+    }
+
+    private JdkClientHttpRequestFactory requestFactory(HttpClient httpClient) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return factory;
+    }
+}
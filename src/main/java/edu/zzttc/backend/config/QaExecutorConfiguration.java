@@ -0,0 +1,57 @@
+package edu.zzttc.backend.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 课表问答流式输出专用的有界线程池，与 JVM 公共的 ForkJoinPool 隔离。
+ * 线程负责检索事实与向 SSE 写增量，模型请求本身是异步的，不占线程；但写 SSE 是阻塞的，
+ * 客户端读得慢时发送会占住线程，所以线程数按同时可能阻塞在发送上的流数估计（约为同时在线的问答数）。
+ * 核心线程数等于最大线程数：ThreadPoolExecutor 只在队列满时才扩容，核心线程被慢客户端占满后
+ * 排队的增量会一直等而不是起新线程。队列满时直接拒绝，由调用方返回“繁忙”，不会无限堆积。
+ */
+@Configuration
+public class QaExecutorConfiguration {
+
+    @Bean(name = "qaExecutor", destroyMethod = "shutdown")
+    public ThreadPoolExecutor qaExecutor(@Value("${schedule.qa.executor.threads:32}") int threads,
+            @Value("${schedule.qa.executor.queue-capacity:200}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "qa-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity), factory,
+                new ThreadPoolExecutor.AbortPolicy());
+        // 空闲时仍回收线程，固定大小只是上限
+        executor.allowCoreThreadTimeOut(true);
+        Gauge.builder("schedule.qa.executor.queue.depth", executor, e -> e.getQueue().size())
+                .description("问答线程池排队中的任务数")
+                .register(meterRegistry);
+        Gauge.builder("schedule.qa.executor.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("问答线程池正在执行的任务数")
+                .register(meterRegistry);
+        return executor;
+    }
+
+    @Bean(name = "qaScheduler", destroyMethod = "dispose")
+    public Scheduler qaScheduler(@Qualifier("qaExecutor") ThreadPoolExecutor qaExecutor) {
+        // 线程池由上面的 Bean 负责关闭
+        return Schedulers.fromExecutorService(qaExecutor, "qa");
+    }
+}
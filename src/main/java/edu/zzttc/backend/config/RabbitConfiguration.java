@@ -15,7 +15,14 @@ public class RabbitConfiguration {
                 .durable("email")
                 .build();
     }
-    
+
+    @Bean("scheduleImportQueue")
+    public Queue scheduleImportQueue() {
+        return QueueBuilder
+                .durable("schedule-import")
+                .build();
+    }
+
     @Bean
     public MessageConverter messageConverter() {
         return new Jackson2JsonMessageConverter();
@@ -0,0 +1,25 @@
+package edu.zzttc.backend.config;
+
+import edu.zzttc.backend.service.schedule.impl.ScheduleChangeBroadcaster;
+import edu.zzttc.backend.utils.Const;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 订阅课表变更广播频道，其他实例上的导入、清空、修正节次据此失效本实例的进程内缓存
+ */
+@Configuration
+public class ScheduleChangeConfiguration {
+
+    @Bean
+    public RedisMessageListenerContainer scheduleChangeListenerContainer(RedisConnectionFactory connectionFactory,
+            ScheduleChangeBroadcaster broadcaster) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(broadcaster, new ChannelTopic(Const.SCHEDULE_CHANGED_CHANNEL));
+        return container;
+    }
+}
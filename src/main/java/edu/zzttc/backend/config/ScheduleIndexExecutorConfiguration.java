@@ -0,0 +1,41 @@
+package edu.zzttc.backend.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 课表变更后重建问答索引的后台线程，不占用发起变更的请求线程。
+ * 单线程即可：同一用户排队中的重建会被合并，队列里每个用户至多一项；
+ * 队列满时拒绝，由调用方标记该用户待重建，下次问答时按需补建。
+ */
+@Configuration
+public class ScheduleIndexExecutorConfiguration {
+
+    @Bean(name = "scheduleIndexExecutor", destroyMethod = "shutdown")
+    public ThreadPoolExecutor scheduleIndexExecutor(@Value("${schedule.qa.index.queue-capacity:1000}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "schedule-index-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1,
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity), factory,
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        Gauge.builder("schedule.qa.index.queue.depth", executor, e -> e.getQueue().size())
+                .description("等待重建问答索引的用户数")
+                .register(meterRegistry);
+        return executor;
+    }
+}
@@ -0,0 +1,45 @@
+package edu.zzttc.backend.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分块识别课表截图时并发调用模型的线程池。线程数即全局同时在途的分块请求上限，
+ * 多个导入任务共用，不会因为同时导入的人多而把 DashScope 的并发打满；
+ * 排队满时由导入线程自己执行该块，相当于退化为串行。
+ */
+@Configuration
+public class ScheduleTileExecutorConfiguration {
+
+    @Bean(name = "scheduleTileExecutor", destroyMethod = "shutdown")
+    public ThreadPoolExecutor scheduleTileExecutor(@Value("${schedule.ai.tile.parallelism:4}") int parallelism,
+            @Value("${schedule.ai.tile.queue-capacity:64}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "schedule-tile-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism,
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity), factory,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        Gauge.builder("schedule.ai.tile.executor.queue.depth", executor, e -> e.getQueue().size())
+                .description("分块识别排队中的块数")
+                .register(meterRegistry);
+        Gauge.builder("schedule.ai.tile.executor.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("分块识别正在调用模型的块数")
+                .register(meterRegistry);
+        return executor;
+    }
+}
@@ -4,30 +4,38 @@ import edu.zzttc.backend.domain.dto.ScheduleAskDTO;
 import edu.zzttc.backend.domain.entity.Account;
 import edu.zzttc.backend.domain.entity.RestBean;
 import edu.zzttc.backend.domain.vo.schedule.DailyCourseVO;
-import edu.zzttc.backend.domain.vo.schedule.ScheduleUploadResultVO;
+import edu.zzttc.backend.domain.vo.schedule.DateCoursesVO;
 import edu.zzttc.backend.service.account.AccountService;
 import edu.zzttc.backend.service.ai.ScheduleQaService;
+import edu.zzttc.backend.service.schedule.ScheduleChangedEvent;
+import edu.zzttc.backend.service.schedule.ScheduleImportJobService;
 import edu.zzttc.backend.service.schedule.ScheduleImportService;
+import edu.zzttc.backend.service.schedule.model.ScheduleImportJob;
+import edu.zzttc.backend.service.schedule.model.ScheduleParseMode;
 import edu.zzttc.backend.service.schedule.ScheduleQueryService;
+import edu.zzttc.backend.service.schedule.TermResolver;
 import edu.zzttc.backend.utils.ScheduleFilterUtils;
 import edu.zzttc.backend.utils.ScheduleTimeResolver;
+import edu.zzttc.backend.utils.WeekMaskUtils;
 import edu.zzttc.backend.mapper.ScheduleImportMapper;
 import edu.zzttc.backend.domain.entity.ScheduleImport;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.Resource;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
-import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
-import java.util.concurrent.CompletableFuture;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.scheduler.Scheduler;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -37,6 +45,9 @@ import java.util.List;
 @RequestMapping("/api/schedule")
 public class ScheduleController {
 
+    /** 区间查询最多返回的天数（覆盖一个完整月视图的 6 周网格） */
+    private static final int MAX_RANGE_DAYS = 42;
+
     @Resource
     private ScheduleQueryService scheduleQueryService;
 
@@ -46,6 +57,9 @@ public class ScheduleController {
     @Resource
     private ScheduleImportService scheduleImportService;
 
+    @Resource
+    private ScheduleImportJobService scheduleImportJobService;
+
     @Resource
     private ScheduleQaService scheduleQaService;
 
@@ -58,6 +72,25 @@ public class ScheduleController {
     @jakarta.annotation.Resource
     private edu.zzttc.backend.utils.JwtUtils utils;
 
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+
+    @Resource
+    private TermResolver termResolver;
+
+    @Resource
+    private java.util.concurrent.ThreadPoolExecutor qaExecutor;
+
+    @Resource
+    private Scheduler qaScheduler;
+
+    @Resource
+    private edu.zzttc.backend.utils.UserConcurrencyLimiter userConcurrencyLimiter;
+
+    /** 流式问答的 SSE 超时，超时后取消模型请求并关闭连接 */
+    @Value("${schedule.qa.sse-timeout-ms:120000}")
+    private long qaStreamTimeoutMs;
+
     /**
      * 今日课表（使用当前登录用户 + 今日日期）
      */
@@ -81,6 +114,25 @@ public class ScheduleController {
         return RestBean.success(list);
     }
 
+    /**
+     * 按日期区间批量查询课表（含首尾两天），用于月视图 / 7 日日程，
+     * 例如 /api/schedule/range?from=2025-09-01&to=2025-09-30
+     */
+    @Operation(summary = "按日期区间批量查询课表")
+    @GetMapping("/range")
+    public RestBean<List<DateCoursesVO>> byRange(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (from.isAfter(to)) {
+            return RestBean.failure(400, "开始日期不能晚于结束日期");
+        }
+        if (java.time.temporal.ChronoUnit.DAYS.between(from, to) >= MAX_RANGE_DAYS) {
+            return RestBean.failure(400, "查询区间不能超过" + MAX_RANGE_DAYS + "天");
+        }
+        Integer userId = currentUserId();
+        return RestBean.success(scheduleQueryService.queryByRange(userId, from, to));
+    }
+
     /**
      * 按周次查询整周课表
      * 说明：
@@ -119,25 +171,50 @@ public class ScheduleController {
     }
 
     /**
-     * 上传课表截图并导入（需要登录）
+     * 上传课表截图并导入（需要登录）：保存图片后投递到导入队列，立即返回任务，
+     * 解析与落库在后台完成，通过任务状态接口或 SSE 获取进度与结果。
+     * parseMode 可选 TEXT（规范文本，默认）/ JSON（结构化输出）/ TILED（按星期列分块并发识别），
+     * 后两者失败自动退回 TEXT，用于对比几种识别方式
      */
-    @Operation(summary = "上传课表截图并导入", description = "上传一张课表截图，生成课程和排课数据")
+    @Operation(summary = "上传课表截图并导入", description = "上传一张课表截图，异步生成课程和排课数据，返回导入任务")
     @PostMapping(value = "/upload-image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public RestBean<ScheduleUploadResultVO> uploadImage(@RequestPart("file") MultipartFile file,
+    public RestBean<ScheduleImportJob> uploadImage(@RequestPart("file") MultipartFile file,
             @RequestParam("termName") String termName,
             @RequestParam("startDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam(value = "totalWeeks", required = false) Integer totalWeeks) {
+            @RequestParam(value = "totalWeeks", required = false) Integer totalWeeks,
+            @RequestParam(value = "parseMode", required = false) ScheduleParseMode parseMode) {
         Integer userId = currentUserId();
-        long count = scheduleImportMapper.selectCount(
-                com.baomidou.mybatisplus.core.toolkit.Wrappers.<ScheduleImport>lambdaQuery()
-                        .eq(ScheduleImport::getUserId, userId)
-                        .eq(ScheduleImport::getStatus, "SUCCESS"));
-        if (count > 0) {
-            scheduleImportService.clearUserSchedules(userId);
+        // 旧课表在导入成功的落库事务中才清理，识别失败时保持不变
+        ScheduleImportJob job = scheduleImportJobService.submit(userId, file, termName, startDate, totalWeeks,
+                parseMode);
+        return RestBean.success(job);
+    }
+
+    /**
+     * 查询导入任务状态
+     */
+    @Operation(summary = "查询课表导入任务")
+    @GetMapping("/import-jobs/{jobId}")
+    public RestBean<ScheduleImportJob> importJob(@PathVariable String jobId) {
+        ScheduleImportJob job = scheduleImportJobService.get(currentUserId(), jobId);
+        if (job == null) {
+            return RestBean.failure(404, "导入任务不存在或已过期");
         }
-        ScheduleUploadResultVO vo = scheduleImportService.importFromImage(userId, file, termName, startDate,
-                totalWeeks);
-        return RestBean.success(vo);
+        return RestBean.success(job);
+    }
+
+    /**
+     * 订阅导入任务进度（SSE）：状态变化推送 progress，结束推送 done
+     */
+    @Operation(summary = "订阅课表导入进度")
+    @GetMapping(value = "/import-jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Object importJobEvents(@PathVariable String jobId) {
+        SseEmitter emitter = scheduleImportJobService.subscribe(currentUserId(), jobId);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(RestBean.failure(404, "导入任务不存在或已过期"));
+        }
+        return emitter;
     }
 
     @Operation(summary = "清空当前用户的课表数据")
@@ -167,16 +244,14 @@ public class ScheduleController {
         item.setSectionStart(sectionStart);
         item.setSectionCount(sectionCount);
         String classroomFull = item.getClassroom();
-        String weekPart = (item.getWeekStart() != null && item.getWeekEnd() != null)
-                ? (java.util.Objects.equals(item.getWeekStart(), item.getWeekEnd())
-                        ? item.getWeekStart() + "周"
-                        : item.getWeekStart() + "-" + item.getWeekEnd() + "周")
-                : "周次未知";
+        String weekPart = WeekMaskUtils.describe(item.getWeekMask(), item.getWeekStart(), item.getWeekEnd(),
+                item.getWeekOddEven());
         int endSec = sectionStart + sectionCount - 1;
         String sectionPart = sectionCount == 1 ? ("第" + sectionStart + "节") : ("第" + sectionStart + "-" + endSec + "节");
         item.setRawTimeExpr(
                 weekPart + "," + sectionPart + "," + java.util.Optional.ofNullable(classroomFull).orElse("教室未知"));
         scheduleItemMapper.updateById(item);
+        eventPublisher.publishEvent(new ScheduleChangedEvent(userId));
         return RestBean.success();
     }
 
@@ -191,14 +266,20 @@ public class ScheduleController {
         // 1. 基准日期：如果传了 date，就当做“参考今天”；否则就是真正的今天
         LocalDate baseDate = dto.getDate() != null ? dto.getDate() : LocalDate.now();
 
-        // 2. 解析“今天 / 明天 / 这周五 / 下周一 / 下午 / 晚上”等模糊时间
+        // 2. 解析“今天 / 明天 / 这周五 / 下周一 / 下午 / 晚上 / 11月3日 / 第5周周三 / 第3-4节”等时间
         ScheduleTimeResolver.ResolvedTime rt = ScheduleTimeResolver.resolve(question, baseDate);
+        if (rt.getTeachingWeek() != null && !rt.isExplicitDate()) {
+            // “第N周”要按学期开学日期换算，没提星期几时取参考日期的星期
+            edu.zzttc.backend.domain.entity.TermConfig term = termResolver.resolve(userId, baseDate);
+            if (term != null) {
+                int dow = rt.getDayOfWeek() != null ? rt.getDayOfWeek() : baseDate.getDayOfWeek().getValue();
+                rt.setDate(termResolver.dateOf(term, rt.getTeachingWeek(), dow));
+            }
+        }
         LocalDate targetDate = rt.getDate();
 
         List<DailyCourseVO> allCourses = scheduleQueryService.queryByDate(userId, targetDate);
-        List<DailyCourseVO> filtered = ScheduleFilterUtils.filterByPeriod(allCourses, rt.getPeriod());
-
-        String formatted = formatCourses(targetDate, rt.getPeriod(), filtered);
+        List<DailyCourseVO> filtered = ScheduleFilterUtils.filter(allCourses, rt);
 
         java.util.Map<String, Object> context = new java.util.LinkedHashMap<>();
         context.put("date", java.util.Objects.toString(targetDate, ""));
@@ -209,97 +290,41 @@ public class ScheduleController {
                 (request.getHeader("Accept") != null && request.getHeader("Accept").contains("text/event-stream"));
         if (wantStream) {
             String authorization = request.getHeader("Authorization");
-            SseEmitter emitter = new SseEmitter(Long.MAX_VALUE);
-            Runnable task = () -> {
-                try {
-                    emitter.send(SseEmitter.event().name("context").data(context));
-                    String answer = scheduleQaService.answer(question, targetDate, filtered);
-                    int chunk = 100;
-                    for (int i = 0; i < answer.length(); i += chunk) {
-                        int end = Math.min(i + chunk, answer.length());
-                        String part = answer.substring(i, end);
-                        emitter.send(SseEmitter.event().name("delta").data(part));
-                        try {
-                            Thread.sleep(10);
-                        } catch (InterruptedException ignored) {
-                        }
-                        if ((i / chunk) % 20 == 0) {
-                            String authHeader = authorization;
-                            com.auth0.jwt.interfaces.DecodedJWT jwt = utils.resolveJwt(authHeader);
-                            if (jwt == null) {
-                                java.util.Map<String, Object> authErr = new java.util.LinkedHashMap<>();
-                                authErr.put("error", "认证失效，请重新登录");
-                                emitter.send(SseEmitter.event().name("auth_error").data(authErr));
-                                emitter.complete();
-                                return;
-                            }
-                        }
-                    }
-                    java.util.Map<String, Object> done = new java.util.LinkedHashMap<>();
-                    done.put("answer", answer);
-                    emitter.send(SseEmitter.event().name("done").data(done));
-                    emitter.complete();
-                } catch (Exception e) {
-                    // 不抛回到过滤链，避免响应已提交后再次写入导致错误
-                    try {
-                        java.util.Map<String, Object> done = new java.util.LinkedHashMap<>();
-                        done.put("answer", "服务异常，稍后重试");
-                        done.put("error", e.getMessage());
-                        emitter.send(SseEmitter.event().name("done").data(done));
-                    } catch (Exception ignored) {
-                    }
-                    try {
-                        emitter.complete();
-                    } catch (Exception ignored) {
-                    }
-                }
-            };
-            DelegatingSecurityContextRunnable wrapped = new DelegatingSecurityContextRunnable(task,
-                    org.springframework.security.core.context.SecurityContextHolder.getContext());
-            CompletableFuture.runAsync(wrapped);
+            if (qaExecutor.getQueue().remainingCapacity() == 0) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body(RestBean.failure(503, "问答服务繁忙，请稍后重试"));
+            }
+            if (!userConcurrencyLimiter.tryAcquire(userId)) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .body(RestBean.failure(429, "已有问答进行中，请等待回答完成"));
+            }
+            SseEmitter emitter = new SseEmitter(qaStreamTimeoutMs);
+            SseAnswerSubscriber subscriber = SseAnswerSubscriber.attach(emitter,
+                    () -> utils.resolveJwt(authorization) != null,
+                    () -> userConcurrencyLimiter.release(userId));
+            try {
+                emitter.send(SseEmitter.event().name("context").data(context));
+            } catch (java.io.IOException e) {
+                subscriber.close();
+                emitter.completeWithError(e);
+                return emitter;
+            }
+            scheduleQaService.stream(userId, question, baseDate, targetDate, filtered)
+                    // 增量在 HTTP 客户端的 IO 线程上到达，而写 SSE 会阻塞，切到问答线程池发送；
+                    // 预取量即最多积压的增量条数，超过后上游按订阅者的请求节奏推进
+                    .publishOn(qaScheduler, 32)
+                    .subscribeOn(qaScheduler)
+                    // 订阅者自身的完成回调不一定触发（例如线程池拒绝任务），这里兜底归还名额
+                    .doFinally(signal -> subscriber.close())
+                    .subscribe(subscriber);
             return emitter;
         }
         java.util.Map<String, Object> payload = new java.util.LinkedHashMap<>();
-        payload.put("answer", scheduleQaService.answer(question, targetDate, filtered));
+        payload.put("answer", scheduleQaService.answer(userId, question, baseDate, targetDate, filtered));
         payload.put("context", context);
         return RestBean.success(payload);
     }
 
-    private String formatCourses(LocalDate date,
-            edu.zzttc.backend.utils.ScheduleTimeResolver.DayPeriod period,
-            List<DailyCourseVO> courses) {
-        String periodText = switch (period) {
-            case MORNING -> "上午";
-            case AFTERNOON -> "下午";
-            case EVENING -> "晚上";
-            default -> "";
-        };
-        if (courses == null || courses.isEmpty()) {
-            String prefix = (periodText.isEmpty() ? "今天" : ("今天" + periodText));
-            return prefix + "没有安排课程。";
-        }
-        StringBuilder sb = new StringBuilder();
-        sb.append("你今天").append(periodText.isEmpty() ? "" : periodText).append("有").append(courses.size())
-                .append("节课：\n\n");
-        for (int i = 0; i < courses.size(); i++) {
-            DailyCourseVO c = courses.get(i);
-            int start = c.getSectionStart() == null ? 0 : c.getSectionStart();
-            int end = start + (c.getSectionCount() == null ? 0 : c.getSectionCount()) - 1;
-            if (end < start)
-                end = start;
-            sb.append(i + 1).append(". **第").append(start).append("-").append(end).append("节**  \n")
-                    .append("   - 课程：").append(safe(c.getCourseName())).append("  \n")
-                    .append("   - 教师：").append(safe(c.getTeacherName())).append("  \n")
-                    .append("   - 教室：").append(safe(c.getClassroom())).append("  \n\n");
-        }
-        sb.append("请按时上课，注意教室位置！");
-        return sb.toString();
-    }
-
-    private String safe(String s) {
-        return s == null ? "" : s;
-    }
-
     private Integer currentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String username = authentication.getName();
@@ -0,0 +1,120 @@
+package edu.zzttc.backend.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Subscription;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 把模型的增量文本逐条转发为 SSE 的 delta 事件，结束时发送带完整回答的 done 事件。
+ * 每发完一条才向上游请求下一条，客户端读得慢时上游随之放慢；
+ * 客户端断开、超时或认证失效时取消订阅，上游的模型请求随之中止。
+ * 连接无论以何种方式结束，onClose 都只执行一次，用于归还并发名额等清理工作。
+ */
+@Slf4j
+class SseAnswerSubscriber extends BaseSubscriber<String> {
+
+    /** 每发送多少条增量校验一次令牌 */
+    private static final int AUTH_CHECK_INTERVAL = 20;
+
+    private final SseEmitter emitter;
+    private final BooleanSupplier authValid;
+    private final Runnable onClose;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final StringBuilder answer = new StringBuilder();
+    private int sent;
+
+    private SseAnswerSubscriber(SseEmitter emitter, BooleanSupplier authValid, Runnable onClose) {
+        this.emitter = emitter;
+        this.authValid = authValid;
+        this.onClose = onClose;
+    }
+
+    /**
+     * 创建订阅者并挂到 emitter 的完成/超时/出错回调上，以便连接结束时取消上游
+     */
+    static SseAnswerSubscriber attach(SseEmitter emitter, BooleanSupplier authValid, Runnable onClose) {
+        SseAnswerSubscriber subscriber = new SseAnswerSubscriber(emitter, authValid, onClose);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(() -> {
+            subscriber.close();
+            subscriber.completeQuietly();
+        });
+        emitter.onError(e -> subscriber.close());
+        return subscriber;
+    }
+
+    /** 取消上游并执行清理，可重复调用 */
+    void close() {
+        dispose();
+        if (closed.compareAndSet(false, true)) {
+            onClose.run();
+        }
+    }
+
+    @Override
+    protected void hookOnSubscribe(Subscription subscription) {
+        request(1);
+    }
+
+    @Override
+    protected void hookOnNext(String delta) {
+        answer.append(delta);
+        try {
+            emitter.send(SseEmitter.event().name("delta").data(delta));
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开，不必再生成
+            log.debug("SSE 连接已关闭，取消问答流: {}", e.getMessage());
+            cancel();
+            return;
+        }
+        if (++sent % AUTH_CHECK_INTERVAL == 0 && !authValid.getAsBoolean()) {
+            cancel();
+            Map<String, Object> authErr = new LinkedHashMap<>();
+            authErr.put("error", "认证失效，请重新登录");
+            sendQuietly("auth_error", authErr);
+            completeQuietly();
+            return;
+        }
+        request(1);
+    }
+
+    @Override
+    protected void hookOnComplete() {
+        Map<String, Object> done = new LinkedHashMap<>();
+        done.put("answer", answer.toString());
+        sendQuietly("done", done);
+        completeQuietly();
+    }
+
+    @Override
+    protected void hookOnError(Throwable e) {
+        // 不抛回到过滤链，避免响应已提交后再次写入导致错误
+        log.warn("问答流异常", e);
+        Map<String, Object> done = new LinkedHashMap<>();
+        done.put("answer", "服务异常，稍后重试");
+        done.put("error", e.getMessage());
+        sendQuietly("done", done);
+        completeQuietly();
+    }
+
+    private void sendQuietly(String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (Exception ignored) {
+        }
+    }
+
+    private void completeQuietly() {
+        try {
+            emitter.complete();
+        } catch (Exception ignored) {
+        }
+    }
+}
@@ -18,6 +18,8 @@ public class ScheduleImport implements BaseData {
     private Integer termId;
 
     private String imageUrl;
+    /** 截图内容的 SHA-256，用于识别重复上传 */
+    private String imageHash;
     private String rawOcrText;
     private String parsedJson;
     private String status;
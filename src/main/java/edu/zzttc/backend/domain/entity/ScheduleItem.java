@@ -34,6 +34,9 @@ public class ScheduleItem implements BaseData {
     /** 0=全部周，1=单周，2=双周 */
     private Integer weekOddEven;
 
+    /** 周次位图：第 n 周对应第 n-1 位，导入时由周次区间/单双周/不规则周次计算 */
+    private Long weekMask;
+
     private String classroom;
     private String campus;
     private String remark;
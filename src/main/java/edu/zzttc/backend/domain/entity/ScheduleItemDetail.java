@@ -0,0 +1,16 @@
+package edu.zzttc.backend.domain.entity;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 排课明细 + 课程信息的联表查询结果（db_schedule_item JOIN db_course），非表实体
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class ScheduleItemDetail extends ScheduleItem {
+
+    private String courseName;
+    private String courseCode;
+    private String teacherName;
+}
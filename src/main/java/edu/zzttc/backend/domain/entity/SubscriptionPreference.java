@@ -18,4 +18,6 @@ public class SubscriptionPreference implements BaseData {
     private String channels;
     private Integer advanceMinutes;
     private LocalDate lastSentDate;
+    /** 下次发送每日摘要的时刻（UTC 毫秒时间戳），未订阅时为空 */
+    private Long nextFireAt;
 }
@@ -0,0 +1,24 @@
+package edu.zzttc.backend.domain.vo.schedule;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Schema(description = "某一天的课程列表")
+public class DateCoursesVO {
+
+    @Schema(description = "日期")
+    private LocalDate date;
+
+    @Schema(description = "该日期所在学期ID（不在任何学期内则为空）")
+    private Integer termId;
+
+    @Schema(description = "该日期所在的教学周（不在学期内则为空）")
+    private Integer week;
+
+    @Schema(description = "当天课程，按节次排序")
+    private List<DailyCourseVO> courses;
+}
@@ -18,4 +18,7 @@ public class ScheduleUploadResultVO {
 
     @Schema(description = "课表截图存储路径")
     private String imageUrl;
+
+    @Schema(description = "实际使用的识别方式：TEXT / JSON")
+    private String parseMode;
 }
@@ -0,0 +1,27 @@
+package edu.zzttc.backend.listener;
+
+import edu.zzttc.backend.service.schedule.ScheduleImportJobService;
+import jakarta.annotation.Resource;
+import org.springframework.amqp.rabbit.annotation.RabbitHandler;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 课表导入队列消费者：每条消息只带 jobId，任务参数与状态在 Redis 中
+ */
+@Component
+@RabbitListener(queues = "schedule-import", concurrency = "${schedule.import.worker-concurrency:2}")
+public class ScheduleImportQueueListener {
+    @Resource
+    ScheduleImportJobService scheduleImportJobService;
+
+    @RabbitHandler
+    public void handleImport(Map<String, Object> data) {
+        Object jobId = data.get("jobId");
+        if (jobId != null) {
+            scheduleImportJobService.process(jobId.toString());
+        }
+    }
+}
@@ -3,8 +3,15 @@ package edu.zzttc.backend.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import edu.zzttc.backend.domain.entity.Account;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 
 @Mapper
 public interface AccountMapper extends BaseMapper<Account> {
 
+    /**
+     * 在当前事务内锁住用户行，同一用户的课表写入跨实例串行执行；须在事务内调用
+     */
+    @Select("SELECT id FROM db_account WHERE id = #{id} FOR UPDATE")
+    Integer lockById(@Param("id") Integer id);
 }
@@ -2,8 +2,31 @@ package edu.zzttc.backend.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import edu.zzttc.backend.domain.entity.Course;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 @Mapper
 public interface CourseMapper extends BaseMapper<Course> {
+
+    /**
+     * 多行 upsert：依赖唯一键 uk_course_user_term_name_teacher (user_id, term_id, course_name, teacher_name)，
+     * 已存在的课程只更新代码、学分与颜色。一次往返写入整批课程
+     */
+    @Insert("""
+            <script>
+            INSERT INTO db_course (user_id, term_id, course_name, course_code, teacher_name, credit, color_tag)
+            VALUES
+            <foreach collection="courses" item="c" separator=",">
+                (#{c.userId}, #{c.termId}, #{c.courseName}, #{c.courseCode}, #{c.teacherName}, #{c.credit}, #{c.colorTag})
+            </foreach>
+            ON DUPLICATE KEY UPDATE
+                course_code = VALUES(course_code),
+                credit = VALUES(credit),
+                color_tag = VALUES(color_tag)
+            </script>
+            """)
+    int upsertBatch(@Param("courses") List<Course> courses);
 }
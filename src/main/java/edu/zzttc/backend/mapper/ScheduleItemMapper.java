@@ -2,8 +2,29 @@ package edu.zzttc.backend.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import edu.zzttc.backend.domain.entity.ScheduleItem;
+import edu.zzttc.backend.domain.entity.ScheduleItemDetail;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
 
 @Mapper
 public interface ScheduleItemMapper extends BaseMapper<ScheduleItem> {
+
+    /**
+     * 一次查出某用户某学期的全部排课，并联表带出课程信息
+     * 走索引 idx_schedule_item_user_term (user_id, term_id)，索引内按主键有序，ORDER BY si.id 无需排序
+     */
+    @Select("""
+            SELECT si.id, si.user_id, si.term_id, si.course_id, si.day_of_week,
+                   si.section_start, si.section_count, si.week_start, si.week_end,
+                   si.week_odd_even, si.week_mask, si.classroom, si.remark,
+                   c.course_name, c.course_code, c.teacher_name
+            FROM db_schedule_item si
+            JOIN db_course c ON c.id = si.course_id
+            WHERE si.user_id = #{userId} AND si.term_id = #{termId}
+            ORDER BY si.id
+            """)
+    List<ScheduleItemDetail> selectTermDetails(@Param("userId") Integer userId, @Param("termId") Integer termId);
 }
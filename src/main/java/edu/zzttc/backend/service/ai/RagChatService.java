@@ -2,10 +2,21 @@ package edu.zzttc.backend.service.ai;
 
 import edu.zzttc.backend.domain.vo.schedule.DailyCourseVO;
 
+import reactor.core.publisher.Flux;
+
 import java.time.LocalDate;
 import java.util.List;
 
 public interface RagChatService {
-    String answerWithContext(String question, LocalDate date, List<DailyCourseVO> courses);
+    /**
+     * @param courses 问题所指日期的课程
+     * @param facts 从用户索引中检索到的相关事实（课程、排课、计划），可为空
+     */
+    String answerWithContext(String question, LocalDate date, List<DailyCourseVO> courses, List<String> facts);
+
+    /**
+     * 与 answerWithContext 相同的提示词，以流式方式返回模型生成的增量文本；订阅时才发起请求，取消订阅即中止生成
+     */
+    Flux<String> streamWithContext(String question, LocalDate date, List<DailyCourseVO> courses, List<String> facts);
 }
 
@@ -1,14 +1,28 @@
 package edu.zzttc.backend.service.ai;
 
 import edu.zzttc.backend.domain.entity.TermConfig;
+import edu.zzttc.backend.service.schedule.model.ScheduleParseMode;
 import edu.zzttc.backend.service.schedule.model.ScheduleParsed;
 
 public interface ScheduleAiService {
 
     /**
-     * 调用大模型，从课表截图中解析出结构化课表
+     * 调用大模型，从课表截图中解析出结构化课表（使用配置的默认识别方式）
      * @param imagePath 图片在服务器上的路径
      * @param termConfig 学期配置信息（学期名、开学日期等）
      */
-    ScheduleParsed parseScheduleFromImage(String imagePath, TermConfig termConfig);
+    default ScheduleParsed parseScheduleFromImage(String imagePath, TermConfig termConfig) {
+        return parseScheduleFromImage(imagePath, termConfig, null);
+    }
+
+    /**
+     * 按指定识别方式解析课表截图，JSON 模式失败时退回文本模式
+     * @param mode 识别方式，为 null 时使用配置的默认方式
+     */
+    ScheduleParsed parseScheduleFromImage(String imagePath, TermConfig termConfig, ScheduleParseMode mode);
+
+    /**
+     * 请求未指定识别方式时使用的方式
+     */
+    ScheduleParseMode defaultParseMode();
 }
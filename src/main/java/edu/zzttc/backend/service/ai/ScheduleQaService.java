@@ -2,13 +2,23 @@ package edu.zzttc.backend.service.ai;
 
 import edu.zzttc.backend.domain.vo.schedule.DailyCourseVO;
 
+import reactor.core.publisher.Flux;
+
 import java.time.LocalDate;
 import java.util.List;
 
 public interface ScheduleQaService {
 
     /**
-     * 根据“日期 + 课表 + 用户问题”生成自然语言回答
+     * 根据“日期 + 课表 + 用户问题”生成自然语言回答，并从用户的课表/计划索引中检索相关事实作补充
+     * @param baseDate 请求的参考“今天”，问句中的今天/明天相对它解析
+     * @param date     问句所问的日期
+     */
+    String answer(Integer userId, String question, LocalDate baseDate, LocalDate date, List<DailyCourseVO> courses);
+
+    /**
+     * answer 的流式版本：按模型生成的顺序发出增量文本，拼接起来即完整回答
      */
-    String answer(String question, LocalDate date, List<DailyCourseVO> courses);
+    Flux<String> stream(Integer userId, String question, LocalDate baseDate, LocalDate date,
+            List<DailyCourseVO> courses);
 }
@@ -0,0 +1,148 @@
+package edu.zzttc.backend.service.ai.impl;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsed;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsedCourse;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsedItem;
+import edu.zzttc.backend.utils.WeekMaskUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON 模式下模型输出的解析：{"items":[...]}，每条排课的字段与 {@link ScheduleParsedItem} 同名，
+ * 另带 courseCode 用于汇总课程基础信息、weeks（“1,3,7-9”形式的不规则周次，转为 weekMask）。
+ * 缺少课程名、星期或起始节次的条目直接丢弃，
+ * 其余兜底（周次缺失、单双周对齐、节次合并）交给 ScheduleRecognitionService。
+ */
+@Slf4j
+final class JsonScheduleParser {
+
+    /** 发给模型的输出结构，json_schema 模式下作为 response_format 的 schema，同时写进提示词 */
+    static final String SCHEMA = """
+            {
+              "type": "object",
+              "properties": {
+                "items": {
+                  "type": "array",
+                  "items": {
+                    "type": "object",
+                    "properties": {
+                      "courseName": {"type": "string", "description": "课程名称"},
+                      "courseCode": {"type": ["string", "null"], "description": "课程代码，如 R0902840.01"},
+                      "teacherName": {"type": ["string", "null"], "description": "任课教师，多位教师用“、”连接"},
+                      "dayOfWeek": {"type": "integer", "minimum": 1, "maximum": 7, "description": "星期几，1=周一 … 7=周日"},
+                      "sectionStart": {"type": "integer", "minimum": 1, "description": "起始节次"},
+                      "sectionCount": {"type": "integer", "minimum": 1, "description": "连续节数"},
+                      "weekStart": {"type": "integer", "minimum": 1, "description": "起始周"},
+                      "weekEnd": {"type": "integer", "minimum": 1, "description": "结束周"},
+                      "weekOddEven": {"type": "integer", "enum": [0, 1, 2], "description": "0=每周，1=单周，2=双周"},
+                      "weeks": {"type": ["string", "null"], "description": "不连续的周次列表，如 1,3,7-9；连续周次填 null"},
+                      "classroom": {"type": ["string", "null"], "description": "一个教室"}
+                    },
+                    "required": ["courseName", "courseCode", "teacherName", "dayOfWeek", "sectionStart",
+                                 "sectionCount", "weekStart", "weekEnd", "weekOddEven", "weeks", "classroom"],
+                    "additionalProperties": false
+                  }
+                }
+              },
+              "required": ["items"],
+              "additionalProperties": false
+            }
+            """;
+
+    private JsonScheduleParser() {
+    }
+
+    static ScheduleParsed parse(String content) {
+        JSONObject root = JSON.parseObject(stripCodeFence(content));
+        JSONArray array = root == null ? null : root.getJSONArray("items");
+        if (array == null) {
+            throw new RuntimeException("JSON 应答中没有 items 数组");
+        }
+
+        List<ScheduleParsedItem> items = new ArrayList<>();
+        Map<String, ScheduleParsedCourse> courseMap = new LinkedHashMap<>();
+        for (int i = 0; i < array.size(); i++) {
+            JSONObject o = array.getJSONObject(i);
+            if (o == null) {
+                continue;
+            }
+            ScheduleParsedItem it = o.to(ScheduleParsedItem.class);
+            it.setCourseName(blankToNull(it.getCourseName()));
+            it.setTeacherName(blankToNull(it.getTeacherName()));
+            it.setClassroom(blankToNull(it.getClassroom()));
+            Integer day = it.getDayOfWeek();
+            if (it.getCourseName() == null || day == null || day < 1 || day > 7
+                    || it.getSectionStart() == null || it.getSectionStart() < 1) {
+                log.warn("JSON 排课条目字段不足，已丢弃: {}", o);
+                continue;
+            }
+            if (it.getSectionCount() == null) {
+                it.setSectionCount(1);
+            }
+            if (it.getWeekOddEven() == null) {
+                it.setWeekOddEven(0);
+            }
+            long mask = WeekMaskUtils.parse(o.getString("weeks"));
+            if (mask != 0L) {
+                it.setWeekMask(mask);
+                it.setWeekStart(WeekMaskUtils.minWeek(mask));
+                it.setWeekEnd(WeekMaskUtils.maxWeek(mask));
+                it.setWeekOddEven(0);
+                it.setRawTimeExpr(NormalizedScheduleParser.buildRawTimeExpr(WeekMaskUtils.format(mask) + "周",
+                        it.getSectionStart(), it.getSectionCount(),
+                        it.getClassroom() == null ? "" : it.getClassroom()));
+            } else if (it.getWeekStart() != null) {
+                int weekEnd = it.getWeekEnd() == null ? it.getWeekStart() : it.getWeekEnd();
+                it.setRawTimeExpr(NormalizedScheduleParser.buildRawTimeExpr(it.getWeekStart(), weekEnd,
+                        it.getSectionStart(), it.getSectionCount(),
+                        it.getClassroom() == null ? "" : it.getClassroom()));
+            }
+            items.add(it);
+
+            // 与文本模式相同：按 课程名 + 教师 汇总课程，缺失的代码后续补全
+            String courseCode = blankToNull(o.getString("courseCode"));
+            String courseKey = it.getCourseName() + "@@" + (it.getTeacherName() == null ? "" : it.getTeacherName());
+            ScheduleParsedCourse course = courseMap.get(courseKey);
+            if (course == null) {
+                course = new ScheduleParsedCourse();
+                course.setCourseName(it.getCourseName());
+                course.setCourseCode(courseCode);
+                course.setTeacherName(it.getTeacherName());
+                courseMap.put(courseKey, course);
+            } else if (course.getCourseCode() == null && courseCode != null) {
+                course.setCourseCode(courseCode);
+            }
+        }
+
+        ScheduleParsed parsed = new ScheduleParsed();
+        parsed.setItems(items);
+        parsed.setCourses(new ArrayList<>(courseMap.values()));
+        return parsed;
+    }
+
+    /** json_object 模式下个别模型仍会包一层 ```json 代码块 */
+    private static String stripCodeFence(String s) {
+        String t = s.trim();
+        if (!t.startsWith("```")) {
+            return t;
+        }
+        int start = t.indexOf('\n');
+        int end = t.lastIndexOf("```");
+        return start < 0 || end <= start ? t : t.substring(start + 1, end).trim();
+    }
+
+    private static String blankToNull(String s) {
+        if (s == null) {
+            return null;
+        }
+        String t = s.trim();
+        return t.isEmpty() ? null : t;
+    }
+}
@@ -0,0 +1,782 @@
+package edu.zzttc.backend.service.ai.impl;
+
+import edu.zzttc.backend.service.schedule.model.ScheduleParsed;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsedCourse;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsedItem;
+import edu.zzttc.backend.utils.WeekMaskUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+
+/**
+ * 大模型输出的「规范课表文本」解析器：星期X：第X、Y节 课程名 [教师] [课程代码] 周次 教室；...
+ * <p>
+ * 手写的字符扫描器，不使用正则：空白归一、星期块切分与课程片段切分在一趟扫描内完成，
+ * 每个片段再按固定的几趟线性扫描取出节次、课程代码、周次、英文教师名与教室。
+ * 各字段的识别规则与原先基于正则的实现逐条对应（含其边界行为），
+ * 见 src/test/resources/schedule/normalized 下的黄金用例。
+ */
+@Slf4j
+final class NormalizedScheduleParser {
+
+    /** 常见姓氏，均为单字 */
+    private static final String COMMON_SURNAME_CHARS = String.join("",
+            Arrays.asList("赵", "钱", "孙", "李", "周", "吴", "郑", "王", "冯", "陈", "褚", "卫", "蒋", "沈", "韩", "杨",
+                    "朱", "秦", "尤", "许", "何", "吕", "施", "张", "孔", "曹", "严", "华", "金", "魏", "陶", "姜", "戚", "谢", "邹",
+                    "喻", "柏", "水", "窦", "章", "云", "苏", "潘", "葛", "奚", "范", "彭", "郎", "鲁", "韦", "昌", "马", "苗", "凤",
+                    "花", "方", "俞", "任", "袁", "柳", "鲍", "史", "唐", "费", "廉", "岑", "薛", "雷", "贺", "倪", "汤", "罗", "毕",
+                    "郝", "邬", "安", "常", "乐", "于", "时", "傅", "皮", "卞", "齐", "康", "伍", "余", "元", "顾", "孟", "平", "黄",
+                    "和", "穆", "萧", "尹", "姚", "邵", "湛", "汪", "祁", "毛", "禹", "狄", "米", "贝", "明", "臧", "计", "伏", "成",
+                    "戴", "谈", "宋", "茅", "庞", "熊", "纪", "舒", "屈", "项", "祝", "董", "梁", "杜", "阮", "蓝", "闵", "席", "季",
+                    "麻", "强", "贾", "路", "娄", "危", "支", "柯", "管", "卢", "莫", "经", "房", "裘", "干", "解", "应", "宗", "丁",
+                    "宣", "邓", "郁", "单", "杭", "洪", "包", "诸", "左", "石", "崔", "吉", "钮", "龚", "程", "嵇", "邢", "滑", "裴",
+                    "陆", "荣", "辛", "阎", "赫", "皮", "鲜", "敖", "詹", "仇", "冉", "宓", "隗", "瞿", "阚", "胥", "佘", "阴"));
+
+    /** 常见姓氏按字符查表，避免每个 token 都截一个单字字符串去查集合 */
+    private static final BitSet SURNAME_TABLE = new BitSet(Character.MAX_VALUE + 1);
+
+    static {
+        for (int i = 0; i < COMMON_SURNAME_CHARS.length(); i++) {
+            SURNAME_TABLE.set(COMMON_SURNAME_CHARS.charAt(i));
+        }
+    }
+
+    private static final String[] COURSE_SUFFIXES = {"学", "论", "术", "技", "设计", "课程", "基础", "原理", "概论", "思想",
+            "政策", "英语", "体育", "实验", "工程", "管理", "数据", "网络", "计算", "技术"};
+
+    /** “星期X”中的 X -> 星期几 */
+    private static final String DAY_CHARS = "一二三四五六日天";
+    private static final int[] DAY_VALUES = {1, 2, 3, 4, 5, 6, 7, 7};
+
+    private NormalizedScheduleParser() {
+    }
+
+    static ScheduleParsed parse(String text) {
+        String normalized = collapseWhitespace(text);
+
+        // 1. 一趟扫描切出“星期X：”块，块内容从冒号后开始，到下一个块的内容开头为止
+        List<int[]> blocks = new ArrayList<>();
+        for (int i = 0; i < normalized.length(); ) {
+            int end = matchDayHeader(normalized, i);
+            if (end < 0) {
+                i++;
+                continue;
+            }
+            blocks.add(new int[]{DAY_VALUES[DAY_CHARS.indexOf(normalized.charAt(i + 2))], end});
+            i = end;
+        }
+        if (blocks.isEmpty()) {
+            throw new RuntimeException("规范文本中没有识别到“星期X：”结构");
+        }
+
+        List<ScheduleParsedItem> items = new ArrayList<>();
+        Map<String, ScheduleParsedCourse> courseMap = new LinkedHashMap<>();
+        for (int b = 0; b < blocks.size(); b++) {
+            int from = blocks.get(b)[1];
+            int to = b + 1 < blocks.size() ? blocks.get(b + 1)[1] : normalized.length();
+            int dayOfWeek = blocks.get(b)[0];
+            // 2. 按分号切出课程片段
+            int segStart = from;
+            for (int i = from; i <= to; i++) {
+                if (i == to || normalized.charAt(i) == '；' || normalized.charAt(i) == ';') {
+                    String seg = normalized.substring(segStart, i).trim();
+                    if (!seg.isEmpty() && !isBareDayHeader(seg)) {
+                        items.addAll(parseSegment(dayOfWeek, seg, courseMap));
+                    }
+                    segStart = i + 1;
+                }
+            }
+        }
+
+        ScheduleParsed parsed = new ScheduleParsed();
+        parsed.setItems(items);
+        parsed.setCourses(new ArrayList<>(courseMap.values()));
+        return parsed;
+    }
+
+    private static List<ScheduleParsedItem> parseSegment(int dayOfWeek, String seg,
+            Map<String, ScheduleParsedCourse> courseMap) {
+        // 片段形如“第一、二节 <其余字段>”
+        int sectionEnd = seg.indexOf('节');
+        String rest = null;
+        if (seg.charAt(0) == '第' && sectionEnd > 1 && sectionEnd + 1 < seg.length()
+                && isSpace(seg.charAt(sectionEnd + 1))) {
+            rest = lineBody(seg, sectionEnd + 2);
+        }
+        if (rest == null) {
+            log.warn("无法从片段中解析节次信息: {}", seg);
+            return Collections.emptyList();
+        }
+        int[] sectionInfo = parseSectionText(seg.substring(1, sectionEnd).trim());
+        int sectionStart = sectionInfo[0];
+        int sectionCount = sectionInfo[1];
+        rest = rest.trim();
+
+        // 1. 课程代码：大写字母开头、含数字的第一个编码
+        String courseCode = null;
+        int[] code = findCourseCode(rest);
+        if (code != null) {
+            courseCode = rest.substring(code[0], code[1]);
+            rest = (rest.substring(0, code[0]) + rest.substring(code[1])).trim();
+        }
+
+        // 2. 周次：1-7周 / 7周 / 1-15单周 / 1,3,7-9周，可出现多组
+        String restWithWeeks = rest;
+        List<WeekSpan> weekMatches = findWeeks(restWithWeeks);
+        List<WeekSpan> weekRanges = new ArrayList<>(weekMatches);
+
+        // 3. 去掉周次（连同其后的顿号/逗号）后剩下：课程名 + [教师] + 教室
+        String restClean = collapseWhitespace(removeWeeks(restWithWeeks, weekMatches));
+        String teacherEnglish = findEnglishName(restClean);
+        if (teacherEnglish != null) {
+            restClean = collapseWhitespace(restClean.replace(teacherEnglish, " "));
+        }
+        String[] tokens = splitOnSpace(restClean);
+        if (tokens.length < 2) {
+            log.warn("课程片段字段不足，无法解析: {}", seg);
+            return Collections.emptyList();
+        }
+
+        // 最后一个像教室的 token 为教室，都不像时取最后一个
+        int classroomIdx = tokens.length - 1;
+        for (int i = tokens.length - 1; i >= 0; i--) {
+            if (looksLikeClassroom(tokens[i])) {
+                classroomIdx = i;
+                break;
+            }
+        }
+        String classroomFull = tokens[classroomIdx];
+
+        int teacherIdx = -1;
+        String teacherName = null;
+        if (teacherEnglish != null) {
+            teacherName = teacherEnglish;
+        } else {
+            int bestScore = Integer.MIN_VALUE;
+            int bestIdx = -1;
+            for (int i = 0; i < tokens.length; i++) {
+                if (i == classroomIdx) {
+                    continue;
+                }
+                int score = teacherScore(tokens[i], i == tokens.length - 2);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestIdx = i;
+                }
+            }
+            if (bestScore > 0 && bestIdx >= 0) {
+                teacherIdx = bestIdx;
+                teacherName = tokens[bestIdx];
+            }
+        }
+
+        StringBuilder cn = new StringBuilder();
+        for (int i = 0; i < tokens.length; i++) {
+            if (i == classroomIdx || i == teacherIdx) {
+                continue;
+            }
+            if (cn.length() > 0) {
+                cn.append(' ');
+            }
+            cn.append(tokens[i]);
+        }
+        String courseName = cn.toString();
+
+        // 4. 每组周次之后第一个像教室的 token 与该组周次配对
+        List<Object[]> weekClassroomPairs = new ArrayList<>();
+        for (WeekSpan w : weekMatches) {
+            String clsCandidate = classroomAfter(restWithWeeks, w.end());
+            if (clsCandidate != null) {
+                weekClassroomPairs.add(new Object[]{w, clsCandidate});
+            }
+        }
+
+        // 5. 维护课程基础信息
+        String courseKey = courseName + "@@" + (teacherName == null ? "" : teacherName);
+        ScheduleParsedCourse course = courseMap.get(courseKey);
+        if (course == null) {
+            course = new ScheduleParsedCourse();
+            course.setCourseName(courseName);
+            course.setCourseCode(courseCode);
+            course.setTeacherName(teacherName);
+            courseMap.put(courseKey, course);
+        } else {
+            // 如果之前没识别到代码/老师，这次有就补全
+            if (course.getCourseCode() == null && courseCode != null) {
+                course.setCourseCode(courseCode);
+            }
+            if (course.getTeacherName() == null && teacherName != null) {
+                course.setTeacherName(teacherName);
+            }
+        }
+
+        // 6. 多个教室用“、”分隔时，每个教室一条排课
+        List<ScheduleParsedItem> resultItems = new ArrayList<>();
+        if (!weekClassroomPairs.isEmpty()) {
+            for (Object[] pair : weekClassroomPairs) {
+                for (String one : ((String) pair[1]).split("、")) {
+                    addItem(resultItems, one, courseName, teacherName, dayOfWeek, sectionStart, sectionCount,
+                            (WeekSpan) pair[0]);
+                }
+            }
+        } else {
+            if (weekRanges.isEmpty()) {
+                weekRanges.add(new WeekSpan(-1, -1, 1, 1, 0, null));
+            }
+            for (String cls : classroomFull.split("、")) {
+                for (WeekSpan wr : weekRanges) {
+                    addItem(resultItems, cls, courseName, teacherName, dayOfWeek, sectionStart, sectionCount, wr);
+                }
+            }
+        }
+        return resultItems;
+    }
+
+    private static void addItem(List<ScheduleParsedItem> out, String classroom, String courseName,
+            String teacherName, int dayOfWeek, int sectionStart, int sectionCount, WeekSpan weeks) {
+        String cls = classroom.trim();
+        if (cls.isEmpty()) {
+            return;
+        }
+        ScheduleParsedItem it = new ScheduleParsedItem();
+        it.setCourseName(courseName);
+        it.setTeacherName(teacherName);
+        it.setDayOfWeek(dayOfWeek);
+        it.setSectionStart(sectionStart);
+        it.setSectionCount(sectionCount);
+        it.setWeekStart(weeks.weekStart());
+        it.setWeekEnd(weeks.weekEnd());
+        it.setWeekOddEven(weeks.oddEven());
+        it.setWeekMask(weeks.mask());
+        it.setClassroom(cls);
+        it.setRawTimeExpr(buildRawTimeExpr(weeks.expr(), sectionStart, sectionCount, cls));
+        out.add(it);
+    }
+
+    // ===================== 词法：星期块与片段 =====================
+
+    /**
+     * 在 i 处匹配“星期X[空白]：”，返回冒号之后的位置，不匹配返回 -1
+     */
+    private static int matchDayHeader(String s, int i) {
+        if (i + 3 >= s.length() || s.charAt(i) != '星' || s.charAt(i + 1) != '期'
+                || DAY_CHARS.indexOf(s.charAt(i + 2)) < 0) {
+            return -1;
+        }
+        int j = i + 3;
+        while (j < s.length() && isSpace(s.charAt(j))) {
+            j++;
+        }
+        return j < s.length() && isColon(s.charAt(j)) ? j + 1 : -1;
+    }
+
+    /** 片段只剩一个“星期X：”标题（上一块内容结尾会带上下一块的标题） */
+    private static boolean isBareDayHeader(String seg) {
+        if (seg.length() < 3 || seg.charAt(0) != '星' || seg.charAt(1) != '期' || DAY_CHARS.indexOf(seg.charAt(2)) < 0) {
+            return false;
+        }
+        int j = 3;
+        while (j < seg.length() && isSpace(seg.charAt(j))) {
+            j++;
+        }
+        if (j < seg.length() && isColon(seg.charAt(j))) {
+            j++;
+        }
+        return j == seg.length();
+    }
+
+    /**
+     * 节次之后的字段部分（单行语义）：中间出现行分隔符视为不匹配，末尾的一个行分隔符不计入
+     */
+    private static String lineBody(String seg, int from) {
+        for (int i = from; i < seg.length(); i++) {
+            if (isLineTerminator(seg.charAt(i))) {
+                return i == seg.length() - 1 && i > from ? seg.substring(from, i) : null;
+            }
+        }
+        return from < seg.length() ? seg.substring(from) : null;
+    }
+
+    // ===================== 字段识别 =====================
+
+    /**
+     * 课程代码：前一个字符不是 ASCII 字母数字的大写字母起头，由大写字母/数字/点/横线组成且含数字，
+     * 取能结束的最长前缀——结束位置后面不能紧跟 ASCII 字母数字。返回 [start, end)，找不到返回 null
+     */
+    private static int[] findCourseCode(String s) {
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 'A' || c > 'Z' || (i > 0 && isAsciiAlnum(s.charAt(i - 1)))) {
+                continue;
+            }
+            int runEnd = i + 1;
+            int firstDigit = -1;
+            while (runEnd < n && isCodeChar(s.charAt(runEnd))) {
+                if (firstDigit < 0 && isDigit(s.charAt(runEnd))) {
+                    firstDigit = runEnd;
+                }
+                runEnd++;
+            }
+            if (firstDigit < 0) {
+                continue;
+            }
+            if (runEnd == n || !isAsciiAlnum(s.charAt(runEnd))) {
+                return new int[]{i, runEnd};
+            }
+            // 整段后面紧跟小写字母时，退到段内最后一个点/横线处结束
+            for (int e = runEnd - 1; e > firstDigit; e--) {
+                char ch = s.charAt(e);
+                if (ch == '.' || ch == '-') {
+                    return new int[]{i, e};
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 一组周次在片段中的位置 [start, end) 及其含义。
+     * 连续周次（可带单双周）直接记起止周，mask 为空；逗号列出的不规则周次记位图，起止周取位图的最小、最大周
+     */
+    private record WeekSpan(int start, int end, int weekStart, int weekEnd, int oddEven, Long mask) {
+
+        /** 写入 rawTimeExpr 的周次部分 */
+        String expr() {
+            if (mask != null) {
+                return WeekMaskUtils.format(mask) + "周";
+            }
+            String range = weekStart == weekEnd ? String.valueOf(weekStart) : weekStart + "-" + weekEnd;
+            return range + (oddEven == 1 ? "单" : oddEven == 2 ? "双" : "") + "周";
+        }
+    }
+
+    /**
+     * 找出所有周次：“数字[-数字]”，可用半角/全角逗号连成列表，可带“单”“双”，以“周”结尾
+     */
+    private static List<WeekSpan> findWeeks(String s) {
+        List<WeekSpan> out = new ArrayList<>();
+        int n = s.length();
+        int i = 0;
+        while (i < n) {
+            if (!isDigit(s.charAt(i))) {
+                i++;
+                continue;
+            }
+            int end = matchWeeks(s, i);
+            if (end > 0) {
+                out.add(weekSpan(s, i, end));
+                i = end;
+                continue;
+            }
+            // 从这段数字内部开始也不会匹配，直接跳过整段
+            i = skipDigits(s, i);
+        }
+        return out;
+    }
+
+    /** 在 i 处匹配一组周次，返回“周”之后的位置，不匹配返回 -1 */
+    private static int matchWeeks(String s, int i) {
+        int n = s.length();
+        int j = skipWeekRange(s, i);
+        while (j + 1 < n && (s.charAt(j) == ',' || s.charAt(j) == '，') && isDigit(s.charAt(j + 1))) {
+            j = skipWeekRange(s, j + 1);
+        }
+        if (j < n && (s.charAt(j) == '单' || s.charAt(j) == '双')) {
+            j++;
+        }
+        return j < n && s.charAt(j) == '周' ? j + 1 : -1;
+    }
+
+    /** 跳过“数字[-数字]” */
+    private static int skipWeekRange(String s, int i) {
+        int d1 = skipDigits(s, i);
+        if (d1 + 1 < s.length() && s.charAt(d1) == '-' && isDigit(s.charAt(d1 + 1))) {
+            return skipDigits(s, d1 + 1);
+        }
+        return d1;
+    }
+
+    private static WeekSpan weekSpan(String s, int start, int end) {
+        String expr = s.substring(start, end - 1);
+        if (expr.indexOf(',') >= 0 || expr.indexOf('，') >= 0) {
+            long mask = WeekMaskUtils.parse(expr);
+            return new WeekSpan(start, end, WeekMaskUtils.minWeek(mask), WeekMaskUtils.maxWeek(mask), 0, mask);
+        }
+        int oddEven = 0;
+        char last = expr.charAt(expr.length() - 1);
+        if (last == '单' || last == '双') {
+            oddEven = last == '单' ? 1 : 2;
+            expr = expr.substring(0, expr.length() - 1);
+        }
+        int dash = expr.indexOf('-');
+        int weekStart = Integer.parseInt(dash < 0 ? expr : expr.substring(0, dash));
+        int weekEnd = dash < 0 ? weekStart : Integer.parseInt(expr.substring(dash + 1));
+        return new WeekSpan(start, end, weekStart, weekEnd, oddEven, null);
+    }
+
+    /** 每个周次（连同紧跟的一个“、”“,”“，”）替换为一个空格 */
+    private static String removeWeeks(String s, List<WeekSpan> weeks) {
+        if (weeks.isEmpty()) {
+            return s;
+        }
+        StringBuilder sb = new StringBuilder(s.length());
+        int prev = 0;
+        for (WeekSpan w : weeks) {
+            sb.append(s, prev, w.start()).append(' ');
+            prev = w.end();
+            if (prev < s.length() && isWeekSeparator(s.charAt(prev))) {
+                prev++;
+            }
+        }
+        return sb.append(s, prev, s.length()).toString();
+    }
+
+    /**
+     * 英文教师名：两个及以上以空白分隔、首字母大写的英文单词（每个至少两个字母），
+     * 前后是单词边界（字母、数字、下划线之外的字符）；尽量多地连上后续单词
+     */
+    private static String findEnglishName(String s) {
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 'A' || c > 'Z' || (i > 0 && isWordBefore(s, i))) {
+                continue;
+            }
+            int wordEnd = skipAsciiLetters(s, i + 1);
+            if (wordEnd - i < 2) {
+                continue;
+            }
+            int matchEnd = -1;
+            int p = wordEnd;
+            while (true) {
+                int q = p;
+                while (q < n && isSpace(s.charAt(q))) {
+                    q++;
+                }
+                if (q == p || q >= n || s.charAt(q) < 'A' || s.charAt(q) > 'Z') {
+                    break;
+                }
+                int e = skipAsciiLetters(s, q + 1);
+                if (e - q < 2) {
+                    break;
+                }
+                if (e == n || !isWordAt(s, e)) {
+                    matchEnd = e;
+                }
+                p = e;
+            }
+            if (matchEnd > 0) {
+                return s.substring(i, matchEnd);
+            }
+        }
+        return null;
+    }
+
+    private static int teacherScore(String t, boolean secondToLast) {
+        int score = 0;
+        if (isHanNameList(t)) {
+            score += 3;
+        }
+        if (!t.isEmpty() && SURNAME_TABLE.get(t.charAt(0))) {
+            score += 2;
+        }
+        for (String suf : COURSE_SUFFIXES) {
+            if (t.contains(suf)) {
+                score -= 4;
+                break;
+            }
+        }
+        if (isSingleLine(t) && containsAny(t, "0123456789（）()[]")) {
+            score -= 3;
+        }
+        if (secondToLast) {
+            score += 1;
+        }
+        return score;
+    }
+
+    /**
+     * 从 from 起按空格逐个看 token，返回第一个像教室的；先遇到下一个周次则返回 null。
+     * 直接在原串上按下标扫描，不切分子串
+     */
+    private static String classroomAfter(String s, int from) {
+        int end = s.length();
+        while (from < end && s.charAt(from) <= ' ') {
+            from++;
+        }
+        while (end > from && s.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int a = from;
+        for (int i = from; i <= end; i++) {
+            if (i < end && s.charAt(i) != ' ') {
+                continue;
+            }
+            if (looksLikeClassroom(s, a, i)) {
+                return s.substring(a, i);
+            }
+            // 遇到下一个周次则停止
+            if (isWeekToken(s, a, i)) {
+                return null;
+            }
+            a = i + 1;
+        }
+        return null;
+    }
+
+    private static boolean looksLikeClassroom(String t) {
+        return looksLikeClassroom(t, 0, t.length());
+    }
+
+    /** [from, to) 含“楼”“教室”或连续三位以上数字 */
+    private static boolean looksLikeClassroom(String s, int from, int to) {
+        boolean found = false;
+        int run = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (isLineTerminator(c)) {
+                return false;
+            }
+            run = isDigit(c) ? run + 1 : 0;
+            if (run >= 3 || c == '楼' || (c == '教' && i + 1 < to && s.charAt(i + 1) == '室')) {
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    /** [from, to) 恰好是一组周次 */
+    private static boolean isWeekToken(String s, int from, int to) {
+        return to - from >= 2 && isDigit(s.charAt(from)) && matchWeeks(s, from) == to;
+    }
+
+    /** 2~3 个汉字的姓名，可用“、”连接多个 */
+    private static boolean isHanNameList(String t) {
+        int count = 0;
+        for (int i = 0; i < t.length(); ) {
+            int cp = t.codePointAt(i);
+            if (cp == '、') {
+                if (count < 2) {
+                    return false;
+                }
+                count = 0;
+            } else if (Character.UnicodeScript.of(cp) == Character.UnicodeScript.HAN) {
+                if (++count > 3) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+            i += Character.charCount(cp);
+        }
+        return count >= 2;
+    }
+
+    // ===================== 节次与原始时间表达式 =====================
+
+    /**
+     * 解析 “一、二” / “五、六、七、八” 这种节次描述。
+     * 返回 [sectionStart, sectionCount]
+     */
+    private static int[] parseSectionText(String sectionText) {
+        String clean = sectionText.replace("第", "").trim();
+        int min = Integer.MAX_VALUE;
+        int count = 0;
+        int from = 0;
+        for (int i = 0; i <= clean.length(); i++) {
+            if (i == clean.length() || clean.charAt(i) == '、') {
+                String p = clean.substring(from, i).trim();
+                if (!p.isEmpty()) {
+                    min = Math.min(min, chineseNumberToInt(p));
+                    count++;
+                }
+                from = i + 1;
+            }
+        }
+        if (count == 0) {
+            // 极端兜底
+            return new int[]{1, 2};
+        }
+        return new int[]{min, count};
+    }
+
+    /**
+     * 中文数字（一、二、三、四、五、六、七、八、九、十、十一、十二） -> 阿拉伯数字
+     */
+    private static int chineseNumberToInt(String cn) {
+        cn = cn.trim();
+        if (cn.length() == 1) {
+            int v = "一二三四五六七八九十".indexOf(cn.charAt(0));
+            if (v >= 0) {
+                return v + 1;
+            }
+        }
+        // 简单处理“十X”
+        if (cn.startsWith("十")) {
+            return 10 + chineseNumberToInt(cn.substring(1));
+        }
+        log.warn("无法解析中文数字: {}", cn);
+        return 1;
+    }
+
+    static String buildRawTimeExpr(int weekStart, int weekEnd, int sectionStart, int sectionCount,
+            String classroom) {
+        String weekPart = weekStart == weekEnd ? weekStart + "周" : weekStart + "-" + weekEnd + "周";
+        return buildRawTimeExpr(weekPart, sectionStart, sectionCount, classroom);
+    }
+
+    static String buildRawTimeExpr(String weekPart, int sectionStart, int sectionCount, String classroom) {
+        String sectionPart = sectionCount == 1
+                ? "第" + sectionStart + "节"
+                : "第" + sectionStart + "-" + (sectionStart + sectionCount - 1) + "节";
+        return weekPart + "," + sectionPart + "," + classroom;
+    }
+
+    // ===================== 字符工具 =====================
+
+    /** 连续空白（空格、制表、换行、回车、\f、\u000B）合并为一个空格并去掉首尾空白 */
+    private static String collapseWhitespace(String s) {
+        StringBuilder sb = null;
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (!isSpace(c)) {
+                if (sb != null) {
+                    sb.append(c);
+                }
+                continue;
+            }
+            int j = i + 1;
+            while (j < n && isSpace(s.charAt(j))) {
+                j++;
+            }
+            if (sb == null) {
+                if (c == ' ' && j == i + 1) {
+                    continue;
+                }
+                sb = new StringBuilder(n).append(s, 0, i);
+            }
+            sb.append(' ');
+            i = j - 1;
+        }
+        return (sb == null ? s : sb.toString()).trim();
+    }
+
+    /** 按单个空格切分；空串得到一个空 token，与 String.split 一致 */
+    private static String[] splitOnSpace(String s) {
+        if (s.indexOf(' ') < 0) {
+            return new String[]{s};
+        }
+        List<String> out = new ArrayList<>();
+        int from = 0;
+        for (int i = 0; i <= s.length(); i++) {
+            if (i == s.length() || s.charAt(i) == ' ') {
+                out.add(s.substring(from, i));
+                from = i + 1;
+            }
+        }
+        // 与 String.split 一致，去掉末尾的空串
+        int size = out.size();
+        while (size > 0 && out.get(size - 1).isEmpty()) {
+            size--;
+        }
+        return out.subList(0, size).toArray(new String[0]);
+    }
+
+    private static int skipDigits(String s, int i) {
+        while (i < s.length() && isDigit(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipAsciiLetters(String s, int i) {
+        while (i < s.length() && isAsciiLetter(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean containsAny(String s, String chars) {
+        for (int i = 0; i < s.length(); i++) {
+            if (chars.indexOf(s.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** 不含行分隔符（“.”通配不到这些字符） */
+    private static boolean isSingleLine(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (isLineTerminator(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000B';
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isColon(char c) {
+        return c == ':' || c == '：';
+    }
+
+    private static boolean isWeekSeparator(char c) {
+        return c == '、' || c == ',' || c == '，';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    private static boolean isAsciiAlnum(char c) {
+        return isDigit(c) || isAsciiLetter(c);
+    }
+
+    private static boolean isCodeChar(char c) {
+        return (c >= 'A' && c <= 'Z') || isDigit(c) || c == '.' || c == '-';
+    }
+
+    /**
+     * 单词边界判定用的“单词字符”，与 java.util.regex 的 \b 一致：字母（含汉字）、数字、下划线，
+     * 以及跟在这些字符之后的组合附加符号
+     */
+    private static boolean isWordAt(String s, int i) {
+        int cp = s.codePointAt(i);
+        return isWordChar(cp) || (Character.getType(cp) == Character.NON_SPACING_MARK && hasBaseCharacter(s, i));
+    }
+
+    private static boolean isWordBefore(String s, int i) {
+        int cp = s.codePointBefore(i);
+        return isWordChar(cp) || (Character.getType(cp) == Character.NON_SPACING_MARK && hasBaseCharacter(s, i - 1));
+    }
+
+    private static boolean hasBaseCharacter(String s, int i) {
+        for (int x = i; x >= 0; x--) {
+            int cp = s.codePointAt(x);
+            if (Character.isLetterOrDigit(cp)) {
+                return true;
+            }
+            if (Character.getType(cp) != Character.NON_SPACING_MARK) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isWordChar(int cp) {
+        return cp == '_' || Character.isLetterOrDigit(cp);
+    }
+}
@@ -0,0 +1,225 @@
+package edu.zzttc.backend.service.ai.impl;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.cache.impl.TimedCache;
+import edu.zzttc.backend.domain.vo.schedule.DailyCourseVO;
+import edu.zzttc.backend.service.schedule.ScheduleChangedEvent;
+import edu.zzttc.backend.utils.ScheduleTimeResolver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 课表问答的回答缓存：键为 (用户, 课表版本, 日期, 时段, 归一化后的问题, 课程与检索事实的哈希)。
+ * 同一用户对同一天同样意图的提问、且喂给模型的事实完全相同时，直接复用上次的回答。
+ * 课表变更时（含经 Redis 广播来的其他实例上的变更）只给该用户换一个新版本号，旧条目不再可达，随 LRU/TTL 自然淘汰。
+ * 命中时按上次调用的耗时与提示词长度累加“节省”指标，用于估算省下的模型开销。
+ */
+@Component
+public class QaAnswerCache {
+
+    /** 问句里不影响意图的语气词与客套话 */
+    private static final String[] FILLERS = {"请问", "帮我", "帮忙", "看看", "查一下", "查查", "一下",
+            "吗", "呢", "呀", "啊", "吧", "哦", "嘛"};
+
+    /** 同义说法统一为一种 */
+    private static final String[][] SYNONYMS = {
+            {"有没有", "有"}, {"有哪些", "有什么"}, {"哪些", "什么"}, {"啥", "什么"},
+            {"课程", "课"}
+    };
+
+    private final LRUCache<Key, Entry> cache;
+
+    /**
+     * 用户课表版本号，变更时取全局递增的序号；只记录最近发生过变更的用户。
+     * 保留两倍的回答过期时间，之后旧版本的回答都已过期，版本回到 0 也不会命中旧条目
+     */
+    private final TimedCache<Integer, Long> versions;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter savedMillis;
+    private final Counter savedPromptChars;
+
+    public QaAnswerCache(@Value("${schedule.qa.cache.capacity:20000}") int capacity,
+            @Value("${schedule.qa.cache.ttl-minutes:30}") long ttlMinutes,
+            MeterRegistry meterRegistry) {
+        long ttl = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.cache = CacheUtil.newLRUCache(capacity, ttl);
+        this.versions = CacheUtil.newTimedCache(2 * ttl);
+        this.hitCounter = Counter.builder("schedule.qa.answer.cache")
+                .tag("result", "hit")
+                .description("问答回答缓存命中次数（即省下的模型调用次数）")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("schedule.qa.answer.cache")
+                .tag("result", "miss")
+                .description("问答回答缓存未命中次数")
+                .register(meterRegistry);
+        this.savedMillis = Counter.builder("schedule.qa.answer.cache.saved.millis")
+                .description("命中缓存省下的模型调用耗时（按该回答首次生成的耗时计）")
+                .register(meterRegistry);
+        this.savedPromptChars = Counter.builder("schedule.qa.answer.cache.saved.chars")
+                .description("命中缓存省下的模型输入与输出字符数，可按模型单价折算费用")
+                .register(meterRegistry);
+        Gauge.builder("schedule.qa.answer.cache.size", cache, LRUCache::size)
+                .description("问答回答缓存当前条目数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 计算缓存键；课表版本在此时读取，生成期间若课表变更，写入的条目用的是旧版本，不会被读到
+     */
+    public Key key(Integer userId, String question, LocalDate date, List<DailyCourseVO> courses, List<String> facts) {
+        ScheduleTimeResolver.DayPeriod period = ScheduleTimeResolver.resolve(question, date).getPeriod();
+        Long version = versions.get(userId, false);
+        return new Key(userId, version == null ? 0L : version, date, period,
+                normalizeIntent(question), factsHash(courses, facts));
+    }
+
+    /**
+     * 命中返回回答并累加节省指标，未命中返回 null
+     */
+    public String get(Key key) {
+        // 读取不续期：回答从生成时起最多保留 ttl
+        Entry entry = cache.get(key, false);
+        if (entry == null) {
+            missCounter.increment();
+            return null;
+        }
+        hitCounter.increment();
+        savedMillis.increment(entry.millis());
+        savedPromptChars.increment(entry.chars());
+        return entry.answer();
+    }
+
+    /**
+     * @param elapsedNanos 生成这条回答的模型调用耗时
+     * @param promptChars 送给模型的问题与事实的字符数，见 {@link #promptChars}
+     */
+    public void put(Key key, String answer, long elapsedNanos, int promptChars) {
+        if (answer == null || answer.isBlank()) {
+            return;
+        }
+        cache.put(key, new Entry(answer, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                promptChars + answer.length()));
+    }
+
+    public void evict(Integer userId) {
+        if (userId != null) {
+            versions.prune();
+            versions.put(userId, sequence.incrementAndGet());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleChanged(ScheduleChangedEvent event) {
+        evict(event.getUserId());
+    }
+
+    /**
+     * 去掉空白、标点与语气词并统一同义说法，“明天上午有什么课？”与“请问明天上午有哪些课呢”得到同一结果。
+     * 时间词保留原样：回答里会复述“今天/明天”，不能跨说法复用
+     */
+    static String normalizeIntent(String question) {
+        if (question == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(question.length());
+        for (int i = 0; i < question.length(); i++) {
+            char c = Character.toLowerCase(question.charAt(i));
+            if (Character.isWhitespace(c) || isPunctuation(c)) {
+                continue;
+            }
+            sb.append(c);
+        }
+        String s = sb.toString();
+        for (String[] pair : SYNONYMS) {
+            s = s.replace(pair[0], pair[1]);
+        }
+        for (String filler : FILLERS) {
+            s = s.replace(filler, "");
+        }
+        return s;
+    }
+
+    private static long factsHash(List<DailyCourseVO> courses, List<String> facts) {
+        long h = 0xcbf29ce484222325L;
+        if (courses != null) {
+            for (DailyCourseVO c : courses) {
+                h = fnv(h, c.getCourseName());
+                h = fnv(h, c.getCourseCode());
+                h = fnv(h, c.getTeacherName());
+                h = fnv(h, c.getClassroom());
+                h = fnv(h, c.getRemark());
+                h = fnv(h, c.getSectionStart() + "+" + c.getSectionCount());
+            }
+        }
+        h = fnv(h, "|");
+        if (facts != null) {
+            for (String f : facts) {
+                h = fnv(h, f);
+            }
+        }
+        return h;
+    }
+
+    /** 送给模型的问题与事实的大致字符数，用于估算节省量 */
+    public static int promptChars(String question, List<DailyCourseVO> courses, List<String> facts) {
+        int n = len(question);
+        if (courses != null) {
+            for (DailyCourseVO c : courses) {
+                n += len(c.getCourseName()) + len(c.getCourseCode()) + len(c.getTeacherName())
+                        + len(c.getClassroom()) + len(c.getRemark());
+            }
+        }
+        if (facts != null) {
+            for (String f : facts) {
+                n += len(f);
+            }
+        }
+        return n;
+    }
+
+    /** FNV-1a，每个字段后追加一个分隔值，避免拼接歧义 */
+    private static long fnv(long h, String s) {
+        if (s != null) {
+            for (int i = 0; i < s.length(); i++) {
+                h ^= s.charAt(i);
+                h *= 0x100000001b3L;
+            }
+        }
+        h ^= 0xffff;
+        h *= 0x100000001b3L;
+        return h;
+    }
+
+    private static int len(String s) {
+        return s == null ? 0 : s.length();
+    }
+
+    private static boolean isPunctuation(char c) {
+        int type = Character.getType(c);
+        return type == Character.OTHER_PUNCTUATION || type == Character.START_PUNCTUATION
+                || type == Character.END_PUNCTUATION || type == Character.DASH_PUNCTUATION
+                || type == Character.CONNECTOR_PUNCTUATION || type == Character.INITIAL_QUOTE_PUNCTUATION
+                || type == Character.FINAL_QUOTE_PUNCTUATION;
+    }
+
+    public record Key(Integer userId, long version, LocalDate date, ScheduleTimeResolver.DayPeriod period,
+                      String question, long factsHash) {
+    }
+
+    private record Entry(String answer, long millis, int chars) {
+    }
+}
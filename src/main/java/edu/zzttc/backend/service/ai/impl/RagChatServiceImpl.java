@@ -4,6 +4,7 @@ import edu.zzttc.backend.domain.vo.schedule.DailyCourseVO;
 import edu.zzttc.backend.service.ai.RagChatService;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
 import jakarta.annotation.Resource;
 import java.time.LocalDate;
@@ -16,8 +17,32 @@ public class RagChatServiceImpl implements RagChatService {
     @Resource
     private ChatClient chatClient;
 
+    private static final String SYSTEM_PROMPT = "你是课程表助手。根据给定的课程事实回答用户问题。若无相关课程，明确告知。"
+            + "“相关资料”来自用户的整学期课表与计划，周次按学期开学日期每 7 天为一周计算。";
+
+    @Override
+    public String answerWithContext(String question, LocalDate date, List<DailyCourseVO> courses, List<String> facts) {
+        return chatClient
+                .prompt()
+                .system(SYSTEM_PROMPT)
+                .user(userMessage(question, date, courses, facts))
+                .call()
+                .content();
+    }
+
     @Override
-    public String answerWithContext(String question, LocalDate date, List<DailyCourseVO> courses) {
+    public Flux<String> streamWithContext(String question, LocalDate date, List<DailyCourseVO> courses, List<String> facts) {
+        return Flux.defer(() -> chatClient
+                .prompt()
+                .system(SYSTEM_PROMPT)
+                .user(userMessage(question, date, courses, facts))
+                .stream()
+                .content())
+                // 部分模型会在结尾发一个空的增量
+                .filter(delta -> delta != null && !delta.isEmpty());
+    }
+
+    private String userMessage(String question, LocalDate date, List<DailyCourseVO> courses, List<String> facts) {
         String dateStr = date != null ? date.format(DateTimeFormatter.ISO_DATE) : "";
         String context = courses == null ? "" : courses.stream()
                 .map(c -> String.format("日期=%s; 节次=%d-%d; 课程=%s; 代码=%s; 教师=%s; 教室=%s; 备注=%s",
@@ -31,13 +56,10 @@ public class RagChatServiceImpl implements RagChatService {
                         nullSafe(c.getRemark())))
                 .collect(Collectors.joining("\n"));
 
-        String prompt = "你是课程表助手。根据给定的课程事实回答用户问题。若无相关课程，明确告知。";
-        return chatClient
-                .prompt()
-                .system(prompt)
-                .user("问题：" + question + "\n事实：\n" + context)
-                .call()
-                .content();
+        String related = facts == null || facts.isEmpty() ? "" : String.join("\n", facts);
+
+        return "参考日期：" + dateStr + "\n问题：" + question + "\n事实：\n" + context
+                + (related.isEmpty() ? "" : "\n相关资料：\n" + related);
     }
 
     private String nullSafe(String s) {
@@ -5,20 +5,36 @@ import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
 import edu.zzttc.backend.domain.entity.TermConfig;
 import edu.zzttc.backend.service.ai.ScheduleAiService;
+import edu.zzttc.backend.service.schedule.model.ScheduleParseMode;
 import edu.zzttc.backend.service.schedule.model.ScheduleParsed;
 import edu.zzttc.backend.service.schedule.model.ScheduleParsedCourse;
 import edu.zzttc.backend.service.schedule.model.ScheduleParsedItem;
+import edu.zzttc.backend.utils.DashScopeCallPolicy;
+import edu.zzttc.backend.utils.ImageDownscaler;
+import edu.zzttc.backend.utils.ImageTiles;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
@@ -33,58 +49,264 @@ public class ScheduleAiServiceImpl implements ScheduleAiService {
     @Value("${spring.ai.dashscope.chat.options.model:qwen3-vl-plus}")
     private String model;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    /** 送模型前截图的像素预算，0 表示不缩放 */
+    @Value("${schedule.import.image.max-pixels:0}")
+    private long imageMaxPixels;
 
-    private static final java.util.Set<String> COMMON_SURNAME_CHARS = new java.util.HashSet<>(
-            java.util.Arrays.asList("赵", "钱", "孙", "李", "周", "吴", "郑", "王", "冯", "陈", "褚", "卫", "蒋", "沈", "韩", "杨",
-                    "朱", "秦", "尤", "许", "何", "吕", "施", "张", "孔", "曹", "严", "华", "金", "魏", "陶", "姜", "戚", "谢", "邹",
-                    "喻", "柏", "水", "窦", "章", "云", "苏", "潘", "葛", "奚", "范", "彭", "郎", "鲁", "韦", "昌", "马", "苗", "凤",
-                    "花", "方", "俞", "任", "袁", "柳", "鲍", "史", "唐", "费", "廉", "岑", "薛", "雷", "贺", "倪", "汤", "罗", "毕",
-                    "郝", "邬", "安", "常", "乐", "于", "时", "傅", "皮", "卞", "齐", "康", "伍", "余", "元", "顾", "孟", "平", "黄",
-                    "和", "穆", "萧", "尹", "姚", "邵", "湛", "汪", "祁", "毛", "禹", "狄", "米", "贝", "明", "臧", "计", "伏", "成",
-                    "戴", "谈", "宋", "茅", "庞", "熊", "纪", "舒", "屈", "项", "祝", "董", "梁", "杜", "阮", "蓝", "闵", "席", "季",
-                    "麻", "强", "贾", "路", "娄", "危", "支", "柯", "管", "卢", "莫", "经", "房", "裘", "干", "解", "应", "宗", "丁",
-                    "宣", "邓", "郁", "单", "杭", "洪", "包", "诸", "左", "石", "崔", "吉", "钮", "龚", "程", "嵇", "邢", "滑", "裴",
-                    "陆", "荣", "辛", "阎", "赫", "皮", "鲜", "敖", "詹", "仇", "冉", "宓", "隗", "瞿", "阚", "胥", "佘", "阴"));
+    /** 截图文件超过该字节数时重新压成 JPEG，0 表示不限制 */
+    @Value("${schedule.import.image.max-bytes:0}")
+    private long imageMaxBytes;
 
-    private static final java.util.List<String> COURSE_SUFFIXES = java.util.Arrays
-            .asList("学", "论", "术", "技", "设计", "课程", "基础", "原理", "概论", "思想", "政策", "英语", "体育", "实验", "工程", "管理",
-                    "数据", "网络", "计算", "技术");
+    @Value("${schedule.import.image.jpeg-quality:0.9}")
+    private float imageJpegQuality;
+
+    /** 请求未指定识别方式时使用 */
+    @Value("${schedule.ai.parse-mode:TEXT}")
+    private ScheduleParseMode defaultParseMode;
+
+    /**
+     * JSON 模式的 response_format：json_schema 让服务端按 {@link JsonScheduleParser#SCHEMA} 约束输出，
+     * 模型不支持时改为 json_object（只保证是合法 JSON，结构靠提示词约束）
+     */
+    @Value("${schedule.ai.json-response-format:json_object}")
+    private String jsonResponseFormat;
+
+    /** 分块识别：截图中的星期列数、每块包含的星期列数 */
+    @Value("${schedule.ai.tile.day-columns:7}")
+    private int tileDayColumns;
+
+    @Value("${schedule.ai.tile.days-per-tile:2}")
+    private int tileDaysPerTile;
+
+    /** 左侧节次列占整图宽度的比例，每块都会带上这一列 */
+    @Value("${schedule.ai.tile.label-ratio:0.1}")
+    private double tileLabelRatio;
+
+    /** 每块左右多截的宽度，占一个星期列宽的比例 */
+    @Value("${schedule.ai.tile.overlap-ratio:0.15}")
+    private double tileOverlapRatio;
+
+    @Resource
+    private RestTemplate dashScopeRestTemplate;
+
+    @Resource
+    private DashScopeCallPolicy callPolicy;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private ThreadPoolExecutor scheduleTileExecutor;
+
+    /** 请求体中图片 data-url 的占位符，序列化后在此处流式写入图片的 base64 */
+    private static final String IMAGE_PLACEHOLDER = "__SCHEDULE_IMAGE_DATA_URL__";
+
+    @Override
+    public ScheduleParseMode defaultParseMode() {
+        return defaultParseMode;
+    }
 
     @Override
-    public ScheduleParsed parseScheduleFromImage(String imagePath, TermConfig termConfig) {
+    public ScheduleParsed parseScheduleFromImage(String imagePath, TermConfig termConfig, ScheduleParseMode mode) {
+        ScheduleParseMode requested = mode == null ? defaultParseMode : mode;
+        Path image = null;
         try {
             Path path = Path.of(imagePath);
             if (!Files.exists(path)) {
                 throw new IllegalArgumentException("课表图片不存在: " + imagePath);
             }
 
-            // 1. 图片转 data-url
-            String dataUrl = toDataUrl(path);
-
-            // 2. 让 Qwen 把整张课表读成「规范课表文本」
-            String normalizedText = callOcrToNormalizedSchedule(dataUrl);
-            log.info("Qwen 规范课表文本：{}", normalizedText);
-
-            if (normalizedText == null || normalizedText.trim().length() < 30) {
-                throw new RuntimeException("OCR 结果过短或为空");
+            // 1. 超出像素预算或体积上限的截图先缩小/重新压缩
+            image = ImageDownscaler.fit(path, imageMaxPixels, imageMaxBytes, imageJpegQuality);
+            if (image != path) {
+                log.info("课表图片已压缩：{} -> {} 字节", Files.size(path), Files.size(image));
             }
 
-            // 3. 本地解析这段规范文本 -> ScheduleParsed
-            ScheduleParsed parsed = parseNormalizedSchedule(normalizedText.trim());
-
-            if (parsed.getCourses() == null || parsed.getCourses().isEmpty()
-                    || parsed.getItems() == null || parsed.getItems().isEmpty()) {
-                throw new RuntimeException("从规范文本中解析不到课程信息");
+            // 2. JSON / 分块模式：任何失败都退回文本模式对整图再识别一次
+            ScheduleParsed parsed = null;
+            if (requested != ScheduleParseMode.TEXT) {
+                try {
+                    parsed = recognize(requested, image);
+                } catch (Exception e) {
+                    log.warn("{} 模式识别课表失败，退回规范文本模式: {}", requested, e.getMessage());
+                    Counter.builder("schedule.ai.parse.fallback")
+                            .description("JSON / 分块模式识别失败后退回文本模式的次数")
+                            .tag("from", requested.name().toLowerCase())
+                            .register(meterRegistry)
+                            .increment();
+                }
+            }
+            if (parsed == null) {
+                parsed = recognize(ScheduleParseMode.TEXT, image);
             }
 
-            parsed.setRawOcrText(normalizedText);
             parsed.setImageUrl(imagePath);
-
             return parsed;
         } catch (Exception e) {
             log.error("调用 Qwen 解析课表失败", e);
             throw new RuntimeException("课表解析失败，请稍后重试");
+        } finally {
+            deleteTempImage(image, imagePath);
+        }
+    }
+
+    /**
+     * 按一种识别方式调用模型并解析，按方式与结果记录端到端耗时和识别出的排课条数，便于几种方式对比
+     */
+    private ScheduleParsed recognize(ScheduleParseMode mode, Path image) throws IOException {
+        String tag = mode.name().toLowerCase();
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            ScheduleParsed parsed = switch (mode) {
+                case TEXT -> recognizeAsText(image);
+                case JSON -> recognizeAsJson(image, null);
+                case TILED -> recognizeTiled(image);
+            };
+            if (parsed.getCourses() == null || parsed.getCourses().isEmpty()
+                    || parsed.getItems() == null || parsed.getItems().isEmpty()) {
+                throw new RuntimeException("模型应答中解析不到课程信息");
+            }
+            parsed.setParseMode(mode);
+            outcome = "success";
+            DistributionSummary.builder("schedule.ai.parse.items")
+                    .description("单次识别出的排课条数")
+                    .tag("mode", tag)
+                    .register(meterRegistry)
+                    .record(parsed.getItems().size());
+            return parsed;
+        } finally {
+            Timer.builder("schedule.ai.parse.latency")
+                    .description("课表截图识别耗时（模型调用 + 解析）")
+                    .tag("mode", tag)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private ScheduleParsed recognizeAsText(Path image) throws IOException {
+        // 让 Qwen 把整张课表读成「规范课表文本」，图片在请求体里流式编码，不整张读入内存
+        String normalizedText = callOcrToNormalizedSchedule(image);
+        log.info("Qwen 规范课表文本：{}", normalizedText);
+
+        if (normalizedText == null || normalizedText.trim().length() < 30) {
+            throw new RuntimeException("OCR 结果过短或为空");
+        }
+
+        // 本地解析这段规范文本 -> ScheduleParsed
+        ScheduleParsed parsed = parseNormalizedSchedule(normalizedText.trim());
+        parsed.setRawOcrText(normalizedText);
+        return parsed;
+    }
+
+    /**
+     * @param scope 图片只是课表的一部分时，给模型的范围说明；整图为 null
+     */
+    ScheduleParsed recognizeAsJson(Path image, String scope) throws IOException {
+        String json = callOcrToJsonSchedule(image, scope);
+        log.info("Qwen JSON 课表：{}", json);
+        if (json.isEmpty()) {
+            throw new RuntimeException("JSON 应答为空");
+        }
+        ScheduleParsed parsed = JsonScheduleParser.parse(json);
+        parsed.setRawOcrText(json);
+        return parsed;
+    }
+
+    /**
+     * 分块识别：按星期列切块，在 scheduleTileExecutor 上并发识别，每块只保留自己负责的星期，
+     * 各块结果直接拼接。块是按整列切的，同一天的课只会落在一个块里，不存在被块边界拆开的课，
+     * 因此这里不做规范化，返回与其他识别方式同样的原始结果，由导入方统一规范化一次（解析缓存里存的也是原始结果）。
+     * 任一块失败即整体失败，由调用方退回整图识别，不返回缺了某几天的课表
+     */
+    ScheduleParsed recognizeTiled(Path image) throws IOException {
+        List<ImageTiles.Tile> tiles = ImageTiles.splitDayColumns(image, tileDayColumns,
+                Math.max(1, tileDaysPerTile), tileLabelRatio, tileOverlapRatio);
+        if (tiles.isEmpty()) {
+            throw new RuntimeException("无法读取课表图片，不能分块");
+        }
+        try {
+            List<CompletableFuture<ScheduleParsed>> futures = new ArrayList<>(tiles.size());
+            for (ImageTiles.Tile tile : tiles) {
+                futures.add(CompletableFuture.supplyAsync(() -> recognizeTile(tile), scheduleTileExecutor));
+            }
+
+            List<ScheduleParsedItem> items = new ArrayList<>();
+            Map<String, ScheduleParsedCourse> courseMap = new LinkedHashMap<>();
+            StringJoiner raw = new StringJoiner("\n");
+            for (CompletableFuture<ScheduleParsed> future : futures) {
+                ScheduleParsed part;
+                try {
+                    part = future.join();
+                } catch (CompletionException e) {
+                    // 还没开始的块不再调用模型
+                    futures.forEach(f -> f.cancel(false));
+                    throw e.getCause() instanceof RuntimeException re ? re : e;
+                }
+                items.addAll(part.getItems());
+                for (ScheduleParsedCourse c : part.getCourses()) {
+                    String key = c.getCourseName() + "@@" + (c.getTeacherName() == null ? "" : c.getTeacherName());
+                    ScheduleParsedCourse existing = courseMap.putIfAbsent(key, c);
+                    if (existing != null && existing.getCourseCode() == null) {
+                        existing.setCourseCode(c.getCourseCode());
+                    }
+                }
+                raw.add(part.getRawOcrText());
+            }
+            log.info("分块识别完成：{} 块，{} 条排课", tiles.size(), items.size());
+
+            ScheduleParsed merged = new ScheduleParsed();
+            merged.setItems(items);
+            merged.setCourses(new ArrayList<>(courseMap.values()));
+            merged.setRawOcrText(raw.toString());
+            return merged;
+        } finally {
+            ImageTiles.delete(tiles);
+        }
+    }
+
+    /** 识别一块，丢弃不属于本块星期范围的条目（重叠区域里相邻星期的课由相邻块负责） */
+    private ScheduleParsed recognizeTile(ImageTiles.Tile tile) {
+        long start = System.nanoTime();
+        try {
+            String scope = "这张图只截取了课表最左侧的节次列，以及" + dayRange(tile.firstDay(), tile.lastDay())
+                    + "的列（左右边缘可能带有相邻星期的少量内容，请忽略）。只输出" + dayRange(tile.firstDay(), tile.lastDay())
+                    + "的课程，dayOfWeek 按表头对应的星期填写；这几天没有课时 items 输出空数组。";
+            ScheduleParsed part = recognizeAsJson(tile.path(), scope);
+            part.getItems().removeIf(it -> it.getDayOfWeek() < tile.firstDay() || it.getDayOfWeek() > tile.lastDay());
+            Set<String> kept = new HashSet<>();
+            for (ScheduleParsedItem it : part.getItems()) {
+                kept.add(it.getCourseName() + "@@" + (it.getTeacherName() == null ? "" : it.getTeacherName()));
+            }
+            part.getCourses().removeIf(c ->
+                    !kept.contains(c.getCourseName() + "@@" + (c.getTeacherName() == null ? "" : c.getTeacherName())));
+            return part;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            Timer.builder("schedule.ai.tile.latency")
+                    .description("分块识别中单块的模型调用与解析耗时")
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String dayRange(int first, int last) {
+        String days = "一二三四五六日";
+        return first == last
+                ? "星期" + days.charAt(first - 1)
+                : "星期" + days.charAt(first - 1) + "至星期" + days.charAt(last - 1);
+    }
+
+    private void deleteTempImage(Path image, String imagePath) {
+        if (image == null || image.toString().equals(imagePath)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(image);
+        } catch (IOException e) {
+            log.warn("删除压缩后的临时图片失败: {}", image, e);
         }
     }
 
@@ -105,7 +327,7 @@ public class ScheduleAiServiceImpl implements ScheduleAiService {
      * 第三、四节 习近平新时代中国特色社会主义思想概论 梁宇 M1801330.05 1-11周 第二教学楼204；
      * ...
      */
-    private String callOcrToNormalizedSchedule(String dataUrl) {
+    private String callOcrToNormalizedSchedule(Path image) throws IOException {
         String prompt = """
                 你将看到一张大学“学生课表”的截图，请你根据图片内容，输出一段【规范的课表文本】。
 
@@ -151,7 +373,8 @@ public class ScheduleAiServiceImpl implements ScheduleAiService {
                      「周次（如 1-7周/7周/14周）」 + 空格 +
                      「教室（如有多个教室，用中文顿号“、”连接）」。
 
-                2. 周次用阿拉伯数字，如：1-7周、7周、14周、1-14周 等。
+                2. 周次用阿拉伯数字，如：1-7周、7周、14周、1-14周 等；单双周写作 1-15单周、2-16双周；
+                   同一教室的不连续周次用英文逗号连接，如 1,3,7-9周。
 
                 3. 课程节次用中文数字，如：第一、二节；第三、四节；第五、六、七、八节；第九、十节；第十一、十二节。
 
@@ -187,7 +410,7 @@ public class ScheduleAiServiceImpl implements ScheduleAiService {
         JSONObject imageObj = new JSONObject();
         imageObj.put("type", "image_url");
         JSONObject urlObj = new JSONObject();
-        urlObj.put("url", dataUrl);
+        urlObj.put("url", IMAGE_PLACEHOLDER);
         imageObj.put("image_url", urlObj);
 
         JSONObject textObj = new JSONObject();
@@ -205,455 +428,129 @@ public class ScheduleAiServiceImpl implements ScheduleAiService {
         JSONArray messages = new JSONArray();
         messages.add(userMsg);
 
-        String resp = callDashScope(messages);
+        String resp = callDashScope(messages, image, null);
         return resp == null ? "" : resp.trim();
     }
 
-    // ===================== 2. 本地解析规范文本 -> ScheduleParsed =====================
-
-    private ScheduleParsed parseNormalizedSchedule(String text) {
-        // 去掉多余换行，统一成一行/少量空格
-        String normalized = text.replaceAll("[\\r\\n]+", " ");
-        // 方便匹配：去掉多余空格
-        normalized = normalized.replaceAll("\\s+", " ").trim();
-
-        Map<String, Integer> dayMap = new HashMap<>();
-        dayMap.put("一", 1);
-        dayMap.put("二", 2);
-        dayMap.put("三", 3);
-        dayMap.put("四", 4);
-        dayMap.put("五", 5);
-        dayMap.put("六", 6);
-        dayMap.put("日", 7);
-        dayMap.put("天", 7);
-
-        // 匹配 “星期一：” 这样的片段
-        Pattern dayPattern = Pattern.compile("星期([一二三四五六日天])\\s*[:：]");
-        Matcher m = dayPattern.matcher(normalized);
-
-        List<DayBlock> blocks = new ArrayList<>();
-        while (m.find()) {
-            String dayChar = m.group(1);
-            Integer dayOfWeek = dayMap.get(dayChar);
-            if (dayOfWeek == null) {
-                continue;
-            }
-            int start = m.end(); // 内容从冒号后开始
-            blocks.add(new DayBlock(dayOfWeek, start));
-        }
-        if (blocks.isEmpty()) {
-            throw new RuntimeException("规范文本中没有识别到“星期X：”结构");
-        }
-
-        // 为每个 block 设置结束位置
-        for (int i = 0; i < blocks.size(); i++) {
-            DayBlock b = blocks.get(i);
-            int end = (i + 1 < blocks.size()) ? blocks.get(i + 1).startIndex : normalized.length();
-            b.endIndex = end;
-        }
+    /**
+     * JSON 模式：同样的转写规则，但要求按 {@link JsonScheduleParser#SCHEMA} 输出，每条排课一个对象
+     */
+    private String callOcrToJsonSchedule(Path image, String scope) throws IOException {
+        String prompt = (scope == null ? "" : scope + "\n\n") + """
+                你将看到一张大学“学生课表”的截图，请把其中的每一条上课安排输出为 JSON。
 
-        List<ScheduleParsedItem> items = new ArrayList<>();
-        Map<String, ScheduleParsedCourse> courseMap = new LinkedHashMap<>();
+                输出必须是一个 JSON 对象，符合下面的 JSON Schema：
+                """ + JsonScheduleParser.SCHEMA + """
 
-        for (DayBlock b : blocks) {
-            String dayContent = normalized.substring(b.startIndex, b.endIndex).trim();
-            if (dayContent.isEmpty())
-                continue;
-            parseDayContent(b.dayOfWeek, dayContent, items, courseMap);
-        }
+                要求：
 
-        ScheduleParsed parsed = new ScheduleParsed();
-        parsed.setItems(items);
-        parsed.setCourses(new ArrayList<>(courseMap.values()));
-        return parsed;
-    }
+                1. items 中每个对象对应一条排课：一门课在某一天、某一组连续节次、某一组周次、某一个教室上课。
+                2. 节次用阿拉伯数字：第三、四节 -> sectionStart=3, sectionCount=2；连续四节必须完整计入，不得缩写或遗漏。
+                3. 同一课程方块中列出多组“周次+教室”配对（如“（13,信软楼西305）（连1-12,第二教学楼204）”）时，
+                   逐组拆成多个对象，节次相同；不要把周次归到其它节次。
+                4. 不连续的周次（如 1,3,7-9周）写成一个对象，weeks 填 "1,3,7-9"，weekStart、weekEnd 填其中最小、最大周；
+                   连续周次 weeks 填 null。“连10-12”“10～12”“10至12”“10—12”都表示 10-12 周。
+                5. 标注“单周”“双周”时 weekOddEven 分别为 1、2，否则为 0。
+                6. 同一条排课有多个教室时，每个教室一个对象。
+                7. 同一课程由不同教师在不同周次授课时，每位教师一个对象，节次范围以课表方块的实际起止为准。
+                8. 识别不到的课程代码、教师、教室填 null，不要编造。
+                9. 只输出这个 JSON 对象，不要输出解释、Markdown 或代码块。
+                """;
 
-    private void parseDayContent(int dayOfWeek,
-            String dayContent,
-            List<ScheduleParsedItem> items,
-            Map<String, ScheduleParsedCourse> courseMap) {
-        // 按分号拆成一门一门课
-        String[] courseSegs = dayContent.split("[；;]");
-        for (String seg : courseSegs) {
-            String s = seg.trim();
-            if (s.isEmpty())
-                continue;
-            if (s.matches("^星期[一二三四五六日天]\\s*[:：]?$"))
-                continue;
-            java.util.List<ScheduleParsedItem> segItems = parseSingleCourseSeg(dayOfWeek, s, courseMap);
-            if (segItems != null && !segItems.isEmpty()) {
-                items.addAll(segItems);
-            }
-        }
-    }
+        JSONObject imageObj = new JSONObject();
+        imageObj.put("type", "image_url");
+        JSONObject urlObj = new JSONObject();
+        urlObj.put("url", IMAGE_PLACEHOLDER);
+        imageObj.put("image_url", urlObj);
 
-    private java.util.List<ScheduleParsedItem> parseSingleCourseSeg(int dayOfWeek,
-            String seg,
-            Map<String, ScheduleParsedCourse> courseMap) {
-        // 先拆出 “第X、Y节 / 第X、Y、Z、W节”
-        Pattern p = Pattern.compile("^第([^节]+)节\\s+(.+)$");
-        Matcher m = p.matcher(seg);
-        if (!m.find()) {
-            log.warn("无法从片段中解析节次信息: {}", seg);
-            return java.util.Collections.emptyList();
-        }
-        String sectionText = m.group(1).trim(); // 如 “一、二” / “五、六、七、八”
-        String rest = m.group(2).trim();
-
-        // 1. 节次解析
-        int[] sectionInfo = parseSectionText(sectionText);
-        int sectionStart = sectionInfo[0];
-        int sectionCount = sectionInfo[1];
-
-        // 2. 周次 & 课程代码 & 课程名 / 老师 / 教室
-        // 2.1 先找课程代码（大写字母开头）
-        String courseCode = null;
-        Pattern codePat = Pattern.compile("(?<![A-Za-z0-9])([A-Z][0-9A-Z.\\-]*\\d[0-9A-Z.\\-]*)(?![A-Za-z0-9])");
-        Matcher codeM = codePat.matcher(rest);
-        if (codeM.find()) {
-            courseCode = codeM.group(1);
-            rest = (rest.substring(0, codeM.start()) + rest.substring(codeM.end())).trim();
-        }
+        JSONObject textObj = new JSONObject();
+        textObj.put("type", "text");
+        textObj.put("text", prompt);
 
-        // 2.2 找周次：如 1-7周、7周、14周、1-14周
-        String weekExpr = null;
-        Pattern weekPat = Pattern.compile("(\\d+(?:-\\d+)?)周");
-        Integer weekStart = null;
-        Integer weekEnd = null;
-        java.util.List<int[]> weekRanges = new java.util.ArrayList<>();
-        String restWithWeeks = rest;
-        Matcher weekM = weekPat.matcher(restWithWeeks);
-        while (weekM.find()) {
-            weekExpr = weekM.group(1);
-            if (weekExpr.contains("-")) {
-                String[] arr = weekExpr.split("-");
-                weekRanges.add(new int[] { Integer.parseInt(arr[0]), Integer.parseInt(arr[1]) });
-            } else {
-                int v = Integer.parseInt(weekExpr);
-                weekRanges.add(new int[] { v, v });
-            }
-        }
-        if (!weekRanges.isEmpty()) {
-            weekStart = weekRanges.get(0)[0];
-            weekEnd = weekRanges.get(0)[1];
-        }
-        rest = restWithWeeks.replaceAll("(\\d+(?:-\\d+)?)周(?:[、,，])?", " ").replaceAll("\\s+", " ").trim();
-
-        // 2.3 剩下的是：课程名 + [老师名] + 教室
-        // 固定策略：最后一个 token = 教室（可能含“、”分隔多个）
-        // 倒数第二个 token = 老师名（如果总 token 数 >= 3）
-        // 其它 token 拼成课程名
-        String restClean = rest.replaceAll("\\s+", " ").trim();
-        java.util.regex.Pattern englishNamePat = java.util.regex.Pattern
-                .compile("\\b([A-Z][A-Za-z]+(?:\\s+[A-Z][A-Za-z]+)+)\\b");
-        java.util.regex.Matcher englishM = englishNamePat.matcher(restClean);
-        String teacherEnglish = null;
-        if (englishM.find()) {
-            teacherEnglish = englishM.group(1);
-            restClean = restClean.replace(teacherEnglish, " ").replaceAll("\\s+", " ").trim();
-        }
-        String[] tokens = restClean.split(" ");
-        if (tokens.length < 2) {
-            log.warn("课程片段字段不足，无法解析: {}", seg);
-            return java.util.Collections.emptyList();
-        }
+        JSONArray contentArr = new JSONArray();
+        contentArr.add(imageObj);
+        contentArr.add(textObj);
 
-        int classroomIdx = -1;
-        for (int i = tokens.length - 1; i >= 0; i--) {
-            String t = tokens[i];
-            if (t.matches(".*(楼|教室).*") || t.matches(".*\\d{3,}.*")) {
-                classroomIdx = i;
-                break;
-            }
-        }
-        if (classroomIdx == -1)
-            classroomIdx = tokens.length - 1;
-        String classroomFull = tokens[classroomIdx];
-
-        Integer teacherIdx = null;
-        String teacherName = null;
-        if (teacherEnglish != null) {
-            teacherName = teacherEnglish;
-        } else {
-            int bestScore = Integer.MIN_VALUE;
-            int bestIdx = -1;
-            for (int i = 0; i < tokens.length; i++) {
-                if (i == classroomIdx)
-                    continue;
-                String t = tokens[i];
-                int score = 0;
-                if (t.matches("[\\p{IsHan}]{2,3}(?:[、][\\p{IsHan}]{2,3})*"))
-                    score += 3;
-                if (!t.isEmpty() && COMMON_SURNAME_CHARS.contains(t.substring(0, 1)))
-                    score += 2;
-                boolean hasCourseSuffix = false;
-                for (String suf : COURSE_SUFFIXES) {
-                    if (t.endsWith(suf) || t.contains(suf)) {
-                        hasCourseSuffix = true;
-                        break;
-                    }
-                }
-                if (hasCourseSuffix)
-                    score -= 4;
-                // 修复正则中的转义，确保在 Java 字符串中正确匹配方括号
-                if (t.matches(".*[0-9（）()\\[\\]].*"))
-                    score -= 3;
-                if (i == tokens.length - 2)
-                    score += 1;
-                if (score > bestScore) {
-                    bestScore = score;
-                    bestIdx = i;
-                }
-            }
-            if (bestScore > 0 && bestIdx >= 0) {
-                teacherIdx = bestIdx;
-                teacherName = tokens[bestIdx];
-            }
-        }
+        JSONObject userMsg = new JSONObject();
+        userMsg.put("role", "user");
+        userMsg.put("content", contentArr);
 
-        StringBuilder cn = new StringBuilder();
-        for (int i = 0; i < tokens.length; i++) {
-            if (i == classroomIdx)
-                continue;
-            if (teacherIdx != null && i == teacherIdx)
-                continue;
-            if (cn.length() > 0)
-                cn.append(" ");
-            cn.append(tokens[i]);
-        }
-        String courseName = cn.toString();
-
-        // 2.4 教室解析：当存在多个教室（用中文顿号“、”分隔）时，为每个教室生成一条排课
-        String[] classroomList = classroomFull.split("、");
-
-        java.util.List<Object[]> weekClassroomPairs = new java.util.ArrayList<>();
-        Matcher wcMatcher = weekPat.matcher(restWithWeeks);
-        int scanPos = 0;
-        while (wcMatcher.find(scanPos)) {
-            String wx = wcMatcher.group(1);
-            int ws, we;
-            if (wx.contains("-")) {
-                String[] arr = wx.split("-");
-                ws = Integer.parseInt(arr[0]);
-                we = Integer.parseInt(arr[1]);
-            } else {
-                ws = Integer.parseInt(wx);
-                we = ws;
-            }
-            String tail = restWithWeeks.substring(wcMatcher.end()).trim();
-            String[] tailTokens = tail.isEmpty() ? new String[0] : tail.split(" ");
-            String clsCandidate = null;
-            for (String t : tailTokens) {
-                if (t.matches(".*(楼|教室).*") || t.matches(".*\\d{3,}.*")) {
-                    clsCandidate = t;
-                    break;
-                }
-                // 遇到下一个周次则停止
-                if (t.matches("\\d+(?:-\\d+)?周")) {
-                    break;
-                }
-            }
-            if (clsCandidate != null) {
-                weekClassroomPairs.add(new Object[] { ws, we, clsCandidate });
-            }
-            scanPos = wcMatcher.end();
-        }
+        JSONArray messages = new JSONArray();
+        messages.add(userMsg);
 
-        // 4. 维护课程基础信息
-        String courseKey = courseName + "@@" + java.util.Optional.ofNullable(teacherName).orElse("");
-        ScheduleParsedCourse course = courseMap.get(courseKey);
-        if (course == null) {
-            course = new ScheduleParsedCourse();
-            course.setCourseName(courseName);
-            course.setCourseCode(courseCode);
-            course.setTeacherName(teacherName);
-            course.setCredit(null);
-            course.setColorTag(null);
-            courseMap.put(courseKey, course);
+        JSONObject responseFormat = new JSONObject();
+        if ("json_schema".equalsIgnoreCase(jsonResponseFormat)) {
+            JSONObject schema = new JSONObject();
+            schema.put("name", "schedule_items");
+            schema.put("strict", true);
+            schema.put("schema", JSON.parseObject(JsonScheduleParser.SCHEMA));
+            responseFormat.put("type", "json_schema");
+            responseFormat.put("json_schema", schema);
         } else {
-            // 如果之前没识别到代码/老师，这次有就补全
-            if (course.getCourseCode() == null && courseCode != null) {
-                course.setCourseCode(courseCode);
-            }
-            if (course.getTeacherName() == null && teacherName != null) {
-                course.setTeacherName(teacherName);
-            }
+            responseFormat.put("type", "json_object");
         }
-        java.util.List<ScheduleParsedItem> resultItems = new java.util.ArrayList<>();
-        if (!weekClassroomPairs.isEmpty()) {
-            Integer weekOddEven = 0;
-            for (Object[] pair : weekClassroomPairs) {
-                int ws = (Integer) pair[0];
-                int we = (Integer) pair[1];
-                String cls = (String) pair[2];
-                String[] clsList = cls.split("、");
-                for (String one : clsList) {
-                    String clsTrim = one.trim();
-                    if (clsTrim.isEmpty())
-                        continue;
-                    ScheduleParsedItem it = new ScheduleParsedItem();
-                    it.setCourseName(courseName);
-                    it.setTeacherName(teacherName);
-                    it.setDayOfWeek(dayOfWeek);
-                    it.setSectionStart(sectionStart);
-                    it.setSectionCount(sectionCount);
-                    it.setWeekStart(ws);
-                    it.setWeekEnd(we);
-                    it.setWeekOddEven(weekOddEven);
-                    it.setClassroom(clsTrim);
-                    it.setCampus(null);
-                    it.setRemark(null);
-                    it.setRawTimeExpr(buildRawTimeExpr(ws, we, sectionStart, sectionCount, clsTrim));
-                    resultItems.add(it);
-                }
-            }
-        } else {
-            if (weekRanges.isEmpty()) {
-                weekRanges.add(new int[] { 1, 1 });
-            }
-            Integer weekOddEven = 0;
-            for (String cls : classroomList) {
-                String clsTrim = cls.trim();
-                if (clsTrim.isEmpty())
-                    continue;
-                for (int[] wr : weekRanges) {
-                    ScheduleParsedItem it = new ScheduleParsedItem();
-                    it.setCourseName(courseName);
-                    it.setTeacherName(teacherName);
-                    it.setDayOfWeek(dayOfWeek);
-                    it.setSectionStart(sectionStart);
-                    it.setSectionCount(sectionCount);
-                    it.setWeekStart(wr[0]);
-                    it.setWeekEnd(wr[1]);
-                    it.setWeekOddEven(weekOddEven);
-                    it.setClassroom(clsTrim);
-                    it.setCampus(null);
-                    it.setRemark(null);
-                    it.setRawTimeExpr(buildRawTimeExpr(wr[0], wr[1], sectionStart, sectionCount, clsTrim));
-                    resultItems.add(it);
-                }
-            }
-        }
-        return resultItems;
-    }
 
-    /**
-     * 解析 “一、二” / “五、六、七、八” 这种节次描述。
-     * 返回 [sectionStart, sectionCount]
-     */
-    private int[] parseSectionText(String sectionText) {
-        String clean = sectionText.replace("第", "").replace("节", "").trim();
-        String[] parts = clean.split("、");
-        List<Integer> list = new ArrayList<>();
-        for (String p : parts) {
-            p = p.trim();
-            if (p.isEmpty())
-                continue;
-            list.add(chineseNumberToInt(p));
-        }
-        if (list.isEmpty()) {
-            // 极端兜底
-            return new int[] { 1, 2 };
-        }
-        Collections.sort(list);
-        int start = list.get(0);
-        int count = list.size();
-        return new int[] { start, count };
-    }
-
-    /**
-     * 中文数字（一、二、三、四、五、六、七、八、九、十、十一、十二） -> 阿拉伯数字
-     */
-    private int chineseNumberToInt(String cn) {
-        cn = cn.trim();
-        switch (cn) {
-            case "一":
-                return 1;
-            case "二":
-                return 2;
-            case "三":
-                return 3;
-            case "四":
-                return 4;
-            case "五":
-                return 5;
-            case "六":
-                return 6;
-            case "七":
-                return 7;
-            case "八":
-                return 8;
-            case "九":
-                return 9;
-            case "十":
-                return 10;
-            case "十一":
-                return 11;
-            case "十二":
-                return 12;
-            default:
-                // 简单处理“十X”
-                if (cn.startsWith("十")) {
-                    int base = 10;
-                    String rest = cn.substring(1);
-                    if (rest.isEmpty())
-                        return base;
-                    return base + chineseNumberToInt(rest);
-                }
-                log.warn("无法解析中文数字: {}", cn);
-                return 1;
-        }
+        String resp = callDashScope(messages, image, responseFormat);
+        return resp == null ? "" : resp.trim();
     }
 
-    private String buildRawTimeExpr(Integer weekStart, Integer weekEnd,
-            Integer sectionStart, Integer sectionCount,
-            String classroomFull) {
-        // 周次部分
-        String weekPart;
-        if (weekStart != null && weekEnd != null) {
-            if (Objects.equals(weekStart, weekEnd)) {
-                weekPart = weekStart + "周";
-            } else {
-                weekPart = weekStart + "-" + weekEnd + "周";
-            }
-        } else {
-            weekPart = "周次未知";
-        }
-
-        // 节次部分（用阿拉伯数字即可）
-        String sectionPart;
-        if (sectionStart != null && sectionCount != null) {
-            int endSec = sectionStart + sectionCount - 1;
-            if (sectionCount == 1) {
-                sectionPart = "第" + sectionStart + "节";
-            } else {
-                sectionPart = "第" + sectionStart + "-" + endSec + "节";
-            }
-        } else {
-            sectionPart = "节次未知";
-        }
+    // ===================== 2. 本地解析规范文本 -> ScheduleParsed =====================
 
-        String classroom = Optional.ofNullable(classroomFull).orElse("教室未知");
-        return weekPart + "," + sectionPart + "," + classroom;
+    ScheduleParsed parseNormalizedSchedule(String text) {
+        return NormalizedScheduleParser.parse(text);
     }
 
     // ===================== 3. DashScope 通用调用 =====================
 
-    private String callDashScope(JSONArray messages) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey);
-
+    /**
+     * responseFormat 为 null 时不约束输出格式。
+     * messages 中的 {@link #IMAGE_PLACEHOLDER} 在发送时替换为 image 的 data-url：
+     * 占位符前后的 JSON 先序列化好，图片字节经 base64 编码流直接写进请求体，
+     * 按 Content-Length 定长发送，整张图片的 base64 不会出现在堆上。
+     */
+    private String callDashScope(JSONArray messages, Path image, JSONObject responseFormat) throws IOException {
         JSONObject body = new JSONObject();
         body.put("model", model);
         body.put("messages", messages);
+        if (responseFormat != null) {
+            body.put("response_format", responseFormat);
+        }
+
+        String json = body.toJSONString();
+        int at = json.indexOf(IMAGE_PLACEHOLDER);
+        byte[] head = (json.substring(0, at) + "data:" + mimeType(image) + ";base64,")
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] tail = json.substring(at + IMAGE_PLACEHOLDER.length()).getBytes(StandardCharsets.UTF_8);
+        long contentLength = head.length + base64Length(Files.size(image)) + tail.length;
 
         String url = dashscopeBaseUrl.endsWith("/chat/completions")
                 ? dashscopeBaseUrl
                 : dashscopeBaseUrl + "/chat/completions";
 
-        HttpEntity<String> entity = new HttpEntity<>(body.toJSONString(), headers);
-        ResponseEntity<String> resp = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
+        StreamingHttpOutputMessage.Body writer = out -> {
+            out.write(head);
+            // nonClosing：关闭编码流只为写出末尾的补位字符，不能关掉底层连接
+            try (OutputStream b64 = Base64.getEncoder().wrap(StreamUtils.nonClosing(out))) {
+                Files.copy(image, b64);
+            }
+            out.write(tail);
+        };
+        // 重试时重新执行整个请求，图片从文件重新读取
+        ResponseEntity<String> resp = callPolicy.execute("vision", contentLength, () ->
+                dashScopeRestTemplate.execute(url, HttpMethod.POST, request -> {
+                    HttpHeaders headers = request.getHeaders();
+                    headers.setContentType(MediaType.APPLICATION_JSON);
+                    headers.setBearerAuth(apiKey);
+                    headers.setContentLength(contentLength);
+                    if (request instanceof StreamingHttpOutputMessage streaming) {
+                        streaming.setBody(writer);
+                    } else {
+                        writer.writeTo(request.getBody());
+                    }
+                }, dashScopeRestTemplate.responseEntityExtractor(String.class)));
+        if (resp == null) {
+            throw new RuntimeException("DashScope 返回空响应");
+        }
 
         if (!resp.getStatusCode().is2xxSuccessful()) {
             throw new RuntimeException("调用 DashScope 失败，HTTP=" + resp.getStatusCodeValue());
@@ -691,26 +588,16 @@ public class ScheduleAiServiceImpl implements ScheduleAiService {
 
     // ===================== 4. 通用工具方法 =====================
 
-    private String toDataUrl(Path path) throws java.io.IOException {
-        String mime = "image/png";
+    private String mimeType(Path path) {
         String filename = path.getFileName().toString().toLowerCase();
         if (filename.endsWith(".jpg") || filename.endsWith(".jpeg")) {
-            mime = "image/jpeg";
+            return "image/jpeg";
         }
-        byte[] bytes = Files.readAllBytes(path);
-        String b64 = Base64.getEncoder().encodeToString(bytes);
-        return "data:" + mime + ";base64," + b64;
+        return "image/png";
     }
 
-    // 用于分割“星期X：”片段的内部结构体
-    private static class DayBlock {
-        final int dayOfWeek;
-        final int startIndex;
-        int endIndex;
-
-        DayBlock(int dayOfWeek, int startIndex) {
-            this.dayOfWeek = dayOfWeek;
-            this.startIndex = startIndex;
-        }
+    /** 带补位的标准 base64 输出长度 */
+    private static long base64Length(long bytes) {
+        return 4 * ((bytes + 2) / 3);
     }
 }
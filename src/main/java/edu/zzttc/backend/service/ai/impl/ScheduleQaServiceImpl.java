@@ -4,9 +4,15 @@ import com.alibaba.fastjson2.JSON;
 import edu.zzttc.backend.domain.vo.schedule.DailyCourseVO;
 import edu.zzttc.backend.service.ai.RagChatService;
 import edu.zzttc.backend.service.ai.ScheduleQaService;
+import edu.zzttc.backend.service.search.ScheduleIndexService;
+import edu.zzttc.backend.utils.ScheduleAnswerFormatter;
+import edu.zzttc.backend.utils.ScheduleQuestionClassifier;
+import edu.zzttc.backend.utils.ScheduleTimeResolver;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
 import jakarta.annotation.Resource;
 import java.time.LocalDate;
@@ -17,19 +23,114 @@ import java.util.List;
 public class ScheduleQaServiceImpl implements ScheduleQaService {
     @Resource
     private RagChatService ragChatService;
+    @Resource
+    private ScheduleIndexService scheduleIndexService;
+    @Resource
+    private QaAnswerCache answerCache;
+    @Resource
+    private MeterRegistry meterRegistry;
 
     @Value("${features.ask-ai:true}")
     private boolean askUseAi;
 
+    /** 纯列课问题是否直接用本地模板回答 */
+    @Value("${schedule.qa.local-answer:true}")
+    private boolean localAnswerEnabled;
+
+    /** 每次问答最多带上的检索事实条数 */
+    @Value("${schedule.qa.top-k:8}")
+    private int topK;
+
     @Override
-    public String answer(String question, LocalDate date, List<DailyCourseVO> courses) {
+    public String answer(Integer userId, String question, LocalDate baseDate, LocalDate date,
+            List<DailyCourseVO> courses) {
+        String local = localAnswer(question, baseDate, date, courses);
+        if (local != null) {
+            return local;
+        }
+        if (!askUseAi) {
+            countRoute("basic");
+            return basicAnswer(date, courses);
+        }
+        countRoute("llm");
+        List<String> facts = retrieveFacts(userId, question);
+        QaAnswerCache.Key key = answerCache.key(userId, question, date, courses, facts);
+        String cached = answerCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long start = System.nanoTime();
+        String answer = ragChatService.answerWithContext(question, date, courses, facts);
+        answerCache.put(key, answer, System.nanoTime() - start, QaAnswerCache.promptChars(question, courses, facts));
+        return answer;
+    }
+
+    @Override
+    public Flux<String> stream(Integer userId, String question, LocalDate baseDate, LocalDate date,
+            List<DailyCourseVO> courses) {
+        String local = localAnswer(question, baseDate, date, courses);
+        if (local != null) {
+            return Flux.just(local);
+        }
         if (!askUseAi) {
-            if (courses == null || courses.isEmpty()) {
-                return date + " 没有安排课程。";
+            countRoute("basic");
+            return Flux.defer(() -> Flux.just(basicAnswer(date, courses)));
+        }
+        countRoute("llm");
+        return Flux.defer(() -> {
+            List<String> facts = retrieveFacts(userId, question);
+            QaAnswerCache.Key key = answerCache.key(userId, question, date, courses, facts);
+            String cached = answerCache.get(key);
+            if (cached != null) {
+                return Flux.just(cached);
             }
-            String basic = JSON.toJSONString(courses);
-            return "课程安排：" + basic;
+            long start = System.nanoTime();
+            StringBuilder answer = new StringBuilder();
+            // 只缓存完整生成的回答，中途取消或出错的不写入
+            return ragChatService.streamWithContext(question, date, courses, facts)
+                    .doOnNext(answer::append)
+                    .doOnComplete(() -> answerCache.put(key, answer.toString(), System.nanoTime() - start,
+                            QaAnswerCache.promptChars(question, courses, facts)));
+        });
+    }
+
+    /**
+     * 纯列课问题（“明天上午有什么课”）直接用模板回答，不调用大模型；其余返回 null。
+     * 今天/明天按请求的参考日期 baseDate 说，时段、节次与钟点也相对它解析；
+     * 模板只回答某一天，解析出教学周却没有星期几的（整周的问题）同样交给后面的分支
+     */
+    private String localAnswer(String question, LocalDate baseDate, LocalDate date, List<DailyCourseVO> courses) {
+        if (!localAnswerEnabled
+                || ScheduleQuestionClassifier.classify(question) != ScheduleQuestionClassifier.Intent.LIST_COURSES) {
+            return null;
+        }
+        ScheduleTimeResolver.ResolvedTime time = ScheduleTimeResolver.resolve(question, baseDate);
+        if (time.getTeachingWeek() != null && time.getDayOfWeek() == null) {
+            return null;
+        }
+        countRoute("local");
+        return ScheduleAnswerFormatter.format(date, baseDate, time, courses);
+    }
+
+    /** route=local 本地模板，llm 大模型（含命中回答缓存），basic 关闭大模型时的原样列出 */
+    private void countRoute(String route) {
+        meterRegistry.counter("schedule.qa.route", "route", route).increment();
+    }
+
+    private String basicAnswer(LocalDate date, List<DailyCourseVO> courses) {
+        if (courses == null || courses.isEmpty()) {
+            return date + " 没有安排课程。";
+        }
+        String basic = JSON.toJSONString(courses);
+        return "课程安排：" + basic;
+    }
+
+    private List<String> retrieveFacts(Integer userId, String question) {
+        try {
+            return scheduleIndexService.search(userId, question, topK);
+        } catch (Exception e) {
+            log.warn("检索问答事实失败 userId={}", userId, e);
+            return List.of();
         }
-        return ragChatService.answerWithContext(question, date, courses);
     }
 }
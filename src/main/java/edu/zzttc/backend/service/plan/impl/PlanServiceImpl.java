@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import edu.zzttc.backend.domain.entity.Plan;
 import edu.zzttc.backend.mapper.PlanMapper;
 import edu.zzttc.backend.service.plan.PlanService;
+import edu.zzttc.backend.service.search.ScheduleIndexService;
 import jakarta.annotation.Resource;
 import org.springframework.stereotype.Service;
 
@@ -14,15 +15,30 @@ import java.util.List;
 public class PlanServiceImpl implements PlanService {
     @Resource
     private PlanMapper mapper;
+    @Resource
+    private ScheduleIndexService scheduleIndexService;
 
     @Override
-    public void create(Plan plan) { mapper.insert(plan); }
+    public void create(Plan plan) {
+        mapper.insert(plan);
+        scheduleIndexService.indexPlan(plan);
+    }
 
     @Override
-    public void update(Plan plan) { mapper.updateById(plan); }
+    public void update(Plan plan) {
+        mapper.updateById(plan);
+        // 请求体可能只带部分字段，以库里的完整记录为准
+        scheduleIndexService.indexPlan(mapper.selectById(plan.getId()));
+    }
 
     @Override
-    public void delete(Integer id) { mapper.deleteById(id); }
+    public void delete(Integer id) {
+        Plan plan = mapper.selectById(id);
+        mapper.deleteById(id);
+        if (plan != null) {
+            scheduleIndexService.removePlan(plan.getUserId(), id);
+        }
+    }
 
     @Override
     public List<Plan> listByRange(Integer userId, LocalDateTime start, LocalDateTime end) {
@@ -0,0 +1,25 @@
+package edu.zzttc.backend.service.schedule;
+
+import edu.zzttc.backend.service.schedule.model.ScheduleParseMode;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsed;
+
+public interface ParsedScheduleCacheService {
+
+    /**
+     * 计算截图文件内容的 SHA-256（十六进制小写）；读取失败返回 null
+     */
+    String hash(String imagePath);
+
+    /**
+     * 按截图哈希与识别方式取已解析的课表：先查 Redis，再查 db_schedule_import 中同哈希、同识别方式的成功导入记录；
+     * 都没有返回 null。不同识别方式的结果不同，互不复用。每次返回新的对象，调用方可以随意修改
+     * @param mode 请求的识别方式（已按默认值补全）
+     */
+    ScheduleParsed get(String imageHash, ScheduleParseMode mode);
+
+    /**
+     * 记录一次大模型解析结果，存放在 mode 下。调用方应传入结果实际使用的识别方式：
+     * 退回文本模式的结果若存在请求的方式下，之后同一张截图就再也不会用请求的方式重试
+     */
+    void put(String imageHash, ScheduleParseMode mode, ScheduleParsed parsed);
+}
@@ -0,0 +1,26 @@
+package edu.zzttc.backend.service.schedule;
+
+import lombok.Getter;
+
+/**
+ * 课表数据变更事件：导入、清空、人工修正节次、学期配置写入后发布。
+ * 监听方（已编译课表缓存、学期解析缓存等）据此失效该用户的派生数据。
+ * 本实例发布的事件由 ScheduleChangeBroadcaster 通过 Redis 转发给其他实例，在那里以 remote=true 重新发布。
+ */
+@Getter
+public class ScheduleChangedEvent {
+
+    private final Integer userId;
+
+    /** 由其他实例广播而来，不再向外转发 */
+    private final boolean remote;
+
+    public ScheduleChangedEvent(Integer userId) {
+        this(userId, false);
+    }
+
+    public ScheduleChangedEvent(Integer userId, boolean remote) {
+        this.userId = userId;
+        this.remote = remote;
+    }
+}
@@ -0,0 +1,41 @@
+package edu.zzttc.backend.service.schedule;
+
+import edu.zzttc.backend.service.schedule.model.ScheduleImportJob;
+import edu.zzttc.backend.service.schedule.model.ScheduleParseMode;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDate;
+
+/**
+ * 异步课表导入：请求线程只保存图片并投递到 schedule-import 队列，由队列消费者完成解析与落库
+ */
+public interface ScheduleImportJobService {
+
+    /**
+     * 保存截图、创建任务并入队，立即返回
+     * @param parseMode 识别方式，为 null 时使用配置的默认方式
+     */
+    ScheduleImportJob submit(Integer userId,
+                             MultipartFile file,
+                             String termName,
+                             LocalDate startDate,
+                             Integer totalWeeks,
+                             ScheduleParseMode parseMode);
+
+    /**
+     * 查询任务状态；任务不存在或不属于该用户返回 null
+     */
+    ScheduleImportJob get(Integer userId, String jobId);
+
+    /**
+     * 订阅任务进度：每次状态变化推送一条 progress 事件，结束时推送 done 事件并关闭
+     * @return 任务不存在或不属于该用户返回 null
+     */
+    SseEmitter subscribe(Integer userId, String jobId);
+
+    /**
+     * 队列消费者调用：执行导入并更新任务状态，不向外抛异常
+     */
+    void process(String jobId);
+}
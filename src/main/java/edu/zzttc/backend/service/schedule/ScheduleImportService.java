@@ -1,14 +1,16 @@
 package edu.zzttc.backend.service.schedule;
 
 import edu.zzttc.backend.domain.vo.schedule.ScheduleUploadResultVO;
+import edu.zzttc.backend.service.schedule.model.ScheduleParseMode;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDate;
+import java.util.function.Consumer;
 
 public interface ScheduleImportService {
 
     /**
-     * 从课表截图导入课表数据
+     * 从课表截图导入课表数据（同步：保存图片后直接 importSavedImage）
      */
     ScheduleUploadResultVO importFromImage(Integer userId,
                                            MultipartFile file,
@@ -16,5 +18,23 @@ public interface ScheduleImportService {
                                            LocalDate startDate,
                                            Integer totalWeeks);
 
+    /**
+     * 保存上传的截图，返回图片路径
+     */
+    String saveUpload(MultipartFile file);
+
+    /**
+     * 解析已保存的截图并落库。解析在事务外进行，只有最后的落库在短事务内
+     * @param parseMode 识别方式，为 null 时使用配置的默认方式
+     * @param progress 进入各阶段时回调，参数为 ScheduleImportJob 中的状态常量
+     */
+    ScheduleUploadResultVO importSavedImage(Integer userId,
+                                            String imageUrl,
+                                            String termName,
+                                            LocalDate startDate,
+                                            Integer totalWeeks,
+                                            ScheduleParseMode parseMode,
+                                            Consumer<String> progress);
+
     void clearUserSchedules(Integer userId);
 }
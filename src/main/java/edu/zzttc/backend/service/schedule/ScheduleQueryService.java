@@ -1,6 +1,7 @@
 package edu.zzttc.backend.service.schedule;
 
 import edu.zzttc.backend.domain.vo.schedule.DailyCourseVO;
+import edu.zzttc.backend.domain.vo.schedule.DateCoursesVO;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -20,4 +21,13 @@ public interface ScheduleQueryService {
      * @return 该周所有课程（包含星期、节次、课程、教室等）
      */
     List<DailyCourseVO> queryByWeek(Integer userId, LocalDate refDate, Integer week);
+
+    /**
+     * 按日期区间批量查询课程（含首尾两天），学期与排课只加载一次，逐日在内存中展开
+     * @param userId 当前登录用户ID
+     * @param from 起始日期
+     * @param to 结束日期
+     * @return 区间内每一天的课程（无课的日期返回空列表），可跨越学期边界
+     */
+    List<DateCoursesVO> queryByRange(Integer userId, LocalDate from, LocalDate to);
 }
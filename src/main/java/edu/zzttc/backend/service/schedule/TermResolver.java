@@ -0,0 +1,37 @@
+package edu.zzttc.backend.service.schedule;
+
+import edu.zzttc.backend.domain.entity.TermConfig;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 学期解析：根据日期找到用户所在学期并计算教学周，结果按用户缓存
+ */
+public interface TermResolver {
+
+    /**
+     * 取最近一个 startDate <= date 的学期，没有则返回 null
+     */
+    TermConfig resolve(Integer userId, LocalDate date);
+
+    /**
+     * 用户的全部学期，按 startDate 倒序（只读）
+     */
+    List<TermConfig> listTerms(Integer userId);
+
+    /**
+     * 计算 date 在该学期中的教学周（从 1 开始），早于开学日期返回 0；不访问数据库
+     */
+    int weekOf(TermConfig term, LocalDate date);
+
+    /**
+     * weekOf 的逆运算：该学期第 week 周中星期 dayOfWeek（1=周一 ... 7=周日）对应的日期
+     */
+    LocalDate dateOf(TermConfig term, int week, int dayOfWeek);
+
+    /**
+     * 失效某用户的学期缓存
+     */
+    void evict(Integer userId);
+}
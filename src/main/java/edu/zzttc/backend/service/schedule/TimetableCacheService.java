@@ -0,0 +1,17 @@
+package edu.zzttc.backend.service.schedule;
+
+import edu.zzttc.backend.domain.entity.TermConfig;
+import edu.zzttc.backend.service.schedule.model.CompiledTimetable;
+
+public interface TimetableCacheService {
+
+    /**
+     * 获取某用户某学期的已编译课表；缓存未命中时从库中加载并编译
+     */
+    CompiledTimetable get(Integer userId, TermConfig term);
+
+    /**
+     * 失效某用户的全部已编译课表
+     */
+    void evict(Integer userId);
+}
@@ -0,0 +1,145 @@
+package edu.zzttc.backend.service.schedule.impl;
+
+import com.alibaba.fastjson2.JSON;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import edu.zzttc.backend.domain.entity.ScheduleImport;
+import edu.zzttc.backend.mapper.ScheduleImportMapper;
+import edu.zzttc.backend.service.schedule.ParsedScheduleCacheService;
+import edu.zzttc.backend.service.schedule.model.ScheduleParseMode;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsed;
+import edu.zzttc.backend.utils.Const;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 截图内容去重：同一张截图（字节完全相同）只调用一次视觉大模型。
+ * 解析结果以 schedule:parsed:{识别方式}:{sha256} 存 Redis；Redis 过期或不可用时回退到导入记录里的 parsed_json。
+ * 解析结果只取决于截图内容与识别方式，与上传者和学期无关，因此按 (方式, 哈希) 全局共享。
+ */
+@Slf4j
+@Service
+public class ParsedScheduleCacheServiceImpl implements ParsedScheduleCacheService {
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private ScheduleImportMapper scheduleImportMapper;
+
+    /** 回退到导入记录时，同一哈希最多翻看的最近几条成功记录 */
+    private static final int DB_LOOKBACK = 5;
+
+    /** Redis 中解析结果的保留天数 */
+    @Value("${schedule.import.parsed-cache-ttl-days:30}")
+    private long ttlDays;
+
+    private final Counter redisHit;
+    private final Counter dbHit;
+    private final Counter miss;
+
+    public ParsedScheduleCacheServiceImpl(MeterRegistry meterRegistry) {
+        this.redisHit = counter(meterRegistry, "redis_hit");
+        this.dbHit = counter(meterRegistry, "db_hit");
+        this.miss = counter(meterRegistry, "miss");
+    }
+
+    private static Counter counter(MeterRegistry registry, String result) {
+        return Counter.builder("schedule.import.parsed.cache")
+                .tag("result", result)
+                .description("课表截图解析结果缓存（命中即省下一次视觉大模型调用）")
+                .register(registry);
+    }
+
+    @Override
+    public String hash(String imagePath) {
+        if (imagePath == null) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(Path.of(imagePath))) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buf = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                digest.update(buf, 0, n);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            log.warn("计算课表截图哈希失败 path={}", imagePath, e);
+            return null;
+        }
+    }
+
+    @Override
+    public ScheduleParsed get(String imageHash, ScheduleParseMode mode) {
+        if (imageHash == null || mode == null) {
+            return null;
+        }
+        String key = key(imageHash, mode);
+        try {
+            String json = stringRedisTemplate.opsForValue().get(key);
+            if (json != null) {
+                redisHit.increment();
+                return JSON.parseObject(json, ScheduleParsed.class);
+            }
+        } catch (Exception e) {
+            log.warn("读取课表解析缓存失败 hash={}, mode={}", imageHash, mode, e);
+        }
+
+        // 导入记录里存的是实际使用的识别方式；早于识别方式字段的记录都是文本模式
+        List<ScheduleImport> imports = scheduleImportMapper.selectList(
+                Wrappers.<ScheduleImport>lambdaQuery()
+                        .eq(ScheduleImport::getImageHash, imageHash)
+                        .eq(ScheduleImport::getStatus, "SUCCESS")
+                        .orderByDesc(ScheduleImport::getId)
+                        .last("LIMIT " + DB_LOOKBACK));
+        for (ScheduleImport imp : imports) {
+            if (imp.getParsedJson() == null) {
+                continue;
+            }
+            ScheduleParsed parsed = JSON.parseObject(imp.getParsedJson(), ScheduleParsed.class);
+            ScheduleParseMode used = parsed.getParseMode() == null ? ScheduleParseMode.TEXT : parsed.getParseMode();
+            if (used == mode) {
+                dbHit.increment();
+                writeRedis(key, imp.getParsedJson());
+                return parsed;
+            }
+        }
+        miss.increment();
+        return null;
+    }
+
+    @Override
+    public void put(String imageHash, ScheduleParseMode mode, ScheduleParsed parsed) {
+        if (imageHash == null || mode == null || parsed == null) {
+            return;
+        }
+        writeRedis(key(imageHash, mode), JSON.toJSONString(parsed));
+    }
+
+    private static String key(String imageHash, ScheduleParseMode mode) {
+        return Const.SCHEDULE_PARSED + mode.name().toLowerCase() + ":" + imageHash;
+    }
+
+    private void writeRedis(String key, String json) {
+        try {
+            stringRedisTemplate.opsForValue().set(key, json, ttlDays, TimeUnit.DAYS);
+        } catch (Exception e) {
+            // 只是缓存，写失败不影响导入
+            log.warn("写入课表解析缓存失败 key={}", key, e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package edu.zzttc.backend.service.schedule.impl;
+
+import edu.zzttc.backend.service.schedule.ScheduleChangedEvent;
+import edu.zzttc.backend.utils.Const;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * 课表变更的跨实例广播：本实例的 ScheduleChangedEvent 提交后发到 Redis 频道 schedule:changed，
+ * 其他实例收到后以 remote=true 在本地重新发布，各自的进程内缓存照常失效。
+ * 消息内容为 “实例ID:用户ID”，收到自己发出的消息时忽略。广播失败只记日志，由各缓存的过期时间兜底。
+ */
+@Slf4j
+@Component
+public class ScheduleChangeBroadcaster implements MessageListener {
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+
+    private final String nodeId = UUID.randomUUID().toString().replace("-", "");
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleChanged(ScheduleChangedEvent event) {
+        if (event.isRemote() || event.getUserId() == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.convertAndSend(Const.SCHEDULE_CHANGED_CHANNEL, nodeId + ":" + event.getUserId());
+        } catch (Exception e) {
+            log.warn("广播课表变更失败 userId={}", event.getUserId(), e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int sep = body.lastIndexOf(':');
+        if (sep <= 0 || body.substring(0, sep).equals(nodeId)) {
+            return;
+        }
+        Integer userId;
+        try {
+            userId = Integer.valueOf(body.substring(sep + 1));
+        } catch (NumberFormatException e) {
+            log.warn("无法识别的课表变更广播: {}", body);
+            return;
+        }
+        eventPublisher.publishEvent(new ScheduleChangedEvent(userId, true));
+    }
+}
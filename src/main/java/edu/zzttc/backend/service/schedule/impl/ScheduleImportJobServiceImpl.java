@@ -0,0 +1,275 @@
+package edu.zzttc.backend.service.schedule.impl;
+
+import com.alibaba.fastjson2.JSON;
+import edu.zzttc.backend.domain.vo.schedule.ScheduleUploadResultVO;
+import edu.zzttc.backend.service.schedule.ScheduleImportJobService;
+import edu.zzttc.backend.service.schedule.ScheduleImportService;
+import edu.zzttc.backend.service.schedule.model.ScheduleImportJob;
+import edu.zzttc.backend.service.schedule.model.ScheduleParseMode;
+import edu.zzttc.backend.utils.Const;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 任务状态以 JSON 存在 Redis（schedule:import:job:{jobId}），多实例部署时任一实例都能查询；
+ * 截图原始字节也随任务存一份（schedule:import:image:{jobId}，同样的保留时间），
+ * 消费者所在实例没有这张图时按任务里的路径写回本地再解析，任务结束后删除；
+ * SSE 推送只通知本实例上的订阅者，消费者在其他实例上时客户端可改用状态查询接口轮询。
+ */
+@Slf4j
+@Service
+public class ScheduleImportJobServiceImpl implements ScheduleImportJobService {
+
+    @Resource
+    private ScheduleImportService scheduleImportService;
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private AmqpTemplate amqpTemplate;
+
+    /** 任务状态在 Redis 中的保留时间 */
+    @Value("${schedule.import.job-ttl-hours:24}")
+    private long jobTtlHours;
+
+    @Value("${schedule.import.sse-timeout-ms:300000}")
+    private long sseTimeoutMs;
+
+    /** 本实例上订阅中的 SSE 连接 */
+    private final Map<String, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    @Override
+    public ScheduleImportJob submit(Integer userId,
+            MultipartFile file,
+            String termName,
+            LocalDate startDate,
+            Integer totalWeeks,
+            ScheduleParseMode parseMode) {
+        if (userId == null) {
+            throw new IllegalArgumentException("用户未登录");
+        }
+        if (termName == null || startDate == null) {
+            throw new IllegalArgumentException("学期名称和开始日期不能为空");
+        }
+        String imageUrl = scheduleImportService.saveUpload(file);
+        byte[] image;
+        try {
+            image = Files.readAllBytes(Path.of(imageUrl));
+        } catch (IOException e) {
+            log.error("读取已保存的课表截图失败 path={}", imageUrl, e);
+            throw new RuntimeException("保存课表截图失败，请稍后重试");
+        }
+
+        ScheduleImportJob job = new ScheduleImportJob();
+        job.setJobId(UUID.randomUUID().toString().replace("-", ""));
+        job.setUserId(userId);
+        job.setTermName(termName);
+        job.setStartDate(startDate);
+        job.setTotalWeeks(totalWeeks);
+        job.setImageUrl(imageUrl);
+        job.setParseMode(parseMode);
+        job.setStatus(ScheduleImportJob.QUEUED);
+        job.setCreatedAt(System.currentTimeMillis());
+        job.setUpdatedAt(job.getCreatedAt());
+        saveImage(job.getJobId(), image);
+        save(job);
+        try {
+            amqpTemplate.convertAndSend("schedule-import", Map.of("jobId", job.getJobId()));
+        } catch (AmqpException e) {
+            log.error("课表导入任务入队失败 jobId={}", job.getJobId(), e);
+            job.setMessage("导入队列不可用，请稍后重试");
+            update(job, ScheduleImportJob.FAILED);
+            throw new RuntimeException("导入队列不可用，请稍后重试");
+        }
+        return job;
+    }
+
+    @Override
+    public ScheduleImportJob get(Integer userId, String jobId) {
+        ScheduleImportJob job = load(jobId);
+        if (job == null || userId == null || !userId.equals(job.getUserId())) {
+            return null;
+        }
+        return job;
+    }
+
+    @Override
+    public SseEmitter subscribe(Integer userId, String jobId) {
+        ScheduleImportJob job = get(userId, jobId);
+        if (job == null) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        if (job.isFinished()) {
+            sendAndComplete(emitter, job);
+            return emitter;
+        }
+        Set<SseEmitter> set = subscribers.computeIfAbsent(jobId, k -> ConcurrentHashMap.newKeySet());
+        set.add(emitter);
+        Runnable remove = () -> unsubscribe(jobId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(() -> {
+            remove.run();
+            emitter.complete();
+        });
+        emitter.onError(e -> remove.run());
+
+        // 登记之后再读一次：登记前刚好结束的任务不会再有推送
+        ScheduleImportJob latest = load(jobId);
+        if (latest == null || latest.isFinished()) {
+            unsubscribe(jobId, emitter);
+            sendAndComplete(emitter, latest == null ? job : latest);
+            return emitter;
+        }
+        try {
+            emitter.send(SseEmitter.event().name("progress").data(latest));
+        } catch (Exception e) {
+            unsubscribe(jobId, emitter);
+        }
+        return emitter;
+    }
+
+    @Override
+    public void process(String jobId) {
+        ScheduleImportJob job = load(jobId);
+        if (job == null) {
+            log.warn("课表导入任务不存在或已过期 jobId={}", jobId);
+            return;
+        }
+        if (job.isFinished()) {
+            // 消息重复投递
+            return;
+        }
+        try {
+            restoreImage(job);
+            ScheduleUploadResultVO result = scheduleImportService.importSavedImage(job.getUserId(),
+                    job.getImageUrl(), job.getTermName(), job.getStartDate(), job.getTotalWeeks(),
+                    job.getParseMode(), stage -> update(job, stage));
+            job.setResult(result);
+            update(job, ScheduleImportJob.SUCCESS);
+        } catch (Exception e) {
+            log.error("课表导入任务失败 jobId={}", jobId, e);
+            job.setMessage(e.getMessage());
+            update(job, ScheduleImportJob.FAILED);
+        }
+        stringRedisTemplate.delete(Const.SCHEDULE_IMPORT_IMAGE + jobId);
+    }
+
+    /**
+     * 本实例上没有任务里的截图（提交请求落在了别的实例）时，用随任务保存的字节写回同一路径
+     */
+    private void restoreImage(ScheduleImportJob job) throws IOException {
+        Path path = Path.of(job.getImageUrl());
+        if (Files.exists(path)) {
+            return;
+        }
+        byte[] image = loadImage(job.getJobId());
+        if (image == null) {
+            throw new IllegalStateException("课表图片已过期，请重新上传");
+        }
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".part");
+        try {
+            Files.write(tmp, image);
+            Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            if (!Files.exists(path)) {
+                throw e;
+            }
+        }
+        log.info("课表截图不在本实例，已从任务数据恢复 jobId={} path={}", job.getJobId(), path);
+    }
+
+    private void saveImage(String jobId, byte[] image) {
+        byte[] key = (Const.SCHEDULE_IMPORT_IMAGE + jobId).getBytes(StandardCharsets.UTF_8);
+        stringRedisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands()
+                .set(key, image, Expiration.from(jobTtlHours, TimeUnit.HOURS),
+                        RedisStringCommands.SetOption.upsert()));
+    }
+
+    private byte[] loadImage(String jobId) {
+        byte[] key = (Const.SCHEDULE_IMPORT_IMAGE + jobId).getBytes(StandardCharsets.UTF_8);
+        return stringRedisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(key));
+    }
+
+    private void update(ScheduleImportJob job, String status) {
+        job.setStatus(status);
+        job.setUpdatedAt(System.currentTimeMillis());
+        save(job);
+        publish(job);
+    }
+
+    private void publish(ScheduleImportJob job) {
+        Set<SseEmitter> set = subscribers.get(job.getJobId());
+        if (set == null) {
+            return;
+        }
+        for (SseEmitter emitter : set) {
+            if (job.isFinished()) {
+                unsubscribe(job.getJobId(), emitter);
+                sendAndComplete(emitter, job);
+                continue;
+            }
+            try {
+                emitter.send(SseEmitter.event().name("progress").data(job));
+            } catch (Exception e) {
+                unsubscribe(job.getJobId(), emitter);
+            }
+        }
+    }
+
+    private void sendAndComplete(SseEmitter emitter, ScheduleImportJob job) {
+        try {
+            emitter.send(SseEmitter.event().name("done").data(job));
+        } catch (Exception ignored) {
+        }
+        try {
+            emitter.complete();
+        } catch (Exception ignored) {
+        }
+    }
+
+    private void unsubscribe(String jobId, SseEmitter emitter) {
+        subscribers.computeIfPresent(jobId, (k, set) -> {
+            set.remove(emitter);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private void save(ScheduleImportJob job) {
+        stringRedisTemplate.opsForValue().set(Const.SCHEDULE_IMPORT_JOB + job.getJobId(),
+                JSON.toJSONString(job), jobTtlHours, TimeUnit.HOURS);
+    }
+
+    private ScheduleImportJob load(String jobId) {
+        if (jobId == null || jobId.isBlank()) {
+            return null;
+        }
+        String json = stringRedisTemplate.opsForValue().get(Const.SCHEDULE_IMPORT_JOB + jobId);
+        return json == null ? null : JSON.parseObject(json, ScheduleImportJob.class);
+    }
+}
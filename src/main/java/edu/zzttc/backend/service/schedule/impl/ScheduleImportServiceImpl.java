@@ -10,35 +10,49 @@ import edu.zzttc.backend.domain.vo.schedule.ScheduleUploadResultVO;
 import edu.zzttc.backend.mapper.CourseMapper;
 import edu.zzttc.backend.mapper.ScheduleImportMapper;
 import edu.zzttc.backend.mapper.ScheduleItemMapper;
+import edu.zzttc.backend.mapper.AccountMapper;
 import edu.zzttc.backend.mapper.TermConfigMapper;
 import edu.zzttc.backend.service.ai.ScheduleAiService;
+import edu.zzttc.backend.service.schedule.ParsedScheduleCacheService;
+import edu.zzttc.backend.service.schedule.ScheduleChangedEvent;
 import edu.zzttc.backend.service.schedule.ScheduleImportService;
+import edu.zzttc.backend.service.schedule.model.ScheduleImportJob;
+import edu.zzttc.backend.service.schedule.model.ScheduleParseMode;
 import edu.zzttc.backend.service.schedule.model.ScheduleParsed;
 import edu.zzttc.backend.service.schedule.model.ScheduleParsedCourse;
 import edu.zzttc.backend.service.schedule.model.ScheduleParsedItem;
+import edu.zzttc.backend.utils.WeekMaskUtils;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.text.Normalizer;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 /**
  * 课表截图导入实现：
  * 1. 保存图片到本地
- * 2. 根据学期信息找到/创建 TermConfig
- * 3. 调用大模型解析课表截图（失败则回退到假数据）
- * 4. 写入 db_course / db_schedule_item / db_schedule_import
+ * 2. 调用大模型解析课表截图（不在事务内；同一截图按内容哈希复用之前的解析结果）
+ * 3. 在一个短事务内找到/创建 TermConfig 并写入 db_course / db_schedule_item / db_schedule_import，
+ *    解析失败时学期配置与旧课表都保持不变
+ * 异步导入由 ScheduleImportJobService 先保存图片，再在队列消费者中调用 importSavedImage。
+ * 同一用户的导入：本进程内用 importLocks 排队，避免重复调用大模型；
+ * 多实例部署时落库事务先锁住用户行（AccountMapper.lockById），写入仍按用户串行。
  */
 @Slf4j
 @Service
@@ -47,6 +61,8 @@ public class ScheduleImportServiceImpl implements ScheduleImportService {
     @Resource
     private TermConfigMapper termConfigMapper;
     @Resource
+    private AccountMapper accountMapper;
+    @Resource
     private CourseMapper courseMapper;
     @Resource
     private ScheduleItemMapper scheduleItemMapper;
@@ -56,6 +72,12 @@ public class ScheduleImportServiceImpl implements ScheduleImportService {
     private ScheduleAiService scheduleAiService;
     @Resource
     private edu.zzttc.backend.service.schedule.ScheduleRecognitionService scheduleRecognitionService;
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+    @Resource
+    private TransactionTemplate transactionTemplate;
+    @Resource
+    private ParsedScheduleCacheService parsedScheduleCacheService;
 
     /**
      * 上传图片的基础目录，可以在 yml 中配置：
@@ -65,19 +87,50 @@ public class ScheduleImportServiceImpl implements ScheduleImportService {
     @Value("${schedule.upload-dir:F:/schedule-uploads}")
     private String uploadDir;
 
+    /** 分解后的重音符号，课程键比较时去掉 */
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    /** 多行 upsert / 批量插入每批的行数 */
+    private static final int BATCH_SIZE = 500;
+
+    /** 本进程内按用户排队的导入锁，只防止同一实例重复解析；跨实例的写入互斥靠落库事务里的行锁 */
     private final ConcurrentHashMap<Integer, ReentrantLock> importLocks = new ConcurrentHashMap<>();
 
     @Override
-    @Transactional
     public ScheduleUploadResultVO importFromImage(Integer userId,
             MultipartFile file,
             String termName,
             LocalDate startDate,
             Integer totalWeeks) {
+        return importSavedImage(userId, saveUpload(file), termName, startDate, totalWeeks, null, stage -> {
+        });
+    }
+
+    @Override
+    public String saveUpload(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("课表图片不能为空");
+        }
+        try {
+            return saveImage(file);
+        } catch (IOException e) {
+            log.error("保存课表截图失败", e);
+            throw new RuntimeException("保存课表截图失败，请稍后重试");
+        }
+    }
+
+    @Override
+    public ScheduleUploadResultVO importSavedImage(Integer userId,
+            String imageUrl,
+            String termName,
+            LocalDate startDate,
+            Integer totalWeeks,
+            ScheduleParseMode parseMode,
+            Consumer<String> progress) {
         if (userId == null) {
             throw new IllegalArgumentException("用户未登录");
         }
-        if (file == null || file.isEmpty()) {
+        if (imageUrl == null) {
             throw new IllegalArgumentException("课表图片不能为空");
         }
         if (termName == null || startDate == null) {
@@ -91,54 +144,71 @@ public class ScheduleImportServiceImpl implements ScheduleImportService {
                 throw new RuntimeException("当前账号正在导入课表，请稍后再试");
             }
             locked = true;
-            // 1. 保存图片到本地
-            String imageUrl = saveImage(file);
-
-            // 2. 找到或创建学期配置
-            TermConfig term = ensureTermConfig(userId, termName, startDate, totalWeeks);
-
-            // 3. 调用大模型解析课表截图
-            ScheduleParsed parsed;
-            try {
-                parsed = scheduleAiService.parseScheduleFromImage(imageUrl, term);
-            } catch (Exception e) {
-                log.error("课表 AI 解析失败，imageUrl={}", imageUrl, e);
-
-                // 3.1 写一条“失败”的导入记录，方便排查
-                ScheduleParsed empty = new ScheduleParsed();
-                empty.setImageUrl(imageUrl);
-                empty.setRawOcrText("AI_ERROR: " + e.getMessage());
-                empty.setCourses(Collections.emptyList());
-                empty.setItems(Collections.emptyList());
-                saveImportRecord(userId, term.getId(), imageUrl, empty, "FAIL_AI");
-
-                // 3.2 抛出业务异常，让前端收到“导入失败”的友好提示
-                throw new RuntimeException("课表识别失败，请检查截图是否清晰、完整后重新上传");
-            }
 
-            parsed = scheduleRecognitionService.normalizeAndValidate(parsed);
-            Long has = scheduleImportMapper.selectCount(
-                    Wrappers.<ScheduleImport>lambdaQuery()
-                            .eq(ScheduleImport::getUserId, userId)
-                            .eq(ScheduleImport::getStatus, "SUCCESS"));
-            if (has != null && has > 0) {
-                clearUserSchedules(userId);
+            // 1. 已有的学期配置，只读；新建或更新放到落库事务里，解析失败时不改动学期
+            TermConfig existingTerm = findTermConfig(userId, termName);
+            Integer existingTermId = existingTerm == null ? null : existingTerm.getId();
+
+            // 2. 调用大模型解析课表截图：耗时数十秒，不在事务内，不占用数据库连接；
+            //    同一张截图（内容哈希相同）之前用同一种识别方式解析过则直接复用
+            progress.accept(ScheduleImportJob.PARSING);
+            ScheduleParseMode mode = parseMode == null ? scheduleAiService.defaultParseMode() : parseMode;
+            String imageHash = parsedScheduleCacheService.hash(imageUrl);
+            ScheduleParsed parsed = parsedScheduleCacheService.get(imageHash, mode);
+            if (parsed != null) {
+                log.info("课表截图命中解析缓存，跳过大模型 hash={}, mode={}", imageHash, mode);
+                parsed.setImageUrl(imageUrl);
+            } else {
+                try {
+                    parsed = scheduleAiService.parseScheduleFromImage(imageUrl,
+                            termOf(existingTerm, userId, termName, startDate, totalWeeks), mode);
+                } catch (Exception e) {
+                    log.error("课表 AI 解析失败，imageUrl={}", imageUrl, e);
+
+                    // 2.1 写一条“失败”的导入记录，方便排查
+                    ScheduleParsed empty = new ScheduleParsed();
+                    empty.setImageUrl(imageUrl);
+                    empty.setRawOcrText("AI_ERROR: " + e.getMessage());
+                    empty.setCourses(Collections.emptyList());
+                    empty.setItems(Collections.emptyList());
+                    saveImportRecord(userId, existingTermId, imageUrl, imageHash, empty, "FAIL_AI");
+
+                    // 2.2 抛出业务异常，让前端收到“导入失败”的友好提示
+                    throw new RuntimeException("课表识别失败，请检查截图是否清晰、完整后重新上传");
+                }
+                // 按实际使用的识别方式缓存：JSON/分块识别退回文本模式时，结果只供文本模式复用
+                parsedScheduleCacheService.put(imageHash,
+                        parsed.getParseMode() == null ? mode : parsed.getParseMode(), parsed);
             }
-            int courseCount = upsertCoursesAndItems(userId, term, parsed);
-
-            // 5. 写入“成功”的导入记录
-            saveImportRecord(userId, term.getId(), imageUrl, parsed, "SUCCESS");
-
-            // 6. 返回结果
+            ScheduleParsed normalized = scheduleRecognitionService.normalizeAndValidate(parsed);
+
+            // 3. 落库：学期配置 + 清理旧课表 + 写入课程/排课 + 导入记录，在一个短事务内完成，失败则全部保持不变
+            progress.accept(ScheduleImportJob.PERSISTING);
+            Persisted persisted = transactionTemplate.execute(status -> {
+                accountMapper.lockById(userId);
+                TermConfig term = ensureTermConfig(userId, termName, startDate, totalWeeks);
+                Long has = scheduleImportMapper.selectCount(
+                        Wrappers.<ScheduleImport>lambdaQuery()
+                                .eq(ScheduleImport::getUserId, userId)
+                                .eq(ScheduleImport::getStatus, "SUCCESS"));
+                if (has != null && has > 0) {
+                    deleteUserSchedules(userId);
+                }
+                int count = upsertCoursesAndItems(userId, term, normalized);
+                // 学期、清理与写入同属一个事务，只发布一次变更事件
+                eventPublisher.publishEvent(new ScheduleChangedEvent(userId));
+                saveImportRecord(userId, term.getId(), imageUrl, imageHash, normalized, "SUCCESS");
+                return new Persisted(term.getId(), count);
+            });
+
+            // 4. 返回结果
             ScheduleUploadResultVO vo = new ScheduleUploadResultVO();
-            vo.setTermId(term.getId());
-            vo.setCourseCount(courseCount);
-            vo.setItemCount(parsed.getItems().size());
+            vo.setTermId(persisted.termId());
+            vo.setCourseCount(persisted.courseCount());
+            vo.setItemCount(normalized.getItems().size());
             vo.setImageUrl(imageUrl);
+            vo.setParseMode(normalized.getParseMode() == null ? null : normalized.getParseMode().name());
             return vo;
-        } catch (IOException e) {
-            log.error("保存课表截图失败", e);
-            throw new RuntimeException("保存课表截图失败，请稍后重试");
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new RuntimeException("导入任务被中断，请稍后重试");
@@ -173,17 +243,39 @@ public class ScheduleImportServiceImpl implements ScheduleImportService {
         return target.toAbsolutePath().toString();
     }
 
+    /** 落库事务的结果：学期 id 与新增的课程数 */
+    private record Persisted(Integer termId, int courseCount) {
+    }
+
+    private TermConfig findTermConfig(Integer userId, String termName) {
+        return termConfigMapper.selectOne(
+                Wrappers.<TermConfig>lambdaQuery()
+                        .eq(TermConfig::getUserId, userId)
+                        .eq(TermConfig::getTermName, termName));
+    }
+
     /**
-     * 保证存在一条对应学期配置：同 user + term_name 唯一
+     * 解析时使用的学期信息：已有配置的副本换上本次填写的开学日期与周数，不写库
+     */
+    private static TermConfig termOf(TermConfig existing, Integer userId, String termName,
+            LocalDate startDate, Integer totalWeeks) {
+        TermConfig term = new TermConfig();
+        term.setId(existing == null ? null : existing.getId());
+        term.setUserId(userId);
+        term.setTermName(termName);
+        term.setStartDate(startDate);
+        term.setTotalWeeks(totalWeeks);
+        return term;
+    }
+
+    /**
+     * 保证存在一条对应学期配置：同 user + term_name 唯一。须在落库事务内调用，变更事件由调用方发布
      */
     private TermConfig ensureTermConfig(Integer userId,
             String termName,
             LocalDate startDate,
             Integer totalWeeks) {
-        TermConfig term = termConfigMapper.selectOne(
-                Wrappers.<TermConfig>lambdaQuery()
-                        .eq(TermConfig::getUserId, userId)
-                        .eq(TermConfig::getTermName, termName));
+        TermConfig term = findTermConfig(userId, termName);
         if (term != null) {
             // 如果已存在，可以选择是否更新 start_date / total_weeks，这里简单覆盖
             term.setStartDate(startDate);
@@ -192,11 +284,7 @@ public class ScheduleImportServiceImpl implements ScheduleImportService {
             return term;
         }
 
-        term = new TermConfig();
-        term.setUserId(userId);
-        term.setTermName(termName);
-        term.setStartDate(startDate);
-        term.setTotalWeeks(totalWeeks);
+        term = termOf(null, userId, termName, startDate, totalWeeks);
         termConfigMapper.insert(term);
         return term;
     }
@@ -204,20 +292,17 @@ public class ScheduleImportServiceImpl implements ScheduleImportService {
     /**
      * 根据解析结果拼出类似：
      * 9-13周,第1、2节,第二教学楼104
+     * 解析器已给出 rawTimeExpr 时直接沿用（其中的周次部分保留了不规则周次与单双周）
      */
-    private String buildRawTimeExpr(ScheduleParsedItem pi) {
-        // 周次部分
-        String weekPart;
-        if (pi.getWeekStart() != null && pi.getWeekEnd() != null) {
-            if (Objects.equals(pi.getWeekStart(), pi.getWeekEnd())) {
-                weekPart = pi.getWeekStart() + "周";
-            } else {
-                weekPart = pi.getWeekStart() + "-" + pi.getWeekEnd() + "周";
-            }
-        } else {
-            weekPart = "周次未知";
+    static String buildRawTimeExpr(ScheduleParsedItem pi) {
+        if (pi.getRawTimeExpr() != null && !pi.getRawTimeExpr().isBlank()) {
+            return pi.getRawTimeExpr();
         }
 
+        // 周次部分
+        String weekPart = WeekMaskUtils.describe(pi.getWeekMask(), pi.getWeekStart(), pi.getWeekEnd(),
+                pi.getWeekOddEven());
+
         // 节次部分（注意：我们会在前面先把 sectionCount 纠正成 2）
         String sectionPart;
         Integer start = pi.getSectionStart();
@@ -263,6 +348,14 @@ public class ScheduleImportServiceImpl implements ScheduleImportService {
     public void clearUserSchedules(Integer userId) {
         if (userId == null)
             return;
+        deleteUserSchedules(userId);
+        eventPublisher.publishEvent(new ScheduleChangedEvent(userId));
+    }
+
+    /**
+     * 删除用户的排课、课程与成功导入记录，不发布事件，由所在事务的调用方统一发布
+     */
+    private void deleteUserSchedules(Integer userId) {
         scheduleItemMapper.delete(
                 Wrappers.<ScheduleItem>lambdaQuery()
                         .eq(ScheduleItem::getUserId, userId));
@@ -276,49 +369,50 @@ public class ScheduleImportServiceImpl implements ScheduleImportService {
     }
 
     /**
-     * 落库：课程 upsert + 排课 insert
+     * 落库：课程多行 upsert + 排课批量 insert。
+     * 往返次数与课程/排课数量无关：查已有课程、upsert、回查课程 id 各一次，排课按批次写入
+     * （配合 rewriteBatchedStatements，每批合并为一条多行 INSERT，自增 id 回填到实体）
+     * @return 新增的课程数
      */
-    private int upsertCoursesAndItems(Integer userId, TermConfig term, ScheduleParsed parsed) {
-        Map<String, Integer> courseIdMap = new HashMap<>();
-        int newCourseCount = 0;
-
-        // 1. 处理课程
+    int upsertCoursesAndItems(Integer userId, TermConfig term, ScheduleParsed parsed) {
+        // 1. 课程按 (课程名, 教师) 去重（按库表的比较规则），同名同教师出现多次时以最后一次为准
+        Map<String, Course> courses = new LinkedHashMap<>();
         for (ScheduleParsedCourse pc : parsed.getCourses()) {
-            Course course = courseMapper.selectOne(
-                    Wrappers.<Course>lambdaQuery()
-                            .eq(Course::getUserId, userId)
-                            .eq(Course::getTermId, term.getId())
-                            .eq(Course::getCourseName, pc.getCourseName())
-                            .eq(Course::getTeacherName, pc.getTeacherName()));
-            if (course == null) {
-                course = new Course();
-                course.setUserId(userId);
-                course.setTermId(term.getId());
-                course.setCourseName(pc.getCourseName());
-                course.setCourseCode(pc.getCourseCode());
-                course.setTeacherName(java.util.Optional.ofNullable(pc.getTeacherName()).orElse(""));
-                course.setCredit(pc.getCredit());
-                course.setColorTag(pc.getColorTag());
-                courseMapper.insert(course);
-                newCourseCount++;
-            } else {
-                course.setCourseCode(pc.getCourseCode());
-                course.setTeacherName(java.util.Optional.ofNullable(pc.getTeacherName()).orElse(""));
-                course.setCredit(pc.getCredit());
-                course.setColorTag(pc.getColorTag());
-                courseMapper.updateById(course);
+            Course course = new Course();
+            course.setUserId(userId);
+            course.setTermId(term.getId());
+            course.setCourseName(pc.getCourseName());
+            course.setCourseCode(pc.getCourseCode());
+            course.setTeacherName(Optional.ofNullable(pc.getTeacherName()).orElse(""));
+            course.setCredit(pc.getCredit());
+            course.setColorTag(pc.getColorTag());
+            courses.put(courseKey(pc.getCourseName(), pc.getTeacherName()), course);
+        }
+
+        int newCourseCount = 0;
+        Map<String, Integer> courseIdMap = new HashMap<>();
+        if (!courses.isEmpty()) {
+            Set<String> existing = new HashSet<>(selectCourseIds(userId, term.getId()).keySet());
+            for (String key : courses.keySet()) {
+                if (!existing.contains(key)) {
+                    newCourseCount++;
+                }
             }
-            String key = pc.getCourseName() + "@@" + java.util.Optional.ofNullable(pc.getTeacherName()).orElse("");
-            courseIdMap.put(key, course.getId());
+            List<Course> rows = new ArrayList<>(courses.values());
+            for (int i = 0; i < rows.size(); i += BATCH_SIZE) {
+                courseMapper.upsertBatch(rows.subList(i, Math.min(i + BATCH_SIZE, rows.size())));
+            }
+            // 多行 upsert 的自增 id 对“更新”的行不可靠，统一回查
+            courseIdMap = selectCourseIds(userId, term.getId());
         }
 
-        // 2. 处理排课明细（支持幂等：当前已做全量清理后再插入）
+        // 2. 排课明细（支持幂等：当前已做全量清理后再插入）
+        List<ScheduleItem> items = new ArrayList<>(parsed.getItems().size());
         for (ScheduleParsedItem pi : parsed.getItems()) {
 
             normalizeSectionCount(pi);
 
-            String ckey = pi.getCourseName() + "@@" + java.util.Optional.ofNullable(pi.getTeacherName()).orElse("");
-            Integer courseId = courseIdMap.get(ckey);
+            Integer courseId = courseIdMap.get(courseKey(pi.getCourseName(), pi.getTeacherName()));
             if (courseId == null) {
                 log.warn("找不到课程 [{}] 的ID，跳过该条排课", pi.getCourseName());
                 continue;
@@ -334,28 +428,72 @@ public class ScheduleImportServiceImpl implements ScheduleImportService {
             item.setWeekStart(pi.getWeekStart());
             item.setWeekEnd(pi.getWeekEnd());
             item.setWeekOddEven(pi.getWeekOddEven());
+            item.setWeekMask(pi.getWeekMask() != null && pi.getWeekMask() != 0L
+                    ? pi.getWeekMask()
+                    : WeekMaskUtils.of(pi.getWeekStart(), pi.getWeekEnd(), pi.getWeekOddEven()));
             item.setClassroom(pi.getClassroom());
             item.setCampus(pi.getCampus());
             item.setRemark(pi.getRemark());
             item.setRawTimeExpr(buildRawTimeExpr(pi));
-            scheduleItemMapper.insert(item);
+            items.add(item);
+        }
+        if (!items.isEmpty()) {
+            scheduleItemMapper.insert(items, BATCH_SIZE);
         }
 
         return newCourseCount;
     }
 
+    /**
+     * 某用户某学期已有课程：(课程名, 教师) -> id
+     */
+    private Map<String, Integer> selectCourseIds(Integer userId, Integer termId) {
+        List<Course> list = courseMapper.selectList(
+                Wrappers.<Course>lambdaQuery()
+                        .select(Course::getId, Course::getCourseName, Course::getTeacherName)
+                        .eq(Course::getUserId, userId)
+                        .eq(Course::getTermId, termId));
+        Map<String, Integer> map = new HashMap<>(list.size() * 2);
+        for (Course c : list) {
+            map.put(courseKey(c.getCourseName(), c.getTeacherName()), c.getId());
+        }
+        return map;
+    }
+
+    /**
+     * 与唯一键 uk_course_user_term_name_teacher 的比较规则一致：库表排序规则不区分大小写与重音、忽略尾部空格，
+     * “Python”与“python ”在库里是同一行，这里也要得到同一个键，否则其中一种写法的排课找不到课程 id
+     */
+    static String courseKey(String courseName, String teacherName) {
+        return collationKey(courseName) + "@@" + collationKey(teacherName);
+    }
+
+    private static String collationKey(String s) {
+        if (s == null) {
+            return "";
+        }
+        int end = s.length();
+        while (end > 0 && s.charAt(end - 1) == ' ') {
+            end--;
+        }
+        String folded = Normalizer.normalize(s.substring(0, end), Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(folded).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
     /**
      * 保存导入记录
      */
     private void saveImportRecord(Integer userId,
             Integer termId,
             String imageUrl,
+            String imageHash,
             ScheduleParsed parsed,
             String status) {
         ScheduleImport imp = new ScheduleImport();
         imp.setUserId(userId);
         imp.setTermId(termId);
         imp.setImageUrl(imageUrl);
+        imp.setImageHash(imageHash);
         imp.setRawOcrText(parsed.getRawOcrText());
         imp.setParsedJson(JSON.toJSONString(parsed));
         imp.setStatus(status); // SUCCESS / FAIL_AI
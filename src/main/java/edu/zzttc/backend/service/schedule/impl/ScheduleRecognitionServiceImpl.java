@@ -3,6 +3,7 @@ package edu.zzttc.backend.service.schedule.impl;
 import edu.zzttc.backend.service.schedule.ScheduleRecognitionService;
 import edu.zzttc.backend.service.schedule.model.ScheduleParsed;
 import edu.zzttc.backend.service.schedule.model.ScheduleParsedItem;
+import edu.zzttc.backend.utils.WeekMaskUtils;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -28,6 +29,11 @@ public class ScheduleRecognitionServiceImpl implements ScheduleRecognitionServic
                 continue;
             if (it.getSectionCount() <= 0)
                 it.setSectionCount(1);
+            // 不规则周次：以位图为准，起止周取其最小/最大周
+            if (it.getWeekMask() != null && it.getWeekMask() != 0L) {
+                it.setWeekStart(WeekMaskUtils.minWeek(it.getWeekMask()));
+                it.setWeekEnd(WeekMaskUtils.maxWeek(it.getWeekMask()));
+            }
             // 周次缺失兜底
             if (it.getWeekStart() == null && it.getWeekEnd() != null)
                 it.setWeekStart(it.getWeekEnd());
@@ -69,7 +75,8 @@ public class ScheduleRecognitionServiceImpl implements ScheduleRecognitionServic
         for (ScheduleParsedItem it : result) {
             String key = (it.getDayOfWeek() + "|" + safe(it.getCourseName()) + "|" + safe(it.getClassroom())
                     + "|" + safe(it.getTeacherName()) + "|" + it.getWeekStart() + "-" + it.getWeekEnd() + "-"
-                    + java.util.Objects.toString(it.getWeekOddEven(), "0"));
+                    + java.util.Objects.toString(it.getWeekOddEven(), "0") + "-"
+                    + java.util.Objects.toString(it.getWeekMask(), ""));
             groups.computeIfAbsent(key, k -> new ArrayList<>()).add(it);
         }
         for (java.util.Map.Entry<String, List<ScheduleParsedItem>> e : groups.entrySet()) {
@@ -107,6 +114,7 @@ public class ScheduleRecognitionServiceImpl implements ScheduleRecognitionServic
             copy.setWeekStart(base.getWeekStart());
             copy.setWeekEnd(base.getWeekEnd());
             copy.setWeekOddEven(base.getWeekOddEven());
+            copy.setWeekMask(base.getWeekMask());
             copy.setClassroom(base.getClassroom());
             copy.setCampus(base.getCampus());
             copy.setRemark(base.getRemark());
@@ -0,0 +1,139 @@
+package edu.zzttc.backend.service.schedule.impl;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.cache.impl.TimedCache;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import edu.zzttc.backend.domain.entity.TermConfig;
+import edu.zzttc.backend.mapper.TermConfigMapper;
+import edu.zzttc.backend.service.schedule.ScheduleChangedEvent;
+import edu.zzttc.backend.service.schedule.TermResolver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 学期解析缓存：按用户缓存其全部学期（按 startDate 倒序，一般只有几条），
+ * 任意日期 -> 学期 的解析与周次计算都在内存完成；学期配置写入后失效（含经 Redis 广播来的其他实例上的写入），
+ * 条目从加载时起 term-ttl-minutes 后过期。
+ * 命中/未命中计数通过 actuator 的 schedule.term.cache 指标暴露。
+ */
+@Service
+public class TermResolverImpl implements TermResolver {
+
+    @Resource
+    private TermConfigMapper termConfigMapper;
+
+    private final LRUCache<Integer, Entry> cache;
+
+    /** 与已编译课表缓存相同：条目记下加载前读到的用户失效序号，序号变了即视为过期；序号保留两倍过期时间 */
+    private final TimedCache<Integer, Long> versions;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public TermResolverImpl(@Value("${schedule.cache.term-capacity:20000}") int capacity,
+            @Value("${schedule.cache.term-ttl-minutes:1440}") long ttlMinutes,
+            MeterRegistry meterRegistry) {
+        long ttl = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.cache = CacheUtil.newLRUCache(capacity, ttl);
+        this.versions = CacheUtil.newTimedCache(2 * ttl);
+        this.hitCounter = Counter.builder("schedule.term.cache")
+                .tag("result", "hit")
+                .description("学期解析缓存命中次数")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("schedule.term.cache")
+                .tag("result", "miss")
+                .description("学期解析缓存未命中次数")
+                .register(meterRegistry);
+        Gauge.builder("schedule.term.cache.size", cache, LRUCache::size)
+                .description("学期解析缓存当前条目数")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public TermConfig resolve(Integer userId, LocalDate date) {
+        if (userId == null || date == null) {
+            return null;
+        }
+        for (TermConfig t : listTerms(userId)) {
+            if (t.getStartDate() != null && !t.getStartDate().isAfter(date)) {
+                return t;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<TermConfig> listTerms(Integer userId) {
+        if (userId == null) {
+            return Collections.emptyList();
+        }
+        Long current = versions.get(userId, false);
+        long version = current == null ? 0L : current;
+        Entry cached = cache.get(userId, false);
+        if (cached != null && cached.version() == version) {
+            hitCounter.increment();
+            return cached.terms();
+        }
+        missCounter.increment();
+
+        List<TermConfig> terms = Collections.unmodifiableList(termConfigMapper.selectList(
+                Wrappers.<TermConfig>lambdaQuery()
+                        .eq(TermConfig::getUserId, userId)
+                        .orderByDesc(TermConfig::getStartDate)));
+        cache.put(userId, new Entry(version, terms));
+        return terms;
+    }
+
+    @Override
+    public int weekOf(TermConfig term, LocalDate date) {
+        long days = ChronoUnit.DAYS.between(term.getStartDate(), date);
+        if (days < 0) {
+            return 0;
+        }
+        return (int) (days / 7) + 1;
+    }
+
+    @Override
+    public LocalDate dateOf(TermConfig term, int week, int dayOfWeek) {
+        // 教学周从开学当天起每 7 天一周，开学日不一定是周一
+        LocalDate weekStart = term.getStartDate().plusWeeks(Math.max(week, 1) - 1L);
+        int offset = Math.floorMod(dayOfWeek - weekStart.getDayOfWeek().getValue(), 7);
+        return weekStart.plusDays(offset);
+    }
+
+    @Override
+    public void evict(Integer userId) {
+        if (userId == null) {
+            return;
+        }
+        versions.prune();
+        versions.put(userId, sequence.incrementAndGet());
+        cache.remove(userId);
+    }
+
+    /**
+     * 学期配置写入（导入课表时的 ensureTermConfig）后失效
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleChanged(ScheduleChangedEvent event) {
+        evict(event.getUserId());
+    }
+
+    private record Entry(long version, List<TermConfig> terms) {
+    }
+}
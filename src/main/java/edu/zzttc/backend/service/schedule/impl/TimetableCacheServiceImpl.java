@@ -0,0 +1,110 @@
+package edu.zzttc.backend.service.schedule.impl;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.cache.impl.TimedCache;
+import edu.zzttc.backend.domain.entity.ScheduleItemDetail;
+import edu.zzttc.backend.domain.entity.TermConfig;
+import edu.zzttc.backend.mapper.ScheduleItemMapper;
+import edu.zzttc.backend.service.schedule.ScheduleChangedEvent;
+import edu.zzttc.backend.service.schedule.TimetableCacheService;
+import edu.zzttc.backend.service.schedule.model.CompiledTimetable;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内的“已编译课表”缓存：每个 (用户, 学期) 在导入后首次查询时编译一次，
+ * 之后的按日/按周查询不再访问数据库。课表变更（导入、清空、修正节次）提交后整体失效，
+ * 其他实例上的变更经 Redis 广播到达；条目另有从加载时算起的过期时间，广播丢失时最多旧这么久。
+ */
+@Slf4j
+@Service
+public class TimetableCacheServiceImpl implements TimetableCacheService {
+
+    @Resource
+    private ScheduleItemMapper scheduleItemMapper;
+
+    private final LRUCache<Key, Entry> cache;
+
+    /**
+     * 每个用户最近一次失效时取得的序号。缓存条目记下加载前读到的序号，读取时与当前序号不一致即视为过期：
+     * 编译期间发生的失效即使落在写入缓存之前，写进去的旧结果也不会再被读到，无需在检查与写入之间加锁。
+     * 序号保留两倍的条目过期时间：届时失效前写入的旧条目都已过期，序号回到 0 也不会再匹配上
+     */
+    private final TimedCache<Integer, Long> versions;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    public TimetableCacheServiceImpl(@Value("${schedule.cache.timetable-capacity:10000}") int capacity,
+            @Value("${schedule.cache.timetable-ttl-minutes:60}") long ttlMinutes) {
+        long ttl = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.cache = CacheUtil.newLRUCache(capacity, ttl);
+        this.versions = CacheUtil.newTimedCache(2 * ttl);
+    }
+
+    @Override
+    public CompiledTimetable get(Integer userId, TermConfig term) {
+        Key key = new Key(userId, term.getId());
+        long version = versionOf(userId);
+        // 读取不续期：过期时间从加载时算起
+        Entry cached = cache.get(key, false);
+        if (cached != null && cached.version() == version
+                && Objects.equals(cached.timetable().getTotalWeeks(), term.getTotalWeeks())) {
+            return cached.timetable();
+        }
+
+        CompiledTimetable compiled = load(userId, term);
+        cache.put(key, new Entry(version, compiled));
+        return compiled;
+    }
+
+    @Override
+    public void evict(Integer userId) {
+        if (userId == null) {
+            return;
+        }
+        versions.prune();
+        versions.put(userId, sequence.incrementAndGet());
+        for (Key key : cache.keySet()) {
+            if (key.userId().equals(userId)) {
+                cache.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 课表变更：事务提交后再失效，避免并发查询把未提交前的旧数据重新编译进缓存
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleChanged(ScheduleChangedEvent event) {
+        evict(event.getUserId());
+    }
+
+    private long versionOf(Integer userId) {
+        Long version = versions.get(userId, false);
+        return version == null ? 0L : version;
+    }
+
+    private CompiledTimetable load(Integer userId, TermConfig term) {
+        // 排课与课程信息一条联表 SQL 取回
+        List<ScheduleItemDetail> items = scheduleItemMapper.selectTermDetails(userId, term.getId());
+        CompiledTimetable compiled = CompiledTimetable.compile(term, items);
+        log.debug("编译课表 userId={}, termId={}, items={}, weeks={}",
+                userId, term.getId(), items.size(), compiled.getMaxWeek());
+        return compiled;
+    }
+
+    private record Key(Integer userId, Integer termId) {
+    }
+
+    private record Entry(long version, CompiledTimetable timetable) {
+    }
+}
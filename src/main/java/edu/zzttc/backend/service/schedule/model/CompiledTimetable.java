@@ -0,0 +1,223 @@
+package edu.zzttc.backend.service.schedule.model;
+
+import edu.zzttc.backend.domain.entity.ScheduleItem;
+import edu.zzttc.backend.domain.entity.ScheduleItemDetail;
+import edu.zzttc.backend.domain.entity.TermConfig;
+import edu.zzttc.backend.domain.vo.schedule.DailyCourseVO;
+import edu.zzttc.backend.utils.WeekMaskUtils;
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * 编译后的学期课表：按 周次 × 星期 预先展开、去重、排序，并已关联好 Course 信息。
+ * 构建一次后只读，按日/按周查询都只是数组下标访问。
+ * 注意：返回的列表与其中的 VO 在多个请求间共享，调用方不得修改。
+ */
+public class CompiledTimetable {
+
+    @Getter
+    private final Integer termId;
+
+    @Getter
+    private final Integer totalWeeks;
+
+    /** 已展开的最大周次 */
+    @Getter
+    private final int maxWeek;
+
+    /** days[week][dayOfWeek]，下标均从 1 开始 */
+    private final List<DailyCourseVO>[][] days;
+
+    /** weeks[week]，按 dayOfWeek、sectionStart 排序 */
+    private final List<DailyCourseVO>[] weeks;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private CompiledTimetable(Integer termId, Integer totalWeeks, int maxWeek) {
+        this.termId = termId;
+        this.totalWeeks = totalWeeks;
+        this.maxWeek = maxWeek;
+        this.days = new List[maxWeek + 1][8];
+        this.weeks = new List[maxWeek + 1];
+    }
+
+    /**
+     * 某周某天的课程（已去重，按节次排序）
+     */
+    public List<DailyCourseVO> day(int week, int dayOfWeek) {
+        if (week < 1 || week > maxWeek || dayOfWeek < 1 || dayOfWeek > 7) {
+            return Collections.emptyList();
+        }
+        return days[week][dayOfWeek];
+    }
+
+    /**
+     * 某周整周的课程（按星期、节次排序）
+     */
+    public List<DailyCourseVO> week(int week) {
+        if (week < 1 || week > maxWeek) {
+            return Collections.emptyList();
+        }
+        return weeks[week];
+    }
+
+    /**
+     * 将某学期的全部排课（已联表带出课程信息）编译为索引
+     * @param term 学期配置
+     * @param items 该学期的全部排课记录
+     */
+    public static CompiledTimetable compile(TermConfig term, List<ScheduleItemDetail> items) {
+        List<ScheduleItemDetail> valid = new ArrayList<>();
+        for (ScheduleItemDetail it : items) {
+            if (it.getDayOfWeek() == null || it.getDayOfWeek() < 1 || it.getDayOfWeek() > 7
+                    || it.getSectionStart() == null || it.getSectionCount() == null
+                    || WeekMaskUtils.maskOf(it) == 0L) {
+                continue;
+            }
+            valid.add(it);
+        }
+        // 与原 SQL 查询的返回顺序保持一致（主键顺序），保证去重时“先到先得”的语义不变
+        valid.sort(Comparator.comparing(ScheduleItem::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        // 每条排课预先算好：周次位图、去重用的打包键、单双周标记
+        int n = valid.size();
+        long[] masks = new long[n];
+        long[] dedupKeys = new long[n];
+        int[] oddEven = new int[n];
+        Map<String, Integer> classroomIds = new HashMap<>();
+        long allWeeks = 0L;
+        for (int i = 0; i < n; i++) {
+            ScheduleItemDetail it = valid.get(i);
+            masks[i] = WeekMaskUtils.maskOf(it);
+            allWeeks |= masks[i];
+            String classroom = it.getClassroom() == null ? "" : it.getClassroom();
+            int classroomId = classroomIds.computeIfAbsent(classroom, k -> classroomIds.size());
+            dedupKeys[i] = dedupKey(it.getSectionStart(), it.getSectionCount(), it.getCourseId(), classroomId);
+            oddEven[i] = it.getWeekOddEven() == null ? 0 : it.getWeekOddEven();
+        }
+        int maxWeek = WeekMaskUtils.maxWeek(allWeeks);
+        if (term.getTotalWeeks() != null) {
+            maxWeek = Math.min(maxWeek, term.getTotalWeeks());
+        }
+        maxWeek = Math.max(0, maxWeek);
+
+        CompiledTimetable tt = new CompiledTimetable(term.getId(), term.getTotalWeeks(), maxWeek);
+        // 去重用的复用缓冲区，整个编译过程只分配一次
+        int[][] perDay = new int[8][n];
+        int[] perDayCount = new int[8];
+        long[] scratchKeys = new long[n];
+        int[] kept = new int[n];
+        DailyCourseVO[] voByIndex = new DailyCourseVO[n];
+        for (int w = 1; w <= maxWeek; w++) {
+            boolean isOdd = (w % 2 == 1);
+            Arrays.fill(perDayCount, 0);
+            Arrays.fill(voByIndex, null);
+            long bit = 1L << (w - 1);
+            List<DailyCourseVO> weekList = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                // 周次区间与单双周已编码进位图，这里只需一次位测试
+                if ((masks[i] & bit) != 0) {
+                    ScheduleItemDetail it = valid.get(i);
+                    int d = it.getDayOfWeek();
+                    perDay[d][perDayCount[d]++] = i;
+                    // 同一条排课在整周视图与当日视图中复用同一个 VO
+                    voByIndex[i] = toVO(it, w);
+                    weekList.add(voByIndex[i]);
+                }
+            }
+            weekList.sort(Comparator
+                    .comparing(DailyCourseVO::getDayOfWeek)
+                    .thenComparing(DailyCourseVO::getSectionStart));
+            tt.weeks[w] = freeze(weekList);
+
+            for (int d = 1; d <= 7; d++) {
+                int keptCount = dedup(perDay[d], perDayCount[d], dedupKeys, oddEven, isOdd, scratchKeys, kept);
+                if (keptCount == 0) {
+                    tt.days[w][d] = Collections.emptyList();
+                    continue;
+                }
+                List<DailyCourseVO> dayList = new ArrayList<>(keptCount);
+                for (int k = 0; k < keptCount; k++) {
+                    dayList.add(voByIndex[kept[k]]);
+                }
+                dayList.sort(Comparator.comparing(DailyCourseVO::getSectionStart));
+                tt.days[w][d] = freeze(dayList);
+            }
+        }
+        return tt;
+    }
+
+    /**
+     * 去重键：把 (开始节次, 连续节数, 课程ID, 教室ID) 打包进一个 long，
+     * 教室名在编译时驻留为整数 ID，比较时不再拼接字符串、不再包装 Optional。
+     * 位布局：courseId[63..32] | classroomId[31..16] | sectionCount[15..8] | sectionStart[7..0]
+     */
+    static long dedupKey(Integer sectionStart, Integer sectionCount, Integer courseId, int classroomId) {
+        long course = courseId == null ? 0xFFFFFFFFL : (courseId & 0xFFFFFFFFL);
+        return (course << 32)
+                | ((long) (classroomId & 0xFFFF) << 16)
+                | ((long) (sectionCount & 0xFF) << 8)
+                | (sectionStart & 0xFF);
+    }
+
+    /**
+     * 去重：同一时段（相同去重键）优先保留与当前周奇偶匹配的记录，规则与原按日查询一致：
+     *  - 首次出现的键直接保留，位置即首次出现的位置
+     *  - 新记录与本周奇偶匹配而旧记录不匹配，或旧记录为全部周而新记录为单/双周时，原位替换
+     * 一天内的排课只有个位数，线性扫描比哈希更快，且全程不分配对象。
+     *
+     * @param slot 当天候选排课的下标
+     * @param n 候选数量
+     * @param keys 每条排课的去重键（按下标）
+     * @param oddEven 每条排课的单双周标记（按下标）
+     * @param scratchKeys 复用缓冲区，长度 >= n
+     * @param out 输出保留下来的排课下标，长度 >= n
+     * @return 保留条数
+     */
+    static int dedup(int[] slot, int n, long[] keys, int[] oddEven, boolean isOdd,
+            long[] scratchKeys, int[] out) {
+        int size = 0;
+        for (int s = 0; s < n; s++) {
+            int idx = slot[s];
+            long key = keys[idx];
+            int pos = -1;
+            for (int k = 0; k < size; k++) {
+                if (scratchKeys[k] == key) {
+                    pos = k;
+                    break;
+                }
+            }
+            if (pos < 0) {
+                scratchKeys[size] = key;
+                out[size++] = idx;
+                continue;
+            }
+            int oldOE = oddEven[out[pos]];
+            int newOE = oddEven[idx];
+            boolean oldMatch = (oldOE == 1 && isOdd) || (oldOE == 2 && !isOdd);
+            boolean newMatch = (newOE == 1 && isOdd) || (newOE == 2 && !isOdd);
+            if ((newMatch && !oldMatch) || (oldOE == 0 && newOE != 0)) {
+                out[pos] = idx;
+            }
+        }
+        return size;
+    }
+
+    private static DailyCourseVO toVO(ScheduleItemDetail item, int week) {
+        DailyCourseVO vo = new DailyCourseVO();
+        vo.setCourseName(item.getCourseName());
+        vo.setCourseCode(item.getCourseCode());
+        vo.setTeacherName(item.getTeacherName());
+        vo.setDayOfWeek(item.getDayOfWeek());
+        vo.setWeek(week);
+        vo.setSectionStart(item.getSectionStart());
+        vo.setSectionCount(item.getSectionCount());
+        vo.setClassroom(item.getClassroom());
+        vo.setRemark(item.getRemark());
+        return vo;
+    }
+
+    private static List<DailyCourseVO> freeze(List<DailyCourseVO> list) {
+        return list.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(list);
+    }
+}
@@ -0,0 +1,62 @@
+package edu.zzttc.backend.service.schedule.model;
+
+import edu.zzttc.backend.domain.vo.schedule.ScheduleUploadResultVO;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * 异步课表导入任务，状态保存在 Redis 中
+ */
+@Data
+@Schema(description = "课表截图导入任务")
+public class ScheduleImportJob implements Serializable {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String PARSING = "PARSING";
+    public static final String PERSISTING = "PERSISTING";
+    public static final String SUCCESS = "SUCCESS";
+    public static final String FAILED = "FAILED";
+
+    @Schema(description = "任务ID")
+    private String jobId;
+
+    @Schema(description = "提交任务的用户ID")
+    private Integer userId;
+
+    @Schema(description = "状态：QUEUED / PARSING / PERSISTING / SUCCESS / FAILED")
+    private String status;
+
+    @Schema(description = "失败原因")
+    private String message;
+
+    @Schema(description = "学期名称")
+    private String termName;
+
+    @Schema(description = "学期开始日期")
+    private LocalDate startDate;
+
+    @Schema(description = "学期总周数")
+    private Integer totalWeeks;
+
+    @Schema(description = "课表截图在提交实例上的存储路径，消费实例没有时按任务数据写回同一路径")
+    private String imageUrl;
+
+    @Schema(description = "请求的识别方式，为空时使用配置的默认方式")
+    private ScheduleParseMode parseMode;
+
+    @Schema(description = "导入结果，成功后才有")
+    private ScheduleUploadResultVO result;
+
+    @Schema(description = "创建时间（毫秒时间戳）")
+    private Long createdAt;
+
+    @Schema(description = "最近一次状态变化时间（毫秒时间戳）")
+    private Long updatedAt;
+
+    public boolean isFinished() {
+        return SUCCESS.equals(status) || FAILED.equals(status);
+    }
+}
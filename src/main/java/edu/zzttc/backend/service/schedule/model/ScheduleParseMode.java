@@ -0,0 +1,13 @@
+package edu.zzttc.backend.service.schedule.model;
+
+/**
+ * 课表截图的识别方式
+ * TEXT：模型输出“规范课表文本”，再由本地解析为排课
+ * JSON：模型按 JSON Schema 直接输出排课明细，解析失败时退回 TEXT
+ * TILED：截图按星期列切成多块，每块以 JSON 方式并发识别后合并，适合节次多、图很大的课表；任一块失败时退回 TEXT
+ */
+public enum ScheduleParseMode {
+    TEXT,
+    JSON,
+    TILED
+}
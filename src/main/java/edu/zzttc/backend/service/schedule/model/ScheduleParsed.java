@@ -25,4 +25,7 @@ public class ScheduleParsed implements Serializable {
 
     @Schema(description = "课表图片路径或 URL")
     private String imageUrl;
+
+    @Schema(description = "实际产出本结果的识别方式（JSON 模式失败退回时为 TEXT）")
+    private ScheduleParseMode parseMode;
 }
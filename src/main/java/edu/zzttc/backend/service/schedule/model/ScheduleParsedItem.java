@@ -36,6 +36,9 @@ public class ScheduleParsedItem implements Serializable {
     @Schema(description = "周次类型：0=全部周，1=单周，2=双周", example = "0")
     private Integer weekOddEven;
 
+    @Schema(description = "周次位图（第 n 周对应第 n-1 位），用于表达“1,3,7-9周”等不规则周次；为空则按起止周与单双周计算", example = "453")
+    private Long weekMask;
+
     @Schema(description = "上课教室", example = "第一教学楼305")
     private String classroom;
 
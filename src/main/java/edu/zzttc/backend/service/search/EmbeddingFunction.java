@@ -0,0 +1,17 @@
+package edu.zzttc.backend.service.search;
+
+/**
+ * 文本向量化函数，VectorStore 用它把文档和查询映射到同一向量空间
+ */
+public interface EmbeddingFunction {
+
+    /**
+     * 向量维度
+     */
+    int dimension();
+
+    /**
+     * 文本 -> 已做 L2 归一化的向量（点积即余弦相似度），空文本返回全零向量
+     */
+    float[] embed(String text);
+}
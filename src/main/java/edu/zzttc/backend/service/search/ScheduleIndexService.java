@@ -0,0 +1,30 @@
+package edu.zzttc.backend.service.search;
+
+import edu.zzttc.backend.domain.entity.Plan;
+
+import java.util.List;
+
+/**
+ * 把用户的课程、排课、计划写成一句句“事实”放进 VectorStore（命名空间 user:{id}），供问答检索
+ */
+public interface ScheduleIndexService {
+
+    /**
+     * 清空并重建某用户的全部事实（课表导入、清空、修正节次后调用）
+     */
+    void reindexUser(Integer userId);
+
+    /**
+     * 本进程内尚未建过索引的用户先补建一次（重启后、或切换存储实现后）
+     */
+    void ensureIndexed(Integer userId);
+
+    void indexPlan(Plan plan);
+
+    void removePlan(Integer userId, Integer planId);
+
+    /**
+     * 与问题最相关的 topK 条事实
+     */
+    List<String> search(Integer userId, String question, int topK);
+}
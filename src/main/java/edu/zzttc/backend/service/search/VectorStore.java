@@ -1,7 +1,13 @@
 package edu.zzttc.backend.service.search;
 
+import java.util.Set;
+
 public interface VectorStore {
     void upsert(String namespace, String id, String text);
     String[] search(String namespace, String query, int topK);
-}
+    void delete(String namespace, String id);
+    void clear(String namespace);
 
+    /** 命名空间中当前文档 id 的快照，命名空间不存在时为空 */
+    Set<String> ids(String namespace);
+}
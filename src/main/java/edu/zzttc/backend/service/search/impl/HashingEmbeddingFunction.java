@@ -0,0 +1,84 @@
+package edu.zzttc.backend.service.search.impl;
+
+import edu.zzttc.backend.service.search.EmbeddingFunction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地离线的特征哈希向量：字符一元组 + 二元组经哈希散列到固定维度并带符号累加，最后 L2 归一化。
+ * 不依赖外部模型服务，对“会计学”“第二教学楼”这类中文短语的字面相似度足够用。
+ */
+@Component
+public class HashingEmbeddingFunction implements EmbeddingFunction {
+
+    private final int dimension;
+
+    public HashingEmbeddingFunction(@Value("${vector-store.embedding.dimension:256}") int dimension) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("向量维度必须大于 0: " + dimension);
+        }
+        this.dimension = dimension;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] v = new float[dimension];
+        if (text == null || text.isEmpty()) {
+            return v;
+        }
+        char prev = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (Character.isWhitespace(c) || isPunctuation(c)) {
+                prev = 0;
+                continue;
+            }
+            add(v, mix(c), 1.0f);
+            if (prev != 0) {
+                // 二元组权重更高：能区分“会计”与“计算”这类共享单字的词
+                add(v, mix(((long) prev << 16 | c) ^ 0x9E3779B97F4A7C15L), 1.5f);
+            }
+            prev = c;
+        }
+        normalize(v);
+        return v;
+    }
+
+    private void add(float[] v, long hash, float weight) {
+        int idx = (int) ((hash >>> 1) % dimension);
+        v[idx] += (hash & 1L) == 0 ? weight : -weight;
+    }
+
+    private static void normalize(float[] v) {
+        double norm = 0;
+        for (float x : v) {
+            norm += x * x;
+        }
+        if (norm == 0) {
+            return;
+        }
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < v.length; i++) {
+            v[i] *= inv;
+        }
+    }
+
+    /** splitmix64 的终结混淆 */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static boolean isPunctuation(char c) {
+        int type = Character.getType(c);
+        return type == Character.OTHER_PUNCTUATION || type == Character.START_PUNCTUATION
+                || type == Character.END_PUNCTUATION || type == Character.DASH_PUNCTUATION
+                || type == Character.CONNECTOR_PUNCTUATION || type == Character.MATH_SYMBOL;
+    }
+}
@@ -0,0 +1,408 @@
+package edu.zzttc.backend.service.search.impl;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+/**
+ * HNSW（分层可导航小世界图）近似最近邻索引，相似度为点积（向量需已归一化）。
+ * 向量连续存放在一个 float[] 中，邻接表为 int[]，不为每个节点创建对象。
+ * 本类不做同步：写入需外部串行，写入期间不得并发查询（由调用方的读写锁保证）。
+ * 更新通过“标记删除旧节点 + 插入新节点”实现，被删节点仍参与图导航但不出现在结果里；
+ * 本类不回收被删节点，删除比例过高时由调用方重建索引（见 HnswVectorStore）。
+ */
+final class HnswIndex {
+
+    private final int dimension;
+    /** 上层每个节点的最大邻居数 */
+    private final int m;
+    /** 第 0 层的最大邻居数 */
+    private final int m0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random;
+
+    private float[] vectors;
+    /** links[node][level]：下标 0 存邻居个数，之后是邻居节点 */
+    private int[][][] links;
+    private final BitSet deleted = new BitSet();
+    private int size;
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    /** 每个查询线程复用自己的访问标记，避免每次查询按节点数分配数组 */
+    private static final ThreadLocal<Visited> VISITED = ThreadLocal.withInitial(Visited::new);
+
+    HnswIndex(int dimension, int m, int efConstruction, long seed) {
+        this.dimension = dimension;
+        this.m = Math.max(2, m);
+        this.m0 = this.m * 2;
+        this.efConstruction = Math.max(efConstruction, this.m);
+        this.levelMultiplier = 1.0 / Math.log(this.m);
+        this.random = new SplittableRandom(seed);
+        this.vectors = new float[16 * dimension];
+        this.links = new int[16][][];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int liveCount() {
+        return size - deletedCount;
+    }
+
+    boolean isDeleted(int node) {
+        return deleted.get(node);
+    }
+
+    void markDeleted(int node) {
+        if (node >= 0 && node < size && !deleted.get(node)) {
+            deleted.set(node);
+            deletedCount++;
+        }
+    }
+
+    /**
+     * 插入一个向量，返回节点编号（从 0 递增）
+     */
+    int add(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("向量维度不匹配: " + vector.length + " != " + dimension);
+        }
+        int node = size;
+        ensureCapacity(node + 1);
+        System.arraycopy(vector, 0, vectors, node * dimension, dimension);
+        int level = randomLevel();
+        int[][] nodeLinks = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            nodeLinks[l] = new int[(l == 0 ? m0 : m) + 1];
+        }
+        links[node] = nodeLinks;
+        size++;
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return node;
+        }
+
+        int ep = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            ep = greedy(vector, ep, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            Heap found = searchLayer(vector, ep, efConstruction, l);
+            int[] sorted = found.drainDescending();
+            int[] selected = selectNeighbors(node, sorted, l == 0 ? m0 : m);
+            int[] own = nodeLinks[l];
+            for (int s : selected) {
+                own[++own[0]] = s;
+                connect(s, node, l);
+            }
+            ep = sorted[0];
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+        return node;
+    }
+
+    /**
+     * 近似 topK，返回按相似度从高到低排列的未删除节点
+     * @param ef 搜索宽度，越大召回越高、越慢
+     */
+    int[] search(float[] query, int topK, int ef) {
+        if (entryPoint < 0 || topK <= 0) {
+            return new int[0];
+        }
+        int ep = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            ep = greedy(query, ep, l);
+        }
+        // 候选里可能混有已删除节点，按删除比例放宽搜索宽度；调用方在删除比例超过阈值时重建，放宽倍数有上限
+        int width = Math.max(ef, topK);
+        if (deletedCount > 0) {
+            width = (int) Math.min((long) size, (long) width * size / Math.max(1, liveCount()));
+        }
+        Heap found = searchLayer(query, ep, width, 0);
+        int[] sorted = found.drainDescending();
+        int[] out = new int[Math.min(topK, sorted.length)];
+        int n = 0;
+        for (int node : sorted) {
+            if (n == out.length) {
+                break;
+            }
+            if (!deleted.get(node)) {
+                out[n++] = node;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    float similarity(float[] query, int node) {
+        float s = 0f;
+        int base = node * dimension;
+        for (int i = 0; i < dimension; i++) {
+            s += query[i] * vectors[base + i];
+        }
+        return s;
+    }
+
+    /** 节点向量的只读拷贝 */
+    float[] vector(int node) {
+        return Arrays.copyOfRange(vectors, node * dimension, (node + 1) * dimension);
+    }
+
+    private float similarity(int a, int b) {
+        float s = 0f;
+        int ba = a * dimension;
+        int bb = b * dimension;
+        for (int i = 0; i < dimension; i++) {
+            s += vectors[ba + i] * vectors[bb + i];
+        }
+        return s;
+    }
+
+    /** 单层贪心下降到局部最优 */
+    private int greedy(float[] query, int ep, int level) {
+        int cur = ep;
+        float best = similarity(query, cur);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] nb = links[cur][level];
+            for (int i = 1; i <= nb[0]; i++) {
+                float s = similarity(query, nb[i]);
+                if (s > best) {
+                    best = s;
+                    cur = nb[i];
+                    changed = true;
+                }
+            }
+        }
+        return cur;
+    }
+
+    private Heap searchLayer(float[] query, int ep, int ef, int level) {
+        Visited visited = VISITED.get();
+        visited.reset(size);
+        visited.mark(ep);
+        float epSim = similarity(query, ep);
+        Heap candidates = new Heap(ef + 1, false);
+        Heap results = new Heap(ef + 1, true);
+        candidates.push(ep, epSim);
+        results.push(ep, epSim);
+        while (candidates.size() > 0) {
+            float cSim = candidates.topScore();
+            if (results.size() >= ef && cSim < results.topScore()) {
+                break;
+            }
+            int c = candidates.pop();
+            int[][] cLinks = links[c];
+            if (level >= cLinks.length) {
+                continue;
+            }
+            int[] nb = cLinks[level];
+            for (int i = 1; i <= nb[0]; i++) {
+                int e = nb[i];
+                if (!visited.mark(e)) {
+                    continue;
+                }
+                float s = similarity(query, e);
+                if (results.size() < ef || s > results.topScore()) {
+                    candidates.push(e, s);
+                    results.push(e, s);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 启发式选邻居：候选按与 node 的相似度从高到低，只有当它离 node 比离已选邻居都近时才选，
+     * 这样邻居分散在不同方向，聚簇数据上召回更稳；名额没满时再用被跳过的候选补齐。
+     */
+    private int[] selectNeighbors(int node, int[] sortedCandidates, int max) {
+        int[] selected = new int[Math.min(max, sortedCandidates.length)];
+        int n = 0;
+        int[] skipped = new int[sortedCandidates.length];
+        int skippedCount = 0;
+        for (int c : sortedCandidates) {
+            if (n == selected.length) {
+                break;
+            }
+            if (c == node) {
+                continue;
+            }
+            float toNode = similarity(c, node);
+            boolean good = true;
+            for (int k = 0; k < n; k++) {
+                if (similarity(c, selected[k]) > toNode) {
+                    good = false;
+                    break;
+                }
+            }
+            if (good) {
+                selected[n++] = c;
+            } else {
+                skipped[skippedCount++] = c;
+            }
+        }
+        for (int k = 0; k < skippedCount && n < selected.length; k++) {
+            selected[n++] = skipped[k];
+        }
+        return n == selected.length ? selected : Arrays.copyOf(selected, n);
+    }
+
+    /** 给 from 增加一条指向 to 的边，超出上限时重新挑选 */
+    private void connect(int from, int to, int level) {
+        int[] nb = links[from][level];
+        int max = nb.length - 1;
+        if (nb[0] < max) {
+            nb[++nb[0]] = to;
+            return;
+        }
+        Heap all = new Heap(max + 1, false);
+        for (int i = 1; i <= nb[0]; i++) {
+            all.push(nb[i], similarity(from, nb[i]));
+        }
+        all.push(to, similarity(from, to));
+        int[] sorted = new int[all.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = all.pop();
+        }
+        int[] selected = selectNeighbors(from, sorted, max);
+        nb[0] = selected.length;
+        System.arraycopy(selected, 0, nb, 1, selected.length);
+    }
+
+    private int randomLevel() {
+        double r = 1.0 - random.nextDouble();
+        return (int) Math.min(16, Math.floor(-Math.log(r) * levelMultiplier));
+    }
+
+    private void ensureCapacity(int nodes) {
+        if (nodes <= links.length) {
+            return;
+        }
+        int cap = Math.max(nodes, links.length + (links.length >> 1));
+        links = Arrays.copyOf(links, cap);
+        vectors = Arrays.copyOf(vectors, cap * dimension);
+    }
+
+    /**
+     * (节点, 分数) 二叉堆；min=true 时堆顶是最小分数，否则是最大分数
+     */
+    private static final class Heap {
+        private int[] nodes;
+        private float[] scores;
+        private int size;
+        private final boolean min;
+
+        Heap(int capacity, boolean min) {
+            this.nodes = new int[Math.max(capacity, 4)];
+            this.scores = new float[nodes.length];
+            this.min = min;
+        }
+
+        int size() {
+            return size;
+        }
+
+        float topScore() {
+            return scores[0];
+        }
+
+        void push(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(score, scores[parent])) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            scores[i] = score;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            float lastScore = scores[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(scores[child + 1], scores[child])) {
+                    child++;
+                }
+                if (!before(scores[child], lastScore)) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            nodes[i] = lastNode;
+            scores[i] = lastScore;
+            return top;
+        }
+
+        /** 仅用于最小堆：按分数从高到低取出全部节点 */
+        int[] drainDescending() {
+            int[] out = new int[size];
+            for (int i = out.length - 1; i >= 0; i--) {
+                out[i] = pop();
+            }
+            return out;
+        }
+
+        private boolean before(float a, float b) {
+            return min ? a < b : a > b;
+        }
+    }
+
+    /**
+     * 按代数标记已访问节点，重置只需代数加一
+     */
+    private static final class Visited {
+        private int[] marks = new int[0];
+        private int generation;
+
+        void reset(int size) {
+            if (marks.length < size) {
+                marks = new int[Math.max(size, marks.length * 2)];
+                generation = 0;
+            }
+            generation++;
+            if (generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        /** 首次访问返回 true */
+        boolean mark(int node) {
+            if (marks[node] == generation) {
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+}
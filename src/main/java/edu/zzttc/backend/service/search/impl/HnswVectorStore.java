@@ -0,0 +1,238 @@
+package edu.zzttc.backend.service.search.impl;
+
+import edu.zzttc.backend.service.search.EmbeddingFunction;
+import edu.zzttc.backend.service.search.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 基于向量相似度的 VectorStore：文本经 EmbeddingFunction 向量化后写入每个命名空间独立的 HNSW 索引。
+ * 命名空间之间互不阻塞；同一命名空间内写入串行、查询并发（读写锁）。
+ * 向量化在锁外完成，锁内只做图的插入与遍历。
+ * 更新与删除只在图中标记删除，标记删除的节点占比超过 rebuild-deleted-ratio 时在写锁内按存活节点重建该命名空间，
+ * 避免被删节点无限累积、查询宽度随之放大。
+ */
+@Service
+@ConditionalOnProperty(name = "vector-store.type", havingValue = "hnsw", matchIfMissing = true)
+public class HnswVectorStore implements VectorStore {
+
+    /** 节点数少于该值时不重建，小索引里的删除节点对查询影响可以忽略 */
+    private static final int MIN_REBUILD_SIZE = 64;
+
+    private final EmbeddingFunction embedding;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double rebuildRatio;
+
+    private final Map<String, Namespace> namespaces = new ConcurrentHashMap<>();
+
+    public HnswVectorStore(EmbeddingFunction embedding,
+            @Value("${vector-store.hnsw.m:16}") int m,
+            @Value("${vector-store.hnsw.ef-construction:100}") int efConstruction,
+            @Value("${vector-store.hnsw.ef-search:128}") int efSearch,
+            @Value("${vector-store.hnsw.rebuild-deleted-ratio:0.3}") double rebuildRatio) {
+        this.embedding = embedding;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.rebuildRatio = rebuildRatio;
+    }
+
+    @Override
+    public void upsert(String namespace, String id, String text) {
+        String value = text == null ? "" : text;
+        upsert(namespace, id, value, embedding.embed(value));
+    }
+
+    /**
+     * 写入已算好的向量（从持久化文件恢复时无需重新向量化）
+     */
+    void upsert(String namespace, String id, String text, float[] vector) {
+        Namespace ns = namespaces.computeIfAbsent(namespace, k -> new Namespace(k, newIndex(k)));
+        ns.lock.writeLock().lock();
+        try {
+            Integer old = ns.nodes.get(id);
+            if (old != null && Objects.equals(ns.texts[old], text)) {
+                return;
+            }
+            int node = ns.index.add(vector);
+            if (old != null) {
+                ns.index.markDeleted(old);
+                ns.texts[old] = null;
+            }
+            if (node >= ns.texts.length) {
+                ns.texts = Arrays.copyOf(ns.texts, Math.max(node + 1, ns.texts.length * 2));
+            }
+            ns.texts[node] = text;
+            ns.nodes.put(id, node);
+            if (old != null) {
+                rebuildIfNeeded(ns);
+            }
+        } finally {
+            ns.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 文档当前的文本，不存在返回 null
+     */
+    String get(String namespace, String id) {
+        Namespace ns = namespaces.get(namespace);
+        if (ns == null) {
+            return null;
+        }
+        ns.lock.readLock().lock();
+        try {
+            Integer node = ns.nodes.get(id);
+            return node == null ? null : ns.texts[node];
+        } finally {
+            ns.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String[] search(String namespace, String query, int topK) {
+        Namespace ns = namespaces.get(namespace);
+        if (ns == null || topK <= 0) {
+            return new String[0];
+        }
+        float[] vector = embedding.embed(query);
+        ns.lock.readLock().lock();
+        try {
+            int[] hits = ns.index.search(vector, topK, efSearch);
+            String[] out = new String[hits.length];
+            for (int i = 0; i < hits.length; i++) {
+                out[i] = ns.texts[hits[i]];
+            }
+            return out;
+        } finally {
+            ns.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(String namespace, String id) {
+        Namespace ns = namespaces.get(namespace);
+        if (ns == null) {
+            return;
+        }
+        ns.lock.writeLock().lock();
+        try {
+            Integer node = ns.nodes.remove(id);
+            if (node != null) {
+                ns.index.markDeleted(node);
+                ns.texts[node] = null;
+                rebuildIfNeeded(ns);
+            }
+        } finally {
+            ns.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear(String namespace) {
+        Namespace ns = namespaces.get(namespace);
+        if (ns == null) {
+            return;
+        }
+        // 在写锁内原地清空而不是从 map 中移除：移除后，已经取到旧对象的并发写入会写进一个不再可见的索引而丢失
+        ns.lock.writeLock().lock();
+        try {
+            ns.index = newIndex(namespace);
+            ns.nodes.clear();
+            ns.texts = new String[16];
+        } finally {
+            ns.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<String> ids(String namespace) {
+        Namespace ns = namespaces.get(namespace);
+        if (ns == null) {
+            return new HashSet<>();
+        }
+        ns.lock.readLock().lock();
+        try {
+            return new HashSet<>(ns.nodes.keySet());
+        } finally {
+            ns.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 索引中的节点数，含已标记删除的
+     */
+    int nodeCount(String namespace) {
+        Namespace ns = namespaces.get(namespace);
+        if (ns == null) {
+            return 0;
+        }
+        ns.lock.readLock().lock();
+        try {
+            return ns.index.size();
+        } finally {
+            ns.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 标记删除的节点过多时，按原插入顺序把存活节点的向量写入新索引；需持有写锁。
+     * 每次重建后至少要再删除 rebuildRatio 比例的节点才会再次触发，摊还到每次删除是常数次插入
+     */
+    private void rebuildIfNeeded(Namespace ns) {
+        HnswIndex old = ns.index;
+        int size = old.size();
+        if (size < MIN_REBUILD_SIZE || size - old.liveCount() < size * rebuildRatio) {
+            return;
+        }
+        String[] ids = new String[size];
+        for (Map.Entry<String, Integer> e : ns.nodes.entrySet()) {
+            ids[e.getValue()] = e.getKey();
+        }
+        HnswIndex fresh = newIndex(ns.name);
+        String[] texts = new String[Math.max(16, ns.nodes.size() * 2)];
+        for (int node = 0; node < size; node++) {
+            if (ids[node] == null) {
+                continue;
+            }
+            int moved = fresh.add(old.vector(node));
+            texts[moved] = ns.texts[node];
+            ns.nodes.put(ids[node], moved);
+        }
+        ns.index = fresh;
+        ns.texts = texts;
+    }
+
+    private HnswIndex newIndex(String namespace) {
+        // 以命名空间为种子，同样的写入顺序得到同样的图，便于复现问题
+        return new HnswIndex(embedding.dimension(), m, efConstruction, namespace.hashCode());
+    }
+
+    private static final class Namespace {
+        final String name;
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        /** 清空、重建时整体替换，读写都在锁内 */
+        HnswIndex index;
+        /** 文档 id -> 当前有效的节点 */
+        final Map<String, Integer> nodes = new HashMap<>();
+        /** 节点 -> 文本，被替换的节点置空 */
+        String[] texts = new String[16];
+
+        Namespace(String name, HnswIndex index) {
+            this.name = name;
+            this.index = index;
+        }
+    }
+}
@@ -1,28 +1,114 @@
 package edu.zzttc.backend.service.search.impl;
 
 import edu.zzttc.backend.service.search.VectorStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * 按子串命中数打分的内存检索：分数 = 查询中（按空白切分的）词在文档里出现的个数。
+ * 每个命名空间维护字符一元/二元组倒排表，查询只对至少包含一个查询词的文档打分，
+ * 每篇文档只算一次分，再用容量为 topK 的小顶堆取结果；同分按写入先后排序。
+ * 读写均基于 ConcurrentHashMap，同一文档的并发写入按 id 分段加锁，清空时持有全部分段锁原地清空。
+ */
 @Service
+@ConditionalOnProperty(name = "vector-store.type", havingValue = "memory")
 public class InMemoryVectorStore implements VectorStore {
-    private final Map<String, Map<String, String>> db = new HashMap<>();
+
+    private static final int STRIPES = 16;
+
+    private final Map<String, Namespace> db = new ConcurrentHashMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
 
     @Override
     public void upsert(String namespace, String id, String text) {
-        db.computeIfAbsent(namespace, k -> new HashMap<>()).put(id, text == null ? "" : text);
+        Namespace ns = db.computeIfAbsent(namespace, k -> new Namespace());
+        Doc doc = new Doc(id, text == null ? "" : text, sequence.incrementAndGet());
+        synchronized (ns.stripes[Math.floorMod(id.hashCode(), STRIPES)]) {
+            Doc old = ns.docs.put(id, doc);
+            if (old != null) {
+                unindex(ns, old);
+            }
+            index(ns, doc);
+        }
     }
 
     @Override
     public String[] search(String namespace, String query, int topK) {
-        Map<String, String> m = db.getOrDefault(namespace, Collections.emptyMap());
-        if (m.isEmpty()) return new String[0];
+        Namespace ns = db.get(namespace);
+        if (ns == null || ns.docs.isEmpty() || topK <= 0) return new String[0];
         String[] qs = tokenize(query);
-        List<Map.Entry<String, String>> list = new ArrayList<>(m.entrySet());
-        list.sort((a, b) -> score(b.getValue(), qs) - score(a.getValue(), qs));
-        return list.stream().limit(topK).map(Map.Entry::getValue).toArray(String[]::new);
+
+        // 1. 候选：每个查询词取其最稀有的一元/二元组的倒排表，合并去重
+        Set<Doc> candidates = new HashSet<>();
+        for (String q : qs) {
+            Set<Doc> posting = rarestPosting(ns, q);
+            if (posting != null) {
+                candidates.addAll(posting);
+            }
+        }
+        if (candidates.isEmpty()) return new String[0];
+
+        // 2. 每篇候选只打一次分，小顶堆保留 topK
+        PriorityQueue<Scored> heap = new PriorityQueue<>(topK + 1);
+        for (Doc doc : candidates) {
+            // 倒排表与文档表不是原子更新，跳过并发替换中的旧文档
+            if (ns.docs.get(doc.id()) != doc) continue;
+            int s = score(doc.text(), qs);
+            if (s == 0) continue;
+            Scored scored = new Scored(doc, s);
+            if (heap.size() < topK) {
+                heap.add(scored);
+            } else if (scored.compareTo(heap.peek()) > 0) {
+                heap.poll();
+                heap.add(scored);
+            }
+        }
+        String[] out = new String[heap.size()];
+        for (int i = out.length - 1; i >= 0; i--) {
+            out[i] = heap.poll().doc().text();
+        }
+        return out;
+    }
+
+    @Override
+    public void delete(String namespace, String id) {
+        Namespace ns = db.get(namespace);
+        if (ns == null) return;
+        synchronized (ns.stripes[Math.floorMod(id.hashCode(), STRIPES)]) {
+            Doc old = ns.docs.remove(id);
+            if (old != null) unindex(ns, old);
+        }
+    }
+
+    @Override
+    public void clear(String namespace) {
+        Namespace ns = db.get(namespace);
+        if (ns == null) return;
+        // 持有全部分段锁原地清空而不是从 map 中移除：移除后，已经取到旧对象的并发写入会写进一个不再可见的命名空间而丢失
+        clearLocked(ns, 0);
+    }
+
+    /** 按下标顺序逐个获取分段锁，全部持有后清空；写入与删除只持有其中一把，不会死锁 */
+    private void clearLocked(Namespace ns, int stripe) {
+        if (stripe == STRIPES) {
+            ns.docs.clear();
+            ns.postings.clear();
+            return;
+        }
+        synchronized (ns.stripes[stripe]) {
+            clearLocked(ns, stripe + 1);
+        }
+    }
+
+    @Override
+    public Set<String> ids(String namespace) {
+        Namespace ns = db.get(namespace);
+        return ns == null ? new HashSet<>() : new HashSet<>(ns.docs.keySet());
     }
 
     private int score(String text, String[] qs) {
@@ -35,5 +121,83 @@ public class InMemoryVectorStore implements VectorStore {
         if (x == null) return new String[0];
         return x.replaceAll("\\s+", " ").trim().split(" ");
     }
-}
 
+    /**
+     * 包含词 q 的文档一定出现在 q 的每个一元/二元组的倒排表里，取最短的一个作候选；
+     * 某个组合根本不存在时说明没有文档包含 q，返回 null
+     */
+    private Set<Doc> rarestPosting(Namespace ns, String q) {
+        if (q.isEmpty()) return null;
+        if (q.length() == 1) return ns.postings.get(gram((char) 0, q.charAt(0)));
+        Set<Doc> best = null;
+        for (int i = 1; i < q.length(); i++) {
+            Set<Doc> p = ns.postings.get(gram(q.charAt(i - 1), q.charAt(i)));
+            if (p == null || p.isEmpty()) return null;
+            if (best == null || p.size() < best.size()) best = p;
+        }
+        return best;
+    }
+
+    private void index(Namespace ns, Doc doc) {
+        for (Integer g : grams(doc.text())) {
+            ns.postings.computeIfAbsent(g, k -> ConcurrentHashMap.newKeySet()).add(doc);
+        }
+    }
+
+    private void unindex(Namespace ns, Doc doc) {
+        for (Integer g : grams(doc.text())) {
+            Set<Doc> p = ns.postings.get(g);
+            if (p != null) p.remove(doc);
+        }
+    }
+
+    private Set<Integer> grams(String text) {
+        Set<Integer> set = new HashSet<>();
+        for (int i = 0; i < text.length(); i++) {
+            set.add(gram((char) 0, text.charAt(i)));
+            if (i > 0) set.add(gram(text.charAt(i - 1), text.charAt(i)));
+        }
+        return set;
+    }
+
+    /** 一元组高 16 位为 0，二元组为 (前一个字符, 当前字符) */
+    private static int gram(char prev, char c) {
+        return (prev << 16) | c;
+    }
+
+    private static final class Namespace {
+        final Map<String, Doc> docs = new ConcurrentHashMap<>();
+        final Map<Integer, Set<Doc>> postings = new ConcurrentHashMap<>();
+        final Object[] stripes = new Object[STRIPES];
+
+        Namespace() {
+            for (int i = 0; i < STRIPES; i++) stripes[i] = new Object();
+        }
+    }
+
+    /** 文档按身份比较，同 id 的新旧版本是不同的对象 */
+    private static final class Doc {
+        private final String id;
+        private final String text;
+        private final long seq;
+
+        Doc(String id, String text, long seq) {
+            this.id = id;
+            this.text = text;
+            this.seq = seq;
+        }
+
+        String id() { return id; }
+        String text() { return text; }
+        long seq() { return seq; }
+    }
+
+    /** 分数高者大；同分时先写入者大 */
+    private record Scored(Doc doc, int score) implements Comparable<Scored> {
+        @Override
+        public int compareTo(Scored o) {
+            if (score != o.score) return Integer.compare(score, o.score);
+            return Long.compare(o.doc.seq(), doc.seq());
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package edu.zzttc.backend.service.search.impl;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.TimedCache;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import edu.zzttc.backend.domain.entity.Course;
+import edu.zzttc.backend.domain.entity.Plan;
+import edu.zzttc.backend.domain.entity.ScheduleItemDetail;
+import edu.zzttc.backend.domain.entity.TermConfig;
+import edu.zzttc.backend.mapper.CourseMapper;
+import edu.zzttc.backend.mapper.PlanMapper;
+import edu.zzttc.backend.mapper.ScheduleItemMapper;
+import edu.zzttc.backend.service.schedule.ScheduleChangedEvent;
+import edu.zzttc.backend.service.schedule.TermResolver;
+import edu.zzttc.backend.service.search.ScheduleIndexService;
+import edu.zzttc.backend.service.search.VectorStore;
+import edu.zzttc.backend.utils.WeekMaskUtils;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+public class ScheduleIndexServiceImpl implements ScheduleIndexService {
+
+    private static final String[] DAY_NAMES = {"", "星期一", "星期二", "星期三", "星期四", "星期五", "星期六", "星期日"};
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    @Resource
+    private VectorStore vectorStore;
+    @Resource
+    private TermResolver termResolver;
+    @Resource
+    private CourseMapper courseMapper;
+    @Resource
+    private ScheduleItemMapper scheduleItemMapper;
+    @Resource
+    private PlanMapper planMapper;
+    @Resource
+    private ThreadPoolExecutor scheduleIndexExecutor;
+
+    /**
+     * 本进程内已建过索引的用户。条目从建索引时起 ttl 后过期，下次问答时按需重建，
+     * 兜住丢失的跨实例变更广播与其他实例上的计划增删
+     */
+    private final TimedCache<Integer, Boolean> indexedUsers;
+    /** 已提交、尚未开始重建的用户：重建开始前的多次变更只重建一次 */
+    private final Set<Integer> pendingUsers = ConcurrentHashMap.newKeySet();
+
+    public ScheduleIndexServiceImpl(@Value("${schedule.qa.index.ttl-minutes:1440}") long ttlMinutes) {
+        long ttl = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.indexedUsers = CacheUtil.newTimedCache(ttl);
+        // 过期条目定期清掉，不随用户数一直增长
+        this.indexedUsers.schedulePrune(ttl);
+    }
+
+    @Override
+    public void reindexUser(Integer userId) {
+        if (userId == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int count = sync(userId);
+        indexedUsers.put(userId, Boolean.TRUE);
+        log.debug("重建问答索引 userId={}, facts={}, cost={}ms", userId, count, System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public void ensureIndexed(Integer userId) {
+        if (userId == null || indexedUsers.get(userId, false) != null) {
+            return;
+        }
+        // 持久化的存储里可能已有数据：覆盖写（文本没变的文档不会重复写入）并删掉已不存在的
+        sync(userId);
+        indexedUsers.put(userId, Boolean.TRUE);
+    }
+
+    @Override
+    public void indexPlan(Plan plan) {
+        if (plan == null || plan.getId() == null || plan.getUserId() == null) {
+            return;
+        }
+        vectorStore.upsert(namespace(plan.getUserId()), "plan:" + plan.getId(), planFact(plan));
+    }
+
+    @Override
+    public void removePlan(Integer userId, Integer planId) {
+        if (userId == null || planId == null) {
+            return;
+        }
+        vectorStore.delete(namespace(userId), "plan:" + planId);
+    }
+
+    @Override
+    public List<String> search(Integer userId, String question, int topK) {
+        if (userId == null || question == null || question.isBlank() || topK <= 0) {
+            return List.of();
+        }
+        ensureIndexed(userId);
+        return Arrays.asList(vectorStore.search(namespace(userId), question, topK));
+    }
+
+    /**
+     * 课表变更提交后在后台重建该用户的索引。
+     * 同一用户已在排队时不再重复提交；重建开始时先移出排队集合，重建期间的新变更会再排一次。
+     * 其他实例广播来的变更只重建本实例已建过索引的用户，其余的等问答时按需建
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleChanged(ScheduleChangedEvent event) {
+        Integer userId = event.getUserId();
+        if (userId == null || (event.isRemote() && indexedUsers.get(userId, false) == null)
+                || !pendingUsers.add(userId)) {
+            return;
+        }
+        try {
+            scheduleIndexExecutor.execute(() -> {
+                pendingUsers.remove(userId);
+                rebuild(userId);
+            });
+        } catch (RejectedExecutionException e) {
+            // 排队已满：旧索引作废，下次问答时按需补建
+            pendingUsers.remove(userId);
+            indexedUsers.remove(userId);
+            log.warn("重建问答索引排队已满，延后到下次问答 userId={}", userId);
+        }
+    }
+
+    private void rebuild(Integer userId) {
+        try {
+            reindexUser(userId);
+        } catch (Exception e) {
+            // 索引失败不影响课表本身，下次问答时会按需补建
+            indexedUsers.remove(userId);
+            log.warn("重建问答索引失败 userId={}", userId, e);
+        }
+    }
+
+    /**
+     * 先写入当前全部事实，再删掉索引里已不存在的文档：重建期间的问答看到的是新旧并存的完整索引，
+     * 不会碰到清空后尚未写完的空索引
+     * @return 写入的事实数
+     */
+    private int sync(Integer userId) {
+        String ns = namespace(userId);
+        Set<String> stale = vectorStore.ids(ns);
+        int count = 0;
+        for (Course c : courseMapper.selectList(Wrappers.<Course>lambdaQuery().eq(Course::getUserId, userId))) {
+            put(ns, "course:" + c.getId(), courseFact(c), stale);
+            count++;
+        }
+        for (TermConfig term : termResolver.listTerms(userId)) {
+            for (ScheduleItemDetail it : scheduleItemMapper.selectTermDetails(userId, term.getId())) {
+                put(ns, "item:" + it.getId(), itemFact(term, it), stale);
+                count++;
+            }
+        }
+        for (Plan p : planMapper.selectList(Wrappers.<Plan>lambdaQuery().eq(Plan::getUserId, userId))) {
+            put(ns, "plan:" + p.getId(), planFact(p), stale);
+            count++;
+        }
+        for (String id : stale) {
+            vectorStore.delete(ns, id);
+        }
+        return count;
+    }
+
+    private void put(String ns, String id, String fact, Set<String> stale) {
+        vectorStore.upsert(ns, id, fact);
+        stale.remove(id);
+    }
+
+    private static String namespace(Integer userId) {
+        return "user:" + userId;
+    }
+
+    private static String courseFact(Course c) {
+        return String.format("课程=%s; 代码=%s; 教师=%s; 学分=%s",
+                nullSafe(c.getCourseName()), nullSafe(c.getCourseCode()), nullSafe(c.getTeacherName()),
+                c.getCredit() == null ? "" : c.getCredit());
+    }
+
+    private static String itemFact(TermConfig term, ScheduleItemDetail it) {
+        int start = it.getSectionStart() == null ? 0 : it.getSectionStart();
+        int count = it.getSectionCount() == null ? 1 : it.getSectionCount();
+        int day = it.getDayOfWeek() == null ? 0 : it.getDayOfWeek();
+        return String.format("课程=%s; 教师=%s; 时间=%s 第%d-%d节; 周次=%s周; 教室=%s; 学期=%s(开学%s); 备注=%s",
+                nullSafe(it.getCourseName()), nullSafe(it.getTeacherName()),
+                day >= 1 && day <= 7 ? DAY_NAMES[day] : "", start, start + count - 1,
+                WeekMaskUtils.format(WeekMaskUtils.maskOf(it)), nullSafe(it.getClassroom()),
+                nullSafe(term.getTermName()), term.getStartDate(), nullSafe(it.getRemark()));
+    }
+
+    private static String planFact(Plan p) {
+        return String.format("计划=%s; 开始=%s; 结束=%s; 地点=%s; 优先级=%s; 说明=%s",
+                nullSafe(p.getTitle()),
+                p.getStartTime() == null ? "" : p.getStartTime().format(TIME_FORMAT),
+                p.getEndTime() == null ? "" : p.getEndTime().format(TIME_FORMAT),
+                nullSafe(p.getLocation()), nullSafe(p.getPriority()), nullSafe(p.getDescription()));
+    }
+
+    private static String nullSafe(String s) {
+        return s == null ? "" : s;
+    }
+}
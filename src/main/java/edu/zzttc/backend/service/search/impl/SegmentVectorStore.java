@@ -0,0 +1,580 @@
+package edu.zzttc.backend.service.search.impl;
+
+import edu.zzttc.backend.service.search.EmbeddingFunction;
+import edu.zzttc.backend.service.search.VectorStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 持久化的 VectorStore：每次写入以追加方式记到分段日志文件，内存中仍由 HNSW 索引负责检索。
+ * <ul>
+ *     <li>文件：{dir}/seg-{id}-{gen}.log，单个超过 max-segment-bytes 后滚动到新段</li>
+ *     <li>记录：[长度 int][CRC32 int][操作 byte][命名空间][文档 id][文本][向量 float[]]，向量一并落盘，重启时不必重新向量化；
+ *     清空命名空间只写一条不带文档 id 的清空记录，重建索引时日志不会因逐条墓碑而翻倍</li>
+ *     <li>启动：按 (id, gen) 顺序内存映射各段回放，同一文档只保留最后一条，再批量建索引；遇到半截记录即停止读取该段</li>
+ *     <li>压缩：后台定期把所有已封存段中仍有效的记录拷到一个新文件（id 取被压缩段中最大的，gen+1），再删除旧段；
+ *     压缩总是覆盖当时全部已封存段，所以启动时排在最新压缩段之前的文件一定是没删掉的旧段，直接跳过，
+ *     删除墓碑与清空记录因此可以在压缩时丢弃；旧段删不掉时（如 Windows 上仍被映射）记下来，每轮压缩开始时重试</li>
+ * </ul>
+ * 多个节点指向同一目录（如共享盘）时，只应有一个节点写入。
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "vector-store.type", havingValue = "segment")
+public class SegmentVectorStore implements VectorStore {
+
+    private static final byte OP_UPSERT = 1;
+    /** 删除墓碑：只有 key，没有文本和向量 */
+    private static final byte OP_DELETE = 2;
+    /** 清空命名空间：只有命名空间，此前该命名空间的全部文档失效 */
+    private static final byte OP_CLEAR = 3;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("seg-(\\d+)-(\\d+)\\.log");
+    /** 记录头：长度 + CRC */
+    private static final int HEADER_BYTES = 8;
+
+    private final EmbeddingFunction embedding;
+    private final HnswVectorStore index;
+    private final Path dir;
+    private final long maxSegmentBytes;
+    private final double garbageRatio;
+
+    /** 全部段，按 (id, gen) 升序，最后一个为当前写入段 */
+    private final List<Segment> segments = new ArrayList<>();
+    /** 每个文档最新一条记录所在的位置 */
+    private final Map<Key, Location> locations = new HashMap<>();
+    /** 压缩后没能删除的旧段文件 */
+    private final List<Path> pendingDeletes = new ArrayList<>();
+    private Segment active;
+
+    public SegmentVectorStore(EmbeddingFunction embedding,
+            @Value("${vector-store.segment.dir:./data/vector-store}") String dir,
+            @Value("${vector-store.segment.max-segment-bytes:16777216}") long maxSegmentBytes,
+            @Value("${vector-store.segment.compaction-garbage-ratio:0.5}") double garbageRatio,
+            @Value("${vector-store.hnsw.m:16}") int m,
+            @Value("${vector-store.hnsw.ef-construction:100}") int efConstruction,
+            @Value("${vector-store.hnsw.ef-search:128}") int efSearch,
+            @Value("${vector-store.hnsw.rebuild-deleted-ratio:0.3}") double rebuildRatio) {
+        this.embedding = embedding;
+        this.index = new HnswVectorStore(embedding, m, efConstruction, efSearch, rebuildRatio);
+        this.dir = Paths.get(dir);
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.garbageRatio = garbageRatio;
+    }
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                String name = p.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    // 上次压缩未完成的残留
+                    Files.deleteIfExists(p);
+                    continue;
+                }
+                Matcher m = SEGMENT_NAME.matcher(name);
+                if (m.matches()) {
+                    segments.add(new Segment(Long.parseLong(m.group(1)), Integer.parseInt(m.group(2)), p));
+                }
+            }
+        }
+        segments.sort(Comparator.naturalOrder());
+        dropCompactedVictims();
+
+        long start = System.currentTimeMillis();
+        Map<Key, Record> latest = new LinkedHashMap<>();
+        for (Segment seg : segments) {
+            replay(seg, latest);
+        }
+        for (Map.Entry<Key, Record> e : latest.entrySet()) {
+            Record r = e.getValue();
+            float[] vector = r.vector().length == embedding.dimension() ? r.vector() : embedding.embed(r.text());
+            index.upsert(e.getKey().namespace(), e.getKey().id(), r.text(), vector);
+        }
+
+        // 每次启动都从新段开始写，旧段只读，半截的尾部不会被续写
+        long nextId = segments.isEmpty() ? 1 : segments.get(segments.size() - 1).id + 1;
+        active = createSegment(nextId, 0);
+        log.info("向量库已加载 dir={}, segments={}, docs={}, cost={}ms",
+                dir.toAbsolutePath(), segments.size() - 1, latest.size(), System.currentTimeMillis() - start);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (active != null) {
+            active.closeWriter();
+        }
+    }
+
+    @Override
+    public void upsert(String namespace, String id, String text) {
+        String value = text == null ? "" : text;
+        if (value.equals(index.get(namespace, id))) {
+            return;
+        }
+        float[] vector = embedding.embed(value);
+        byte[] record = encode(OP_UPSERT, namespace, id, value, vector);
+        synchronized (this) {
+            // 先落盘再更新索引：写盘失败时内存里也不会出现该文档
+            append(new Key(namespace, id), record);
+            index.upsert(namespace, id, value, vector);
+        }
+    }
+
+    @Override
+    public String[] search(String namespace, String query, int topK) {
+        return index.search(namespace, query, topK);
+    }
+
+    @Override
+    public void delete(String namespace, String id) {
+        Key key = new Key(namespace, id);
+        synchronized (this) {
+            if (!locations.containsKey(key)) {
+                return;
+            }
+            appendDelete(key);
+            index.delete(namespace, id);
+        }
+    }
+
+    @Override
+    public void clear(String namespace) {
+        synchronized (this) {
+            boolean any = false;
+            for (Key key : locations.keySet()) {
+                if (key.namespace().equals(namespace)) {
+                    any = true;
+                    break;
+                }
+            }
+            if (!any) {
+                return;
+            }
+            writeRecord(encode(OP_CLEAR, namespace, "", "", new float[0]));
+            removeNamespace(namespace, null);
+            index.clear(namespace);
+        }
+    }
+
+    @Override
+    public Set<String> ids(String namespace) {
+        return index.ids(namespace);
+    }
+
+    /**
+     * 已封存段中的失效记录超过阈值时压缩；与写入并发进行，只在开头和结尾短暂持锁
+     */
+    @Scheduled(fixedDelayString = "${vector-store.segment.compaction-interval-ms:300000}",
+            initialDelayString = "${vector-store.segment.compaction-interval-ms:300000}")
+    public void compact() {
+        List<Segment> victims;
+        synchronized (this) {
+            retryPendingDeletes();
+            // 当前写入段也有足够多的失效记录时先滚动，让它参与本轮压缩
+            if (active.records > 0 && active.garbage() >= garbageRatio) {
+                roll();
+            }
+            victims = new ArrayList<>(segments.subList(0, segments.size() - 1));
+            long records = 0;
+            long live = 0;
+            for (Segment s : victims) {
+                records += s.records;
+                live += s.live;
+            }
+            if (victims.isEmpty() || records == 0 || (records - live) < records * garbageRatio) {
+                return;
+            }
+        }
+
+        Segment last = victims.get(victims.size() - 1);
+        Path target = dir.resolve(Segment.fileName(last.id, last.gen + 1));
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        List<Moved> moved = new ArrayList<>();
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            long offset = 0;
+            for (Segment seg : victims) {
+                MappedByteBuffer buf = seg.map();
+                int pos = 0;
+                while (true) {
+                    int len = recordLength(buf, pos);
+                    if (len < 0) {
+                        break;
+                    }
+                    Key key = decodeKey(buf, pos);
+                    boolean isLive;
+                    synchronized (this) {
+                        Location loc = locations.get(key);
+                        isLive = loc != null && loc.segment() == seg && loc.offset() == pos;
+                    }
+                    if (isLive) {
+                        ByteBuffer slice = buf.duplicate().position(pos).limit(pos + len);
+                        while (slice.hasRemaining()) {
+                            out.write(slice);
+                        }
+                        moved.add(new Moved(key, seg, pos, offset));
+                        offset += len;
+                    }
+                    pos += len;
+                }
+            }
+            out.force(true);
+        } catch (IOException e) {
+            log.warn("向量库压缩失败，保留原分段", e);
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
+            return;
+        }
+
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("向量库压缩结果改名失败，保留原分段", e);
+            return;
+        }
+
+        Segment compacted = new Segment(last.id, last.gen + 1, target);
+        synchronized (this) {
+            compacted.records = moved.size();
+            for (Moved mv : moved) {
+                // 压缩期间被覆盖的文档保持指向新位置
+                Location loc = locations.get(mv.key());
+                if (loc != null && loc.segment() == mv.from() && loc.offset() == mv.fromOffset()) {
+                    locations.put(mv.key(), new Location(compacted, mv.toOffset()));
+                    compacted.live++;
+                }
+            }
+            segments.removeAll(victims);
+            segments.add(compacted);
+            segments.sort(Comparator.naturalOrder());
+        }
+        for (Segment seg : victims) {
+            try {
+                Files.deleteIfExists(seg.path);
+            } catch (IOException e) {
+                // 仍被映射时部分系统（Windows）删不掉；留着也只是回放时被跳过，下轮压缩开始时再删
+                log.debug("旧分段暂时无法删除 {}", seg.path, e);
+                synchronized (this) {
+                    pendingDeletes.add(seg.path);
+                }
+            }
+        }
+        log.info("向量库压缩完成：{} 个分段 -> {}，有效记录 {}", victims.size(), target.getFileName(), compacted.live);
+    }
+
+    // ===================== 内部实现 =====================
+
+    private void append(Key key, byte[] record) {
+        if (active.size + record.length > maxSegmentBytes && active.size > 0) {
+            roll();
+        }
+        long offset = active.write(record);
+        Location old = locations.put(key, new Location(active, offset));
+        if (old != null) {
+            old.segment().live--;
+        }
+        active.records++;
+        active.live++;
+    }
+
+    private void appendDelete(Key key) {
+        writeRecord(encode(OP_DELETE, key.namespace(), key.id(), "", new float[0]));
+        Location old = locations.remove(key);
+        if (old != null) {
+            old.segment().live--;
+        }
+    }
+
+    /** 追加一条不算有效记录的墓碑/清空记录 */
+    private void writeRecord(byte[] record) {
+        if (active.size + record.length > maxSegmentBytes && active.size > 0) {
+            roll();
+        }
+        active.write(record);
+        active.records++;
+    }
+
+    /**
+     * 该命名空间的全部文档失效；回放时 latest 一并移除
+     */
+    private void removeNamespace(String namespace, Map<Key, Record> latest) {
+        Iterator<Map.Entry<Key, Location>> it = locations.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Location> e = it.next();
+            if (e.getKey().namespace().equals(namespace)) {
+                e.getValue().segment().live--;
+                it.remove();
+            }
+        }
+        if (latest != null) {
+            latest.keySet().removeIf(key -> key.namespace().equals(namespace));
+        }
+    }
+
+    private void retryPendingDeletes() {
+        Iterator<Path> it = pendingDeletes.iterator();
+        while (it.hasNext()) {
+            Path p = it.next();
+            try {
+                Files.deleteIfExists(p);
+                it.remove();
+            } catch (IOException e) {
+                log.debug("旧分段仍无法删除 {}", p, e);
+            }
+        }
+    }
+
+    /**
+     * 启动时跳过并删除上次压缩后没能删掉的旧段（排在最新压缩段之前的全部分段）
+     */
+    private void dropCompactedVictims() {
+        int lastCompacted = -1;
+        for (int i = 0; i < segments.size(); i++) {
+            if (segments.get(i).gen > 0) {
+                lastCompacted = i;
+            }
+        }
+        for (int i = 0; i < lastCompacted; i++) {
+            Segment stale = segments.get(i);
+            try {
+                Files.deleteIfExists(stale.path);
+            } catch (IOException e) {
+                log.warn("无法删除已压缩的旧分段 {}", stale.path, e);
+            }
+        }
+        if (lastCompacted > 0) {
+            segments.subList(0, lastCompacted).clear();
+        }
+    }
+
+    private void roll() {
+        active.closeWriter();
+        active = createSegment(active.id + 1, 0);
+    }
+
+    private Segment createSegment(long id, int gen) {
+        Segment seg = new Segment(id, gen, dir.resolve(Segment.fileName(id, gen)));
+        seg.openWriter();
+        segments.add(seg);
+        return seg;
+    }
+
+    private void replay(Segment seg, Map<Key, Record> latest) throws IOException {
+        if (Files.size(seg.path) == 0) {
+            return;
+        }
+        MappedByteBuffer buf = seg.map();
+        int pos = 0;
+        while (true) {
+            int len = recordLength(buf, pos);
+            if (len < 0) {
+                if (pos < buf.limit()) {
+                    log.warn("分段 {} 在偏移 {} 处记录不完整或校验失败，忽略其后内容", seg.path.getFileName(), pos);
+                }
+                break;
+            }
+            ByteBuffer r = buf.duplicate().position(pos + HEADER_BYTES).limit(pos + len);
+            byte op = r.get();
+            Key key = new Key(readString(r), readString(r));
+            String text = readString(r);
+            float[] vector = new float[r.getShort()];
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = r.getFloat();
+            }
+            Location old = null;
+            if (op == OP_UPSERT) {
+                latest.remove(key);
+                latest.put(key, new Record(text, vector));
+                old = locations.put(key, new Location(seg, pos));
+                seg.live++;
+            } else if (op == OP_CLEAR) {
+                removeNamespace(key.namespace(), latest);
+            } else {
+                latest.remove(key);
+                old = locations.remove(key);
+            }
+            if (old != null) {
+                old.segment().live--;
+            }
+            seg.records++;
+            pos += len;
+        }
+        seg.size = pos;
+    }
+
+    /**
+     * pos 处完整且校验通过的记录总长度（含记录头），否则 -1
+     */
+    private static int recordLength(ByteBuffer buf, int pos) {
+        if (pos + HEADER_BYTES > buf.limit()) {
+            return -1;
+        }
+        int payload = buf.getInt(pos);
+        if (payload <= 0 || pos + HEADER_BYTES + (long) payload > buf.limit()) {
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buf.duplicate().position(pos + HEADER_BYTES).limit(pos + HEADER_BYTES + payload));
+        if ((int) crc.getValue() != buf.getInt(pos + 4)) {
+            return -1;
+        }
+        return HEADER_BYTES + payload;
+    }
+
+    private static Key decodeKey(ByteBuffer buf, int pos) {
+        ByteBuffer r = buf.duplicate().position(pos + HEADER_BYTES + 1);
+        return new Key(readString(r), readString(r));
+    }
+
+    private static byte[] encode(byte op, String namespace, String id, String text, float[] vector) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + text.length() * 3 + vector.length * 4);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeByte(op);
+            writeString(out, namespace);
+            writeString(out, id);
+            writeString(out, text);
+            out.writeShort(vector.length);
+            for (float v : vector) {
+                out.writeFloat(v);
+            }
+            byte[] record = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(record, HEADER_BYTES, record.length - HEADER_BYTES);
+            ByteBuffer.wrap(record).putInt(record.length - HEADER_BYTES).putInt((int) crc.getValue());
+            return record;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(ByteBuffer r) {
+        byte[] b = new byte[r.getInt()];
+        r.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private record Key(String namespace, String id) {
+    }
+
+    private record Location(Segment segment, long offset) {
+    }
+
+    private record Record(String text, float[] vector) {
+    }
+
+    private record Moved(Key key, Segment from, long fromOffset, long toOffset) {
+    }
+
+    /**
+     * 一个分段文件；records/live 用于计算失效比例，均在外部锁内修改
+     */
+    private static final class Segment implements Comparable<Segment> {
+        final long id;
+        final int gen;
+        final Path path;
+        long size;
+        int records;
+        int live;
+        private FileChannel writer;
+        private MappedByteBuffer mapped;
+
+        Segment(long id, int gen, Path path) {
+            this.id = id;
+            this.gen = gen;
+            this.path = path;
+        }
+
+        static String fileName(long id, int gen) {
+            return String.format("seg-%012d-%04d.log", id, gen);
+        }
+
+        double garbage() {
+            return records == 0 ? 0 : (double) (records - live) / records;
+        }
+
+        void openWriter() {
+            try {
+                writer = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+                size = writer.size();
+            } catch (IOException e) {
+                throw new UncheckedIOException("无法创建向量库分段 " + path, e);
+            }
+        }
+
+        long write(byte[] record) {
+            try {
+                long offset = size;
+                ByteBuffer buf = ByteBuffer.wrap(record);
+                while (buf.hasRemaining()) {
+                    writer.write(buf);
+                }
+                size += record.length;
+                return offset;
+            } catch (IOException e) {
+                throw new UncheckedIOException("向量库写入失败 " + path, e);
+            }
+        }
+
+        void closeWriter() {
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.force(true);
+                writer.close();
+            } catch (IOException e) {
+                log.warn("关闭向量库分段失败 {}", path, e);
+            }
+            writer = null;
+        }
+
+        /** 只读映射整个文件（已封存段的内容不再变化，映射可复用） */
+        MappedByteBuffer map() throws IOException {
+            if (mapped == null || mapped.limit() != size) {
+                try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+                    mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                }
+            }
+            return mapped;
+        }
+
+        @Override
+        public int compareTo(Segment o) {
+            int c = Long.compare(id, o.id);
+            return c != 0 ? c : Integer.compare(gen, o.gen);
+        }
+    }
+}
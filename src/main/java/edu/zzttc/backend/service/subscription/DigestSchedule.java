@@ -0,0 +1,70 @@
+package edu.zzttc.backend.service.subscription;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * 每日摘要发送时刻的计算：订阅者时区内每天 dailyTime 发送一次，换算为 UTC 时刻存入 next_fire_at。
+ * 每次都由“本地日期 + dailyTime”重新换算，而不是在上一次的时刻上加 24 小时，夏令时切换前后仍按当地时间发送：
+ * 当地时间落在跳过的时段（如 02:30 不存在）时顺延到跳过之后，落在重复的时段时取较早的一次，每天只发一次。
+ */
+public final class DigestSchedule {
+
+    public static final String DEFAULT_ZONE = "Asia/Shanghai";
+    public static final LocalTime DEFAULT_TIME = LocalTime.of(7, 0);
+
+    private DigestSchedule() {
+    }
+
+    /**
+     * 严格晚于 now 的下一次发送时刻
+     * @param lastSentDate 最近一次发送对应的当地日期，这一天及之前不再发送
+     */
+    public static long nextFireAt(String timezone, String dailyTime, LocalDate lastSentDate, Instant now) {
+        ZoneId zone = zoneOf(timezone);
+        LocalTime time = dailyTimeOf(dailyTime);
+        LocalDate date = now.atZone(zone).toLocalDate();
+        if (lastSentDate != null && !date.isAfter(lastSentDate)) {
+            date = lastSentDate.plusDays(1);
+        }
+        ZonedDateTime fire = ZonedDateTime.of(date, time, zone);
+        while (!fire.toInstant().isAfter(now)) {
+            date = date.plusDays(1);
+            fire = ZonedDateTime.of(date, time, zone);
+        }
+        return fire.toInstant().toEpochMilli();
+    }
+
+    /** 某次发送时刻对应的当地日期，即摘要所属的那一天 */
+    public static LocalDate localDateOf(long fireAt, String timezone) {
+        return Instant.ofEpochMilli(fireAt).atZone(zoneOf(timezone)).toLocalDate();
+    }
+
+    /** 为空或无法识别时按 Asia/Shanghai */
+    public static ZoneId zoneOf(String timezone) {
+        if (timezone == null || timezone.isBlank()) {
+            return ZoneId.of(DEFAULT_ZONE);
+        }
+        try {
+            return ZoneId.of(timezone);
+        } catch (DateTimeException e) {
+            return ZoneId.of(DEFAULT_ZONE);
+        }
+    }
+
+    /** 允许 "HH:mm" 或 "HH:mm:ss"，只取到分钟；为空或无法识别时按 07:00 */
+    public static LocalTime dailyTimeOf(String dailyTime) {
+        if (dailyTime == null || dailyTime.length() < 5) {
+            return DEFAULT_TIME;
+        }
+        try {
+            return LocalTime.parse(dailyTime.substring(0, 5));
+        } catch (DateTimeException e) {
+            return DEFAULT_TIME;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package edu.zzttc.backend.service.subscription;
 
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import edu.zzttc.backend.domain.entity.Account;
 import edu.zzttc.backend.domain.entity.SubscriptionPreference;
@@ -10,15 +11,20 @@ import edu.zzttc.backend.service.schedule.ScheduleQueryService;
 import edu.zzttc.backend.service.plan.PlanService;
 import edu.zzttc.backend.domain.entity.Plan;
 import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Service
 public class NotificationPlanner {
     @Resource
@@ -32,33 +38,114 @@ public class NotificationPlanner {
     @Resource
     private PlanService planService;
 
+    /** 每轮查询的行数 */
+    @Value("${schedule.subscription.digest.batch-size:500}")
+    private int batchSize;
+
+    /** 超过发送时刻这么久才轮到（如服务停机）的摘要不再补发，直接排到下一天 */
+    @Value("${schedule.subscription.digest.grace-minutes:30}")
+    private long graceMinutes;
+
+    /**
+     * 每分钟只取 next_fire_at 已到的订阅（走 (subscribed, next_fire_at) 索引），发送后按当地时间排到下一天。
+     * 先以 next_fire_at 为条件改写下次时刻作为认领，改写成功的实例才发送，多实例部署时同一摘要只发一次。
+     * 一批里没有任何一行认领成功（例如认领前就出错）时，下一轮查询还是同一批，本分钟不再继续
+     */
     @Scheduled(cron = "0 * * * * *")
     public void planDailyDigest() {
-        List<SubscriptionPreference> prefs = prefMapper.selectList(Wrappers.<SubscriptionPreference>lambdaQuery().eq(SubscriptionPreference::getSubscribed, true));
-        for (SubscriptionPreference p : prefs) {
-            if (!shouldSendNow(p)) continue;
-            Account acc = accountService.getById(p.getUserId());
-            if (acc == null || acc.getEmail() == null) continue;
-            java.time.ZoneId zoneId = java.time.ZoneId.of(safeZone(p.getTimezone()));
-            LocalDate todayLocal = LocalDate.now(zoneId);
-            List<DailyCourseVO> courses = scheduleQueryService.queryByDate(p.getUserId(), todayLocal);
-            java.time.LocalDateTime start = java.time.LocalDateTime.of(todayLocal, java.time.LocalTime.MIN);
-            java.time.LocalDateTime end = java.time.LocalDateTime.of(todayLocal, java.time.LocalTime.MAX);
-            java.util.List<Plan> plans = planService.listByRange(p.getUserId(), start, end);
-            Map<String, Object> data = new HashMap<>();
-            data.put("type", "digest");
-            data.put("email", acc.getEmail());
-            // 纯文本内容（回退，课程+计划）
-            data.put("content", buildDigestAll(todayLocal, courses, plans));
-            // HTML 模板渲染所需数据
-            data.put("useHtml", true);
-            data.put("date", String.valueOf(todayLocal));
-            data.put("itemsHtml", buildDigestHtml(courses));
-            data.put("plansHtml", buildPlansHtml(plans));
-            amqpTemplate.convertAndSend("email", data);
-            // 更新去重标记
-            p.setLastSentDate(todayLocal);
-            prefMapper.updateById(p);
+        long now = System.currentTimeMillis();
+        backfillNextFireAt(now);
+        while (true) {
+            List<SubscriptionPreference> due = prefMapper.selectList(Wrappers.<SubscriptionPreference>lambdaQuery()
+                    .eq(SubscriptionPreference::getSubscribed, true)
+                    .le(SubscriptionPreference::getNextFireAt, now)
+                    .orderByAsc(SubscriptionPreference::getNextFireAt)
+                    .last("LIMIT " + batchSize));
+            int claimed = 0;
+            for (SubscriptionPreference p : due) {
+                try {
+                    if (fire(p, now)) {
+                        claimed++;
+                    }
+                } catch (Exception e) {
+                    log.error("认领每日摘要失败 userId={}", p.getUserId(), e);
+                }
+            }
+            if (due.size() < batchSize || claimed == 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return 是否由本实例认领（认领后发送失败也算，已排到下一天）
+     */
+    private boolean fire(SubscriptionPreference p, long now) {
+        LocalDate todayLocal = DigestSchedule.localDateOf(p.getNextFireAt(), p.getTimezone());
+        long next = DigestSchedule.nextFireAt(p.getTimezone(), p.getDailyTime(), todayLocal, Instant.ofEpochMilli(now));
+        boolean late = now - p.getNextFireAt() > TimeUnit.MINUTES.toMillis(graceMinutes);
+        LambdaUpdateWrapper<SubscriptionPreference> claim = Wrappers.<SubscriptionPreference>lambdaUpdate()
+                .set(SubscriptionPreference::getNextFireAt, next)
+                .eq(SubscriptionPreference::getId, p.getId())
+                .eq(SubscriptionPreference::getNextFireAt, p.getNextFireAt());
+        if (!late) {
+            // 去重标记：这一天已发
+            claim.set(SubscriptionPreference::getLastSentDate, todayLocal);
+        }
+        if (prefMapper.update(null, claim) == 0) {
+            // 已被其他实例认领，或期间修改了订阅
+            return false;
+        }
+        if (late) {
+            log.info("每日摘要已错过发送时间，顺延到下一天 userId={} fireAt={}", p.getUserId(), p.getNextFireAt());
+            return true;
+        }
+        try {
+            send(p.getUserId(), todayLocal);
+        } catch (Exception e) {
+            log.error("发送每日摘要失败 userId={}", p.getUserId(), e);
+        }
+        return true;
+    }
+
+    private void send(Integer userId, LocalDate todayLocal) {
+        Account acc = accountService.getById(userId);
+        if (acc == null || acc.getEmail() == null) return;
+        List<DailyCourseVO> courses = scheduleQueryService.queryByDate(userId, todayLocal);
+        java.time.LocalDateTime start = java.time.LocalDateTime.of(todayLocal, java.time.LocalTime.MIN);
+        java.time.LocalDateTime end = java.time.LocalDateTime.of(todayLocal, java.time.LocalTime.MAX);
+        java.util.List<Plan> plans = planService.listByRange(userId, start, end);
+        Map<String, Object> data = new HashMap<>();
+        data.put("type", "digest");
+        data.put("email", acc.getEmail());
+        // 纯文本内容（回退，课程+计划）
+        data.put("content", buildDigestAll(todayLocal, courses, plans));
+        // HTML 模板渲染所需数据
+        data.put("useHtml", true);
+        data.put("date", String.valueOf(todayLocal));
+        data.put("itemsHtml", buildDigestHtml(courses));
+        data.put("plansHtml", buildPlansHtml(plans));
+        amqpTemplate.convertAndSend("email", data);
+    }
+
+    /**
+     * 存量订阅（加列之前创建的）还没有 next_fire_at，每轮分批补算；补完后这里只是一次走索引的空查询
+     */
+    private void backfillNextFireAt(long now) {
+        List<SubscriptionPreference> missing = prefMapper.selectList(Wrappers.<SubscriptionPreference>lambdaQuery()
+                .eq(SubscriptionPreference::getSubscribed, true)
+                .isNull(SubscriptionPreference::getNextFireAt)
+                .last("LIMIT " + batchSize));
+        for (SubscriptionPreference p : missing) {
+            long next = DigestSchedule.nextFireAt(p.getTimezone(), p.getDailyTime(), p.getLastSentDate(),
+                    Instant.ofEpochMilli(now));
+            prefMapper.update(null, Wrappers.<SubscriptionPreference>lambdaUpdate()
+                    .set(SubscriptionPreference::getNextFireAt, next)
+                    .eq(SubscriptionPreference::getId, p.getId())
+                    .isNull(SubscriptionPreference::getNextFireAt));
+        }
+        if (!missing.isEmpty()) {
+            log.info("已为 {} 个订阅补算每日摘要发送时刻", missing.size());
         }
     }
 
@@ -88,7 +175,7 @@ public class NotificationPlanner {
     /**
      * 构建摘要的 HTML 表格片段
      */
-    private String buildDigestHtml(List<DailyCourseVO> courses) {
+    String buildDigestHtml(List<DailyCourseVO> courses) {
         if (courses == null || courses.isEmpty()) {
             return "<p>今日无课程。</p>";
         }
@@ -115,7 +202,7 @@ public class NotificationPlanner {
     /**
      * 计划 HTML 片段
      */
-    private String buildPlansHtml(List<Plan> plans) {
+    String buildPlansHtml(List<Plan> plans) {
         if (plans == null || plans.isEmpty()) return "<p>今日无计划。</p>";
         StringBuilder sb = new StringBuilder();
         sb.append("<table>");
@@ -143,7 +230,7 @@ public class NotificationPlanner {
     /**
      * 课程+计划的纯文本摘要
      */
-    private String buildDigestAll(LocalDate date, List<DailyCourseVO> courses, List<Plan> plans) {
+    String buildDigestAll(LocalDate date, List<DailyCourseVO> courses, List<Plan> plans) {
         StringBuilder sb = new StringBuilder();
         sb.append("日期：").append(date).append("\n");
         sb.append("【课程】\n").append(buildDigest(date, courses)).append("\n");
@@ -164,34 +251,4 @@ public class NotificationPlanner {
         }
         return sb.toString();
     }
-
-    private boolean shouldSendNow(SubscriptionPreference p) {
-        String tz = safeZone(p.getTimezone());
-        java.time.ZoneId zone = java.time.ZoneId.of(tz);
-        java.time.LocalDateTime now = java.time.LocalDateTime.now(zone);
-        java.time.LocalDate today = now.toLocalDate();
-        // 去重：当天已发则忽略
-        if (p.getLastSentDate() != null && today.equals(p.getLastSentDate())) return false;
-        // 时间匹配：HH:mm 等于 dailyTime
-        String hhmm = String.format("%02d:%02d", now.getHour(), now.getMinute());
-        String wanted = safeDaily(p.getDailyTime());
-        return hhmm.equals(wanted);
-    }
-
-    private String safeZone(String z) {
-        try {
-            if (z == null || z.isBlank()) return "Asia/Shanghai";
-            java.time.ZoneId.of(z); // 校验
-            return z;
-        } catch (Exception e) {
-            return "Asia/Shanghai";
-        }
-    }
-
-    private String safeDaily(String t) {
-        if (t == null || t.isBlank()) return "07:00";
-        // 允许 "HH:mm" 或 "HH:mm:ss"，统一到 HH:mm
-        if (t.length() >= 5) return t.substring(0,5);
-        return "07:00";
-    }
 }
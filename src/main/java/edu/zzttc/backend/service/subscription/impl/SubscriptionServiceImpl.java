@@ -3,10 +3,13 @@ package edu.zzttc.backend.service.subscription.impl;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import edu.zzttc.backend.domain.entity.SubscriptionPreference;
 import edu.zzttc.backend.mapper.SubscriptionPreferenceMapper;
+import edu.zzttc.backend.service.subscription.DigestSchedule;
 import edu.zzttc.backend.service.subscription.SubscriptionService;
 import jakarta.annotation.Resource;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+
 @Service
 public class SubscriptionServiceImpl implements SubscriptionService {
     @Resource
@@ -20,9 +23,12 @@ public class SubscriptionServiceImpl implements SubscriptionService {
     @Override
     public void subscribe(Integer userId, SubscriptionPreference pref) {
         SubscriptionPreference old = get(userId);
+        // 时区或发送时间可能变了，重新计算下次发送时刻；当天已发过的不会再发
         if (old == null) {
             pref.setUserId(userId);
             pref.setSubscribed(Boolean.TRUE);
+            pref.setNextFireAt(DigestSchedule.nextFireAt(pref.getTimezone(), pref.getDailyTime(),
+                    pref.getLastSentDate(), Instant.now()));
             mapper.insert(pref);
         } else {
             old.setSubscribed(Boolean.TRUE);
@@ -30,6 +36,8 @@ public class SubscriptionServiceImpl implements SubscriptionService {
             old.setDailyTime(pref.getDailyTime());
             old.setChannels(pref.getChannels());
             old.setAdvanceMinutes(pref.getAdvanceMinutes());
+            old.setNextFireAt(DigestSchedule.nextFireAt(old.getTimezone(), old.getDailyTime(),
+                    old.getLastSentDate(), Instant.now()));
             mapper.updateById(old);
         }
     }
@@ -38,8 +46,11 @@ public class SubscriptionServiceImpl implements SubscriptionService {
     public void unsubscribe(Integer userId) {
         SubscriptionPreference old = get(userId);
         if (old != null) {
-            old.setSubscribed(Boolean.FALSE);
-            mapper.updateById(old);
+            // updateById 会跳过 null 字段，next_fire_at 需显式置空
+            mapper.update(null, Wrappers.<SubscriptionPreference>lambdaUpdate()
+                    .set(SubscriptionPreference::getSubscribed, Boolean.FALSE)
+                    .set(SubscriptionPreference::getNextFireAt, null)
+                    .eq(SubscriptionPreference::getId, old.getId()));
         }
     }
 }
@@ -13,4 +13,9 @@ public class Const {
     public static final String FLOW_LIMIT_COUNTER = "flow:counter:";
     public static final String FLOW_LIMIT_BLOCK = "flow:block:";
 
+    public static final String SCHEDULE_IMPORT_JOB = "schedule:import:job:";
+    public static final String SCHEDULE_IMPORT_IMAGE = "schedule:import:image:";
+    public static final String SCHEDULE_PARSED = "schedule:parsed:";
+    public static final String SCHEDULE_CHANGED_CHANNEL = "schedule:changed";
+
 }
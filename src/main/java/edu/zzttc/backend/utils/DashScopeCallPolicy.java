@@ -0,0 +1,386 @@
+package edu.zzttc.backend.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DashScope 调用的统一策略：429/5xx 与网络异常按带抖动的指数退避重试，连续失败达到阈值后熔断一段时间，
+ * 并按调用类别记录耗时、请求与响应字节数。三条调用路径共用同一个熔断器：
+ * 课表识别的 RestTemplate 调用由 {@link #execute} 包裹（请求体是流式写出的，不能走会缓冲请求体的拦截器）；
+ * Spring AI 的同步调用走 {@link #interceptor}，流式调用走 {@link #filter}，只作用于 DashScope 的主机。
+ * 耗时对同步调用是整次调用，对流式调用是收到响应头为止；流式响应的字节数在流结束时记录。
+ */
+@Slf4j
+@Component
+public class DashScopeCallPolicy {
+
+    private final String host;
+    private final int maxAttempts;
+    private final Duration backoffInitial;
+    private final Duration backoffMax;
+    private final CircuitBreaker breaker;
+    private final MeterRegistry meterRegistry;
+
+    public DashScopeCallPolicy(
+            @Value("${spring.ai.dashscope.base-url:https://dashscope.aliyuncs.com/compatible-mode/v1}") String baseUrl,
+            @Value("${schedule.ai.http.max-attempts:3}") int maxAttempts,
+            @Value("${schedule.ai.http.backoff-initial-ms:500}") long backoffInitialMs,
+            @Value("${schedule.ai.http.backoff-max-ms:8000}") long backoffMaxMs,
+            @Value("${schedule.ai.http.circuit.failure-threshold:5}") int failureThreshold,
+            @Value("${schedule.ai.http.circuit.open-seconds:30}") long openSeconds,
+            MeterRegistry meterRegistry) {
+        this.host = URI.create(baseUrl).getHost();
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffInitial = Duration.ofMillis(Math.max(1, backoffInitialMs));
+        this.backoffMax = Duration.ofMillis(Math.max(backoffInitialMs, backoffMaxMs));
+        this.breaker = new CircuitBreaker(Math.max(1, failureThreshold), TimeUnit.SECONDS.toNanos(openSeconds));
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("schedule.ai.http.circuit.state", breaker, b -> b.state().ordinal())
+                .description("DashScope 熔断器状态：0=关闭，1=半开，2=打开")
+                .register(meterRegistry);
+    }
+
+    /** 一次调用尝试；重试时会被再次执行，因此请求体必须可重放 */
+    @FunctionalInterface
+    public interface Attempt<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * 阻塞调用 RestTemplate：非 2xx 由默认错误处理器抛出 {@link RestClientResponseException}，据其状态码决定是否重试
+     *
+     * @param endpoint     指标里的调用类别
+     * @param requestBytes 请求体字节数
+     */
+    public ResponseEntity<String> execute(String endpoint, long requestBytes,
+            Attempt<ResponseEntity<String>> attempt) throws IOException {
+        return run(endpoint, requestBytes, attempt, new Inspector<>() {
+            @Override
+            public int status(ResponseEntity<String> r) {
+                return r == null ? 200 : r.getStatusCode().value();
+            }
+
+            @Override
+            public long responseBytes(ResponseEntity<String> r) {
+                return r == null || r.getBody() == null ? 0 : r.getBody().getBytes(StandardCharsets.UTF_8).length;
+            }
+
+            @Override
+            public void discard(ResponseEntity<String> r) {
+            }
+        });
+    }
+
+    /**
+     * 供 RestClient 使用的拦截器；最后一次尝试的错误响应原样返回，由调用方的错误处理器处理
+     */
+    public ClientHttpRequestInterceptor interceptor(String endpoint) {
+        return (request, body, execution) -> {
+            if (!matches(request)) {
+                return execution.execute(request, body);
+            }
+            return run(endpoint, body.length, () -> execution.execute(request, body), new Inspector<>() {
+                @Override
+                public int status(ClientHttpResponse r) throws IOException {
+                    return r.getStatusCode().value();
+                }
+
+                @Override
+                public long responseBytes(ClientHttpResponse r) {
+                    return Math.max(0, r.getHeaders().getContentLength());
+                }
+
+                @Override
+                public void discard(ClientHttpResponse r) {
+                    r.close();
+                }
+            });
+        };
+    }
+
+    /**
+     * 供 WebClient 使用的过滤器：只在收到响应头之前重试，已开始输出的流不会被重放
+     */
+    public ExchangeFilterFunction filter(String endpoint) {
+        return (request, next) -> {
+            if (!host.equalsIgnoreCase(request.url().getHost())) {
+                return next.exchange(request);
+            }
+            Mono<ClientResponse> once = Mono.defer(() -> {
+                if (!breaker.tryAcquire()) {
+                    return Mono.error(rejected(endpoint));
+                }
+                long start = System.nanoTime();
+                return next.exchange(request)
+                        .onErrorResume(e -> {
+                            breaker.onFailure();
+                            record(endpoint, "io_error", start, -1);
+                            return Mono.error(e);
+                        })
+                        .flatMap(resp -> {
+                            int status = resp.statusCode().value();
+                            if (retryable(status)) {
+                                breaker.onFailure();
+                                record(endpoint, outcome(status), start, -1);
+                                return resp.createException().flatMap(Mono::error);
+                            }
+                            breaker.onSuccess();
+                            record(endpoint, outcome(status), start, -1);
+                            AtomicLong bytes = new AtomicLong();
+                            return Mono.just(resp.mutate()
+                                    .body(body -> body
+                                            .doOnNext(buf -> bytes.addAndGet(buf.readableByteCount()))
+                                            .doFinally(signal -> responseSize(endpoint).record(bytes.get())))
+                                    .build());
+                        })
+                        // 订阅方在响应前取消时归还半开状态下的试探名额
+                        .doOnCancel(breaker::release);
+            });
+            return once.retryWhen(Retry.backoff(maxAttempts - 1, backoffInitial)
+                    .maxBackoff(backoffMax)
+                    .jitter(0.5)
+                    .filter(DashScopeCallPolicy::retryable)
+                    .doBeforeRetry(signal -> retries(endpoint).increment())
+                    .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+        };
+    }
+
+    private <T> T run(String endpoint, long requestBytes, Attempt<T> attempt, Inspector<T> inspector)
+            throws IOException {
+        requestSize(endpoint).record(requestBytes);
+        for (int n = 1; ; n++) {
+            if (!breaker.tryAcquire()) {
+                throw rejected(endpoint);
+            }
+            long start = System.nanoTime();
+            T result = null;
+            RuntimeException runtimeFailure = null;
+            IOException ioFailure = null;
+            int status;
+            try {
+                result = attempt.run();
+                status = inspector.status(result);
+            } catch (RestClientResponseException e) {
+                runtimeFailure = e;
+                status = e.getStatusCode().value();
+            } catch (ResourceAccessException e) {
+                runtimeFailure = e;
+                status = -1;
+            } catch (IOException e) {
+                ioFailure = e;
+                status = -1;
+            } catch (RuntimeException e) {
+                // 其他异常（如应答解析失败）不是服务端故障，不计入熔断，也不重试
+                breaker.release();
+                throw e;
+            }
+
+            boolean retry = status < 0 || retryable(status);
+            if (retry) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+            record(endpoint, status < 0 ? "io_error" : outcome(status), start,
+                    result == null ? -1 : inspector.responseBytes(result));
+
+            if (!retry || n >= maxAttempts) {
+                if (ioFailure != null) {
+                    throw ioFailure;
+                }
+                if (runtimeFailure != null) {
+                    throw runtimeFailure;
+                }
+                return result;
+            }
+            if (result != null) {
+                inspector.discard(result);
+            }
+            retries(endpoint).increment();
+            long sleepMillis = backoffMillis(n);
+            log.warn("DashScope 调用失败（{}，状态 {}），{} ms 后第 {} 次重试", endpoint, status, sleepMillis, n);
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待重试时被中断");
+            }
+        }
+    }
+
+    /** 全抖动：在 [0, min(上限, 初始值 * 2^(n-1))] 内均匀取值，避免大量请求同时重试 */
+    private long backoffMillis(int attempt) {
+        long cap = backoffInitial.toMillis() << Math.min(attempt - 1, 20);
+        cap = Math.min(backoffMax.toMillis(), cap);
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private boolean matches(HttpRequest request) {
+        return host.equalsIgnoreCase(request.getURI().getHost());
+    }
+
+    private static boolean retryable(int status) {
+        return status == 429 || status >= 500;
+    }
+
+    private static boolean retryable(Throwable e) {
+        if (e instanceof WebClientResponseException re) {
+            return retryable(re.getStatusCode().value());
+        }
+        return e instanceof WebClientRequestException;
+    }
+
+    private static String outcome(int status) {
+        HttpStatusCode code = HttpStatusCode.valueOf(status);
+        if (status == 429) {
+            return "throttled";
+        }
+        if (code.is5xxServerError()) {
+            return "server_error";
+        }
+        if (code.is4xxClientError()) {
+            return "client_error";
+        }
+        return "success";
+    }
+
+    private ResourceAccessException rejected(String endpoint) {
+        meterRegistry.counter("schedule.ai.http.rejected", "endpoint", endpoint).increment();
+        return new ResourceAccessException("DashScope 连续调用失败，已暂停请求，约 "
+                + Math.max(1, TimeUnit.NANOSECONDS.toSeconds(breaker.remainingOpenNanos() + 999_999_999L))
+                + " 秒后恢复");
+    }
+
+    private void record(String endpoint, String outcome, long startNanos, long responseBytes) {
+        Timer.builder("schedule.ai.http.latency")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .description("DashScope 单次调用耗时（流式调用为收到响应头的耗时）")
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (responseBytes >= 0) {
+            responseSize(endpoint).record(responseBytes);
+        }
+    }
+
+    private DistributionSummary requestSize(String endpoint) {
+        return DistributionSummary.builder("schedule.ai.http.request.bytes")
+                .tag("endpoint", endpoint)
+                .baseUnit("bytes")
+                .description("DashScope 请求体字节数")
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary responseSize(String endpoint) {
+        return DistributionSummary.builder("schedule.ai.http.response.bytes")
+                .tag("endpoint", endpoint)
+                .baseUnit("bytes")
+                .description("DashScope 响应体字节数")
+                .register(meterRegistry);
+    }
+
+    private Counter retries(String endpoint) {
+        return meterRegistry.counter("schedule.ai.http.retries", "endpoint", endpoint);
+    }
+
+    private interface Inspector<T> {
+        int status(T result) throws IOException;
+
+        long responseBytes(T result);
+
+        void discard(T result);
+    }
+
+    /**
+     * 连续失败计数熔断器：打开后经过 openNanos 进入半开，只放行一个试探请求，成功即关闭、失败重新打开
+     */
+    static final class CircuitBreaker {
+
+        enum State {CLOSED, HALF_OPEN, OPEN}
+
+        private final int failureThreshold;
+        private final long openNanos;
+        private State state = State.CLOSED;
+        private int failures;
+        private long openedAt;
+        private boolean probing;
+
+        CircuitBreaker(int failureThreshold, long openNanos) {
+            this.failureThreshold = failureThreshold;
+            this.openNanos = openNanos;
+        }
+
+        synchronized boolean tryAcquire() {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedAt < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probing = false;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probing) {
+                    return false;
+                }
+                probing = true;
+            }
+            return true;
+        }
+
+        synchronized void onSuccess() {
+            state = State.CLOSED;
+            failures = 0;
+            probing = false;
+        }
+
+        synchronized void onFailure() {
+            if (state == State.HALF_OPEN || ++failures >= failureThreshold) {
+                state = State.OPEN;
+                openedAt = System.nanoTime();
+                failures = 0;
+            }
+            probing = false;
+        }
+
+        /** 调用未得出结果（取消或非服务端异常）时归还试探名额 */
+        synchronized void release() {
+            probing = false;
+        }
+
+        synchronized State state() {
+            return state;
+        }
+
+        synchronized long remainingOpenNanos() {
+            return state == State.OPEN ? Math.max(0, openNanos - (System.nanoTime() - openedAt)) : 0;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package edu.zzttc.backend.utils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * 送模型前的截图预处理：像素数超出预算时等比缩小，文件超出字节上限时重新压成 JPEG。
+ * 先只读图片头拿尺寸，不需要处理时不解码；需要缩小时按整数步长抽样解码，超大图不会整张解到内存。
+ * 处理结果写到临时文件，由调用方用完后删除；图片无法识别时原样返回，交给模型自行判断。
+ */
+public final class ImageDownscaler {
+
+    private ImageDownscaler() {
+    }
+
+    /**
+     * @param maxPixels   像素预算，0 或负数表示不限制
+     * @param maxBytes    文件字节上限，0 或负数表示不限制
+     * @param jpegQuality 重新压缩为 JPEG 时的质量（0~1）
+     * @return 无需处理时返回 src 本身，否则返回新生成的临时文件
+     */
+    public static Path fit(Path src, long maxPixels, long maxBytes, float jpegQuality) throws IOException {
+        if (maxPixels <= 0 && maxBytes <= 0) {
+            return src;
+        }
+        try (ImageInputStream in = ImageIO.createImageInputStream(src.toFile())) {
+            if (in == null) {
+                return src;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return src;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                long pixels = (long) width * height;
+                boolean tooLarge = maxPixels > 0 && pixels > maxPixels;
+                boolean tooHeavy = maxBytes > 0 && Files.size(src) > maxBytes;
+                if (!tooLarge && !tooHeavy) {
+                    return src;
+                }
+
+                double scale = tooLarge ? Math.sqrt((double) maxPixels / pixels) : 1.0;
+                int targetW = Math.max(1, (int) (width * scale));
+                int targetH = Math.max(1, (int) (height * scale));
+
+                // 抽样后仍保留至少两倍于目标的分辨率，剩下的交给插值缩放，避免文字发糊
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, (int) (1 / scale / 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+
+                boolean jpeg = tooHeavy || "jpeg".equalsIgnoreCase(reader.getFormatName());
+                BufferedImage scaled = resize(decoded, targetW, targetH, !jpeg && decoded.getColorModel().hasAlpha());
+                return jpeg ? writeJpeg(scaled, jpegQuality) : writePng(scaled);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** 每次最多缩小一半的逐级双线性缩放，比一次性缩放保留更多笔画细节 */
+    private static BufferedImage resize(BufferedImage img, int targetW, int targetH, boolean alpha) {
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = img;
+        int w = img.getWidth();
+        int h = img.getHeight();
+        do {
+            w = Math.max(targetW, w / 2);
+            h = Math.max(targetH, h / 2);
+            if (w == current.getWidth() && h == current.getHeight() && current.getType() == type) {
+                break;
+            }
+            BufferedImage next = new BufferedImage(w, h, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                if (!alpha) {
+                    // 透明区域按白底处理，否则转 RGB 后会变黑
+                    g.setColor(java.awt.Color.WHITE);
+                    g.fillRect(0, 0, w, h);
+                }
+                g.drawImage(current, 0, 0, w, h, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (w != targetW || h != targetH);
+        return current;
+    }
+
+    private static Path writePng(BufferedImage img) throws IOException {
+        Path out = Files.createTempFile("schedule-image-", ".png");
+        try {
+            ImageIO.write(img, "png", out.toFile());
+            return out;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(out);
+            throw e;
+        }
+    }
+
+    private static Path writeJpeg(BufferedImage img, float quality) throws IOException {
+        Path out = Files.createTempFile("schedule-image-", ".jpg");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(Math.max(0.1f, Math.min(1f, quality)));
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(img, null, null), param);
+            return out;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(out);
+            throw e;
+        } finally {
+            writer.dispose();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package edu.zzttc.backend.utils;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按星期列切分课表截图：假定截图是常见的教务系统布局，最左侧一列是节次/时间，右侧是等宽的星期列。
+ * 每块都带上左侧的节次列，再接若干个相邻的星期列（左右各多留一点，避免切断跨线的文字），
+ * 这样每块单独送给模型时仍能对上节次，星期则由表头和调用方给出的范围确定。
+ * 切出的块写到临时文件，由调用方用完后删除。
+ */
+public final class ImageTiles {
+
+    /**
+     * @param path     临时文件
+     * @param firstDay 块内第一列对应的星期（1=周一）
+     * @param lastDay  块内最后一列对应的星期
+     */
+    public record Tile(Path path, int firstDay, int lastDay) {
+    }
+
+    private ImageTiles() {
+    }
+
+    /**
+     * @param dayColumns   截图中的星期列数（一般为 7，只有工作日的课表为 5）
+     * @param daysPerTile  每块包含的星期列数
+     * @param labelRatio   左侧节次列占整图宽度的比例
+     * @param overlapRatio 每块左右额外多截的宽度，占一个星期列宽的比例
+     * @return 图片无法识别时返回空列表
+     */
+    public static List<Tile> splitDayColumns(Path src, int dayColumns, int daysPerTile,
+            double labelRatio, double overlapRatio) throws IOException {
+        BufferedImage img = ImageIO.read(src.toFile());
+        if (img == null) {
+            return List.of();
+        }
+        int width = img.getWidth();
+        int height = img.getHeight();
+        int labelW = (int) Math.round(width * labelRatio);
+        double columnW = (double) (width - labelW) / dayColumns;
+        int overlap = (int) Math.round(columnW * overlapRatio);
+        String format = src.getFileName().toString().toLowerCase().matches(".*\\.jpe?g") ? "jpg" : "png";
+
+        List<Tile> tiles = new ArrayList<>();
+        try {
+            for (int first = 1; first <= dayColumns; first += daysPerTile) {
+                int last = Math.min(dayColumns, first + daysPerTile - 1);
+                int x0 = Math.max(labelW, labelW + (int) Math.round((first - 1) * columnW) - overlap);
+                int x1 = Math.min(width, labelW + (int) Math.round(last * columnW) + overlap);
+
+                BufferedImage tile = new BufferedImage(labelW + (x1 - x0), height, BufferedImage.TYPE_INT_RGB);
+                Graphics2D g = tile.createGraphics();
+                try {
+                    g.setColor(java.awt.Color.WHITE);
+                    g.fillRect(0, 0, tile.getWidth(), height);
+                    if (labelW > 0) {
+                        g.drawImage(img.getSubimage(0, 0, labelW, height), 0, 0, null);
+                    }
+                    g.drawImage(img.getSubimage(x0, 0, x1 - x0, height), labelW, 0, null);
+                } finally {
+                    g.dispose();
+                }
+
+                Path out = Files.createTempFile("schedule-tile-", "." + format);
+                tiles.add(new Tile(out, first, last));
+                ImageIO.write(tile, format, out.toFile());
+            }
+            return tiles;
+        } catch (IOException | RuntimeException e) {
+            delete(tiles);
+            throw e;
+        }
+    }
+
+    public static void delete(List<Tile> tiles) {
+        for (Tile t : tiles) {
+            try {
+                Files.deleteIfExists(t.path());
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
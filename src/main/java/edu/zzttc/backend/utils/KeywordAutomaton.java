@@ -0,0 +1,140 @@
+package edu.zzttc.backend.utils;
+
+import java.util.*;
+
+/**
+ * Aho-Corasick 多关键词自动机：一次线性扫描即可找出文本中出现的全部关键词。
+ * 每个关键词携带一个 long 标志位，扫描结果为所有命中关键词标志位的按位或，最多区分 64 类。
+ * 构建后只读、线程安全；状态转移预先展开为稠密表，扫描过程不分配对象。
+ */
+public final class KeywordAutomaton {
+
+    /** 关键词中出现过的全部字符（升序），用于把字符映射为列下标 */
+    private final char[] alphabet;
+
+    /** goto 表：transitions[state * alphabet.length + column] */
+    private final int[] transitions;
+
+    /** 每个状态命中的标志位（已沿失败链合并） */
+    private final long[] outputs;
+
+    private KeywordAutomaton(char[] alphabet, int[] transitions, long[] outputs) {
+        this.alphabet = alphabet;
+        this.transitions = transitions;
+        this.outputs = outputs;
+    }
+
+    /**
+     * @param keywords 关键词 -> 标志位
+     */
+    public static KeywordAutomaton of(Map<String, Long> keywords) {
+        // 1. 字母表
+        TreeSet<Character> chars = new TreeSet<>();
+        for (String k : keywords.keySet()) {
+            for (int i = 0; i < k.length(); i++) {
+                chars.add(k.charAt(i));
+            }
+        }
+        char[] alphabet = new char[chars.size()];
+        int a = 0;
+        for (Character c : chars) {
+            alphabet[a++] = c;
+        }
+        int width = alphabet.length;
+
+        // 2. 字典树
+        List<int[]> trie = new ArrayList<>();
+        List<Long> out = new ArrayList<>();
+        trie.add(newRow(width));
+        out.add(0L);
+        for (Map.Entry<String, Long> e : keywords.entrySet()) {
+            String k = e.getKey();
+            if (k.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < k.length(); i++) {
+                int col = Arrays.binarySearch(alphabet, k.charAt(i));
+                if (trie.get(state)[col] < 0) {
+                    trie.get(state)[col] = trie.size();
+                    trie.add(newRow(width));
+                    out.add(0L);
+                }
+                state = trie.get(state)[col];
+            }
+            out.set(state, out.get(state) | e.getValue());
+        }
+
+        // 3. BFS 计算失败链，并把缺失的转移补全为 DFA
+        int size = trie.size();
+        int[] transitions = new int[size * width];
+        long[] outputs = new long[size];
+        int[] fail = new int[size];
+        for (int s = 0; s < size; s++) {
+            outputs[s] = out.get(s);
+        }
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int col = 0; col < width; col++) {
+            int child = trie.get(0)[col];
+            if (child < 0) {
+                transitions[col] = 0;
+            } else {
+                transitions[col] = child;
+                fail[child] = 0;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            outputs[s] |= outputs[fail[s]];
+            for (int col = 0; col < width; col++) {
+                int child = trie.get(s)[col];
+                if (child < 0) {
+                    transitions[s * width + col] = transitions[fail[s] * width + col];
+                } else {
+                    transitions[s * width + col] = child;
+                    fail[child] = transitions[fail[s] * width + col];
+                    queue.add(child);
+                }
+            }
+        }
+        return new KeywordAutomaton(alphabet, transitions, outputs);
+    }
+
+    /**
+     * 状态转移；不在任何关键词中的字符直接回到根状态
+     */
+    public int next(int state, char c) {
+        int col = Arrays.binarySearch(alphabet, c);
+        if (col < 0) {
+            return 0;
+        }
+        return transitions[state * alphabet.length + col];
+    }
+
+    /**
+     * 到达该状态时命中的标志位
+     */
+    public long output(int state) {
+        return outputs[state];
+    }
+
+    /**
+     * 扫描整段文本，返回命中标志位的并集
+     */
+    public long scan(CharSequence text) {
+        int state = 0;
+        long flags = 0L;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, text.charAt(i));
+            flags |= outputs[state];
+        }
+        return flags;
+    }
+
+    private static int[] newRow(int width) {
+        int[] row = new int[width];
+        Arrays.fill(row, -1);
+        return row;
+    }
+}
@@ -0,0 +1,113 @@
+package edu.zzttc.backend.utils;
+
+import edu.zzttc.backend.domain.vo.schedule.DailyCourseVO;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * 把某天（某时段）的课程渲染成问答回复，供不经过大模型的本地回答使用
+ */
+public final class ScheduleAnswerFormatter {
+
+    private static final String[] WEEKDAYS = {"周一", "周二", "周三", "周四", "周五", "周六", "周日"};
+    private static final DateTimeFormatter CLOCK = DateTimeFormatter.ofPattern("HH:mm");
+
+    private ScheduleAnswerFormatter() {}
+
+    /**
+     * @param today 用户所在的“今天”，用于把日期说成 今天/明天/后天
+     * @param time  问句中解析出的时段、节次与钟点，用于在开头复述查询范围；为 null 时只说日期
+     */
+    public static String format(LocalDate date, LocalDate today,
+            ScheduleTimeResolver.ResolvedTime time, List<DailyCourseVO> courses) {
+        String day = dayLabel(date, today) + rangeLabel(time);
+        if (courses == null || courses.isEmpty()) {
+            return day + "没有安排课程。";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("你").append(day).append("有").append(courses.size())
+                .append("节课：\n\n");
+        for (int i = 0; i < courses.size(); i++) {
+            DailyCourseVO c = courses.get(i);
+            int start = c.getSectionStart() == null ? 0 : c.getSectionStart();
+            int end = start + (c.getSectionCount() == null ? 0 : c.getSectionCount()) - 1;
+            if (end < start)
+                end = start;
+            sb.append(i + 1).append(". **第").append(start).append("-").append(end).append("节**  \n")
+                    .append("   - 课程：").append(safe(c.getCourseName())).append("  \n")
+                    .append("   - 教师：").append(safe(c.getTeacherName())).append("  \n")
+                    .append("   - 教室：").append(safe(c.getClassroom())).append("  \n\n");
+        }
+        sb.append("请按时上课，注意教室位置！");
+        return sb.toString();
+    }
+
+    /**
+     * 时段加上节次或钟点：“上午”“第3-4节”“第5节以后”“下午15:00以后”“10:00以前”“8:00-10:00”。
+     * 开区间的节次/钟点由 ScheduleTimeResolver 以 {@link ScheduleTimeResolver#MAX_SECTION}、
+     * {@link LocalTime#MIN}、{@link LocalTime#MAX} 表示，这里还原成“以后/以前”
+     */
+    static String rangeLabel(ScheduleTimeResolver.ResolvedTime time) {
+        if (time == null) {
+            return "";
+        }
+        String period = switch (time.getPeriod() == null ? ScheduleTimeResolver.DayPeriod.ALL : time.getPeriod()) {
+            case MORNING -> "上午";
+            case AFTERNOON -> "下午";
+            case EVENING -> "晚上";
+            default -> "";
+        };
+        Integer from = time.getSectionFrom();
+        Integer to = time.getSectionTo();
+        if (from != null && to != null) {
+            if (from.equals(to)) {
+                return period + "第" + from + "节";
+            }
+            if (to >= ScheduleTimeResolver.MAX_SECTION) {
+                return period + "第" + from + "节以后";
+            }
+            return period + "第" + from + "-" + to + "节";
+        }
+        LocalTime timeFrom = time.getTimeFrom();
+        LocalTime timeTo = time.getTimeTo();
+        if (timeFrom != null && timeTo != null) {
+            if (LocalTime.MAX.equals(timeTo)) {
+                return period + timeFrom.format(CLOCK) + "以后";
+            }
+            if (LocalTime.MIN.equals(timeFrom)) {
+                return period + timeTo.format(CLOCK) + "以前";
+            }
+            if (timeFrom.equals(timeTo)) {
+                return period + timeFrom.format(CLOCK);
+            }
+            return period + timeFrom.format(CLOCK) + "-" + timeTo.format(CLOCK);
+        }
+        return period;
+    }
+
+    /**
+     * 今天/明天/后天/昨天/前天，其余日期说成“11月3日（周一）”
+     */
+    static String dayLabel(LocalDate date, LocalDate today) {
+        if (date == null) {
+            return "今天";
+        }
+        if (today != null) {
+            long diff = date.toEpochDay() - today.toEpochDay();
+            if (diff == 0) return "今天";
+            if (diff == 1) return "明天";
+            if (diff == 2) return "后天";
+            if (diff == -1) return "昨天";
+            if (diff == -2) return "前天";
+        }
+        return date.getMonthValue() + "月" + date.getDayOfMonth() + "日（"
+                + WEEKDAYS[date.getDayOfWeek().getValue() - 1] + "）";
+    }
+
+    private static String safe(String s) {
+        return s == null ? "" : s;
+    }
+}
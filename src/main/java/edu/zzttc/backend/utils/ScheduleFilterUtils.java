@@ -2,14 +2,109 @@ package edu.zzttc.backend.utils;
 
 import edu.zzttc.backend.domain.vo.schedule.DailyCourseVO;
 import edu.zzttc.backend.utils.ScheduleTimeResolver.DayPeriod;
+import edu.zzttc.backend.utils.ScheduleTimeResolver.ResolvedTime;
 
+import java.time.Duration;
+import java.time.LocalTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
 public final class ScheduleFilterUtils {
 
+    /**
+     * 各节次的上下课时间（下标 = 节次），与下面按时段划分的节次区间对应。
+     * 如果你学校作息不一样，可以自己改。
+     */
+    private static final LocalTime[][] SECTION_TIMES = {
+            null,
+            {LocalTime.of(8, 0), LocalTime.of(8, 45)},
+            {LocalTime.of(8, 55), LocalTime.of(9, 40)},
+            {LocalTime.of(10, 0), LocalTime.of(10, 45)},
+            {LocalTime.of(10, 55), LocalTime.of(11, 40)},
+            {LocalTime.of(14, 0), LocalTime.of(14, 45)},
+            {LocalTime.of(14, 55), LocalTime.of(15, 40)},
+            {LocalTime.of(16, 0), LocalTime.of(16, 45)},
+            {LocalTime.of(16, 55), LocalTime.of(17, 40)},
+            {LocalTime.of(19, 0), LocalTime.of(19, 45)},
+            {LocalTime.of(19, 55), LocalTime.of(20, 40)},
+            {LocalTime.of(20, 50), LocalTime.of(21, 35)},
+            {LocalTime.of(21, 45), LocalTime.of(22, 30)},
+    };
+
     private ScheduleFilterUtils() {}
 
+    /**
+     * 按问题中解析出的时间过滤：明确节次 > 钟点 > 上午/下午/晚上。
+     * 单个时刻落在课间、午休时按最近的一节；钟点区间与任何一节都不相交时退回按时段过滤，
+     * 不因为没对上节次就回答“没有课”
+     */
+    public static List<DailyCourseVO> filter(List<DailyCourseVO> list, ResolvedTime rt) {
+        if (rt.getSectionFrom() != null) {
+            return filterBySections(list, rt.getSectionFrom(), rt.getSectionTo());
+        }
+        if (rt.getTimeFrom() != null) {
+            int[] sections = sectionsBetween(rt.getTimeFrom(), rt.getTimeTo());
+            if (sections == null && rt.getTimeFrom().equals(rt.getTimeTo())) {
+                sections = nearestSection(rt.getTimeFrom());
+            }
+            return sections == null ? filterByPeriod(list, rt.getPeriod())
+                    : filterBySections(list, sections[0], sections[1]);
+        }
+        return filterByPeriod(list, rt.getPeriod());
+    }
+
+    /**
+     * 与 [from, to] 节有交集的课程
+     */
+    public static List<DailyCourseVO> filterBySections(List<DailyCourseVO> list, int from, int to) {
+        if (list == null || list.isEmpty()) {
+            return list;
+        }
+        return list.stream()
+                .filter(c -> {
+                    int s = c.getSectionStart();
+                    int e = s + c.getSectionCount() - 1;
+                    return e >= from && s <= to;
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 钟点区间覆盖到的节次 {首节, 末节}；单个时刻取正在上的那一节，落在课间则没有
+     */
+    public static int[] sectionsBetween(LocalTime from, LocalTime to) {
+        int first = -1;
+        int last = -1;
+        for (int i = 1; i < SECTION_TIMES.length; i++) {
+            LocalTime begin = SECTION_TIMES[i][0];
+            LocalTime end = SECTION_TIMES[i][1];
+            if (!end.isBefore(from) && !begin.isAfter(to)) {
+                if (first < 0) {
+                    first = i;
+                }
+                last = i;
+            }
+        }
+        return first < 0 ? null : new int[]{first, last};
+    }
+
+    /**
+     * 离某一时刻最近的一节（按到上课或下课时间的距离） {节, 节}
+     */
+    public static int[] nearestSection(LocalTime time) {
+        int best = 1;
+        long bestGap = Long.MAX_VALUE;
+        for (int i = 1; i < SECTION_TIMES.length; i++) {
+            long gap = Math.min(Math.abs(Duration.between(time, SECTION_TIMES[i][0]).toMinutes()),
+                    Math.abs(Duration.between(time, SECTION_TIMES[i][1]).toMinutes()));
+            if (gap < bestGap) {
+                bestGap = gap;
+                best = i;
+            }
+        }
+        return new int[]{best, best};
+    }
+
     /**
      * 按“上午 / 下午 / 晚上”过滤课表
      * 这里假设：
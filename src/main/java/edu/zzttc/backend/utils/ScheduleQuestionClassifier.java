@@ -0,0 +1,117 @@
+package edu.zzttc.backend.utils;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 课表问题的意图分类：判断一句话是否只是“某天/某时段/某几节有什么课”的查询。
+ * 做法是按最长匹配把问句切成已知词（时间词、数字、语气词、列课说法），
+ * 只有每个字都能被解释、且含有列课说法时才算列课查询；出现课程名、地点、“为什么”等任何未知内容都交给大模型。
+ * 本地模板只回答某一天的课，所以“下周”“第5周”“11月”这类整周/整月的范围若没有落到具体星期几或日期，也交给大模型。
+ * 时间部分由 ScheduleTimeResolver 解析，本类只负责判断“问句里是否还有别的东西”。
+ */
+public final class ScheduleQuestionClassifier {
+
+    public enum Intent {
+        /** 只是列出课程，本地模板即可回答 */
+        LIST_COURSES,
+        /** 其他问题，需要大模型 */
+        OPEN
+    }
+
+    /** 表示“列出课程”的说法，问句中至少出现一个 */
+    private static final Set<String> LISTING = Set.of(
+            "有什么课", "有哪些课", "有啥课", "有课吗", "有课么", "有没有课", "什么课", "哪些课", "啥课",
+            "上什么课", "上哪些课", "上啥课", "课表", "课程表", "课程安排", "几节课", "有几节课", "的课", "的课程", "的课表",
+            "课程", "有课");
+
+    /** 可以出现但不改变意图的词：时间词、时间单位、人称与语气词 */
+    private static final Set<String> NEUTRAL = Set.of(
+            "前天", "昨天", "后天", "明天", "翌日", "今天", "今日", "当日",
+            "下下周", "下周", "下星期", "下礼拜", "上周", "上星期", "上礼拜",
+            "这周", "本周", "这星期", "本星期", "星期", "礼拜", "周日", "星期日", "星期天", "礼拜天",
+            "上午", "早上", "早晨", "下午", "中午", "晚上", "晚间", "夜里", "夜晚",
+            "第", "周", "节", "号", "日", "月", "点", "半", "到", "至", "和", "与", "及", "、",
+            "以后", "之后", "以前", "之前", "起", "开始",
+            "零", "一", "二", "三", "四", "五", "六", "七", "八", "九", "十", "两",
+            "我", "的", "都", "还", "要", "有", "课", "上", "安排", "一共", "总共",
+            "请问", "帮我", "查", "查一下", "看一下", "看看", "吗", "么", "呢", "啊", "呀", "吧");
+
+    /** 表示一整周或一整月的词，后面需要跟星期几或日期才能落到某一天 */
+    private static final Set<String> RANGE = Set.of(
+            "下下周", "下周", "下星期", "下礼拜", "上周", "上星期", "上礼拜",
+            "这周", "本周", "这星期", "本星期", "星期", "礼拜", "周", "月");
+
+    /** 本身就指向某一天的词 */
+    private static final Set<String> DAY = Set.of(
+            "前天", "昨天", "后天", "明天", "翌日", "今天", "今日", "当日",
+            "周日", "星期日", "星期天", "礼拜天", "号", "日");
+
+    /** 跟在周/星期之后表示星期几的数字 */
+    private static final Set<String> WEEKDAY = Set.of("一", "二", "三", "四", "五", "六");
+
+    private static final int MAX_WORD = maxLength();
+
+    private ScheduleQuestionClassifier() {}
+
+    public static Intent classify(String question) {
+        if (question == null || question.isBlank()) {
+            return Intent.OPEN;
+        }
+        boolean listing = false;
+        boolean range = false;
+        boolean day = false;
+        String prev = null;
+        int n = question.length();
+        int i = 0;
+        while (i < n) {
+            char c = question.charAt(i);
+            if (Character.isWhitespace(c) || isAsciiDigitOrSign(c) || isPunctuation(c)) {
+                i++;
+                continue;
+            }
+            String word = null;
+            for (int len = Math.min(MAX_WORD, n - i); len >= 1; len--) {
+                String w = question.substring(i, i + len);
+                if (LISTING.contains(w)) {
+                    listing = true;
+                    word = w;
+                    break;
+                }
+                if (NEUTRAL.contains(w)) {
+                    word = w;
+                    break;
+                }
+            }
+            if (word == null) {
+                return Intent.OPEN;
+            }
+            if (DAY.contains(word) || (WEEKDAY.contains(word) && prev != null && RANGE.contains(prev) && !"月".equals(prev))) {
+                day = true;
+            } else if (RANGE.contains(word)) {
+                range = true;
+            }
+            prev = word;
+            i += word.length();
+        }
+        return listing && (day || !range) ? Intent.LIST_COURSES : Intent.OPEN;
+    }
+
+    private static int maxLength() {
+        Set<String> all = new HashSet<>(LISTING);
+        all.addAll(NEUTRAL);
+        return all.stream().mapToInt(String::length).max().orElse(1);
+    }
+
+    /** 数字与日期/时间里的分隔符：11-03、19:30、3-4 */
+    private static boolean isAsciiDigitOrSign(char c) {
+        return (c >= '0' && c <= '9') || c == '-' || c == ':' || c == '/' || c == '~';
+    }
+
+    private static boolean isPunctuation(char c) {
+        int type = Character.getType(c);
+        return type == Character.OTHER_PUNCTUATION || type == Character.START_PUNCTUATION
+                || type == Character.END_PUNCTUATION || type == Character.DASH_PUNCTUATION
+                || type == Character.INITIAL_QUOTE_PUNCTUATION || type == Character.FINAL_QUOTE_PUNCTUATION;
+    }
+}
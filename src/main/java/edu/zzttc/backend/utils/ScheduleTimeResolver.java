@@ -2,11 +2,18 @@ package edu.zzttc.backend.utils;
 
 import lombok.Data;
 
+import java.time.DateTimeException;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public final class ScheduleTimeResolver {
 
+    /** 节次上限，“第N节以后”解析为第N节到该节 */
+    public static final int MAX_SECTION = 20;
+
     /** 一天中的时间段 */
     public enum DayPeriod {
         ALL,        // 不区分时段
@@ -15,17 +22,99 @@ public final class ScheduleTimeResolver {
         EVENING     // 晚上
     }
 
-    /** 解析结果：具体日期 + 时间段 */
+    /** 解析结果：具体日期 + 时间段，以及问题中明确提到的教学周、星期、节次、钟点 */
     @Data
     public static class ResolvedTime {
         private LocalDate date;
         private DayPeriod period = DayPeriod.ALL;
+        /** 是否给出了具体日期（如“11月3日”“2025-11-03”） */
+        private boolean explicitDate;
+        /** “第5周”中的教学周；换算成日期需要学期信息，由调用方处理 */
+        private Integer teachingWeek;
+        /** 明确提到的星期几（1=周一 ... 7=周日） */
+        private Integer dayOfWeek;
+        /** “第3-4节”“第一、二节”中的节次范围 */
+        private Integer sectionFrom;
+        private Integer sectionTo;
+        /**
+         * “8点到10点”“14:00-16:00”中的钟点范围，单个时刻时两者相同；
+         * “3点以后”到当天结束（{@link LocalTime#MAX}），“10点以前”从当天开始（{@link LocalTime#MIN}）
+         */
+        private LocalTime timeFrom;
+        private LocalTime timeTo;
     }
 
+    // ========= 关键词标志位 =========
+    private static final long REL_MINUS_2 = 1L;
+    private static final long REL_MINUS_1 = 1L << 1;
+    private static final long REL_PLUS_2 = 1L << 2;
+    private static final long REL_PLUS_1 = 1L << 3;
+    private static final long REL_TODAY = 1L << 4;
+    private static final long WEEK_NEXT_2 = 1L << 5;
+    private static final long WEEK_NEXT = 1L << 6;
+    private static final long WEEK_LAST = 1L << 7;
+    private static final long WEEK_THIS = 1L << 8;
+    /** 周一 ~ 周日 依次占用 DOW_SHIFT ~ DOW_SHIFT+6 位 */
+    private static final int DOW_SHIFT = 9;
+    private static final long DOW_MASK = 0x7FL << DOW_SHIFT;
+    private static final long PERIOD_MORNING = 1L << 16;
+    private static final long PERIOD_AFTERNOON = 1L << 17;
+    private static final long PERIOD_EVENING = 1L << 18;
+
+    /** 日期、星期、时段关键词一次性编译成自动机，问题只需扫描一遍 */
+    private static final KeywordAutomaton KEYWORDS = buildKeywords();
+
     private ScheduleTimeResolver() {}
 
+    private static KeywordAutomaton buildKeywords() {
+        Map<String, Long> k = new LinkedHashMap<>();
+        k.put("前天", REL_MINUS_2);
+        k.put("昨天", REL_MINUS_1);
+        k.put("后天", REL_PLUS_2);
+        k.put("明天", REL_PLUS_1);
+        k.put("翌日", REL_PLUS_1);
+        k.put("今天", REL_TODAY);
+        k.put("今日", REL_TODAY);
+        k.put("当日", REL_TODAY);
+
+        k.put("下下周", WEEK_NEXT_2);
+        for (String w : new String[]{"下周", "下星期", "下礼拜"}) {
+            k.put(w, WEEK_NEXT);
+        }
+        for (String w : new String[]{"上周", "上星期", "上礼拜"}) {
+            k.put(w, WEEK_LAST);
+        }
+        for (String w : new String[]{"这周", "本周", "这星期", "本星期"}) {
+            k.put(w, WEEK_THIS);
+        }
+
+        String[] days = {"一", "二", "三", "四", "五", "六"};
+        for (int i = 0; i < days.length; i++) {
+            long bit = 1L << (DOW_SHIFT + i);
+            k.put("周" + days[i], bit);
+            k.put("星期" + days[i], bit);
+            k.put("礼拜" + days[i], bit);
+        }
+        long sunday = 1L << (DOW_SHIFT + 6);
+        for (String w : new String[]{"周日", "星期日", "星期天", "礼拜天"}) {
+            k.put(w, sunday);
+        }
+
+        for (String w : new String[]{"上午", "早上", "早晨"}) {
+            k.put(w, PERIOD_MORNING);
+        }
+        for (String w : new String[]{"下午", "中午"}) {
+            k.put(w, PERIOD_AFTERNOON);
+        }
+        for (String w : new String[]{"晚上", "晚间", "夜里", "夜晚"}) {
+            k.put(w, PERIOD_EVENING);
+        }
+        return KeywordAutomaton.of(k);
+    }
+
     /**
-     * 解析 “前天/昨天/今天/明天/后天/这周五/下周一/下午/晚上” 等模糊时间
+     * 解析 “前天/昨天/今天/明天/后天/这周五/下周一/下午/晚上” 等模糊时间，
+     * 以及 “11月3日”“第5周周三”“第3-4节”“8点到10点” 等明确的日期、节次和钟点
      * @param question 用户问题，如“我这周五下午有什么课？”
      * @param baseDate 参考日期，一般是今天（或传入 dto 的 date）
      */
@@ -40,62 +129,405 @@ public final class ScheduleTimeResolver {
             return rt;
         }
 
-        String q = question.replaceAll("\\s+", "");
+        // ========= 单趟扫描：关键词自动机 + 数字切分 =========
+        // 跳过空白字符，等价于先去掉空白再匹配
+        int len = question.length();
+        char[] q = new char[len];
+        Numbers nums = new Numbers(len);
+        int n = 0;
+        int state = 0;
+        long flags = 0L;
+        for (int i = 0; i < len; i++) {
+            char c = question.charAt(i);
+            if (isSpace(c)) {
+                continue;
+            }
+            q[n] = c;
+            state = KEYWORDS.next(state, c);
+            flags |= KEYWORDS.output(state);
+            nums.accept(c, n);
+            n++;
+        }
+        nums.finish();
 
         // ========= 1. 相对日期：前天 / 昨天 / 今天 / 明天 / 后天 =========
-        // 注意顺序：先匹配更“远”的，避免比如“前天”里也包含“天”之类的误伤
-        if (q.contains("前天")) {
+        // 同时出现时按 前天 > 昨天 > 后天 > 明天 > 今天 取一个
+        if ((flags & REL_MINUS_2) != 0) {
             rt.setDate(baseDate.minusDays(2));
-        } else if (q.contains("昨天")) {
+        } else if ((flags & REL_MINUS_1) != 0) {
             rt.setDate(baseDate.minusDays(1));
-        } else if (q.contains("后天")) {
+        } else if ((flags & REL_PLUS_2) != 0) {
             rt.setDate(baseDate.plusDays(2));
-        } else if (q.contains("明天") || q.contains("翌日")) {
+        } else if ((flags & REL_PLUS_1) != 0) {
             rt.setDate(baseDate.plusDays(1));
-        } else if (q.contains("今天") || q.contains("今日") || q.contains("当日")) {
-            rt.setDate(baseDate);
         }
 
         // ========= 2. 周几：本周 / 下周 / 上周 + 周一~周日 =========
         int weekOffset = 0; // 0=本周, 1=下周, 2=下下周, -1=上周
-        if (q.contains("下下周")) {
+        if ((flags & WEEK_NEXT_2) != 0) {
             weekOffset = 2;
-        } else if (q.contains("下周") || q.contains("下星期") || q.contains("下礼拜")) {
+        } else if ((flags & WEEK_NEXT) != 0) {
             weekOffset = 1;
-        } else if (q.contains("上周") || q.contains("上星期") || q.contains("上礼拜")) {
+        } else if ((flags & WEEK_LAST) != 0) {
             weekOffset = -1;
-        } else if (q.contains("这周") || q.contains("本周") || q.contains("这星期") || q.contains("本星期")) {
-            weekOffset = 0;
         }
 
-        Integer targetDow = null;
-        if (q.matches(".*(周一|星期一|礼拜一).*")) targetDow = 1;
-        else if (q.matches(".*(周二|星期二|礼拜二).*")) targetDow = 2;
-        else if (q.matches(".*(周三|星期三|礼拜三).*")) targetDow = 3;
-        else if (q.matches(".*(周四|星期四|礼拜四).*")) targetDow = 4;
-        else if (q.matches(".*(周五|星期五|礼拜五).*")) targetDow = 5;
-        else if (q.matches(".*(周六|星期六|礼拜六).*")) targetDow = 6;
-        else if (q.matches(".*(周日|星期日|星期天|礼拜天).*")) targetDow = 7;
-
-        if (targetDow != null) {
+        long dowBits = flags & DOW_MASK;
+        if (dowBits != 0) {
+            // 同时提到多天时取最靠前的一天
+            int targetDow = Long.numberOfTrailingZeros(dowBits) - DOW_SHIFT + 1;
+            rt.setDayOfWeek(targetDow);
             // 注意这里是基于 baseDate 所在周的周一来偏移 weekOffset
             // 如果上面因为“昨天/前天/明天/后天”改过 date，这里就是以“解析完的那天所在周”为基准
             LocalDate current = rt.getDate();
             DayOfWeek baseDow = current.getDayOfWeek(); // 1-7
             LocalDate monday = current.minusDays(baseDow.getValue() - 1L);
-            LocalDate targetDate = monday.plusWeeks(weekOffset).plusDays(targetDow - 1L);
-            rt.setDate(targetDate);
+            rt.setDate(monday.plusWeeks(weekOffset).plusDays(targetDow - 1L));
         }
 
         // ========= 3. 时间段：上午 / 下午 / 晚上 =========
-        if (q.contains("上午") || q.contains("早上") || q.contains("早晨") || q.contains("早上课")) {
+        if ((flags & PERIOD_MORNING) != 0) {
             rt.setPeriod(DayPeriod.MORNING);
-        } else if (q.contains("下午") || q.contains("中午")) {
+        } else if ((flags & PERIOD_AFTERNOON) != 0) {
             rt.setPeriod(DayPeriod.AFTERNOON);
-        } else if (q.contains("晚上") || q.contains("晚间") || q.contains("夜里") || q.contains("夜晚")) {
+        } else if ((flags & PERIOD_EVENING) != 0) {
             rt.setPeriod(DayPeriod.EVENING);
         }
 
+        // ========= 4. 数字表达：具体日期 / 第N周 / 节次 / 钟点 =========
+        if (nums.count > 0) {
+            resolveNumbers(rt, q, n, nums, baseDate);
+        }
         return rt;
     }
+
+    private static void resolveNumbers(ResolvedTime rt, char[] q, int n, Numbers nums, LocalDate baseDate) {
+        for (int t = 0; t < nums.count; t++) {
+            int start = nums.start[t];
+            int end = nums.end[t];
+            char prev = at(q, n, start - 1);
+            char next = at(q, n, end);
+            // “周一”“星期三”里的数字是星期，已由关键词处理
+            if (nums.chinese[t] && (prev == '周' || prev == '期' || prev == '拜')) {
+                continue;
+            }
+
+            if (!rt.isExplicitDate() && matchDate(rt, q, n, nums, t, baseDate)) {
+                continue;
+            }
+            if (rt.getTeachingWeek() == null && prev == '第' && next == '周'
+                    && nums.value[t] >= 1 && nums.value[t] <= WeekMaskUtils.MAX_WEEK) {
+                rt.setTeachingWeek(nums.value[t]);
+                continue;
+            }
+            if (rt.getSectionFrom() == null && matchSections(rt, q, n, nums, t)) {
+                continue;
+            }
+            if (rt.getTimeFrom() == null) {
+                matchTimes(rt, q, n, nums, t);
+            }
+        }
+
+        // “下午2点”“晚上8点”按 24 小时制理解；没有时段时 1~6 点默认是下午（开区间的 0 点/24 点不受影响）
+        if (rt.getTimeFrom() != null) {
+            rt.setTimeFrom(toAfternoon(rt.getTimeFrom(), rt.getPeriod()));
+            rt.setTimeTo(toAfternoon(rt.getTimeTo(), rt.getPeriod()));
+            if (rt.getTimeTo().isBefore(rt.getTimeFrom())) {
+                rt.setTimeTo(rt.getTimeFrom());
+            }
+        }
+    }
+
+    /**
+     * “[2025年]11月3日/号”、“2025-11-03”、“2025/11/3”
+     */
+    private static boolean matchDate(ResolvedTime rt, char[] q, int n, Numbers nums, int t, LocalDate baseDate) {
+        char next = at(q, n, nums.end[t]);
+        int year = baseDate.getYear();
+        int month;
+        int day;
+        if (next == '月' && t + 1 < nums.count && nums.start[t + 1] == nums.end[t] + 1) {
+            char after = at(q, n, nums.end[t + 1]);
+            if (after != '日' && after != '号' && nums.end[t + 1] != n) {
+                return false;
+            }
+            if (t > 0 && at(q, n, nums.start[t] - 1) == '年' && nums.end[t - 1] == nums.start[t] - 1
+                    && nums.value[t - 1] >= 1000) {
+                year = nums.value[t - 1];
+            }
+            month = nums.value[t];
+            day = nums.value[t + 1];
+        } else if ((next == '-' || next == '/') && !nums.chinese[t] && nums.end[t] - nums.start[t] == 4
+                && t + 2 < nums.count
+                && nums.start[t + 1] == nums.end[t] + 1 && at(q, n, nums.end[t + 1]) == next
+                && nums.start[t + 2] == nums.end[t + 1] + 1) {
+            year = nums.value[t];
+            month = nums.value[t + 1];
+            day = nums.value[t + 2];
+        } else {
+            return false;
+        }
+        try {
+            rt.setDate(LocalDate.of(year, month, day));
+            rt.setExplicitDate(true);
+            return true;
+        } catch (DateTimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * “第3节”、“第3-4节”、“第一、二节”、“第一二节”、“第1节到第4节”、“3到4节”
+     * 单独一个节次必须带“第”，避免把“两节课”当成第二节
+     */
+    private static boolean matchSections(ResolvedTime rt, char[] q, int n, Numbers nums, int t) {
+        boolean ordinal = at(q, n, nums.start[t] - 1) == '第';
+        if (!ordinal && nums.chinese[t]) {
+            return false;
+        }
+        int from = nums.value[t];
+        int pos = nums.end[t];
+        boolean closed = at(q, n, pos) == '节';
+        if (closed) {
+            pos++;
+        }
+        // 找区间的另一端
+        int to = -1;
+        int sep = pos;
+        if (isRangeSeparator(at(q, n, sep))) {
+            sep++;
+        } else if (closed || !nums.chinese[t]) {
+            sep = -1;
+        }
+        if (sep >= 0 && at(q, n, sep) == '第') {
+            sep++;
+        }
+        if (sep >= 0 && t + 1 < nums.count && nums.start[t + 1] == sep && at(q, n, nums.end[t + 1]) == '节') {
+            to = nums.value[t + 1];
+        }
+        if (to < 0) {
+            if (!closed || !ordinal) {
+                return false;
+            }
+            to = from;
+            // “第3节以后”“第5节之前”
+            int open = openEnd(q, n, at(q, n, pos) == '课' ? pos + 1 : pos);
+            if (open > 0) {
+                to = MAX_SECTION;
+            } else if (open < 0) {
+                from = 1;
+            }
+        }
+        if (from < 1 || to > MAX_SECTION || from > to) {
+            return false;
+        }
+        rt.setSectionFrom(from);
+        rt.setSectionTo(to);
+        return true;
+    }
+
+    /**
+     * “8点”、“8点半”、“8点30分”、“8:30”，以及用 到/至/-/~ 连接的区间
+     */
+    private static void matchTimes(ResolvedTime rt, char[] q, int n, Numbers nums, int t) {
+        if (nums.chinese[t] && !allowsChineseHour(at(q, n, nums.start[t] - 1))) {
+            // “快一点”“多一点”之类不是钟点
+            return;
+        }
+        int[] from = parseTime(q, n, nums, t);
+        if (from == null) {
+            return;
+        }
+        int[] to = from;
+        int pos = from[2];
+        if (isRangeSeparator(at(q, n, pos))) {
+            for (int u = t + 1; u < nums.count; u++) {
+                if (nums.start[u] == pos + 1) {
+                    int[] parsed = parseTime(q, n, nums, u);
+                    if (parsed != null) {
+                        to = parsed;
+                    }
+                    break;
+                }
+            }
+        }
+        LocalTime timeFrom = LocalTime.of(from[0], from[1]);
+        LocalTime timeTo = LocalTime.of(to[0], to[1]);
+        if (to == from) {
+            // “3点以后/之后/起”到当天结束，“10点以前/之前/前”从当天开始
+            int open = openEnd(q, n, pos);
+            if (open > 0) {
+                timeTo = LocalTime.MAX;
+            } else if (open < 0) {
+                timeFrom = LocalTime.MIN;
+            }
+        }
+        rt.setTimeFrom(timeFrom);
+        rt.setTimeTo(timeTo);
+    }
+
+    /**
+     * pos 处是否为开区间的方向词
+     * @return 1=以后/之后/后/起/开始，-1=以前/之前/前，0=都不是
+     */
+    private static int openEnd(char[] q, int n, int pos) {
+        char c = at(q, n, pos);
+        if (c == '以' || c == '之') {
+            c = at(q, n, pos + 1);
+            return c == '后' ? 1 : c == '前' ? -1 : 0;
+        }
+        if (c == '后' || c == '起' || (c == '开' && at(q, n, pos + 1) == '始')) {
+            return 1;
+        }
+        return c == '前' ? -1 : 0;
+    }
+
+    /**
+     * @return {小时, 分钟, 结束位置}，不是钟点返回 null
+     */
+    private static int[] parseTime(char[] q, int n, Numbers nums, int t) {
+        int hour = nums.value[t];
+        int pos = nums.end[t];
+        char unit = at(q, n, pos);
+        if (hour > 23) {
+            return null;
+        }
+        int minute = 0;
+        if (unit == '点' || unit == '时') {
+            pos++;
+            if (at(q, n, pos) == '半') {
+                minute = 30;
+                pos++;
+            } else if (t + 1 < nums.count && nums.start[t + 1] == pos && nums.value[t + 1] < 60) {
+                minute = nums.value[t + 1];
+                pos = nums.end[t + 1];
+                if (at(q, n, pos) == '分') {
+                    pos++;
+                }
+            }
+        } else if ((unit == ':' || unit == '：') && !nums.chinese[t]
+                && t + 1 < nums.count && nums.start[t + 1] == pos + 1 && nums.value[t + 1] < 60) {
+            minute = nums.value[t + 1];
+            pos = nums.end[t + 1];
+        } else {
+            return null;
+        }
+        return new int[]{hour, minute, pos};
+    }
+
+    private static LocalTime toAfternoon(LocalTime time, DayPeriod period) {
+        int h = time.getHour();
+        boolean pm = (period == DayPeriod.AFTERNOON || period == DayPeriod.EVENING) ? (h >= 1 && h < 12)
+                : (period == DayPeriod.ALL && h >= 1 && h <= 6);
+        return pm ? time.plusHours(12) : time;
+    }
+
+    private static boolean allowsChineseHour(char prev) {
+        return prev == 0 || prev == '午' || prev == '上' || prev == '晨' || prev == '间' || prev == '里'
+                || prev == '晚' || prev == '到' || prev == '至' || prev == '天' || prev == '日';
+    }
+
+    private static boolean isRangeSeparator(char c) {
+        return c == '到' || c == '至' || c == '-' || c == '~' || c == '～' || c == '—' || c == '、';
+    }
+
+    /** 与正则 \s 相同的空白字符 */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    private static char at(char[] q, int n, int i) {
+        return i >= 0 && i < n ? q[i] : 0;
+    }
+
+    /**
+     * 扫描过程中顺带切出的数字片段：阿拉伯数字串，或“三”“十一”“二十”这类中文数字。
+     * 相邻两个中文个位数（如“一二”）切成两段，便于识别“第一二节”。
+     */
+    private static final class Numbers {
+        final int[] start;
+        final int[] end;
+        final int[] value;
+        final boolean[] chinese;
+        int count;
+
+        /** 当前片段：-1=无，0=阿拉伯数字，1=中文数字 */
+        private int kind = -1;
+        private int total;
+        /** 中文数字里尚未乘位的个位，-1 表示没有 */
+        private int pending;
+        private int last;
+
+        Numbers(int capacity) {
+            start = new int[capacity];
+            end = new int[capacity];
+            value = new int[capacity];
+            chinese = new boolean[capacity];
+        }
+
+        void accept(char c, int pos) {
+            if (c >= '0' && c <= '9') {
+                if (kind != 0) {
+                    finish();
+                    begin(0, pos);
+                }
+                if (total < 100_000) {
+                    total = total * 10 + (c - '0');
+                }
+            } else if (c == '十') {
+                if (kind != 1) {
+                    finish();
+                    begin(1, pos);
+                }
+                total += (pending < 0 ? 1 : pending) * 10;
+                pending = -1;
+            } else {
+                int d = chineseDigit(c);
+                if (d < 0) {
+                    finish();
+                    return;
+                }
+                if (kind != 1 || pending >= 0) {
+                    finish();
+                    begin(1, pos);
+                }
+                pending = d;
+            }
+            last = pos;
+        }
+
+        void finish() {
+            if (kind < 0) {
+                return;
+            }
+            end[count] = last + 1;
+            value[count] = kind == 1 ? total + Math.max(pending, 0) : total;
+            chinese[count] = kind == 1;
+            count++;
+            kind = -1;
+        }
+
+        private void begin(int kind, int pos) {
+            this.kind = kind;
+            this.total = 0;
+            this.pending = -1;
+            start[count] = pos;
+        }
+
+        private static int chineseDigit(char c) {
+            return switch (c) {
+                case '零', '〇' -> 0;
+                case '一' -> 1;
+                case '二', '两' -> 2;
+                case '三' -> 3;
+                case '四' -> 4;
+                case '五' -> 5;
+                case '六' -> 6;
+                case '七' -> 7;
+                case '八' -> 8;
+                case '九' -> 9;
+                default -> -1;
+            };
+        }
+    }
 }
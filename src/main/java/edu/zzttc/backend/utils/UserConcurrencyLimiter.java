@@ -0,0 +1,56 @@
+package edu.zzttc.backend.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按用户限制同时进行中的流式问答数。计数归零的用户即从表中移除，表的大小只与在线请求数有关。
+ */
+@Component
+public class UserConcurrencyLimiter {
+
+    private final int maxPerUser;
+    private final Map<Integer, Integer> inFlight = new ConcurrentHashMap<>();
+    private final Counter rejected;
+
+    public UserConcurrencyLimiter(@Value("${schedule.qa.max-streams-per-user:2}") int maxPerUser,
+            MeterRegistry meterRegistry) {
+        this.maxPerUser = Math.max(1, maxPerUser);
+        this.rejected = Counter.builder("schedule.qa.user.rejected")
+                .description("因单用户并发超限被拒绝的问答数")
+                .register(meterRegistry);
+        Gauge.builder("schedule.qa.streams.active", inFlight,
+                        m -> m.values().stream().mapToInt(Integer::intValue).sum())
+                .description("进行中的流式问答数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 占用一个名额，已达上限返回 false；成功后必须且只能调用一次 release
+     */
+    public boolean tryAcquire(Integer userId) {
+        boolean[] acquired = new boolean[1];
+        inFlight.compute(userId, (k, n) -> {
+            int current = n == null ? 0 : n;
+            if (current >= maxPerUser) {
+                return n;
+            }
+            acquired[0] = true;
+            return current + 1;
+        });
+        if (!acquired[0]) {
+            rejected.increment();
+        }
+        return acquired[0];
+    }
+
+    public void release(Integer userId) {
+        inFlight.computeIfPresent(userId, (k, n) -> n <= 1 ? null : n - 1);
+    }
+}
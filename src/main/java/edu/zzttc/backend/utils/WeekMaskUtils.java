@@ -0,0 +1,157 @@
+package edu.zzttc.backend.utils;
+
+import edu.zzttc.backend.domain.entity.ScheduleItem;
+
+/**
+ * 周次位图工具：第 n 周对应第 n-1 位，一个 long 最多表示 1~63 周（保留符号位，便于直接存 BIGINT）。
+ * 既能表达“1-16周 / 单周 / 双周”，也能表达“1,3,7-9周”这类不规则周次。
+ */
+public final class WeekMaskUtils {
+
+    /** 位图可表示的最大周次 */
+    public static final int MAX_WEEK = 63;
+
+    /** 所有单周（1,3,5...）对应的位 */
+    private static final long ODD_WEEKS = 0x5555555555555555L & Long.MAX_VALUE;
+    /** 所有双周（2,4,6...）对应的位 */
+    private static final long EVEN_WEEKS = 0xAAAAAAAAAAAAAAAAL & Long.MAX_VALUE;
+
+    private WeekMaskUtils() {}
+
+    /**
+     * 由 起止周 + 单双周 构造位图
+     * @param oddEven 0=全部周，1=单周，2=双周（null 视为 0）
+     */
+    public static long of(Integer weekStart, Integer weekEnd, Integer oddEven) {
+        if (weekStart == null || weekEnd == null) {
+            return 0L;
+        }
+        int start = Math.max(1, Math.min(weekStart, weekEnd));
+        int end = Math.min(MAX_WEEK, Math.max(weekStart, weekEnd));
+        if (start > end) {
+            return 0L;
+        }
+        long mask = range(start, end);
+        if (oddEven != null && oddEven == 1) {
+            mask &= ODD_WEEKS;
+        } else if (oddEven != null && oddEven == 2) {
+            mask &= EVEN_WEEKS;
+        }
+        return mask;
+    }
+
+    /**
+     * 排课记录的位图：优先使用已落库的 week_mask，老数据则按 起止周 + 单双周 现算
+     */
+    public static long maskOf(ScheduleItem item) {
+        if (item.getWeekMask() != null && item.getWeekMask() != 0L) {
+            return item.getWeekMask();
+        }
+        return of(item.getWeekStart(), item.getWeekEnd(), item.getWeekOddEven());
+    }
+
+    /**
+     * 解析“1,3,7-9”“1-7周、9周”“1-15单”这类周次表达式，无法识别的片段忽略
+     */
+    public static long parse(String expr) {
+        if (expr == null || expr.isBlank()) {
+            return 0L;
+        }
+        long mask = 0L;
+        for (String part : expr.split("[,，、;；\\s]+")) {
+            String p = part.replace("周", "").replace("第", "").trim();
+            if (p.isEmpty()) {
+                continue;
+            }
+            int oddEven = 0;
+            if (p.endsWith("单")) {
+                oddEven = 1;
+                p = p.substring(0, p.length() - 1);
+            } else if (p.endsWith("双")) {
+                oddEven = 2;
+                p = p.substring(0, p.length() - 1);
+            }
+            p = p.replace('～', '-').replace('~', '-').replace('—', '-').replace('至', '-');
+            try {
+                int dash = p.indexOf('-');
+                if (dash > 0) {
+                    int s = Integer.parseInt(p.substring(0, dash).trim());
+                    int e = Integer.parseInt(p.substring(dash + 1).trim());
+                    mask |= of(s, e, oddEven);
+                } else {
+                    int w = Integer.parseInt(p);
+                    mask |= of(w, w, oddEven);
+                }
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * 第 week 周是否上课
+     */
+    public static boolean contains(long mask, int week) {
+        return week >= 1 && week <= MAX_WEEK && (mask & (1L << (week - 1))) != 0;
+    }
+
+    /** 位图中最小的周次，空位图返回 0 */
+    public static int minWeek(long mask) {
+        return mask == 0L ? 0 : Long.numberOfTrailingZeros(mask) + 1;
+    }
+
+    /** 位图中最大的周次，空位图返回 0 */
+    public static int maxWeek(long mask) {
+        return mask == 0L ? 0 : 64 - Long.numberOfLeadingZeros(mask);
+    }
+
+    /**
+     * 位图 -> “1,3,7-9” 形式
+     */
+    public static String format(long mask) {
+        StringBuilder sb = new StringBuilder();
+        int w = 1;
+        while (w <= MAX_WEEK) {
+            if (!contains(mask, w)) {
+                w++;
+                continue;
+            }
+            int end = w;
+            while (end + 1 <= MAX_WEEK && contains(mask, end + 1)) {
+                end++;
+            }
+            if (sb.length() > 0) {
+                sb.append(",");
+            }
+            sb.append(w);
+            if (end > w) {
+                sb.append("-").append(end);
+            }
+            w = end + 1;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 周次的展示文本：“1-16周”“1-15单周”“1,3,7-9周”。
+     * 位图与 起止周 + 单双周 一致时按区间写（保留单双周后缀），不规则周次按位图写；都没有时为“周次未知”
+     */
+    public static String describe(Long mask, Integer weekStart, Integer weekEnd, Integer oddEven) {
+        long regular = of(weekStart, weekEnd, oddEven);
+        if (mask != null && mask != 0L && mask != regular) {
+            return format(mask) + "周";
+        }
+        if (regular == 0L) {
+            return "周次未知";
+        }
+        String range = weekStart.equals(weekEnd) ? String.valueOf(weekStart) : weekStart + "-" + weekEnd;
+        String suffix = oddEven == null ? "" : oddEven == 1 ? "单" : oddEven == 2 ? "双" : "";
+        return range + suffix + "周";
+    }
+
+    private static long range(int start, int end) {
+        long upper = (end == 64) ? -1L : (1L << end) - 1;
+        long lower = (1L << (start - 1)) - 1;
+        return upper & ~lower;
+    }
+}
@@ -0,0 +1,18 @@
+-- 排课周次位图：第 n 周对应第 n-1 位（1~63 周）
+-- 查询时一次位测试即可判断某周是否上课，并可表达“1,3,7-9周”等不规则周次
+ALTER TABLE db_schedule_item
+    ADD COLUMN week_mask BIGINT NULL COMMENT '周次位图，第n周对应第n-1位' AFTER week_odd_even;
+
+-- 回填存量数据：由 起止周 + 单双周 计算（0x5555... 为单周位，0xAAAA... 为双周位）
+UPDATE db_schedule_item
+SET week_mask = CAST(
+        (((1 << LEAST(week_end, 63)) - 1) & ~((1 << (GREATEST(week_start, 1) - 1)) - 1))
+        & CASE week_odd_even
+              WHEN 1 THEN 0x5555555555555555
+              WHEN 2 THEN 0x2AAAAAAAAAAAAAAA
+              ELSE 0x7FFFFFFFFFFFFFFF
+          END
+    AS SIGNED)
+WHERE week_mask IS NULL
+  AND week_start IS NOT NULL
+  AND week_end IS NOT NULL;
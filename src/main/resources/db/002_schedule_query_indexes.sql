@@ -0,0 +1,8 @@
+-- 课表查询索引
+-- 1. 排课：按 用户 + 学期 定位，星期/周次区间紧随其后，便于按天按周的范围扫描
+CREATE INDEX idx_schedule_item_user_term_day_week
+    ON db_schedule_item (user_id, term_id, day_of_week, week_start, week_end);
+
+-- 2. 学期：按 用户 取 start_date <= 某日 的最近一个学期（ORDER BY start_date DESC LIMIT 1）
+CREATE INDEX idx_term_config_user_start
+    ON db_term_config (user_id, start_date);
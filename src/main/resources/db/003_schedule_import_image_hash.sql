@@ -0,0 +1,6 @@
+-- 课表截图内容哈希：同一张截图重复上传时直接复用已解析的 parsed_json，不再调用视觉大模型
+ALTER TABLE db_schedule_import
+    ADD COLUMN image_hash CHAR(64) NULL COMMENT '截图内容 SHA-256（十六进制）' AFTER image_url;
+
+CREATE INDEX idx_schedule_import_hash_status
+    ON db_schedule_import (image_hash, status);
@@ -0,0 +1,26 @@
+-- 课程唯一键：同一用户同一学期内 (课程名, 教师) 唯一，导入时据此做多行 INSERT ... ON DUPLICATE KEY UPDATE
+-- 1. 教师为空统一存空串，NULL 不参与唯一性比较
+UPDATE db_course SET teacher_name = '' WHERE teacher_name IS NULL;
+
+-- 2. 存量重复课程：排课改指向保留的那条（id 最小），再删除多余的
+UPDATE db_schedule_item si
+    JOIN db_course c ON c.id = si.course_id
+    JOIN (SELECT MIN(id) AS keep_id, user_id, term_id, course_name, teacher_name
+          FROM db_course
+          GROUP BY user_id, term_id, course_name, teacher_name
+          HAVING COUNT(*) > 1) d
+         ON d.user_id = c.user_id AND d.term_id = c.term_id
+             AND d.course_name = c.course_name AND d.teacher_name = c.teacher_name
+SET si.course_id = d.keep_id
+WHERE si.course_id <> d.keep_id;
+
+DELETE c
+FROM db_course c
+         JOIN db_course k
+              ON k.user_id = c.user_id AND k.term_id = c.term_id
+                  AND k.course_name = c.course_name AND k.teacher_name = c.teacher_name
+                  AND k.id < c.id;
+
+-- 3. 唯一键
+ALTER TABLE db_course
+    ADD UNIQUE KEY uk_course_user_term_name_teacher (user_id, term_id, course_name, teacher_name);
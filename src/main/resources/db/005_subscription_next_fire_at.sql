@@ -0,0 +1,7 @@
+-- 每日摘要的下次发送时刻（UTC 毫秒时间戳）：定时任务每分钟只取 next_fire_at <= 当前时刻 的订阅，
+-- 不再逐行换算时区比对 HH:mm。取消订阅时置空；存量订阅为空，由定时任务首次运行时分批回填
+ALTER TABLE db_subscription_preference
+    ADD COLUMN next_fire_at BIGINT NULL COMMENT '下次发送每日摘要的时刻（UTC 毫秒时间戳）' AFTER last_sent_date;
+
+CREATE INDEX idx_subscription_subscribed_next_fire
+    ON db_subscription_preference (subscribed, next_fire_at);
@@ -0,0 +1,9 @@
+-- 排课索引收窄为 (user_id, term_id)：按天/按周的筛选都在内存中的已编译课表上完成，
+-- 数据库侧只有 selectTermDetails（按 用户 + 学期 取全量）与清空课表（按 用户）两种访问，
+-- 002 中的 day_of_week/week_start/week_end 三列从未被用到，只增加写入与存储开销。
+-- 二级索引的叶子节点自带主键，(user_id, term_id) 等值定位后的行即按 id 有序，ORDER BY si.id 不再需要 filesort；
+-- 查询要取回 classroom/remark 等全部列并联表 db_course，做成覆盖索引并不划算。
+DROP INDEX idx_schedule_item_user_term_day_week ON db_schedule_item;
+
+CREATE INDEX idx_schedule_item_user_term
+    ON db_schedule_item (user_id, term_id);
@@ -0,0 +1,45 @@
+package edu.zzttc.backend.service.ai.impl;
+
+import edu.zzttc.backend.service.schedule.model.ScheduleParsed;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsedItem;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JsonScheduleParserTest {
+
+    @Test
+    void irregularWeeksBecomeMask() {
+        ScheduleParsed parsed = JsonScheduleParser.parse("""
+                {"items":[{"courseName":"会计学","courseCode":"R0905730.01","teacherName":"鲜文铎",
+                  "dayOfWeek":1,"sectionStart":1,"sectionCount":2,"weekStart":1,"weekEnd":9,
+                  "weekOddEven":0,"weeks":"1,3,7-9","classroom":"第二教学楼204"}]}
+                """);
+
+        ScheduleParsedItem it = parsed.getItems().get(0);
+        assertEquals(453L, it.getWeekMask());
+        assertEquals(1, it.getWeekStart());
+        assertEquals(9, it.getWeekEnd());
+        assertEquals("1,3,7-9周,第1-2节,第二教学楼204", it.getRawTimeExpr());
+    }
+
+    @Test
+    void contiguousWeeksKeepRange() {
+        ScheduleParsed parsed = JsonScheduleParser.parse("""
+                ```json
+                {"items":[{"courseName":"大学物理实验","courseCode":null,"teacherName":"王磊",
+                  "dayOfWeek":3,"sectionStart":3,"sectionCount":2,"weekStart":1,"weekEnd":15,
+                  "weekOddEven":1,"weeks":null,"classroom":"物理实验楼301"},
+                  {"courseName":"","dayOfWeek":3,"sectionStart":5}]}
+                ```
+                """);
+
+        assertEquals(1, parsed.getItems().size());
+        ScheduleParsedItem it = parsed.getItems().get(0);
+        assertNull(it.getWeekMask());
+        assertEquals(1, it.getWeekOddEven());
+        assertEquals("1-15周,第3-4节,物理实验楼301", it.getRawTimeExpr());
+        assertEquals(1, parsed.getCourses().size());
+    }
+}
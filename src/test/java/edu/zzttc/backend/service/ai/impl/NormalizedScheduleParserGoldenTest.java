@@ -0,0 +1,65 @@
+package edu.zzttc.backend.service.ai.impl;
+
+import com.alibaba.fastjson2.JSON;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsed;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 规范课表文本解析的黄金用例：schedule/normalized 下每个 .txt 为大模型输出的文本，
+ * 同名 .json 为期望的 ScheduleParsed（01~12 由改写前基于正则的解析器生成，包含其对不规范输入的处理结果；
+ * 13 覆盖正则版不支持的不规则周次与单双周）。
+ * 解析规则有意调整时，需同步更新对应的 .json。
+ */
+class NormalizedScheduleParserGoldenTest {
+
+    private static final String CORPUS = "schedule/normalized";
+
+    static Stream<String> cases() throws IOException, URISyntaxException {
+        Path dir = corpusDir();
+        try (Stream<Path> files = Files.list(dir)) {
+            List<String> names = files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.endsWith(".txt"))
+                    .sorted()
+                    .toList();
+            return names.stream();
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("cases")
+    void matchesGoldenFile(String name) throws IOException, URISyntaxException {
+        Path dir = corpusDir();
+        String text = Files.readString(dir.resolve(name));
+        ScheduleParsed expected = JSON.parseObject(
+                Files.readString(dir.resolve(name.replace(".txt", ".json"))), ScheduleParsed.class);
+
+        ScheduleParsed actual = NormalizedScheduleParser.parse(text);
+
+        assertEquals(expected.getCourses(), actual.getCourses(), name + " 课程不一致");
+        assertEquals(expected.getItems(), actual.getItems(), name + " 排课不一致");
+    }
+
+    @Test
+    void rejectsTextWithoutDayHeader() {
+        assertThrows(RuntimeException.class,
+                () -> NormalizedScheduleParser.parse("第一、二节 网络安全攻防技术 赵洋 R0902840.01 1-7周 第二教学楼104；"));
+    }
+
+    private static Path corpusDir() throws URISyntaxException {
+        return Path.of(Objects.requireNonNull(
+                NormalizedScheduleParserGoldenTest.class.getClassLoader().getResource(CORPUS)).toURI());
+    }
+}
@@ -0,0 +1,99 @@
+package edu.zzttc.backend.service.ai.impl;
+
+import edu.zzttc.backend.domain.vo.schedule.DailyCourseVO;
+import edu.zzttc.backend.service.schedule.ScheduleChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 问答回答缓存：问句归一化、课表变更后失效、事实不同不得复用
+ */
+class QaAnswerCacheTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 3, 10);
+
+    private SimpleMeterRegistry registry;
+    private QaAnswerCache cache;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        cache = new QaAnswerCache(100, 30, registry);
+    }
+
+    @Test
+    void equivalentPhrasingsNormalizeToSameIntent() {
+        String base = QaAnswerCache.normalizeIntent("明天上午有什么课？");
+        assertEquals(base, QaAnswerCache.normalizeIntent("请问明天上午有哪些课呢"));
+        assertEquals(base, QaAnswerCache.normalizeIntent(" 明天 上午 有啥课程 "));
+        assertEquals(base, QaAnswerCache.normalizeIntent("帮我查一下明天上午有什么课吗?"));
+    }
+
+    @Test
+    void timeWordsAreKept() {
+        assertNotEquals(QaAnswerCache.normalizeIntent("明天有什么课"),
+                QaAnswerCache.normalizeIntent("今天有什么课"));
+        assertEquals("", QaAnswerCache.normalizeIntent(null));
+    }
+
+    @Test
+    void hitsForEquivalentQuestion() {
+        List<DailyCourseVO> courses = List.of(course("高等数学", 1));
+        cache.put(cache.key(1, "明天上午有什么课", DATE, courses, List.of()), "高等数学", 1_000_000L, 10);
+
+        assertEquals("高等数学", cache.get(cache.key(1, "请问明天上午有哪些课？", DATE, courses, List.of())));
+        assertEquals(1.0, registry.get("schedule.qa.answer.cache").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void scheduleChangeInvalidatesOnlyThatUser() {
+        List<DailyCourseVO> courses = List.of(course("高等数学", 1));
+        cache.put(cache.key(1, "明天有什么课", DATE, courses, List.of()), "a", 0L, 0);
+        cache.put(cache.key(2, "明天有什么课", DATE, courses, List.of()), "b", 0L, 0);
+
+        cache.onScheduleChanged(new ScheduleChangedEvent(1));
+
+        assertNull(cache.get(cache.key(1, "明天有什么课", DATE, courses, List.of())));
+        assertEquals("b", cache.get(cache.key(2, "明天有什么课", DATE, courses, List.of())));
+    }
+
+    @Test
+    void differentFactsDoNotShareAnswer() {
+        cache.put(cache.key(1, "明天有什么课", DATE, List.of(course("高等数学", 1)), List.of()), "a", 0L, 0);
+
+        assertNull(cache.get(cache.key(1, "明天有什么课", DATE, List.of(course("高等数学", 3)), List.of())));
+        assertNull(cache.get(cache.key(1, "明天有什么课", DATE, List.of(course("线性代数", 1)), List.of())));
+        assertNull(cache.get(cache.key(1, "明天有什么课", DATE, List.of(course("高等数学", 1)), List.of("计划=复习"))));
+        assertEquals("a", cache.get(cache.key(1, "明天有什么课", DATE, List.of(course("高等数学", 1)), List.of())));
+    }
+
+    @Test
+    void fieldBoundariesAreUnambiguous() {
+        // 字段拼接相同但切分不同的两组事实不能算作同一组
+        assertNotEquals(cache.key(1, "q", DATE, List.of(), List.of("ab", "c")),
+                cache.key(1, "q", DATE, List.of(), List.of("a", "bc")));
+    }
+
+    @Test
+    void blankAnswerIsNotCached() {
+        QaAnswerCache.Key key = cache.key(1, "明天有什么课", DATE, List.of(), List.of());
+        cache.put(key, " ", 0L, 0);
+        assertNull(cache.get(key));
+    }
+
+    private static DailyCourseVO course(String name, int sectionStart) {
+        DailyCourseVO c = new DailyCourseVO();
+        c.setCourseName(name);
+        c.setSectionStart(sectionStart);
+        c.setSectionCount(2);
+        return c;
+    }
+}
@@ -0,0 +1,149 @@
+package edu.zzttc.backend.service.ai.impl;
+
+import edu.zzttc.backend.service.schedule.model.ScheduleParsed;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsedCourse;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsedItem;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+/**
+ * 分块识别的合并：每块只保留自己负责的星期，课程按 课程名@@教师 去重并补全课程代码，任一块失败即整体失败
+ */
+class ScheduleAiServiceImplTest {
+
+    @TempDir
+    Path dir;
+
+    private ThreadPoolExecutor executor;
+    private ScheduleAiServiceImpl service;
+    /** 每次单块识别收到的切块文件 */
+    private final List<Path> tilePaths = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        service = spy(new ScheduleAiServiceImpl());
+        ReflectionTestUtils.setField(service, "tileDayColumns", 7);
+        ReflectionTestUtils.setField(service, "tileDaysPerTile", 2);
+        ReflectionTestUtils.setField(service, "tileLabelRatio", 0.1);
+        ReflectionTestUtils.setField(service, "tileOverlapRatio", 0.15);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "scheduleTileExecutor", executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void keepsOnlyEachTilesDaysAndMergesCourses() throws IOException {
+        // 块按 (一,二) (三,四) (五,六) (日) 切分；重叠区域里被相邻块看到的课要丢掉
+        stubTiles(Map.of(
+                "星期一至星期二", parsed(
+                        List.of(course("高等数学", "李老师", null), course("大学英语", "王老师", "E1")),
+                        item("高等数学", "李老师", 1), item("大学英语", "王老师", 3)),
+                "星期三至星期四", parsed(
+                        List.of(course("大学英语", "王老师", "E1"), course("高等数学", "李老师", "M1")),
+                        item("高等数学", "李老师", 2), item("大学英语", "王老师", 3), item("高等数学", "李老师", 4)),
+                "星期五至星期六", parsed(List.of()),
+                "星期日", parsed(List.of(course("大学物理", null, null)), item("大学物理", null, 7))));
+
+        ScheduleParsed merged = service.recognizeTiled(timetable());
+
+        assertEquals(List.of(1, 3, 4, 7), merged.getItems().stream().map(ScheduleParsedItem::getDayOfWeek).toList());
+        assertEquals(List.of("高等数学", "大学英语", "大学物理"),
+                merged.getCourses().stream().map(ScheduleParsedCourse::getCourseName).toList());
+        // 第一块没认出课程代码，由第二块补上
+        assertEquals("M1", merged.getCourses().get(0).getCourseCode());
+        assertEquals("E1", merged.getCourses().get(1).getCourseCode());
+        assertNull(merged.getCourses().get(2).getCourseCode());
+
+        assertEquals(4, tilePaths.size());
+        tilePaths.forEach(p -> assertFalse(Files.exists(p)));
+    }
+
+    @Test
+    void anyFailedTileFailsTheWholeResult() throws IOException {
+        stubTiles(Map.of(
+                "星期一至星期二", parsed(List.of(course("高等数学", "李老师", null)), item("高等数学", "李老师", 1)),
+                "星期三至星期四", parsed(List.of()),
+                "星期日", parsed(List.of())));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.recognizeTiled(timetable()));
+        assertEquals("模型超时", e.getMessage());
+        tilePaths.forEach(p -> assertFalse(Files.exists(p)));
+    }
+
+    /** 按范围说明里的星期分派每块的识别结果，未列出的块抛出异常 */
+    private void stubTiles(Map<String, ScheduleParsed> byRange) throws IOException {
+        doAnswer(inv -> {
+            tilePaths.add(inv.getArgument(0));
+            String scope = inv.getArgument(1);
+            for (Map.Entry<String, ScheduleParsed> e : byRange.entrySet()) {
+                if (scope.contains("以及" + e.getKey() + "的列")) {
+                    return e.getValue();
+                }
+            }
+            throw new RuntimeException("模型超时");
+        }).when(service).recognizeAsJson(any(), anyString());
+    }
+
+    private Path timetable() throws IOException {
+        Path src = dir.resolve("timetable.png");
+        ImageIO.write(new BufferedImage(800, 40, BufferedImage.TYPE_INT_RGB), "png", src.toFile());
+        return src;
+    }
+
+    private static ScheduleParsed parsed(List<ScheduleParsedCourse> courses, ScheduleParsedItem... items) {
+        ScheduleParsed p = new ScheduleParsed();
+        p.setCourses(new ArrayList<>(courses));
+        p.setItems(new ArrayList<>(List.of(items)));
+        p.setRawOcrText("{}");
+        return p;
+    }
+
+    private static ScheduleParsedCourse course(String name, String teacher, String code) {
+        ScheduleParsedCourse c = new ScheduleParsedCourse();
+        c.setCourseName(name);
+        c.setTeacherName(teacher);
+        c.setCourseCode(code);
+        return c;
+    }
+
+    private static ScheduleParsedItem item(String name, String teacher, int day) {
+        ScheduleParsedItem it = new ScheduleParsedItem();
+        it.setCourseName(name);
+        it.setTeacherName(teacher);
+        it.setDayOfWeek(day);
+        it.setSectionStart(1);
+        it.setSectionCount(2);
+        return it;
+    }
+}
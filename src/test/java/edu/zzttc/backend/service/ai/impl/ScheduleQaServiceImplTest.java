@@ -0,0 +1,75 @@
+package edu.zzttc.backend.service.ai.impl;
+
+import edu.zzttc.backend.service.ai.RagChatService;
+import edu.zzttc.backend.service.search.ScheduleIndexService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * 问答路由：本地模板按请求的参考日期说今天/明天，整周/整月的问题不走模板，路由计数与实际走的分支一致
+ */
+class ScheduleQaServiceImplTest {
+
+    private static final LocalDate BASE = LocalDate.of(2025, 11, 3);
+
+    private SimpleMeterRegistry registry;
+    private RagChatService ragChatService;
+    private ScheduleQaServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        ragChatService = mock(RagChatService.class);
+        service = new ScheduleQaServiceImpl();
+        ReflectionTestUtils.setField(service, "ragChatService", ragChatService);
+        ReflectionTestUtils.setField(service, "scheduleIndexService", mock(ScheduleIndexService.class));
+        ReflectionTestUtils.setField(service, "answerCache", new QaAnswerCache(100, 30, registry));
+        ReflectionTestUtils.setField(service, "meterRegistry", registry);
+        ReflectionTestUtils.setField(service, "askUseAi", false);
+        ReflectionTestUtils.setField(service, "localAnswerEnabled", true);
+        ReflectionTestUtils.setField(service, "topK", 8);
+    }
+
+    @Test
+    void localAnswerUsesRequestBaseDate() {
+        String answer = service.answer(1, "明天上午有什么课", BASE, BASE.plusDays(1), List.of());
+
+        assertEquals("明天上午没有安排课程。", answer);
+        assertEquals(1.0, routeCount("local"));
+    }
+
+    @Test
+    void openQuestionWithAiDisabledIsNotCountedAsLlm() {
+        service.answer(1, "明天的高数在哪个教室", BASE, BASE.plusDays(1), List.of());
+
+        assertEquals(1.0, routeCount("basic"));
+        assertEquals(0.0, routeCount("llm"));
+        verifyNoInteractions(ragChatService);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"下周有什么课", "本周的课表", "11月有什么课", "第5周有什么课"})
+    void weekOrMonthQuestionsAreNotAnsweredForOneDay(String question) {
+        String answer = service.answer(1, question, BASE, BASE, List.of());
+
+        assertEquals(BASE + " 没有安排课程。", answer);
+        assertEquals(0.0, routeCount("local"));
+        assertEquals(1.0, routeCount("basic"));
+    }
+
+    private double routeCount(String route) {
+        var counter = registry.find("schedule.qa.route").tag("route", route).counter();
+        return counter == null ? 0.0 : counter.count();
+    }
+}
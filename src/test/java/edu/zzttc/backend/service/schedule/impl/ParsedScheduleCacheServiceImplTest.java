@@ -0,0 +1,105 @@
+package edu.zzttc.backend.service.schedule.impl;
+
+import com.alibaba.fastjson2.JSON;
+import edu.zzttc.backend.domain.entity.ScheduleImport;
+import edu.zzttc.backend.mapper.ScheduleImportMapper;
+import edu.zzttc.backend.service.schedule.model.ScheduleParseMode;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsed;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 截图解析缓存：按 (识别方式, 哈希) 区分，回退到导入记录时也只取同一识别方式的结果
+ */
+class ParsedScheduleCacheServiceImplTest {
+
+    private final Map<String, String> redis = new HashMap<>();
+    private ScheduleImportMapper mapper;
+    private ParsedScheduleCacheServiceImpl service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> ops = mock(ValueOperations.class);
+        when(template.opsForValue()).thenReturn(ops);
+        when(ops.get(anyString())).thenAnswer(inv -> redis.get(inv.<String>getArgument(0)));
+        doAnswer(inv -> redis.put(inv.getArgument(0), inv.getArgument(1)))
+                .when(ops).set(anyString(), anyString(), anyLong(), any(TimeUnit.class));
+        mapper = mock(ScheduleImportMapper.class);
+        when(mapper.selectList(any())).thenReturn(List.of());
+
+        service = new ParsedScheduleCacheServiceImpl(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", template);
+        ReflectionTestUtils.setField(service, "scheduleImportMapper", mapper);
+        ReflectionTestUtils.setField(service, "ttlDays", 30L);
+    }
+
+    @Test
+    void modesDoNotShareEntries() {
+        service.put("h", ScheduleParseMode.TEXT, parsed(ScheduleParseMode.TEXT, "text"));
+
+        assertEquals("text", service.get("h", ScheduleParseMode.TEXT).getRawOcrText());
+        assertNull(service.get("h", ScheduleParseMode.JSON));
+        assertNull(service.get("h", ScheduleParseMode.TILED));
+    }
+
+    @Test
+    void storedUnderGivenModeOnly() {
+        // 退回文本模式的结果由导入方按 TEXT 存放，这里只按传入的方式存取
+        service.put("h", ScheduleParseMode.TEXT, parsed(ScheduleParseMode.TEXT, "fallback"));
+
+        assertEquals("fallback", service.get("h", ScheduleParseMode.TEXT).getRawOcrText());
+        assertNull(service.get("h", ScheduleParseMode.JSON));
+    }
+
+    @Test
+    void databaseFallbackMatchesMode() {
+        when(mapper.selectList(any())).thenReturn(List.of(
+                record(parsed(ScheduleParseMode.TILED, "tiled")),
+                record(parsed(null, "legacy"))));
+
+        assertEquals("tiled", service.get("h", ScheduleParseMode.TILED).getRawOcrText());
+        // 没有识别方式字段的旧记录按文本模式
+        assertEquals("legacy", service.get("h", ScheduleParseMode.TEXT).getRawOcrText());
+        assertNull(service.get("h", ScheduleParseMode.JSON));
+        // 回查到的结果写回 Redis
+        assertNotNull(redis.get("schedule:parsed:tiled:h"));
+    }
+
+    private static ScheduleParsed parsed(ScheduleParseMode mode, String marker) {
+        ScheduleParsed p = new ScheduleParsed();
+        p.setParseMode(mode);
+        p.setRawOcrText(marker);
+        p.setCourses(List.of());
+        p.setItems(List.of());
+        return p;
+    }
+
+    private static ScheduleImport record(ScheduleParsed parsed) {
+        ScheduleImport imp = new ScheduleImport();
+        imp.setStatus("SUCCESS");
+        imp.setImageHash("h");
+        imp.setParsedJson(JSON.toJSONString(parsed));
+        return imp;
+    }
+}
@@ -0,0 +1,83 @@
+package edu.zzttc.backend.service.schedule.impl;
+
+import edu.zzttc.backend.service.schedule.ScheduleChangedEvent;
+import edu.zzttc.backend.utils.Const;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 课表变更广播：本地变更发到频道，其他实例的消息以 remote 事件重新发布，自己发出的与远端转来的不再转发
+ */
+class ScheduleChangeBroadcasterTest {
+
+    private StringRedisTemplate template;
+    private ApplicationEventPublisher publisher;
+    private ScheduleChangeBroadcaster a;
+    private ScheduleChangeBroadcaster b;
+
+    @BeforeEach
+    void setUp() {
+        template = mock(StringRedisTemplate.class);
+        publisher = mock(ApplicationEventPublisher.class);
+        a = broadcaster();
+        b = broadcaster();
+    }
+
+    @Test
+    void localChangeReachesOtherInstanceOnly() {
+        a.onScheduleChanged(new ScheduleChangedEvent(7));
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(template).convertAndSend(eq(Const.SCHEDULE_CHANGED_CHANNEL), body.capture());
+
+        // 自己收到自己的广播：忽略
+        a.onMessage(message(body.getValue()), null);
+        verify(publisher, never()).publishEvent(any());
+
+        b.onMessage(message(body.getValue()), null);
+        ArgumentCaptor<ScheduleChangedEvent> event = ArgumentCaptor.forClass(ScheduleChangedEvent.class);
+        verify(publisher).publishEvent(event.capture());
+        assertEquals(7, event.getValue().getUserId());
+        assertTrue(event.getValue().isRemote());
+    }
+
+    @Test
+    void remoteEventIsNotBroadcastAgain() {
+        b.onScheduleChanged(new ScheduleChangedEvent(7, true));
+        verify(template, never()).convertAndSend(anyString(), anyString());
+    }
+
+    @Test
+    void malformedMessageIsIgnored() {
+        b.onMessage(message("node:abc"), null);
+        b.onMessage(message("7"), null);
+        verify(publisher, never()).publishEvent(any());
+    }
+
+    private ScheduleChangeBroadcaster broadcaster() {
+        ScheduleChangeBroadcaster broadcaster = new ScheduleChangeBroadcaster();
+        ReflectionTestUtils.setField(broadcaster, "stringRedisTemplate", template);
+        ReflectionTestUtils.setField(broadcaster, "eventPublisher", publisher);
+        return broadcaster;
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(Const.SCHEDULE_CHANGED_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,140 @@
+package edu.zzttc.backend.service.schedule.impl;
+
+import com.alibaba.fastjson2.JSON;
+import edu.zzttc.backend.domain.vo.schedule.ScheduleUploadResultVO;
+import edu.zzttc.backend.service.schedule.ScheduleImportService;
+import edu.zzttc.backend.service.schedule.model.ScheduleImportJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 导入任务：消费者所在实例没有截图文件时，只靠任务随 Redis 保存的数据也能完成导入
+ */
+class ScheduleImportJobServiceImplTest {
+
+    private static final byte[] IMAGE = "png-bytes".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path uploadDir;
+
+    /** 两个实例共用的 Redis */
+    private final Map<String, String> values = new HashMap<>();
+    private final Map<String, byte[]> binaries = new HashMap<>();
+
+    private ScheduleImportService submitSide;
+    private ScheduleImportService consumeSide;
+
+    @BeforeEach
+    void setUp() {
+        submitSide = mock(ScheduleImportService.class);
+        consumeSide = mock(ScheduleImportService.class);
+    }
+
+    @Test
+    void consumerOnAnotherInstanceRestoresImageFromJobData() throws Exception {
+        Path saved = uploadDir.resolve("schedule_1.png");
+        when(submitSide.saveUpload(any())).thenAnswer(inv -> {
+            Files.write(saved, IMAGE);
+            return saved.toString();
+        });
+        ScheduleImportJob job = instance(submitSide).submit(1,
+                new MockMultipartFile("file", "a.png", "image/png", IMAGE), "2025秋", LocalDate.of(2025, 9, 1), 20, null);
+
+        // 消费者在另一台机器上：本地没有这张图
+        Files.delete(saved);
+        AtomicReference<byte[]> seen = new AtomicReference<>();
+        when(consumeSide.importSavedImage(eq(1), anyString(), eq("2025秋"), any(), eq(20), any(), any()))
+                .thenAnswer(inv -> {
+                    seen.set(Files.readAllBytes(Path.of(inv.<String>getArgument(1))));
+                    return new ScheduleUploadResultVO();
+                });
+
+        instance(consumeSide).process(job.getJobId());
+
+        assertArrayEquals(IMAGE, seen.get());
+        ScheduleImportJob done = JSON.parseObject(values.get("schedule:import:job:" + job.getJobId()), ScheduleImportJob.class);
+        assertEquals(ScheduleImportJob.SUCCESS, done.getStatus());
+        // 任务结束后不再保留截图字节
+        assertTrue(binaries.isEmpty());
+    }
+
+    @Test
+    void expiredImageFailsTheJob() throws Exception {
+        Path saved = uploadDir.resolve("schedule_2.png");
+        when(submitSide.saveUpload(any())).thenAnswer(inv -> {
+            Files.write(saved, IMAGE);
+            return saved.toString();
+        });
+        ScheduleImportJob job = instance(submitSide).submit(1,
+                new MockMultipartFile("file", "a.png", "image/png", IMAGE), "2025秋", LocalDate.of(2025, 9, 1), 20, null);
+        Files.delete(saved);
+        binaries.clear();
+
+        instance(consumeSide).process(job.getJobId());
+
+        ScheduleImportJob done = JSON.parseObject(values.get("schedule:import:job:" + job.getJobId()), ScheduleImportJob.class);
+        assertEquals(ScheduleImportJob.FAILED, done.getStatus());
+        assertFalse(Files.exists(saved));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ScheduleImportJobServiceImpl instance(ScheduleImportService importService) {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> ops = mock(ValueOperations.class);
+        when(template.opsForValue()).thenReturn(ops);
+        when(ops.get(anyString())).thenAnswer(inv -> values.get(inv.<String>getArgument(0)));
+        doAnswer(inv -> values.put(inv.getArgument(0), inv.getArgument(1)))
+                .when(ops).set(anyString(), anyString(), anyLong(), any(TimeUnit.class));
+        when(template.delete(anyString())).thenAnswer(inv -> binaries.remove(inv.<String>getArgument(0)) != null);
+
+        RedisStringCommands commands = mock(RedisStringCommands.class);
+        when(commands.set(any(byte[].class), any(byte[].class), any(), any())).thenAnswer(inv -> {
+            binaries.put(new String(inv.<byte[]>getArgument(0), StandardCharsets.UTF_8), inv.getArgument(1));
+            return true;
+        });
+        when(commands.get(any(byte[].class))).thenAnswer(inv ->
+                binaries.get(new String(inv.<byte[]>getArgument(0), StandardCharsets.UTF_8)));
+        RedisConnection connection = mock(RedisConnection.class);
+        when(connection.stringCommands()).thenReturn(commands);
+        when(template.execute(any(RedisCallback.class))).thenAnswer(inv ->
+                inv.<RedisCallback<Object>>getArgument(0).doInRedis(connection));
+
+        ScheduleImportJobServiceImpl service = new ScheduleImportJobServiceImpl();
+        ReflectionTestUtils.setField(service, "scheduleImportService", importService);
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", template);
+        ReflectionTestUtils.setField(service, "amqpTemplate", mock(AmqpTemplate.class));
+        ReflectionTestUtils.setField(service, "jobTtlHours", 24L);
+        ReflectionTestUtils.setField(service, "sseTimeoutMs", 1000L);
+        return service;
+    }
+}
@@ -0,0 +1,295 @@
+package edu.zzttc.backend.service.schedule.impl;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import edu.zzttc.backend.domain.entity.Course;
+import edu.zzttc.backend.domain.entity.ScheduleImport;
+import edu.zzttc.backend.domain.entity.ScheduleItem;
+import edu.zzttc.backend.domain.entity.TermConfig;
+import edu.zzttc.backend.domain.vo.schedule.ScheduleUploadResultVO;
+import edu.zzttc.backend.mapper.AccountMapper;
+import edu.zzttc.backend.mapper.CourseMapper;
+import edu.zzttc.backend.mapper.ScheduleImportMapper;
+import edu.zzttc.backend.mapper.ScheduleItemMapper;
+import edu.zzttc.backend.mapper.TermConfigMapper;
+import edu.zzttc.backend.service.ai.ScheduleAiService;
+import edu.zzttc.backend.service.schedule.ParsedScheduleCacheService;
+import edu.zzttc.backend.service.schedule.ScheduleChangedEvent;
+import edu.zzttc.backend.service.schedule.ScheduleRecognitionService;
+import edu.zzttc.backend.service.schedule.model.ScheduleParseMode;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsed;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsedCourse;
+import edu.zzttc.backend.service.schedule.model.ScheduleParsedItem;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 截图导入：学期配置只在落库事务内写入，解析失败时不改动；落库先锁用户行，只发布一次变更事件；
+ * 课程 id 按库表唯一键的比较规则对应
+ */
+class ScheduleImportServiceImplTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 9, 1);
+
+    private TermConfigMapper termConfigMapper;
+    private AccountMapper accountMapper;
+    private ScheduleImportMapper scheduleImportMapper;
+    private ScheduleAiService scheduleAiService;
+    private ApplicationEventPublisher eventPublisher;
+    private TransactionTemplate transactionTemplate;
+    private ParsedScheduleCacheService cache;
+    private CourseMapper courseMapper;
+    private ScheduleItemMapper scheduleItemMapper;
+    private ScheduleImportServiceImpl service;
+
+    @BeforeAll
+    static void initTableInfo() {
+        if (TableInfoHelper.getTableInfo(Course.class) == null) {
+            TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), Course.class);
+        }
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        termConfigMapper = mock(TermConfigMapper.class);
+        accountMapper = mock(AccountMapper.class);
+        scheduleImportMapper = mock(ScheduleImportMapper.class);
+        scheduleAiService = mock(ScheduleAiService.class);
+        when(scheduleAiService.defaultParseMode()).thenReturn(ScheduleParseMode.TEXT);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(inv ->
+                inv.<TransactionCallback<Object>>getArgument(0).doInTransaction(null));
+
+        cache = mock(ParsedScheduleCacheService.class);
+        when(cache.hash(anyString())).thenReturn("hash");
+        ScheduleRecognitionService recognition = mock(ScheduleRecognitionService.class);
+        when(recognition.normalizeAndValidate(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        courseMapper = mock(CourseMapper.class);
+        scheduleItemMapper = mock(ScheduleItemMapper.class);
+
+        service = new ScheduleImportServiceImpl();
+        ReflectionTestUtils.setField(service, "termConfigMapper", termConfigMapper);
+        ReflectionTestUtils.setField(service, "accountMapper", accountMapper);
+        ReflectionTestUtils.setField(service, "courseMapper", courseMapper);
+        ReflectionTestUtils.setField(service, "scheduleItemMapper", scheduleItemMapper);
+        ReflectionTestUtils.setField(service, "scheduleImportMapper", scheduleImportMapper);
+        ReflectionTestUtils.setField(service, "scheduleAiService", scheduleAiService);
+        ReflectionTestUtils.setField(service, "scheduleRecognitionService", recognition);
+        ReflectionTestUtils.setField(service, "eventPublisher", eventPublisher);
+        ReflectionTestUtils.setField(service, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(service, "parsedScheduleCacheService", cache);
+    }
+
+    @Test
+    void failedParseLeavesTermUntouched() {
+        TermConfig existing = term(7, LocalDate.of(2025, 2, 17), 18);
+        when(termConfigMapper.selectOne(any())).thenReturn(existing);
+        when(scheduleAiService.parseScheduleFromImage(anyString(), any(), any()))
+                .thenThrow(new RuntimeException("timeout"));
+
+        assertThrows(RuntimeException.class, () -> importImage());
+
+        verify(termConfigMapper, never()).updateById(any(TermConfig.class));
+        verify(termConfigMapper, never()).insert(any(TermConfig.class));
+        verify(eventPublisher, never()).publishEvent(any());
+        assertEquals(LocalDate.of(2025, 2, 17), existing.getStartDate());
+
+        ArgumentCaptor<ScheduleImport> record = ArgumentCaptor.forClass(ScheduleImport.class);
+        verify(scheduleImportMapper).insert(record.capture());
+        assertEquals("FAIL_AI", record.getValue().getStatus());
+        assertEquals(7, record.getValue().getTermId());
+    }
+
+    @Test
+    void parseSeesSubmittedTermValuesWithoutWriting() {
+        when(scheduleAiService.parseScheduleFromImage(anyString(), any(), any())).thenAnswer(inv -> {
+            TermConfig t = inv.getArgument(1);
+            assertEquals(START, t.getStartDate());
+            assertEquals(20, t.getTotalWeeks());
+            verify(termConfigMapper, never()).insert(any(TermConfig.class));
+            return emptyParsed();
+        });
+
+        importImage();
+
+        verify(termConfigMapper).insert(any(TermConfig.class));
+    }
+
+    @Test
+    void persistLocksUserThenWritesTermAndPublishesOnce() {
+        TermConfig existing = term(7, LocalDate.of(2025, 2, 17), 18);
+        when(termConfigMapper.selectOne(any())).thenReturn(existing);
+        when(scheduleImportMapper.selectCount(any())).thenReturn(1L);
+        when(scheduleAiService.parseScheduleFromImage(anyString(), any(), any())).thenReturn(emptyParsed());
+
+        assertEquals(7, importImage().getTermId());
+
+        InOrder order = inOrder(accountMapper, termConfigMapper);
+        order.verify(accountMapper).lockById(1);
+        order.verify(termConfigMapper).updateById(existing);
+        assertEquals(START, existing.getStartDate());
+        verify(eventPublisher, times(1)).publishEvent(any(ScheduleChangedEvent.class));
+        verify(scheduleImportMapper).insert(any(ScheduleImport.class));
+    }
+
+    @Test
+    void parseCacheIsKeyedByResolvedMode() {
+        when(scheduleAiService.parseScheduleFromImage(anyString(), any(), any())).thenAnswer(inv -> {
+            ScheduleParsed parsed = emptyParsed();
+            parsed.setParseMode(inv.getArgument(2));
+            return parsed;
+        });
+
+        importImage();
+        verify(cache).get("hash", ScheduleParseMode.TEXT);
+        verify(scheduleAiService).parseScheduleFromImage(anyString(), any(), eq(ScheduleParseMode.TEXT));
+        verify(cache).put(eq("hash"), eq(ScheduleParseMode.TEXT), any());
+
+        service.importSavedImage(1, "/tmp/timetable.png", "2025秋", START, 20, ScheduleParseMode.JSON, stage -> {
+        });
+        verify(cache).get("hash", ScheduleParseMode.JSON);
+        verify(cache).put(eq("hash"), eq(ScheduleParseMode.JSON), any());
+    }
+
+    @Test
+    void fallbackResultIsCachedUnderTheModeActuallyUsed() {
+        // 请求 JSON，识别失败后退回了文本模式
+        ScheduleParsed fallback = emptyParsed();
+        fallback.setParseMode(ScheduleParseMode.TEXT);
+        when(scheduleAiService.parseScheduleFromImage(anyString(), any(), eq(ScheduleParseMode.JSON)))
+                .thenReturn(fallback);
+
+        service.importSavedImage(1, "/tmp/timetable.png", "2025秋", START, 20, ScheduleParseMode.JSON, stage -> {
+        });
+
+        verify(cache).get("hash", ScheduleParseMode.JSON);
+        verify(cache).put("hash", ScheduleParseMode.TEXT, fallback);
+        verify(cache, never()).put(eq("hash"), eq(ScheduleParseMode.JSON), any());
+    }
+
+    @Test
+    void courseNamesDifferingOnlyInCaseShareOneRow() {
+        // 库里按不区分大小写、忽略尾部空格的规则只存下一行
+        Course row = new Course();
+        row.setId(42);
+        row.setCourseName("Python");
+        row.setTeacherName("王老师");
+        when(courseMapper.selectList(any())).thenReturn(List.of()).thenReturn(List.of(row));
+
+        ScheduleParsed parsed = emptyParsed();
+        parsed.getCourses().add(course("Python", "王老师"));
+        parsed.getCourses().add(course("python ", "王老师"));
+        parsed.getItems().add(item("Python", "王老师", 1));
+        parsed.getItems().add(item("python ", "王老师", 3));
+
+        assertEquals(1, service.upsertCoursesAndItems(1, term(7, START, 20), parsed));
+
+        ArgumentCaptor<List<Course>> upserted = ArgumentCaptor.captor();
+        verify(courseMapper).upsertBatch(upserted.capture());
+        assertEquals(1, upserted.getValue().size());
+        ArgumentCaptor<List<ScheduleItem>> inserted = ArgumentCaptor.captor();
+        verify(scheduleItemMapper).insert(inserted.capture(), eq(500));
+        assertEquals(2, inserted.getValue().size());
+        assertTrue(inserted.getValue().stream().allMatch(it -> it.getCourseId() == 42));
+    }
+
+    @Test
+    void courseKeyFollowsTableCollation() {
+        assertEquals(ScheduleImportServiceImpl.courseKey("Python", "王老师"),
+                ScheduleImportServiceImpl.courseKey("PYTHON  ", "王老师 "));
+        assertEquals(ScheduleImportServiceImpl.courseKey("Cafe", null),
+                ScheduleImportServiceImpl.courseKey("Café", ""));
+        assertNotEquals(ScheduleImportServiceImpl.courseKey(" Python", "王老师"),
+                ScheduleImportServiceImpl.courseKey("Python", "王老师"));
+    }
+
+    @Test
+    void rawTimeExprKeepsIrregularWeeksAndOddEven() {
+        ScheduleParsedItem parsed = item("会计学", "鲜文铎", 1);
+        parsed.setRawTimeExpr("1,3,7-9周,第1-2节,第二教学楼204");
+        assertEquals("1,3,7-9周,第1-2节,第二教学楼204", ScheduleImportServiceImpl.buildRawTimeExpr(parsed));
+
+        // 解析器没给出时按位图与单双周现拼
+        ScheduleParsedItem irregular = item("会计学", "鲜文铎", 1);
+        irregular.setWeekStart(1);
+        irregular.setWeekEnd(9);
+        irregular.setWeekMask(453L);
+        irregular.setClassroom("第二教学楼204");
+        assertEquals("1,3,7-9周,第1、2节,第二教学楼204", ScheduleImportServiceImpl.buildRawTimeExpr(irregular));
+
+        ScheduleParsedItem odd = item("大学物理实验", "王磊", 3);
+        odd.setWeekEnd(15);
+        odd.setWeekOddEven(1);
+        assertEquals("1-15单周,第3、4节,教室未知", ScheduleImportServiceImpl.buildRawTimeExpr(odd));
+    }
+
+    private static ScheduleParsedCourse course(String name, String teacher) {
+        ScheduleParsedCourse c = new ScheduleParsedCourse();
+        c.setCourseName(name);
+        c.setTeacherName(teacher);
+        return c;
+    }
+
+    private static ScheduleParsedItem item(String name, String teacher, int section) {
+        ScheduleParsedItem it = new ScheduleParsedItem();
+        it.setCourseName(name);
+        it.setTeacherName(teacher);
+        it.setDayOfWeek(1);
+        it.setSectionStart(section);
+        it.setSectionCount(2);
+        it.setWeekStart(1);
+        it.setWeekEnd(16);
+        return it;
+    }
+
+    private ScheduleUploadResultVO importImage() {
+        return service.importSavedImage(1, "/tmp/timetable.png", "2025秋", START, 20, null, stage -> {
+        });
+    }
+
+    private static TermConfig term(int id, LocalDate start, int weeks) {
+        TermConfig t = new TermConfig();
+        t.setId(id);
+        t.setUserId(1);
+        t.setTermName("2025秋");
+        t.setStartDate(start);
+        t.setTotalWeeks(weeks);
+        return t;
+    }
+
+    private static ScheduleParsed emptyParsed() {
+        ScheduleParsed parsed = new ScheduleParsed();
+        parsed.setCourses(new ArrayList<>());
+        parsed.setItems(new ArrayList<>());
+        return parsed;
+    }
+}
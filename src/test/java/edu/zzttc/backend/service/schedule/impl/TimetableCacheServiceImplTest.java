@@ -0,0 +1,81 @@
+package edu.zzttc.backend.service.schedule.impl;
+
+import edu.zzttc.backend.domain.entity.TermConfig;
+import edu.zzttc.backend.mapper.ScheduleItemMapper;
+import edu.zzttc.backend.service.schedule.model.CompiledTimetable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 已编译课表缓存：命中、失效，以及编译期间发生失效时旧结果不得被后续查询读到
+ */
+class TimetableCacheServiceImplTest {
+
+    private ScheduleItemMapper mapper;
+    private TimetableCacheServiceImpl service;
+    private TermConfig term;
+
+    @BeforeEach
+    void setUp() {
+        mapper = mock(ScheduleItemMapper.class);
+        service = new TimetableCacheServiceImpl(16, 60);
+        ReflectionTestUtils.setField(service, "scheduleItemMapper", mapper);
+        term = new TermConfig();
+        term.setId(3);
+        term.setTotalWeeks(18);
+        when(mapper.selectTermDetails(anyInt(), any())).thenReturn(List.of());
+    }
+
+    @Test
+    void compilesOncePerUserAndTerm() {
+        CompiledTimetable first = service.get(1, term);
+        assertSame(first, service.get(1, term));
+        verify(mapper, times(1)).selectTermDetails(1, 3);
+    }
+
+    @Test
+    void evictForcesRecompile() {
+        CompiledTimetable first = service.get(1, term);
+        service.get(2, term);
+        service.evict(1);
+
+        assertNotSame(first, service.get(1, term));
+        verify(mapper, times(2)).selectTermDetails(1, 3);
+        verify(mapper, times(1)).selectTermDetails(2, 3);
+    }
+
+    @Test
+    void evictDuringCompileDiscardsStaleResult() {
+        // 模拟：查询线程已读出旧数据，尚未写入缓存时，另一线程提交了课表变更并触发失效
+        when(mapper.selectTermDetails(1, 3)).thenAnswer(inv -> {
+            service.evict(1);
+            return List.of();
+        }).thenReturn(List.of());
+
+        CompiledTimetable stale = service.get(1, term);
+        CompiledTimetable fresh = service.get(1, term);
+
+        assertNotSame(stale, fresh);
+        assertSame(fresh, service.get(1, term));
+        verify(mapper, times(2)).selectTermDetails(1, 3);
+    }
+
+    @Test
+    void totalWeeksChangeForcesRecompile() {
+        CompiledTimetable first = service.get(1, term);
+        term.setTotalWeeks(20);
+        assertNotSame(first, service.get(1, term));
+    }
+}
@@ -0,0 +1,66 @@
+package edu.zzttc.backend.service.search.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HnswVectorStoreTest {
+
+    private static final String NS = "user:1";
+
+    private HnswVectorStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new HnswVectorStore(new HashingEmbeddingFunction(256), 16, 100, 128, 0.3);
+    }
+
+    @Test
+    void rebuildsOnceDeletedRatioIsReached() {
+        for (int i = 0; i < 100; i++) {
+            store.upsert(NS, "item:" + i, fact(i, "第二教学楼" + (100 + i)));
+        }
+        for (int i = 0; i < 29; i++) {
+            store.delete(NS, "item:" + i);
+        }
+        assertEquals(100, store.nodeCount(NS));
+
+        // 第 30 个删除使删除比例达到 0.3，按剩余 70 个存活节点重建
+        store.delete(NS, "item:29");
+        assertEquals(70, store.nodeCount(NS));
+        assertNull(store.get(NS, "item:0"));
+        assertEquals(fact(50, "第二教学楼150"), store.get(NS, "item:50"));
+        assertEquals(fact(50, "第二教学楼150"), store.search(NS, fact(50, "第二教学楼150"), 1)[0]);
+    }
+
+    @Test
+    void repeatedUpdatesDoNotGrowWithoutBound() {
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 100; i++) {
+                store.upsert(NS, "item:" + i, fact(i, "信软楼西" + (300 + round)));
+            }
+        }
+        // 删除比例始终低于 0.3，节点数不超过 100 / 0.7
+        assertTrue(store.nodeCount(NS) <= 143, "nodes=" + store.nodeCount(NS));
+        assertEquals(fact(7, "信软楼西304"), store.search(NS, fact(7, "信软楼西304"), 1)[0]);
+    }
+
+    @Test
+    void clearKeepsNamespaceWritable() {
+        store.upsert(NS, "item:1", fact(1, "第二教学楼104"));
+        store.clear(NS);
+        assertArrayEquals(new String[0], store.search(NS, fact(1, "第二教学楼104"), 3));
+        assertEquals(0, store.nodeCount(NS));
+
+        store.upsert(NS, "item:2", fact(2, "第二教学楼105"));
+        assertArrayEquals(new String[]{fact(2, "第二教学楼105")}, store.search(NS, fact(2, "第二教学楼105"), 3));
+    }
+
+    private static String fact(int i, String classroom) {
+        return "课程" + i + " 星期" + (1 + i % 7) + " 第" + (1 + i % 12) + "节 " + classroom;
+    }
+}
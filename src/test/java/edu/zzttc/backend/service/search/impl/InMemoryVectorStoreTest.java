@@ -0,0 +1,115 @@
+package edu.zzttc.backend.service.search.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 子串计数检索：按命中词数排序、同分按写入先后、覆盖写与删除后倒排表同步更新，清空与并发写入不丢不乱
+ */
+class InMemoryVectorStoreTest {
+
+    private InMemoryVectorStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryVectorStore();
+        store.upsert("u", "1", "课程=高等数学; 教师=张三; 教室=A101");
+        store.upsert("u", "2", "课程=线性代数; 教师=李四; 教室=A102");
+        store.upsert("u", "3", "课程=大学物理; 教师=张三; 教室=B201");
+    }
+
+    @Test
+    void ranksByMatchedTermsThenInsertionOrder() {
+        assertArrayEquals(new String[]{
+                "课程=高等数学; 教师=张三; 教室=A101",
+                "课程=大学物理; 教师=张三; 教室=B201"
+        }, store.search("u", "张三", 5));
+
+        String[] top = store.search("u", "张三 B201", 1);
+        assertArrayEquals(new String[]{"课程=大学物理; 教师=张三; 教室=B201"}, top);
+    }
+
+    @Test
+    void singleCharacterAndMissingTerms() {
+        assertEquals(2, store.search("u", "A", 5).length);
+        assertEquals(1, store.search("u", "B", 5).length);
+        assertEquals(0, store.search("u", "王五", 5).length);
+        assertEquals(0, store.search("other", "张三", 5).length);
+        assertEquals(0, store.search("u", "张三", 0).length);
+    }
+
+    @Test
+    void upsertReplacesOldText() {
+        store.upsert("u", "1", "课程=概率论; 教师=王五");
+
+        assertEquals(1, store.search("u", "张三", 5).length);
+        assertArrayEquals(new String[]{"课程=概率论; 教师=王五"}, store.search("u", "王五", 5));
+    }
+
+    @Test
+    void deleteAndClear() {
+        store.delete("u", "3");
+        assertEquals(1, store.search("u", "张三", 5).length);
+
+        store.clear("u");
+        assertEquals(0, store.search("u", "课程", 5).length);
+        assertTrue(store.ids("u").isEmpty());
+
+        // 清空的是同一个命名空间，之后的写入照常可见
+        store.upsert("u", "4", "课程=离散数学");
+        assertArrayEquals(new String[]{"课程=离散数学"}, store.search("u", "离散", 5));
+    }
+
+    @Test
+    void writesRacingWithClearStayConsistent() throws InterruptedException {
+        int writers = 4;
+        int perWriter = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int base = w * perWriter;
+            threads.add(new Thread(() -> {
+                await(start);
+                for (int i = base; i < base + perWriter; i++) {
+                    store.upsert("u", "d" + i, "文档" + i + "号");
+                }
+            }));
+        }
+        threads.add(new Thread(() -> {
+            await(start);
+            for (int i = 0; i < 50; i++) {
+                store.clear("u");
+            }
+        }));
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        // 留下来的每篇文档都能按自己的编号检索到，倒排表里也没有已清掉的文档
+        Set<String> ids = store.ids("u");
+        for (String id : ids) {
+            String text = "文档" + id.substring(1) + "号";
+            assertArrayEquals(new String[]{text}, store.search("u", text, 1));
+        }
+        assertEquals(ids.size(), store.search("u", "文档", writers * perWriter).length);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package edu.zzttc.backend.service.search.impl;
+
+import edu.zzttc.backend.domain.entity.Course;
+import edu.zzttc.backend.mapper.CourseMapper;
+import edu.zzttc.backend.mapper.PlanMapper;
+import edu.zzttc.backend.mapper.ScheduleItemMapper;
+import edu.zzttc.backend.service.schedule.ScheduleChangedEvent;
+import edu.zzttc.backend.service.schedule.TermResolver;
+import edu.zzttc.backend.service.search.VectorStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 课表变更后的索引重建：在后台线程执行，同一用户排队期间的多次变更合并为一次；
+ * 其他实例广播来的变更只重建本实例建过索引的用户；重建先写入再删除过时文档，不清空命名空间
+ */
+class ScheduleIndexServiceImplTest {
+
+    private VectorStore vectorStore;
+    private CourseMapper courseMapper;
+    private ThreadPoolExecutor executor;
+    private ScheduleIndexServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        vectorStore = mock(VectorStore.class);
+        when(vectorStore.ids(anyString())).thenAnswer(inv -> new HashSet<>());
+        courseMapper = mock(CourseMapper.class);
+        TermResolver termResolver = mock(TermResolver.class);
+        when(termResolver.listTerms(anyInt())).thenReturn(List.of());
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1));
+        service = new ScheduleIndexServiceImpl(1440);
+        ReflectionTestUtils.setField(service, "vectorStore", vectorStore);
+        ReflectionTestUtils.setField(service, "termResolver", termResolver);
+        ReflectionTestUtils.setField(service, "courseMapper", courseMapper);
+        ReflectionTestUtils.setField(service, "scheduleItemMapper", mock(ScheduleItemMapper.class));
+        ReflectionTestUtils.setField(service, "planMapper", mock(PlanMapper.class));
+        ReflectionTestUtils.setField(service, "scheduleIndexExecutor", executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void coalescesEventsWhileQueued() throws InterruptedException {
+        CountDownLatch release = blockWorker();
+
+        service.onScheduleChanged(new ScheduleChangedEvent(1));
+        service.onScheduleChanged(new ScheduleChangedEvent(1));
+        service.onScheduleChanged(new ScheduleChangedEvent(1));
+        verify(vectorStore, never()).ids("user:1");
+
+        release.countDown();
+        drain();
+        verify(vectorStore, times(1)).ids("user:1");
+    }
+
+    @Test
+    void eventAfterRebuildStartedRebuildsAgain() throws InterruptedException {
+        service.onScheduleChanged(new ScheduleChangedEvent(1));
+        drain();
+        service.onScheduleChanged(new ScheduleChangedEvent(1));
+        drain();
+        verify(vectorStore, times(2)).ids("user:1");
+    }
+
+    @Test
+    void rejectedRebuildIsRetriedOnNextEvent() throws InterruptedException {
+        CountDownLatch release = blockWorker();
+        // 占满长度为 1 的队列
+        executor.execute(() -> { });
+
+        service.onScheduleChanged(new ScheduleChangedEvent(2));
+        release.countDown();
+        drain();
+        verify(vectorStore, never()).ids("user:2");
+
+        service.onScheduleChanged(new ScheduleChangedEvent(2));
+        drain();
+        verify(vectorStore, times(1)).ids("user:2");
+    }
+
+    @Test
+    void remoteEventRebuildsOnlyUsersIndexedHere() throws InterruptedException {
+        service.ensureIndexed(1);
+
+        service.onScheduleChanged(new ScheduleChangedEvent(1, true));
+        service.onScheduleChanged(new ScheduleChangedEvent(2, true));
+        drain();
+        // 一次是按需建索引，一次是广播触发的重建
+        verify(vectorStore, times(2)).ids("user:1");
+        verify(vectorStore, never()).ids("user:2");
+    }
+
+    @Test
+    void reindexUpsertsThenPrunesWithoutClearing() {
+        Course course = new Course();
+        course.setId(1);
+        course.setCourseName("高等数学");
+        when(courseMapper.selectList(any())).thenReturn(List.of(course));
+        when(vectorStore.ids("user:1")).thenAnswer(inv -> new HashSet<>(Set.of("course:1", "item:9")));
+
+        service.reindexUser(1);
+
+        InOrder order = inOrder(vectorStore);
+        order.verify(vectorStore).upsert(eq("user:1"), eq("course:1"), anyString());
+        order.verify(vectorStore).delete("user:1", "item:9");
+        verify(vectorStore, never()).delete("user:1", "course:1");
+        verify(vectorStore, never()).clear(anyString());
+    }
+
+    /** 让唯一的工作线程卡住，之后提交的任务都留在队列里 */
+    private CountDownLatch blockWorker() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    /** 等到已提交的任务全部执行完 */
+    private void drain() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.getCompletedTaskCount() < executor.getTaskCount()) {
+            assertTrue(System.nanoTime() < deadline, "后台任务未在 5 秒内完成");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package edu.zzttc.backend.service.search.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分段日志的回放、压缩与崩溃恢复：每个用例都关闭后重新打开同一目录，检查恢复出的内容
+ */
+class SegmentVectorStoreTest {
+
+    private static final String NS = "user:1";
+    private static final String OTHER = "user:2";
+
+    @TempDir
+    Path dir;
+
+    private final List<SegmentVectorStore> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeAll() {
+        opened.forEach(SegmentVectorStore::close);
+    }
+
+    @Test
+    void replaysUpsertsDeletesAndClears() throws IOException {
+        SegmentVectorStore store = open(1 << 20);
+        store.upsert(NS, "a", "网络安全攻防技术 第二教学楼104");
+        store.upsert(NS, "b", "马克思主义基本原理 第二教学楼212");
+        store.upsert(NS, "a", "网络安全攻防技术 信软楼西305");
+        store.delete(NS, "b");
+        store.upsert(OTHER, "x", "会计学 信软楼西305");
+        store.upsert(OTHER, "y", "大学物理实验 物理实验楼301");
+        store.clear(OTHER);
+        store.upsert(OTHER, "z", "数据库原理 第二教学楼106");
+        store.close();
+
+        SegmentVectorStore reopened = open(1 << 20);
+        assertArrayEquals(new String[]{"网络安全攻防技术 信软楼西305"}, reopened.search(NS, "网络安全攻防技术", 5));
+        assertArrayEquals(new String[]{"数据库原理 第二教学楼106"}, reopened.search(OTHER, "会计学", 5));
+    }
+
+    @Test
+    void clearWritesOneRecordPerNamespace() throws IOException {
+        SegmentVectorStore store = open(1 << 20);
+        for (int i = 0; i < 50; i++) {
+            store.upsert(NS, "item:" + i, fact(i));
+        }
+        long before = totalBytes();
+        store.clear(NS);
+        long clearBytes = totalBytes() - before;
+        assertTrue(clearBytes < 64, "clear wrote " + clearBytes + " bytes");
+
+        // 已清空的命名空间再清空不写任何记录
+        store.clear(NS);
+        assertEquals(before + clearBytes, totalBytes());
+    }
+
+    @Test
+    void compactionKeepsOnlyLiveRecords() throws IOException {
+        // 分段很小，每几条记录就滚动一次
+        SegmentVectorStore store = open(2048);
+        for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < 20; i++) {
+                store.upsert(NS, "item:" + i, fact(i) + " 第" + round + "轮");
+            }
+        }
+        store.clear(OTHER);
+        store.upsert(OTHER, "x", "会计学 信软楼西305");
+        store.clear(OTHER);
+        long before = totalBytes();
+        int segmentsBefore = segmentFiles().size();
+
+        store.compact();
+
+        assertTrue(totalBytes() < before / 2, before + " -> " + totalBytes());
+        assertTrue(segmentFiles().size() < segmentsBefore);
+        assertTrue(segmentFiles().stream().anyMatch(p -> !p.getFileName().toString().endsWith("-0000.log")));
+        store.close();
+
+        SegmentVectorStore reopened = open(2048);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(fact(i) + " 第3轮", reopened.search(NS, fact(i) + " 第3轮", 1)[0]);
+        }
+        assertArrayEquals(new String[0], reopened.search(OTHER, "会计学", 5));
+    }
+
+    @Test
+    void recoversFromTornTailAndUnfinishedCompaction() throws IOException {
+        SegmentVectorStore store = open(1 << 20);
+        store.upsert(NS, "a", "网络安全攻防技术 第二教学楼104");
+        store.upsert(NS, "b", "马克思主义基本原理 第二教学楼212");
+        store.close();
+
+        // 崩溃：最后一个段末尾只写了一半的记录，压缩的临时文件残留
+        Path last = segmentFiles().get(segmentFiles().size() - 1);
+        Files.write(last, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        Path tmp = dir.resolve("seg-000000000009-0001.log.tmp");
+        Files.write(tmp, new byte[]{1, 2, 3});
+
+        SegmentVectorStore reopened = open(1 << 20);
+        assertFalse(Files.exists(tmp));
+        assertEquals(2, reopened.search(NS, "第二教学楼", 5).length);
+
+        // 新记录写在新段里，不接在半截记录后面
+        reopened.upsert(NS, "c", "会计学 信软楼西305");
+        reopened.close();
+        assertEquals(3, open(1 << 20).search(NS, "教学楼 信软楼", 5).length);
+    }
+
+    @Test
+    void skipsVictimsLeftBehindByCompaction() throws IOException {
+        SegmentVectorStore store = open(2048);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 10; i++) {
+                store.upsert(NS, "item:" + i, fact(i) + " 第" + round + "轮");
+            }
+        }
+        List<byte[]> victims = new ArrayList<>();
+        List<Path> victimPaths = new ArrayList<>(segmentFiles());
+        victimPaths.remove(victimPaths.size() - 1);
+        for (Path p : victimPaths) {
+            victims.add(Files.readAllBytes(p));
+        }
+        store.compact();
+        store.close();
+
+        // 模拟压缩后旧段没删掉：旧段里是早已被覆盖的内容，回放时必须跳过
+        for (int i = 0; i < victimPaths.size(); i++) {
+            if (!Files.exists(victimPaths.get(i))) {
+                Files.write(victimPaths.get(i), victims.get(i));
+            }
+        }
+        SegmentVectorStore reopened = open(2048);
+        for (Path p : victimPaths) {
+            assertFalse(Files.exists(p), p.toString());
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(fact(i) + " 第2轮", reopened.search(NS, fact(i) + " 第2轮", 1)[0]);
+        }
+    }
+
+    private SegmentVectorStore open(long maxSegmentBytes) throws IOException {
+        SegmentVectorStore store = new SegmentVectorStore(new HashingEmbeddingFunction(64), dir.toString(),
+                maxSegmentBytes, 0.5, 8, 50, 64, 0.3);
+        store.open();
+        opened.add(store);
+        return store;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".log"))
+                    .sorted(Comparator.comparing(p -> p.getFileName().toString()))
+                    .toList();
+        }
+    }
+
+    private long totalBytes() throws IOException {
+        long total = 0;
+        for (Path p : segmentFiles()) {
+            total += Files.size(p);
+        }
+        return total;
+    }
+
+    private static String fact(int i) {
+        return "课程" + i + " 星期" + (1 + i % 7) + " 第" + (1 + i % 12) + "节";
+    }
+}
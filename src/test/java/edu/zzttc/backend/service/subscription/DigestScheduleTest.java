@@ -0,0 +1,87 @@
+package edu.zzttc.backend.service.subscription;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 每日摘要发送时刻：夏令时跳过与重复的时段、已发送日期、非法时区与时间的兜底
+ */
+class DigestScheduleTest {
+
+    private static final String NEW_YORK = "America/New_York";
+    private static final ZoneId NY = ZoneId.of(NEW_YORK);
+
+    @Test
+    void springForwardGapMovesPastTheGap() {
+        // 2025-03-09 02:00 纽约时钟拨快到 03:00，02:30 不存在
+        Instant now = ZonedDateTime.of(2025, 3, 9, 0, 0, 0, 0, NY).toInstant();
+        long fire = DigestSchedule.nextFireAt(NEW_YORK, "02:30", null, now);
+
+        ZonedDateTime local = Instant.ofEpochMilli(fire).atZone(NY);
+        assertEquals(LocalDate.of(2025, 3, 9), local.toLocalDate());
+        assertEquals(LocalTime.of(3, 30), local.toLocalTime());
+
+        // 次日恢复为当地 02:30，而不是在上一次时刻上加 24 小时
+        long following = DigestSchedule.nextFireAt(NEW_YORK, "02:30", LocalDate.of(2025, 3, 9),
+                Instant.ofEpochMilli(fire));
+        assertEquals(LocalTime.of(2, 30), Instant.ofEpochMilli(following).atZone(NY).toLocalTime());
+    }
+
+    @Test
+    void fallBackOverlapFiresOnceAtEarlierOffset() {
+        // 2025-11-02 02:00 纽约时钟拨回 01:00，01:30 出现两次
+        Instant now = ZonedDateTime.of(2025, 11, 2, 0, 0, 0, 0, NY).toInstant();
+        long fire = DigestSchedule.nextFireAt(NEW_YORK, "01:30", null, now);
+
+        ZonedDateTime local = Instant.ofEpochMilli(fire).atZone(NY);
+        assertEquals(LocalTime.of(1, 30), local.toLocalTime());
+        assertEquals(-4 * 3600, local.getOffset().getTotalSeconds());
+
+        // 第一次发送后，即使第二个 01:30 还没到，也排到下一天
+        long following = DigestSchedule.nextFireAt(NEW_YORK, "01:30",
+                DigestSchedule.localDateOf(fire, NEW_YORK), Instant.ofEpochMilli(fire));
+        assertEquals(LocalDate.of(2025, 11, 3), DigestSchedule.localDateOf(following, NEW_YORK));
+    }
+
+    @Test
+    void lastSentDateSkipsThatDay() {
+        String zone = DigestSchedule.DEFAULT_ZONE;
+        ZoneId sh = ZoneId.of(zone);
+        Instant morning = ZonedDateTime.of(2025, 9, 1, 6, 0, 0, 0, sh).toInstant();
+
+        assertEquals(LocalDate.of(2025, 9, 1),
+                DigestSchedule.localDateOf(DigestSchedule.nextFireAt(zone, "07:00", null, morning), zone));
+        assertEquals(LocalDate.of(2025, 9, 1),
+                DigestSchedule.localDateOf(DigestSchedule.nextFireAt(zone, "07:00", LocalDate.of(2025, 8, 31), morning), zone));
+        // 今天已发过：即使发送时刻还没到也排到明天
+        assertEquals(LocalDate.of(2025, 9, 2),
+                DigestSchedule.localDateOf(DigestSchedule.nextFireAt(zone, "07:00", LocalDate.of(2025, 9, 1), morning), zone));
+        // 记录的日期在未来（例如改过时区）：从其后一天开始
+        assertEquals(LocalDate.of(2025, 9, 4),
+                DigestSchedule.localDateOf(DigestSchedule.nextFireAt(zone, "07:00", LocalDate.of(2025, 9, 3), morning), zone));
+    }
+
+    @Test
+    void resultIsStrictlyAfterNow() {
+        String zone = DigestSchedule.DEFAULT_ZONE;
+        Instant exactly = ZonedDateTime.of(2025, 9, 1, 7, 0, 0, 0, ZoneId.of(zone)).toInstant();
+        long fire = DigestSchedule.nextFireAt(zone, "07:00", null, exactly);
+        assertEquals(LocalDate.of(2025, 9, 2), DigestSchedule.localDateOf(fire, zone));
+    }
+
+    @Test
+    void invalidInputsFallBackToDefaults() {
+        assertEquals(ZoneId.of(DigestSchedule.DEFAULT_ZONE), DigestSchedule.zoneOf("Mars/Olympus"));
+        assertEquals(ZoneId.of(DigestSchedule.DEFAULT_ZONE), DigestSchedule.zoneOf(" "));
+        assertEquals(DigestSchedule.DEFAULT_TIME, DigestSchedule.dailyTimeOf("7am"));
+        assertEquals(DigestSchedule.DEFAULT_TIME, DigestSchedule.dailyTimeOf(null));
+        assertEquals(LocalTime.of(21, 15), DigestSchedule.dailyTimeOf("21:15:59"));
+    }
+}
@@ -0,0 +1,98 @@
+package edu.zzttc.backend.service.subscription;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import edu.zzttc.backend.domain.entity.SubscriptionPreference;
+import edu.zzttc.backend.mapper.SubscriptionPreferenceMapper;
+import edu.zzttc.backend.service.account.AccountService;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 每日摘要的分批认领：整批都认领失败时本轮结束，不会反复查询同一批
+ */
+class NotificationPlannerTest {
+
+    private static final int BATCH = 3;
+
+    private SubscriptionPreferenceMapper mapper;
+    private NotificationPlanner planner;
+
+    @BeforeAll
+    static void initTableInfo() {
+        if (TableInfoHelper.getTableInfo(SubscriptionPreference.class) == null) {
+            TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""),
+                    SubscriptionPreference.class);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        mapper = mock(SubscriptionPreferenceMapper.class);
+        planner = new NotificationPlanner();
+        ReflectionTestUtils.setField(planner, "prefMapper", mapper);
+        ReflectionTestUtils.setField(planner, "accountService", mock(AccountService.class));
+        ReflectionTestUtils.setField(planner, "batchSize", BATCH);
+        ReflectionTestUtils.setField(planner, "graceMinutes", 30L);
+    }
+
+    @Test
+    void stopsWhenNoRowInFullBatchIsClaimed() {
+        // 第一次查询是补算 next_fire_at，之后每次都返回同一整批
+        when(mapper.selectList(any())).thenReturn(List.of()).thenReturn(due(BATCH));
+        when(mapper.update(isNull(), any())).thenThrow(new RuntimeException("deadlock"));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> planner.planDailyDigest());
+        verify(mapper, times(2)).selectList(any());
+    }
+
+    @Test
+    void keepsPagingWhileBatchesAreClaimed() {
+        when(mapper.selectList(any())).thenReturn(List.of()).thenReturn(due(BATCH)).thenReturn(due(1));
+        when(mapper.update(isNull(), any())).thenReturn(1);
+
+        planner.planDailyDigest();
+        verify(mapper, times(3)).selectList(any());
+        verify(mapper, times(BATCH + 1)).update(isNull(), any());
+    }
+
+    @Test
+    void stopsWhenAnotherInstanceClaimedTheWholeBatch() {
+        when(mapper.selectList(any())).thenReturn(List.of()).thenReturn(due(BATCH));
+        when(mapper.update(isNull(), any())).thenReturn(0);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> planner.planDailyDigest());
+        verify(mapper, times(2)).selectList(any());
+    }
+
+    private static List<SubscriptionPreference> due(int n) {
+        long now = System.currentTimeMillis();
+        List<SubscriptionPreference> rows = new ArrayList<>();
+        for (int i = 1; i <= n; i++) {
+            SubscriptionPreference p = new SubscriptionPreference();
+            p.setId(i);
+            p.setUserId(i);
+            p.setSubscribed(true);
+            p.setTimezone(DigestSchedule.DEFAULT_ZONE);
+            p.setDailyTime("07:00");
+            p.setNextFireAt(now - 60_000L);
+            rows.add(p);
+        }
+        return rows;
+    }
+}
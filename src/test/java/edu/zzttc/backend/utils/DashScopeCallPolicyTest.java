@@ -0,0 +1,255 @@
+package edu.zzttc.backend.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * DashScope 调用策略：429/5xx/网络异常重试、4xx 与解析失败不重试，重试用尽抛出最后一次失败；
+ * 熔断器在连续失败达到阈值时打开，半开时只放行一个试探，取消的调用归还试探名额
+ */
+class DashScopeCallPolicyTest {
+
+    private static final String BASE_URL = "https://dashscope.aliyuncs.com/compatible-mode/v1";
+    private static final URI CHAT = URI.create(BASE_URL + "/chat/completions");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    // ===== 阻塞调用（run 循环） =====
+
+    @Test
+    void retriesThrottlingServerErrorsAndIo() throws IOException {
+        DashScopeCallPolicy policy = policy(4, 10, 30);
+        AtomicInteger calls = new AtomicInteger();
+
+        ResponseEntity<String> result = policy.execute("test", 0, () -> switch (calls.incrementAndGet()) {
+            case 1 -> ResponseEntity.status(429).body("slow down");
+            case 2 -> throw HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "bad gateway", HttpHeaders.EMPTY, null, null);
+            case 3 -> throw new IOException("connection reset");
+            default -> ResponseEntity.ok("{}");
+        });
+
+        assertEquals(200, result.getStatusCode().value());
+        assertEquals(4, calls.get());
+        assertEquals(3.0, registry.counter("schedule.ai.http.retries", "endpoint", "test").count());
+    }
+
+    @Test
+    void clientErrorsAndParseFailuresAreNotRetried() {
+        DashScopeCallPolicy policy = policy(3, 1, 30);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(HttpClientErrorException.class, () -> policy.execute("test", 0, () -> {
+            calls.incrementAndGet();
+            throw HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "bad request", HttpHeaders.EMPTY, null, null);
+        }));
+        assertEquals(1, calls.get());
+
+        assertThrows(IllegalStateException.class, () -> policy.execute("test", 0, () -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("unexpected json");
+        }));
+        assertEquals(2, calls.get());
+
+        // 两种失败都不计入熔断：阈值为 1 时熔断器仍是关闭的
+        assertEquals(DashScopeCallPolicy.CircuitBreaker.State.CLOSED, breaker(policy).state());
+    }
+
+    @Test
+    void exhaustedRetriesRethrowLastFailure() {
+        DashScopeCallPolicy policy = policy(3, 10, 30);
+        AtomicInteger calls = new AtomicInteger();
+        Deque<HttpServerErrorException> thrown = new ArrayDeque<>();
+
+        HttpServerErrorException e = assertThrows(HttpServerErrorException.class, () -> policy.execute("test", 0, () -> {
+            calls.incrementAndGet();
+            HttpServerErrorException failure = HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE,
+                    "attempt " + calls.get(), HttpHeaders.EMPTY, null, null);
+            thrown.push(failure);
+            throw failure;
+        }));
+
+        assertEquals(3, calls.get());
+        assertSame(thrown.peek(), e);
+    }
+
+    // ===== 熔断器 =====
+
+    @Test
+    void breakerOpensAtThreshold() throws IOException {
+        DashScopeCallPolicy policy = policy(1, 3, 30);
+        AtomicInteger calls = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(IOException.class, () -> policy.execute("test", 0, () -> {
+                calls.incrementAndGet();
+                throw new IOException("timeout");
+            }));
+        }
+        // 中间一次成功清零连续失败计数
+        policy.execute("test", 0, () -> {
+            calls.incrementAndGet();
+            return ResponseEntity.ok("{}");
+        });
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IOException.class, () -> policy.execute("test", 0, () -> {
+                calls.incrementAndGet();
+                throw new IOException("timeout");
+            }));
+        }
+        assertEquals(DashScopeCallPolicy.CircuitBreaker.State.OPEN, breaker(policy).state());
+
+        assertThrows(ResourceAccessException.class, () -> policy.execute("test", 0, () -> {
+            calls.incrementAndGet();
+            return ResponseEntity.ok("{}");
+        }));
+        assertEquals(6, calls.get());
+        assertEquals(1.0, registry.counter("schedule.ai.http.rejected", "endpoint", "test").count());
+    }
+
+    @Test
+    void halfOpenAdmitsSingleProbe() {
+        DashScopeCallPolicy.CircuitBreaker breaker = new DashScopeCallPolicy.CircuitBreaker(1, 0);
+        breaker.onFailure();
+        assertEquals(DashScopeCallPolicy.CircuitBreaker.State.OPEN, breaker.state());
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(DashScopeCallPolicy.CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+
+        // 试探失败重新打开，成功则关闭并放开所有请求
+        breaker.onFailure();
+        assertEquals(DashScopeCallPolicy.CircuitBreaker.State.OPEN, breaker.state());
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void openBreakerRejectsUntilWindowPasses() {
+        DashScopeCallPolicy.CircuitBreaker breaker = new DashScopeCallPolicy.CircuitBreaker(1, Duration.ofHours(1).toNanos());
+        breaker.onFailure();
+        assertFalse(breaker.tryAcquire());
+        assertTrue(breaker.remainingOpenNanos() > 0);
+    }
+
+    @Test
+    void cancelledStreamReleasesProbe() {
+        DashScopeCallPolicy policy = policy(1, 1, 0);
+        DashScopeCallPolicy.CircuitBreaker breaker = breaker(policy);
+        breaker.onFailure();
+
+        // 半开状态下的试探请求在收到响应头前被取消
+        Disposable subscription = policy.filter("stream")
+                .filter(request(), req -> Mono.never())
+                .subscribe();
+        assertEquals(DashScopeCallPolicy.CircuitBreaker.State.HALF_OPEN, breaker.state());
+        subscription.dispose();
+
+        assertTrue(breaker.tryAcquire());
+    }
+
+    // ===== 流式调用（filter 的 retryWhen） =====
+
+    @Test
+    void filterRetriesServerErrorsAndRequestFailures() {
+        DashScopeCallPolicy policy = policy(3, 10, 30);
+        AtomicInteger calls = new AtomicInteger();
+        ExchangeFunction next = req -> switch (calls.incrementAndGet()) {
+            case 1 -> Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+            case 2 -> Mono.error(new WebClientRequestException(new IOException("reset"), HttpMethod.POST, CHAT,
+                    HttpHeaders.EMPTY));
+            default -> Mono.just(ClientResponse.create(HttpStatus.OK).build());
+        };
+
+        ClientResponse response = policy.filter("stream").filter(request(), next).block(Duration.ofSeconds(5));
+
+        assertEquals(200, response.statusCode().value());
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void filterPassesClientErrorsAndOtherFailuresThrough() {
+        DashScopeCallPolicy policy = policy(3, 10, 30);
+        AtomicInteger calls = new AtomicInteger();
+
+        ClientResponse response = policy.filter("stream").filter(request(), req -> {
+            calls.incrementAndGet();
+            return Mono.just(ClientResponse.create(HttpStatus.BAD_REQUEST).build());
+        }).block(Duration.ofSeconds(5));
+        assertEquals(400, response.statusCode().value());
+        assertEquals(1, calls.get());
+
+        assertThrows(IllegalStateException.class, () -> policy.filter("stream").filter(request(), req -> {
+            calls.incrementAndGet();
+            return Mono.error(new IllegalStateException("decode"));
+        }).block(Duration.ofSeconds(5)));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void filterExhaustionRethrowsLastFailure() {
+        DashScopeCallPolicy policy = policy(3, 10, 30);
+        AtomicInteger calls = new AtomicInteger();
+
+        WebClientResponseException e = assertThrows(WebClientResponseException.class, () -> policy.filter("stream")
+                .filter(request(), req -> Mono.just(ClientResponse.create(calls.incrementAndGet() < 3
+                        ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.TOO_MANY_REQUESTS).build()))
+                .block(Duration.ofSeconds(5)));
+
+        assertEquals(3, calls.get());
+        assertEquals(429, e.getStatusCode().value());
+    }
+
+    @Test
+    void otherHostsBypassThePolicy() {
+        DashScopeCallPolicy policy = policy(3, 1, 30);
+        breaker(policy).onFailure();
+        ClientRequest other = ClientRequest.create(HttpMethod.GET, URI.create("https://example.com/")).build();
+
+        ClientResponse response = policy.filter("stream")
+                .filter(other, req -> Mono.just(ClientResponse.create(HttpStatus.OK).build()))
+                .block(Duration.ofSeconds(5));
+        assertEquals(200, response.statusCode().value());
+    }
+
+    private DashScopeCallPolicy policy(int maxAttempts, int failureThreshold, long openSeconds) {
+        return new DashScopeCallPolicy(BASE_URL, maxAttempts, 1, 2, failureThreshold, openSeconds, registry);
+    }
+
+    private static DashScopeCallPolicy.CircuitBreaker breaker(DashScopeCallPolicy policy) {
+        return (DashScopeCallPolicy.CircuitBreaker) ReflectionTestUtils.getField(policy, "breaker");
+    }
+
+    private static ClientRequest request() {
+        return ClientRequest.create(HttpMethod.POST, CHAT).build();
+    }
+}
@@ -0,0 +1,88 @@
+package edu.zzttc.backend.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 截图预处理：预算内原样返回，超像素等比缩小并保留格式，超字节重压为 JPEG，无法识别的文件不处理
+ */
+class ImageDownscalerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void withinBudgetReturnsSource() throws IOException {
+        Path src = png("small.png", 200, 100);
+        assertSame(src, ImageDownscaler.fit(src, 200 * 100, Files.size(src), 0.9f));
+        assertSame(src, ImageDownscaler.fit(src, 0, 0, 0.9f));
+    }
+
+    @Test
+    void tooManyPixelsScalesDownKeepingAspectAndFormat() throws IOException {
+        Path src = png("large.png", 2000, 1000);
+        Path out = ImageDownscaler.fit(src, 500_000, 0, 0.9f);
+        try {
+            assertNotEquals(src, out);
+            assertTrue(out.toString().endsWith(".png"));
+            BufferedImage img = ImageIO.read(out.toFile());
+            assertTrue((long) img.getWidth() * img.getHeight() <= 500_000);
+            assertEquals(2.0, (double) img.getWidth() / img.getHeight(), 0.01);
+            assertEquals(1000, img.getWidth(), 1);
+        } finally {
+            Files.deleteIfExists(out);
+        }
+    }
+
+    @Test
+    void tooManyBytesIsRecompressedAsJpeg() throws IOException {
+        Path src = png("heavy.png", 400, 300);
+        Path out = ImageDownscaler.fit(src, 0, 1, 0.8f);
+        try {
+            assertTrue(out.toString().endsWith(".jpg"));
+            BufferedImage img = ImageIO.read(out.toFile());
+            assertEquals(400, img.getWidth());
+            assertEquals(300, img.getHeight());
+        } finally {
+            Files.deleteIfExists(out);
+        }
+    }
+
+    @Test
+    void unreadableFileIsReturnedAsIs() throws IOException {
+        Path src = dir.resolve("not-an-image.png");
+        Files.writeString(src, "plain text");
+        assertSame(src, ImageDownscaler.fit(src, 1, 1, 0.9f));
+    }
+
+    private Path png(String name, int width, int height) throws IOException {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.setColor(Color.BLACK);
+            for (int x = 0; x < width; x += 10) {
+                g.drawLine(x, 0, x, height);
+            }
+        } finally {
+            g.dispose();
+        }
+        Path path = dir.resolve(name);
+        ImageIO.write(img, "png", path.toFile());
+        return path;
+    }
+}
@@ -0,0 +1,125 @@
+package edu.zzttc.backend.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 按星期列切图：每块都带节次列，左右重叠在图像边界处截断，列数不能整除时最后一块只含剩下的星期
+ */
+class ImageTilesTest {
+
+    /** 800 宽：节次列 80，7 个星期列各约 102.86 */
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 40;
+    private static final int LABEL = 0xFF0000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void splitsIntoLabelledTilesWithClampedOverlap() throws IOException {
+        List<ImageTiles.Tile> tiles = ImageTiles.splitDayColumns(timetable(), 7, 3, 0.1, 0.15);
+        try {
+            assertEquals(3, tiles.size());
+            assertDays(tiles.get(0), 1, 3);
+            assertDays(tiles.get(1), 4, 6);
+            // 7 % 3 != 0：最后一块只有星期日
+            assertDays(tiles.get(2), 7, 7);
+
+            // 第一块左侧重叠被节次列截住：80 + [80, 404)
+            BufferedImage first = read(tiles.get(0));
+            assertEquals(80 + 324, first.getWidth());
+            assertEquals(LABEL, rgb(first, 0));
+            assertEquals(LABEL, rgb(first, 79));
+            assertEquals(day(1), rgb(first, 80));
+            // 右侧多截的 15 像素落在星期四
+            assertEquals(day(4), rgb(first, first.getWidth() - 1));
+
+            // 中间一块左右都带重叠
+            BufferedImage middle = read(tiles.get(1));
+            assertEquals(LABEL, rgb(middle, 0));
+            assertEquals(day(3), rgb(middle, 80));
+            assertEquals(day(7), rgb(middle, middle.getWidth() - 1));
+
+            // 最后一块右侧重叠被图像右边界截住：80 + [682, 800)
+            BufferedImage last = read(tiles.get(2));
+            assertEquals(80 + 118, last.getWidth());
+            assertEquals(LABEL, rgb(last, 40));
+            assertEquals(day(6), rgb(last, 80));
+            assertEquals(day(7), rgb(last, last.getWidth() - 1));
+        } finally {
+            ImageTiles.delete(tiles);
+        }
+        tiles.forEach(t -> assertFalse(Files.exists(t.path())));
+    }
+
+    @Test
+    void evenSplitCoversEveryDayOnce() throws IOException {
+        List<ImageTiles.Tile> tiles = ImageTiles.splitDayColumns(timetable(), 7, 1, 0.1, 0);
+        try {
+            assertEquals(7, tiles.size());
+            for (int d = 1; d <= 7; d++) {
+                assertDays(tiles.get(d - 1), d, d);
+                BufferedImage tile = read(tiles.get(d - 1));
+                assertEquals(day(d), rgb(tile, 80));
+                assertEquals(day(d), rgb(tile, tile.getWidth() - 1));
+            }
+        } finally {
+            ImageTiles.delete(tiles);
+        }
+    }
+
+    @Test
+    void unreadableImageGivesNoTiles() throws IOException {
+        Path junk = dir.resolve("junk.png");
+        Files.writeString(junk, "not an image");
+        assertTrue(ImageTiles.splitDayColumns(junk, 7, 2, 0.1, 0.15).isEmpty());
+    }
+
+    /** 节次列涂红，第 d 个星期列（与切图相同的取整边界）涂成 day(d) */
+    private Path timetable() throws IOException {
+        BufferedImage img = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        double columnW = (WIDTH - 80) / 7.0;
+        for (int x = 0; x < WIDTH; x++) {
+            int d = 1;
+            while (d < 7 && x >= 80 + Math.round(d * columnW)) {
+                d++;
+            }
+            int color = x < 80 ? LABEL : day(d);
+            for (int y = 0; y < HEIGHT; y++) {
+                img.setRGB(x, y, color);
+            }
+        }
+        Path src = dir.resolve("timetable.png");
+        ImageIO.write(img, "png", src.toFile());
+        return src;
+    }
+
+    private static int day(int d) {
+        return d * 0x202020;
+    }
+
+    private static void assertDays(ImageTiles.Tile tile, int firstDay, int lastDay) {
+        assertEquals(firstDay, tile.firstDay());
+        assertEquals(lastDay, tile.lastDay());
+    }
+
+    private static BufferedImage read(ImageTiles.Tile tile) throws IOException {
+        return ImageIO.read(tile.path().toFile());
+    }
+
+    private static int rgb(BufferedImage img, int x) {
+        return img.getRGB(x, HEIGHT / 2) & 0xFFFFFF;
+    }
+}
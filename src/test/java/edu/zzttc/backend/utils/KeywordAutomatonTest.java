@@ -0,0 +1,76 @@
+package edu.zzttc.backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 多关键词自动机：重叠、嵌套与共享后缀的关键词都要命中，并与逐个 contains 的结果一致
+ */
+class KeywordAutomatonTest {
+
+    @Test
+    void findsOverlappingAndNestedKeywords() {
+        KeywordAutomaton ac = KeywordAutomaton.of(Map.of("上午", 1L, "下午", 2L, "午", 4L, "明天上", 8L));
+
+        assertEquals(1L | 4L | 8L, ac.scan("明天上午有什么课"));
+        assertEquals(2L | 4L, ac.scan("下午"));
+        assertEquals(0L, ac.scan("晚上"));
+        assertEquals(0L, ac.scan(""));
+    }
+
+    @Test
+    void failLinksRecoverAfterPartialMatch() {
+        // “这周” 走到一半失败后，要能从 “周” 继续匹配 “周五”
+        KeywordAutomaton ac = KeywordAutomaton.of(Map.of("这周一", 1L, "周五", 2L));
+
+        assertEquals(2L, ac.scan("这周五"));
+        assertEquals(1L, ac.scan("这这周一"));
+    }
+
+    @Test
+    void sameFlagForSeveralKeywordsIsOred() {
+        KeywordAutomaton ac = KeywordAutomaton.of(Map.of("晚上", 1L, "今晚", 1L, "课", 2L));
+        assertEquals(3L, ac.scan("今晚有课"));
+    }
+
+    @Test
+    void emptyKeywordIsIgnored() {
+        Map<String, Long> keywords = new LinkedHashMap<>();
+        keywords.put("", 1L);
+        keywords.put("课", 2L);
+        KeywordAutomaton ac = KeywordAutomaton.of(keywords);
+        assertEquals(0L, ac.scan("明天"));
+        assertEquals(2L, ac.scan("有课"));
+    }
+
+    @Test
+    void matchesNaiveContainsOnRandomText() {
+        String[] words = {"ab", "bc", "abc", "c", "cab", "bb"};
+        Map<String, Long> keywords = new LinkedHashMap<>();
+        for (int i = 0; i < words.length; i++) {
+            keywords.put(words[i], 1L << i);
+        }
+        KeywordAutomaton ac = KeywordAutomaton.of(keywords);
+        Random random = new Random(7);
+        for (int n = 0; n < 500; n++) {
+            StringBuilder sb = new StringBuilder();
+            int len = random.nextInt(12);
+            for (int i = 0; i < len; i++) {
+                sb.append("abcx".charAt(random.nextInt(4)));
+            }
+            String text = sb.toString();
+            long expected = 0L;
+            for (int i = 0; i < words.length; i++) {
+                if (text.contains(words[i])) {
+                    expected |= 1L << i;
+                }
+            }
+            assertEquals(expected, ac.scan(text), text);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package edu.zzttc.backend.utils;
+
+import edu.zzttc.backend.domain.vo.schedule.DailyCourseVO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 本地模板回答：日期相对参考日期复述，开头带上问句中的时段、节次或钟点范围
+ */
+class ScheduleAnswerFormatterTest {
+
+    private static final LocalDate BASE = LocalDate.of(2025, 11, 3);
+
+    @Test
+    void dayLabelIsRelativeToBaseDate() {
+        assertEquals("今天", ScheduleAnswerFormatter.dayLabel(BASE, BASE));
+        assertEquals("明天", ScheduleAnswerFormatter.dayLabel(BASE.plusDays(1), BASE));
+        assertEquals("前天", ScheduleAnswerFormatter.dayLabel(BASE.minusDays(2), BASE));
+        assertEquals("11月10日（周一）", ScheduleAnswerFormatter.dayLabel(BASE.plusDays(7), BASE));
+    }
+
+    @Test
+    void headerNamesPeriodSectionsAndClock() {
+        assertEquals("上午", label("明天上午有什么课"));
+        assertEquals("第3-4节", label("明天第3-4节有什么课"));
+        assertEquals("第5节", label("第5节有什么课"));
+        assertEquals("第5节以后", label("第5节以后有什么课"));
+        assertEquals("第1-4节", label("第4节之前有什么课"));
+        assertEquals("下午15:00以后", label("下午3点以后有什么课"));
+        assertEquals("10:00以前", label("10点之前有课吗"));
+        assertEquals("08:00-10:00", label("8点到10点有什么课"));
+        assertEquals("", label("明天有什么课"));
+        assertEquals("", ScheduleAnswerFormatter.rangeLabel(null));
+    }
+
+    @Test
+    void formatsEmptyAndNonEmptyDays() {
+        ScheduleTimeResolver.ResolvedTime time = ScheduleTimeResolver.resolve("明天下午3点以后有什么课", BASE);
+        assertEquals("明天下午15:00以后没有安排课程。",
+                ScheduleAnswerFormatter.format(BASE.plusDays(1), BASE, time, List.of()));
+
+        DailyCourseVO c = new DailyCourseVO();
+        c.setCourseName("高等数学");
+        c.setTeacherName("张三");
+        c.setClassroom("A101");
+        c.setSectionStart(5);
+        c.setSectionCount(2);
+        String answer = ScheduleAnswerFormatter.format(BASE.plusDays(1), BASE, time, List.of(c));
+        assertTrue(answer.startsWith("你明天下午15:00以后有1节课："), answer);
+        assertTrue(answer.contains("**第5-6节**"), answer);
+        assertTrue(answer.contains("课程：高等数学"), answer);
+    }
+
+    private static String label(String question) {
+        return ScheduleAnswerFormatter.rangeLabel(ScheduleTimeResolver.resolve(question, BASE));
+    }
+}
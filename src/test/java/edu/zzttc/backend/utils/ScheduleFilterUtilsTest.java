@@ -0,0 +1,65 @@
+package edu.zzttc.backend.utils;
+
+import edu.zzttc.backend.domain.vo.schedule.DailyCourseVO;
+import edu.zzttc.backend.utils.ScheduleTimeResolver.ResolvedTime;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ScheduleFilterUtilsTest {
+
+    private static final LocalDate BASE = LocalDate.of(2025, 10, 15);
+
+    /** 1-2 节、3-4 节、5-6 节、7-8 节、9-10 节各一门 */
+    private static final List<DailyCourseVO> DAY = List.of(course("高等数学", 1), course("线性代数", 3),
+            course("大学英语", 5), course("数据结构", 7), course("形势与政策", 9));
+
+    @Test
+    void afterClockTimeKeepsRestOfDay() {
+        assertEquals(List.of("大学英语", "数据结构", "形势与政策"), names("明天下午3点以后有课吗"));
+        // 14:50 落在第 5、6 节之间的课间
+        assertEquals(List.of("大学英语", "数据结构", "形势与政策"), names("今天下午2点50之后有课吗"));
+    }
+
+    @Test
+    void beforeClockTime() {
+        assertEquals(List.of("高等数学"), names("9点以前有课吗"));
+        assertEquals(List.of("高等数学", "线性代数", "大学英语"), names("下午3点前有课吗"));
+    }
+
+    @Test
+    void instantInBreakUsesNearestSection() {
+        // 12:00 离第 4 节下课最近
+        assertEquals(List.of("线性代数"), names("12点有课吗"));
+        // 17:50 离第 8 节下课最近
+        assertEquals(List.of("数据结构"), names("下午5点50有课吗"));
+    }
+
+    @Test
+    void rangeOutsideTimetableFallsBackToPeriod() {
+        assertEquals(List.of("形势与政策"), names("晚上11点以后有课吗"));
+    }
+
+    @Test
+    void explicitSectionsAndPeriods() {
+        assertEquals(List.of("数据结构"), names("第7节是什么课"));
+        assertEquals(List.of("大学英语", "数据结构"), names("下午有课吗"));
+        assertEquals(DAY.size(), names("今天有课吗").size());
+    }
+
+    private static List<String> names(String question) {
+        ResolvedTime rt = ScheduleTimeResolver.resolve(question, BASE);
+        return ScheduleFilterUtils.filter(DAY, rt).stream().map(DailyCourseVO::getCourseName).toList();
+    }
+
+    private static DailyCourseVO course(String name, int sectionStart) {
+        DailyCourseVO vo = new DailyCourseVO();
+        vo.setCourseName(name);
+        vo.setSectionStart(sectionStart);
+        vo.setSectionCount(2);
+        return vo;
+    }
+}
@@ -0,0 +1,49 @@
+package edu.zzttc.backend.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static edu.zzttc.backend.utils.ScheduleQuestionClassifier.Intent.LIST_COURSES;
+import static edu.zzttc.backend.utils.ScheduleQuestionClassifier.Intent.OPEN;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 问句意图分类：只有落到某一天的时间词加列课说法才走本地模板，其余交给大模型
+ */
+class ScheduleQuestionClassifierTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "明天上午有什么课？", "今天有课吗", "下周三的课表", "第5周周二有哪些课",
+            "11月3日有什么课", "2025-11-03 有课么", "明天第3-4节上什么课",
+            "请问后天下午有几节课呢", "下午3点以后有什么课", "明天10点之前有课吗", "第5节以后有什么课",
+            "下周一有什么课", "这周日有课吗", "本周星期三的课", "11月3号有什么课"
+    })
+    void listingQuestions(String question) {
+        assertEquals(LIST_COURSES, ScheduleQuestionClassifier.classify(question));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "明天的高数在哪个教室", "为什么明天没有课", "明天上午", "帮我把明天的课调到下午",
+            "张老师明天有课吗", "考试是什么时候"
+    })
+    void openQuestions(String question) {
+        assertEquals(OPEN, ScheduleQuestionClassifier.classify(question));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "下周有什么课", "本周的课表", "11月有什么课", "第5周有什么课", "这星期有哪些课", "下下周的课程安排"
+    })
+    void weekOrMonthWithoutDayIsOpen(String question) {
+        assertEquals(OPEN, ScheduleQuestionClassifier.classify(question));
+    }
+
+    @Test
+    void blankIsOpen() {
+        assertEquals(OPEN, ScheduleQuestionClassifier.classify(null));
+        assertEquals(OPEN, ScheduleQuestionClassifier.classify("  "));
+    }
+}
@@ -0,0 +1,107 @@
+package edu.zzttc.backend.utils;
+
+import edu.zzttc.backend.utils.ScheduleTimeResolver.DayPeriod;
+import edu.zzttc.backend.utils.ScheduleTimeResolver.ResolvedTime;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScheduleTimeResolverTest {
+
+    /** 2025-10-15，周三 */
+    private static final LocalDate BASE = LocalDate.of(2025, 10, 15);
+
+    @Test
+    void relativeDayWeekAndPeriod() {
+        ResolvedTime rt = ScheduleTimeResolver.resolve("明天上午有课吗", BASE);
+        assertEquals(BASE.plusDays(1), rt.getDate());
+        assertEquals(DayPeriod.MORNING, rt.getPeriod());
+
+        rt = ScheduleTimeResolver.resolve("下周一晚上要上课吗", BASE);
+        assertEquals(LocalDate.of(2025, 10, 20), rt.getDate());
+        assertEquals(1, rt.getDayOfWeek());
+        assertEquals(DayPeriod.EVENING, rt.getPeriod());
+    }
+
+    @Test
+    void explicitDates() {
+        ResolvedTime rt = ScheduleTimeResolver.resolve("11月3日有什么课", BASE);
+        assertTrue(rt.isExplicitDate());
+        assertEquals(LocalDate.of(2025, 11, 3), rt.getDate());
+
+        rt = ScheduleTimeResolver.resolve("2026年3月2号上午", BASE);
+        assertEquals(LocalDate.of(2026, 3, 2), rt.getDate());
+
+        rt = ScheduleTimeResolver.resolve("2025-11-03 的课", BASE);
+        assertEquals(LocalDate.of(2025, 11, 3), rt.getDate());
+
+        rt = ScheduleTimeResolver.resolve("2月30日有课吗", BASE);
+        assertFalse(rt.isExplicitDate());
+        assertEquals(BASE, rt.getDate());
+    }
+
+    @Test
+    void teachingWeek() {
+        ResolvedTime rt = ScheduleTimeResolver.resolve("第5周周三有什么课", BASE);
+        assertEquals(5, rt.getTeachingWeek());
+        assertEquals(3, rt.getDayOfWeek());
+
+        rt = ScheduleTimeResolver.resolve("第十二周的课", BASE);
+        assertEquals(12, rt.getTeachingWeek());
+    }
+
+    @Test
+    void sections() {
+        assertSections("第3-4节是什么课", 3, 4);
+        assertSections("第一、二节在哪", 1, 2);
+        assertSections("第一二节在哪", 1, 2);
+        assertSections("第1节到第4节", 1, 4);
+        assertSections("3到4节", 3, 4);
+        assertSections("第5节以后还有课吗", 5, 20);
+        assertSections("第三节课之前有课吗", 1, 3);
+
+        ResolvedTime rt = ScheduleTimeResolver.resolve("今天有两节课吗", BASE);
+        assertNull(rt.getSectionFrom());
+    }
+
+    @Test
+    void clockTimes() {
+        assertTimes("明天8点到10点有课吗", LocalTime.of(8, 0), LocalTime.of(10, 0));
+        assertTimes("14:00-16:00", LocalTime.of(14, 0), LocalTime.of(16, 0));
+        assertTimes("晚上7点半有课吗", LocalTime.of(19, 30), LocalTime.of(19, 30));
+        assertTimes("下午3点10分在哪上课", LocalTime.of(15, 10), LocalTime.of(15, 10));
+        // 没有时段时 1~6 点按下午
+        assertTimes("3点有课吗", LocalTime.of(15, 0), LocalTime.of(15, 0));
+        assertTimes("12点有课吗", LocalTime.of(12, 0), LocalTime.of(12, 0));
+
+        ResolvedTime rt = ScheduleTimeResolver.resolve("快一点告诉我", BASE);
+        assertNull(rt.getTimeFrom());
+    }
+
+    @Test
+    void openEndedClockTimes() {
+        assertTimes("明天下午3点以后有课吗", LocalTime.of(15, 0), LocalTime.MAX);
+        assertTimes("今天下午2点50之后有课吗", LocalTime.of(14, 50), LocalTime.MAX);
+        assertTimes("晚上8点起还有课吗", LocalTime.of(20, 0), LocalTime.MAX);
+        assertTimes("10点以前有课吗", LocalTime.MIN, LocalTime.of(10, 0));
+        assertTimes("下午4点前有课吗", LocalTime.MIN, LocalTime.of(16, 0));
+    }
+
+    private static void assertSections(String question, int from, int to) {
+        ResolvedTime rt = ScheduleTimeResolver.resolve(question, BASE);
+        assertEquals(from, rt.getSectionFrom(), question);
+        assertEquals(to, rt.getSectionTo(), question);
+    }
+
+    private static void assertTimes(String question, LocalTime from, LocalTime to) {
+        ResolvedTime rt = ScheduleTimeResolver.resolve(question, BASE);
+        assertEquals(from, rt.getTimeFrom(), question);
+        assertEquals(to, rt.getTimeTo(), question);
+    }
+}
@@ -0,0 +1,59 @@
+package edu.zzttc.backend.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 单用户流式问答并发限制：超限拒绝、归还后可再占用、用户之间互不影响
+ */
+class UserConcurrencyLimiterTest {
+
+    private SimpleMeterRegistry registry;
+    private UserConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        limiter = new UserConcurrencyLimiter(2, registry);
+    }
+
+    @Test
+    void rejectsBeyondLimitPerUser() {
+        assertTrue(limiter.tryAcquire(1));
+        assertTrue(limiter.tryAcquire(1));
+        assertFalse(limiter.tryAcquire(1));
+        assertTrue(limiter.tryAcquire(2));
+
+        assertEquals(1.0, registry.get("schedule.qa.user.rejected").counter().count());
+        assertEquals(3.0, registry.get("schedule.qa.streams.active").gauge().value());
+    }
+
+    @Test
+    void releaseFreesSlotAndDropsIdleUser() {
+        limiter.tryAcquire(1);
+        limiter.tryAcquire(1);
+        limiter.release(1);
+        assertTrue(limiter.tryAcquire(1));
+
+        limiter.release(1);
+        limiter.release(1);
+        assertEquals(0.0, registry.get("schedule.qa.streams.active").gauge().value());
+        // 多余的归还不会让计数变成负数
+        limiter.release(1);
+        assertTrue(limiter.tryAcquire(1));
+        assertTrue(limiter.tryAcquire(1));
+        assertFalse(limiter.tryAcquire(1));
+    }
+
+    @Test
+    void nonPositiveLimitAllowsOne() {
+        UserConcurrencyLimiter one = new UserConcurrencyLimiter(0, new SimpleMeterRegistry());
+        assertTrue(one.tryAcquire(1));
+        assertFalse(one.tryAcquire(1));
+    }
+}
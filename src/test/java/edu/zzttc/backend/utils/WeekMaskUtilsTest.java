@@ -0,0 +1,52 @@
+package edu.zzttc.backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WeekMaskUtilsTest {
+
+    @Test
+    void rangeWithOddEven() {
+        assertEquals("1-16", WeekMaskUtils.format(WeekMaskUtils.of(1, 16, 0)));
+        assertEquals("1,3,5,7", WeekMaskUtils.format(WeekMaskUtils.of(1, 8, 1)));
+        assertEquals("2,4,6,8", WeekMaskUtils.format(WeekMaskUtils.of(1, 8, 2)));
+        assertEquals(0L, WeekMaskUtils.of(null, 5, 0));
+    }
+
+    @Test
+    void parsesIrregularLists() {
+        long mask = WeekMaskUtils.parse("1,3,7-9");
+        assertEquals("1,3,7-9", WeekMaskUtils.format(mask));
+        assertEquals(1, WeekMaskUtils.minWeek(mask));
+        assertEquals(9, WeekMaskUtils.maxWeek(mask));
+        assertTrue(WeekMaskUtils.contains(mask, 8));
+        assertFalse(WeekMaskUtils.contains(mask, 5));
+
+        assertEquals(WeekMaskUtils.parse("1-7,9"), WeekMaskUtils.parse("1-7周、9周"));
+        assertEquals(WeekMaskUtils.parse("2，4，10-12"), WeekMaskUtils.parse("2,4,10-12"));
+        assertEquals(WeekMaskUtils.of(1, 15, 1), WeekMaskUtils.parse("1-15单"));
+        assertEquals(WeekMaskUtils.of(2, 16, 2), WeekMaskUtils.parse("第2-16双周"));
+    }
+
+    @Test
+    void ignoresUnknownPartsAndOutOfRangeWeeks() {
+        assertEquals(0L, WeekMaskUtils.parse(null));
+        assertEquals(0L, WeekMaskUtils.parse("  "));
+        assertEquals("3", WeekMaskUtils.format(WeekMaskUtils.parse("3,abc")));
+        assertEquals("63", WeekMaskUtils.format(WeekMaskUtils.parse("63,64")));
+    }
+
+    @Test
+    void describeKeepsIrregularWeeksAndOddEven() {
+        assertEquals("1-16周", WeekMaskUtils.describe(null, 1, 16, 0));
+        assertEquals("7周", WeekMaskUtils.describe(WeekMaskUtils.of(7, 7, 0), 7, 7, 0));
+        assertEquals("1-15单周", WeekMaskUtils.describe(WeekMaskUtils.of(1, 15, 1), 1, 15, 1));
+        assertEquals("2-16双周", WeekMaskUtils.describe(null, 2, 16, 2));
+        // 不规则周次的起止周只是位图的最小、最大周
+        assertEquals("1,3,7-9周", WeekMaskUtils.describe(WeekMaskUtils.parse("1,3,7-9"), 1, 9, 0));
+        assertEquals("周次未知", WeekMaskUtils.describe(null, null, null, null));
+    }
+}